@@ -1,15 +1,121 @@
 package com.example.goldenaudiobook;
 
 import android.app.Application;
+import android.util.Log;
+
+import com.example.goldenaudiobook.data.AudiobookRepository;
+import com.example.goldenaudiobook.data.CatalogDatabase;
+import com.example.goldenaudiobook.data.FeedSync;
+import com.example.goldenaudiobook.data.MemoryCache;
+import com.example.goldenaudiobook.data.PageCache;
+import com.example.goldenaudiobook.data.SitemapCrawler;
+import com.example.goldenaudiobook.data.SuggestionTrie;
+import com.example.goldenaudiobook.data.WebDataSource;
+import com.example.goldenaudiobook.data.WpRestDataSource;
 
 /**
  * Application class for Golden Audiobook app
  */
 public class GoldenAudiobookApp extends Application {
+    private static final String TAG = "GoldenAudiobookApp";
+
+    private static final long FEED_SYNC_INTERVAL_MS = 30 * 60 * 1000L;
+    private static final long CRAWL_INTERVAL_MS = 6 * 60 * 60 * 1000L;
+    // A crawl that ran out of budget with posts left continues this soon
+    private static final long CRAWL_RESUME_INTERVAL_MS = 30 * 60 * 1000L;
+    // sync_state rows holding when each job was last started, in epoch millis
+    private static final String LAST_FEED_SYNC = "last_feed_sync";
+    private static final String LAST_CRAWL = "last_crawl";
+
+    private static AudiobookRepository repository;
 
     @Override
     public void onCreate() {
         super.onCreate();
         // Initialize any global components here
+        PageCache.init(this);
+        CatalogDatabase.init(this);
+        SuggestionTrie.init(this);
+        // Created after the page cache and suggestions so it picks them up
+        repository = new AudiobookRepository(new WpRestDataSource(), new MemoryCache(MemoryCache.DEFAULT_MAX_OBJECTS),
+                CatalogDatabase.getInstance());
+
+        // The checks read the catalog, so they stay off the main thread
+        new Thread(GoldenAudiobookApp::syncCatalog, "catalog-sync").start();
+    }
+
+    /**
+     * Pick up new posts from the feed and continue the catalog crawl where the last one
+     * stopped, both in the background lane. Each job runs at most once per interval, not on
+     * every cold start; the time it last started is kept in the catalog.
+     */
+    private static void syncCatalog() {
+        CatalogDatabase catalog = CatalogDatabase.getInstance();
+        long now = System.currentTimeMillis();
+        if (isDue(catalog, LAST_FEED_SYNC, FEED_SYNC_INTERVAL_MS, now)) {
+            catalog.putSyncState(LAST_FEED_SYNC, String.valueOf(now));
+            syncFeed(catalog);
+        }
+        long crawlInterval = catalog.getPendingCount() > 0 ? CRAWL_RESUME_INTERVAL_MS : CRAWL_INTERVAL_MS;
+        if (isDue(catalog, LAST_CRAWL, crawlInterval, now)) {
+            catalog.putSyncState(LAST_CRAWL, String.valueOf(now));
+            crawl(catalog);
+        }
+    }
+
+    private static boolean isDue(CatalogDatabase catalog, String name, long intervalMs, long now) {
+        String last = catalog.getSyncState(name);
+        if (last == null) {
+            return true;
+        }
+        try {
+            long elapsed = now - Long.parseLong(last);
+            // A clock set back makes the last run look in the future; run rather than wait
+            return elapsed >= intervalMs || elapsed < 0;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static void syncFeed(CatalogDatabase catalog) {
+        new FeedSync(catalog).sync(new WebDataSource.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                Log.i(TAG, "Feed sync: " + result + " new posts");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Feed sync failed", e);
+            }
+        });
+    }
+
+    private static void crawl(CatalogDatabase catalog) {
+        new SitemapCrawler(catalog).crawl(SitemapCrawler.DEFAULT_FETCH_BUDGET,
+                new WebDataSource.Callback<SitemapCrawler.Progress>() {
+                    @Override
+                    public void onSuccess(SitemapCrawler.Progress result) {
+                        Log.i(TAG, "Catalog crawl: " + result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Log.w(TAG, "Catalog crawl failed", e);
+                    }
+                });
+    }
+
+    /**
+     * The repository shared by every screen
+     */
+    public static AudiobookRepository getRepository() {
+        return repository;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        repository.onTrimMemory(level);
     }
 }
@@ -1,5 +1,6 @@
 package com.example.goldenaudiobook.adapter;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -23,14 +24,33 @@ import java.util.List;
 public class AudiobookAdapter extends ListAdapter<Audiobook, AudiobookAdapter.AudiobookViewHolder> {
 
     private final OnAudiobookClickListener listener;
+    // Fixed card width in pixels for horizontal rows, or 0 to fill the column
+    private final int cardWidth;
 
     public interface OnAudiobookClickListener {
         void onAudiobookClick(Audiobook audiobook);
     }
 
     public AudiobookAdapter(OnAudiobookClickListener listener) {
+        this(listener, 0);
+    }
+
+    public AudiobookAdapter(OnAudiobookClickListener listener, int cardWidth) {
         super(DIFF_CALLBACK);
         this.listener = listener;
+        this.cardWidth = cardWidth;
+    }
+
+    /**
+     * Warm the image cache with covers of cards not on screen yet
+     */
+    public static void preloadCovers(Context context, List<String> imageUrls) {
+        if (imageUrls == null) {
+            return;
+        }
+        for (String imageUrl : imageUrls) {
+            Glide.with(context).load(imageUrl).preload();
+        }
     }
 
     private static final DiffUtil.ItemCallback<Audiobook> DIFF_CALLBACK =
@@ -52,6 +72,9 @@ public class AudiobookAdapter extends ListAdapter<Audiobook, AudiobookAdapter.Au
     public AudiobookViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ItemAudiobookCardBinding binding = ItemAudiobookCardBinding.inflate(
                 LayoutInflater.from(parent.getContext()), parent, false);
+        if (cardWidth > 0) {
+            binding.getRoot().getLayoutParams().width = cardWidth;
+        }
         return new AudiobookViewHolder(binding);
     }
 
@@ -0,0 +1,103 @@
+package com.example.goldenaudiobook.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.goldenaudiobook.databinding.ItemShelfBinding;
+import com.example.goldenaudiobook.model.Shelf;
+
+/**
+ * RecyclerView adapter for the home screen shelves, each a horizontal row of audiobook cards
+ */
+public class ShelfAdapter extends ListAdapter<Shelf, ShelfAdapter.ShelfViewHolder> {
+
+    private final OnShelfClickListener listener;
+    private final AudiobookAdapter.OnAudiobookClickListener audiobookListener;
+    private final int cardWidth;
+    // Cards of all shelves share one pool of views
+    private final RecyclerView.RecycledViewPool cardPool = new RecyclerView.RecycledViewPool();
+
+    public interface OnShelfClickListener {
+        void onSeeAllClick(Shelf shelf);
+
+        void onRetryClick(Shelf shelf);
+    }
+
+    public ShelfAdapter(OnShelfClickListener listener, AudiobookAdapter.OnAudiobookClickListener audiobookListener,
+                        int cardWidth) {
+        super(DIFF_CALLBACK);
+        this.listener = listener;
+        this.audiobookListener = audiobookListener;
+        this.cardWidth = cardWidth;
+    }
+
+    private static final DiffUtil.ItemCallback<Shelf> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Shelf>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull Shelf oldItem, @NonNull Shelf newItem) {
+                    return oldItem.getUrl().equals(newItem.getUrl());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull Shelf oldItem, @NonNull Shelf newItem) {
+                    return oldItem.getState() == newItem.getState() && oldItem.getItems() == newItem.getItems();
+                }
+            };
+
+    @NonNull
+    @Override
+    public ShelfViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemShelfBinding binding = ItemShelfBinding.inflate(
+                LayoutInflater.from(parent.getContext()), parent, false);
+        return new ShelfViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ShelfViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    class ShelfViewHolder extends RecyclerView.ViewHolder {
+        private final ItemShelfBinding binding;
+        private final AudiobookAdapter cards;
+
+        ShelfViewHolder(ItemShelfBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+            this.cards = new AudiobookAdapter(audiobookListener, cardWidth);
+            binding.shelfRecyclerView.setLayoutManager(new LinearLayoutManager(
+                    binding.getRoot().getContext(), LinearLayoutManager.HORIZONTAL, false));
+            binding.shelfRecyclerView.setRecycledViewPool(cardPool);
+            binding.shelfRecyclerView.setAdapter(cards);
+        }
+
+        void bind(Shelf shelf) {
+            binding.shelfTitle.setText(shelf.getTitle());
+            cards.submitList(shelf.getItems());
+
+            boolean empty = shelf.getItems().isEmpty();
+            binding.shelfProgress.setVisibility(
+                    shelf.getState() == Shelf.State.LOADING && empty ? View.VISIBLE : View.GONE);
+            binding.shelfError.setVisibility(
+                    shelf.getState() == Shelf.State.FAILED && empty ? View.VISIBLE : View.GONE);
+
+            binding.seeAllButton.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onSeeAllClick(shelf);
+                }
+            });
+            binding.shelfError.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onRetryClick(shelf);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.goldenaudiobook.adapter;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dropdown adapter for search-as-you-type completions. The list comes straight from the
+ * source for each keystroke instead of being filtered from a fixed list.
+ */
+public class SuggestionAdapter extends ArrayAdapter<String> {
+
+    private final SuggestionSource source;
+    private final int limit;
+
+    public interface SuggestionSource {
+        List<String> suggest(String prefix, int limit);
+    }
+
+    public SuggestionAdapter(Context context, SuggestionSource source, int limit) {
+        super(context, android.R.layout.simple_dropdown_item_1line, new ArrayList<>());
+        this.source = source;
+        this.limit = limit;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            List<String> suggestions = constraint != null
+                    ? source.suggest(constraint.toString(), limit) : new ArrayList<>();
+            results.values = suggestions;
+            results.count = suggestions.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            clear();
+            if (results.values != null) {
+                addAll((List<String>) results.values);
+            }
+            notifyDataSetChanged();
+        }
+    };
+}
@@ -1,24 +1,77 @@
 package com.example.goldenaudiobook.data;
 
+import android.content.ComponentCallbacks2;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.example.goldenaudiobook.model.Audiobook;
 import com.example.goldenaudiobook.model.Category;
 import com.example.goldenaudiobook.model.NavItem;
+import com.example.goldenaudiobook.model.Page;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Repository for audiobook data - abstracts data source from the rest of the app
+ * Repository for audiobook data - abstracts data source from the rest of the app.
+ * One instance is shared by every screen (see GoldenAudiobookApp), so parsed results
+ * outlive the ViewModel that asked for them and are served from the memory cache.
+ * List endpoints are stale-while-revalidate (see CachePolicy): a cached result is shown
+ * at once, so returning to a screen or a cold start waits for local storage, not the site.
+ * Every book it parses is also added to the CatalogDatabase, which searchCatalog() queries
+ * offline, and to the SuggestionTrie behind suggest().
  */
 public class AudiobookRepository {
     private static final String TAG = "AudiobookRepository";
 
+    // A changed catalog is re-indexed for close matches at most this often
+    private static final long TRIGRAM_REBUILD_INTERVAL_MS = 60 * 1000;
+
     private final WebDataSource webDataSource;
+    // Same parsing, reading the on-disk page cache only, on local threads outside the FetchScheduler
+    private final WebDataSource diskSource;
+    private final MemoryCache memoryCache;
+    private final Map<CachePolicy, Long> cacheTtls = new EnumMap<>(CachePolicy.class);
+    // Local full-text index, null if there is none
+    private final CatalogDatabase catalog;
+    // One thread, so catalog writes never contend with each other and reads queue behind them
+    private final ExecutorService catalogExecutor = Executors.newSingleThreadExecutor();
+    // Typo-tolerant index of the catalog, built and used on the catalog thread only
+    private TrigramIndex trigramIndex;
+    private long trigramIndexBuiltAt;
+    // Title and author completions, null if there are none
+    private final SuggestionTrie suggestions;
+    private final Handler mainHandler;
+
+    public AudiobookRepository(WebDataSource webDataSource, MemoryCache memoryCache) {
+        this(webDataSource, memoryCache, null);
+    }
 
-    public AudiobookRepository() {
-        this.webDataSource = new WebDataSource();
+    public AudiobookRepository(WebDataSource webDataSource, MemoryCache memoryCache, CatalogDatabase catalog) {
+        this.webDataSource = webDataSource;
+        this.diskSource = webDataSource.cacheOnly();
+        this.memoryCache = memoryCache;
+        this.catalog = catalog;
+        this.suggestions = SuggestionTrie.getInstance();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        if (catalog != null) {
+            // Built ahead, so the first search does not wait for it
+            catalogExecutor.execute(() -> {
+                try {
+                    trigramIndex();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Could not index the catalog for close matches", e);
+                }
+            });
+        }
     }
 
     /**
@@ -30,159 +83,372 @@ public class AudiobookRepository {
     }
 
     /**
-     * Get random audiobooks for home page
+     * Callback for list pages that also shows each item as soon as it has been parsed
      */
-    public void getRandomAudiobooks(DataCallback<List<Audiobook>> callback) {
-        webDataSource.getRandomAudiobooks(new WebDataSource.Callback<List<Audiobook>>() {
-            @Override
-            public void onSuccess(List<Audiobook> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onSuccess(new ArrayList<>());
-                }
-            }
+    public interface StreamCallback<T> extends DataCallback<Page<T>> {
+        void onItem(T item);
+    }
 
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error getting random audiobooks", e);
-                callback.onError(e);
+    /**
+     * Deliver a cached result on the main thread, like a fetched one
+     */
+    private <T> Cancellable deliverCached(DataCallback<T> callback, T data) {
+        CancellationToken handle = new CancellationToken();
+        mainHandler.post(() -> {
+            if (!handle.isCancelled()) {
+                handle.finish();
+                callback.onSuccess(data);
             }
         });
+        return handle;
     }
 
     /**
-     * Get random audiobooks by page URL
+     * Fetch of one endpoint from a data source in a given scheduler lane
      */
-    public void getRandomAudiobooksPage(String url, DataCallback<List<Audiobook>> callback) {
-        webDataSource.getRandomAudiobooksPage(url, new WebDataSource.Callback<List<Audiobook>>() {
-            @Override
-            public void onSuccess(List<Audiobook> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onSuccess(new ArrayList<>());
-                }
-            }
-
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error getting random audiobooks page", e);
-                callback.onError(e);
-            }
-        });
+    private interface Fetch<T> {
+        Cancellable fetch(WebDataSource source, FetchPriority priority, WebDataSource.Callback<T> callback);
     }
 
     /**
-     * Get home page pagination info
+     * Where an endpoint's result lives in the memory cache, and when two results look the same
      */
-    public boolean hasNextHomePage() {
-        return webDataSource.hasNextPage();
+    private interface CacheSlot<T> {
+        MemoryCache.Stamped<T> get();
+
+        void put(T value, boolean stale);
+
+        boolean sameContent(T shown, T fresh);
     }
 
     /**
-     * Get home page previous URL
+     * Stale-while-revalidate: emit the cached result right away (memory first, then the page
+     * cache on disk) and refresh it from the network in the background. The callback gets a
+     * second result only if the refresh differs from what was shown. With nothing cached the
+     * result is loaded from the network, streaming items if the callback wants them.
+     * The returned handle covers all of it.
      */
-    public String getPreviousHomePageUrl() {
-        return webDataSource.getPreviousPageUrl();
+    private <T> Cancellable staleWhileRevalidate(CachePolicy policy, CacheSlot<T> slot, Fetch<T> fetch,
+                                                 DataCallback<T> callback, String errorMessage) {
+        return staleWhileRevalidate(policy, policy.getLoadPriority(), slot, fetch, callback, errorMessage);
     }
 
     /**
-     * Get home page current page
+     * Stale-while-revalidate with the network load in the given scheduler lane
      */
-    public int getCurrentHomePage() {
-        return webDataSource.getCurrentPage();
+    private <T> Cancellable staleWhileRevalidate(CachePolicy policy, FetchPriority loadPriority, CacheSlot<T> slot,
+                                                 Fetch<T> fetch, DataCallback<T> callback, String errorMessage) {
+        CancellationToken handle = new CancellationToken();
+        MemoryCache.Stamped<T> cached = slot.get();
+        if (cached != null) {
+            boolean fresh = cached.isFresh(getCacheTtl(policy));
+            mainHandler.post(() -> {
+                if (handle.isCancelled()) {
+                    return;
+                }
+                if (fresh) {
+                    handle.finish();
+                }
+                callback.onSuccess(cached.getValue());
+                if (!fresh) {
+                    revalidate(handle, slot, fetch, cached.getValue(), FetchPriority.BACKGROUND, callback);
+                }
+            });
+            return handle;
+        }
+
+        // Nothing in memory: the page cache is still far closer than the site, and reading it
+        // does not wait for network slots
+        Cancellable disk = fetch.fetch(diskSource, FetchPriority.INTERACTIVE, new WebDataSource.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                slot.put(result, true);
+                callback.onSuccess(result);
+                // Its age is unknown, so the refresh runs in the caller's lane, but a screen
+                // that is already showing something never takes the interactive lane
+                revalidate(handle, slot, fetch, result, refreshPriority(loadPriority), callback);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.d(TAG, "Not cached on disk, loading from the network: " + e.getMessage());
+                Cancellable network = fetch.fetch(webDataSource, loadPriority,
+                        networkCallback(handle, slot, callback, errorMessage));
+                handle.onCancel(network::cancel);
+            }
+        });
+        handle.onCancel(disk::cancel);
+        return handle;
     }
 
     /**
-     * Get home page total pages
+     * Lane for refreshing a disk hit: the load priority, capped at VISIBLE
      */
-    public int getTotalHomePages() {
-        return webDataSource.getTotalPages();
+    private static FetchPriority refreshPriority(FetchPriority loadPriority) {
+        return loadPriority.compareTo(FetchPriority.VISIBLE) < 0 ? FetchPriority.VISIBLE : loadPriority;
     }
 
     /**
-     * Get audiobooks by category URL
+     * Refresh a result that is already on screen. Failures keep the cached result.
      */
-    public void getAudiobooksByCategory(String categoryUrl, DataCallback<List<Audiobook>> callback) {
-        webDataSource.getAudiobooksByCategory(categoryUrl, new WebDataSource.Callback<List<Audiobook>>() {
+    private <T> void revalidate(CancellationToken handle, CacheSlot<T> slot, Fetch<T> fetch, T shown,
+                                FetchPriority priority, DataCallback<T> callback) {
+        Cancellable refresh = fetch.fetch(webDataSource, priority, new WebDataSource.Callback<T>() {
             @Override
-            public void onSuccess(List<Audiobook> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
+            public void onSuccess(T result) {
+                handle.finish();
+                slot.put(result, false);
+                if (slot.sameContent(shown, result)) {
+                    Log.d(TAG, "Refresh unchanged, keeping the cached result");
                 } else {
-                    callback.onSuccess(new ArrayList<>());
+                    callback.onSuccess(result);
                 }
             }
 
             @Override
             public void onError(Exception e) {
-                Log.e(TAG, "Error getting category audiobooks", e);
-                callback.onError(e);
+                handle.finish();
+                Log.w(TAG, "Refresh failed, keeping the cached result", e);
             }
         });
+        handle.onCancel(refresh::cancel);
     }
 
     /**
-     * Get all audiobooks by an author
+     * Adapt a callback for a network load to the data source, keeping item streaming if the
+     * caller wants it. Successful results are stored in the memory cache.
      */
-    public void getAuthorAllResultsAudiobooks(String authorUrl, DataCallback<List<Audiobook>> callback) {
-        webDataSource.getAuthorAllResultsAudiobooks(authorUrl, new WebDataSource.Callback<List<Audiobook>>() {
+    @SuppressWarnings("unchecked")
+    private <T> WebDataSource.Callback<T> networkCallback(CancellationToken handle, CacheSlot<T> slot,
+                                                         DataCallback<T> callback, String errorMessage) {
+        WebDataSource.Callback<T> result = new WebDataSource.Callback<T>() {
             @Override
-            public void onSuccess(List<Audiobook> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onSuccess(new ArrayList<>());
-                }
+            public void onSuccess(T data) {
+                handle.finish();
+                slot.put(data, false);
+                callback.onSuccess(data);
             }
 
             @Override
             public void onError(Exception e) {
-                Log.e(TAG, "Error getting author audiobooks", e);
+                handle.finish();
+                Log.e(TAG, errorMessage, e);
                 callback.onError(e);
             }
-        });
-    }
+        };
+        if (!(callback instanceof StreamCallback)) {
+            return result;
+        }
+        // Only page callbacks stream, so T is Page<item type> here
+        StreamCallback<Object> stream = (StreamCallback<Object>) callback;
+        WebDataSource.Callback<Page<Object>> pageResult = (WebDataSource.Callback<Page<Object>>) (WebDataSource.Callback<?>) result;
+        WebDataSource.StreamCallback<Object> streaming = new WebDataSource.StreamCallback<Object>() {
+            @Override
+            public void onItem(Object item) {
+                stream.onItem(item);
+            }
+
+            @Override
+            public void onSuccess(Page<Object> data) {
+                pageResult.onSuccess(data);
+            }
 
+            @Override
+            public void onError(Exception e) {
+                pageResult.onError(e);
+            }
+        };
+        return (WebDataSource.Callback<T>) (WebDataSource.Callback<?>) streaming;
+    }
 
     /**
-     * Get audiobooks by category with specific page URL
+     * Memory cache slot of the list page at a URL
      */
-    public void getCategoryAudiobooksPage(String categoryUrl, String pageUrl, DataCallback<List<Audiobook>> callback) {
-        webDataSource.getAudiobooksByCategoryPage(categoryUrl, pageUrl, new WebDataSource.Callback<List<Audiobook>>() {
+    private CacheSlot<Page<Audiobook>> pageSlot(String url) {
+        return new CacheSlot<Page<Audiobook>>() {
             @Override
-            public void onSuccess(List<Audiobook> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onSuccess(new ArrayList<>());
-                }
+            public MemoryCache.Stamped<Page<Audiobook>> get() {
+                return memoryCache.getPage(url);
             }
 
             @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error getting category audiobooks page", e);
-                callback.onError(e);
+            public void put(Page<Audiobook> value, boolean stale) {
+                memoryCache.putPage(value, stale);
+                indexCards(value.getItems());
             }
-        });
+
+            @Override
+            public boolean sameContent(Page<Audiobook> shown, Page<Audiobook> fresh) {
+                return samePage(shown, fresh);
+            }
+        };
+    }
+
+    /**
+     * Same books in the same order with the same cards, and the same cursors
+     */
+    private static boolean samePage(Page<Audiobook> a, Page<Audiobook> b) {
+        if (a.getItems().size() != b.getItems().size()
+                || a.getTotalPages() != b.getTotalPages()
+                || !Objects.equals(a.getNextUrl(), b.getNextUrl())
+                || !Objects.equals(a.getPreviousUrl(), b.getPreviousUrl())) {
+            return false;
+        }
+        for (int i = 0; i < a.getItems().size(); i++) {
+            Audiobook x = a.getItems().get(i);
+            Audiobook y = b.getItems().get(i);
+            if (!Objects.equals(x.getUrl(), y.getUrl())
+                    || !Objects.equals(x.getTitle(), y.getTitle())
+                    || !Objects.equals(x.getImageUrl(), y.getImageUrl())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final CacheSlot<List<Category>> categoriesSlot = new CacheSlot<List<Category>>() {
+        @Override
+        public MemoryCache.Stamped<List<Category>> get() {
+            return memoryCache.getCategories();
+        }
+
+        @Override
+        public void put(List<Category> value, boolean stale) {
+            memoryCache.putCategories(value, stale);
+        }
+
+        @Override
+        public boolean sameContent(List<Category> shown, List<Category> fresh) {
+            if (shown.size() != fresh.size()) {
+                return false;
+            }
+            for (int i = 0; i < shown.size(); i++) {
+                Category x = shown.get(i);
+                Category y = fresh.get(i);
+                if (!Objects.equals(x.getUrl(), y.getUrl()) || !Objects.equals(x.getName(), y.getName())
+                        || x.getItemCount() != y.getItemCount()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Change how long results of an endpoint count as fresh
+     */
+    public synchronized void setCacheTtl(CachePolicy policy, long ttlMs) {
+        cacheTtls.put(policy, ttlMs);
+    }
+
+    public synchronized long getCacheTtl(CachePolicy policy) {
+        Long ttl = cacheTtls.get(policy);
+        return ttl != null ? ttl : policy.getDefaultTtlMs();
+    }
+
+    /**
+     * Get random audiobooks for home page
+     */
+    public Cancellable getRandomAudiobooks(DataCallback<Page<Audiobook>> callback) {
+        return getRandomAudiobooksPage(WebDataSource.homePageUrl(1), callback);
+    }
+
+    /**
+     * Get random audiobooks by page URL
+     */
+    public Cancellable getRandomAudiobooksPage(String url, DataCallback<Page<Audiobook>> callback) {
+        return getRandomAudiobooksPage(url, CachePolicy.HOME.getLoadPriority(), callback);
     }
 
     /**
-     * Get category next page URL
+     * Get random audiobooks by page URL in the given scheduler lane, e.g. SPECULATIVE for
+     * a neighbour of the page on screen
      */
-    public String getCategoryNextPageUrl() {
-        return webDataSource.getCategoryNextPageUrl();
+    public Cancellable getRandomAudiobooksPage(String url, FetchPriority priority,
+                                               DataCallback<Page<Audiobook>> callback) {
+        return staleWhileRevalidate(CachePolicy.HOME, priority, pageSlot(url),
+                (source, lane, cb) -> source.getRandomAudiobooksPage(url, lane, cb),
+                callback, "Error getting random audiobooks page");
+    }
+
+    /**
+     * Get audiobooks by category URL
+     */
+    public Cancellable getAudiobooksByCategory(String categoryUrl, DataCallback<Page<Audiobook>> callback) {
+        return getCategoryAudiobooksPage(categoryUrl, null, callback);
+    }
+
+    /**
+     * Get the home screen shelves, one per navigation category, all loading at once. Each
+     * shelf arrives on its own; one that takes longer than shelfTimeoutMs is given up on.
+     */
+    public Cancellable getHomeShelves(long shelfTimeoutMs, ShelfFanOut.Listener listener) {
+        return getHomeShelves(shelfTimeoutMs, false, listener);
+    }
+
+    /**
+     * Get the home screen shelves; with refresh, each shelf's category page is dropped from
+     * the memory cache first, as pull-to-refresh does for the home page
+     */
+    public Cancellable getHomeShelves(long shelfTimeoutMs, boolean refresh, ShelfFanOut.Listener listener) {
+        return new ShelfFanOut(this::getNavigationItems, (categoryUrl, callback) -> {
+            if (refresh) {
+                invalidate(categoryUrl);
+            }
+            return getAudiobooksByCategory(categoryUrl, callback);
+        }, shelfTimeoutMs, listener).start();
+    }
+
+    /**
+     * Get all audiobooks by an author
+     */
+    public Cancellable getAuthorAllResultsAudiobooks(String authorUrl, DataCallback<Page<Audiobook>> callback) {
+        return staleWhileRevalidate(CachePolicy.AUTHOR, pageSlot(authorUrl),
+                (source, priority, cb) -> source.getAuthorAllResultsAudiobooks(authorUrl, priority, cb),
+                callback, "Error getting author audiobooks");
+    }
+
+    /**
+     * Get every page of an author's books. The first page tells how many there are, the
+     * rest load in parallel, at most maxConcurrent at a time, and arrive in page order.
+     */
+    public Cancellable getAllAuthorAudiobooks(String authorUrl, int maxConcurrent, PageFanOut.Listener listener) {
+        return new PageFanOut(this::getAuthorAllResultsAudiobooks,
+                pageNumber -> WebDataSource.archivePageUrl(authorUrl, pageNumber),
+                maxConcurrent, listener).start(authorUrl);
+    }
+
+
+    /**
+     * Get audiobooks by category with specific page URL
+     */
+    public Cancellable getCategoryAudiobooksPage(String categoryUrl, String pageUrl, DataCallback<Page<Audiobook>> callback) {
+        String url = pageUrl != null ? pageUrl : categoryUrl;
+        return staleWhileRevalidate(CachePolicy.CATEGORY, pageSlot(url),
+                (source, priority, cb) -> source.getAudiobooksByCategoryPage(categoryUrl, pageUrl, priority, cb),
+                callback, "Error getting category audiobooks page");
     }
 
     /**
      * Get audiobook details
      */
-    public void getAudiobookDetails(String url, DataCallback<Audiobook> callback) {
-        webDataSource.getAudiobookDetails(url, new WebDataSource.Callback<Audiobook>() {
+    public Cancellable getAudiobookDetails(String url, DataCallback<Audiobook> callback) {
+        return getAudiobookDetails(url, FetchPriority.INTERACTIVE, callback);
+    }
+
+    /**
+     * Get audiobook details in the given scheduler lane, e.g. SPECULATIVE for a prefetch
+     */
+    public Cancellable getAudiobookDetails(String url, FetchPriority priority, DataCallback<Audiobook> callback) {
+        Audiobook cached = memoryCache.getDetails(url);
+        if (cached != null) {
+            return deliverCached(callback, cached);
+        }
+        return webDataSource.getAudiobookDetails(url, priority, new WebDataSource.Callback<Audiobook>() {
             @Override
             public void onSuccess(Audiobook result) {
-                callback.onSuccess(result);
+                indexCards(List.of(result));
+                callback.onSuccess(memoryCache.putDetails(url, result));
             }
 
             @Override
@@ -194,32 +460,30 @@ public class AudiobookRepository {
     }
 
     /**
-     * Get all categories
+     * Get the details of many books, at most parallelism at a time, in the given scheduler
+     * lane. Results arrive in request or completion order, and each URL succeeds or fails
+     * on its own. Books already in the memory cache are answered from it.
      */
-    public void getCategories(DataCallback<List<Category>> callback) {
-        webDataSource.getCategories(new WebDataSource.Callback<List<Category>>() {
-            @Override
-            public void onSuccess(List<Category> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onSuccess(new ArrayList<>());
-                }
-            }
+    public Cancellable getAudiobookDetails(List<String> urls, int parallelism, DetailBatch.Order order,
+                                           FetchPriority priority, DetailBatch.Listener listener) {
+        return new DetailBatch(urls, parallelism, order,
+                (url, callback) -> getAudiobookDetails(url, priority, callback), listener).start();
+    }
 
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error getting categories", e);
-                callback.onError(e);
-            }
-        });
+    /**
+     * Get all categories
+     */
+    public Cancellable getCategories(DataCallback<List<Category>> callback) {
+        return staleWhileRevalidate(CachePolicy.CATEGORIES, categoriesSlot,
+                (source, priority, cb) -> source.getCategories(priority, cb),
+                callback, "Error getting categories");
     }
 
     /**
      * Get navigation items
      */
-    public void getNavigationItems(DataCallback<List<NavItem>> callback) {
-        webDataSource.getNavigationItems(new WebDataSource.Callback<List<NavItem>>() {
+    public Cancellable getNavigationItems(DataCallback<List<NavItem>> callback) {
+        return webDataSource.getNavigationItems(new WebDataSource.Callback<List<NavItem>>() {
             @Override
             public void onSuccess(List<NavItem> result) {
                 if (result != null) {
@@ -240,69 +504,146 @@ public class AudiobookRepository {
     /**
      * Search audiobooks by query
      */
-    public void searchAudiobooks(String query, DataCallback<List<Audiobook>> callback) {
-        webDataSource.getSearchResultsAudiobooks(query, new WebDataSource.Callback<List<Audiobook>>() {
-            @Override
-            public void onSuccess(List<Audiobook> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onSuccess(new ArrayList<>());
-                }
-            }
+    public Cancellable searchAudiobooks(String query, DataCallback<Page<Audiobook>> callback) {
+        return staleWhileRevalidate(CachePolicy.SEARCH, pageSlot(WebDataSource.searchUrl(query)),
+                (source, priority, cb) -> source.getSearchResultsAudiobooks(query, priority, cb),
+                callback, "Error searching audiobooks");
+    }
 
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error searching audiobooks", e);
-                callback.onError(e);
+    /**
+     * Search the local catalog, best match first, without touching the network. Runs off
+     * the main thread and answers in milliseconds; an empty list if there is no catalog.
+     * Full-text hits come first; if there are fewer than limit, close matches of misspelled
+     * titles and authors fill up the list.
+     */
+    public Cancellable searchCatalog(String query, int limit, DataCallback<List<Audiobook>> callback) {
+        CancellationToken handle = new CancellationToken();
+        if (catalog == null) {
+            return deliverCached(callback, new ArrayList<>());
+        }
+        catalogExecutor.execute(() -> {
+            if (handle.isCancelled()) {
+                return;
+            }
+            Runnable result;
+            try {
+                List<Audiobook> hits = catalog.search(query, limit);
+                if (hits.size() < limit) {
+                    addCloseMatches(query, hits, limit);
+                }
+                result = () -> callback.onSuccess(hits);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error searching the catalog", e);
+                result = () -> callback.onError(e);
             }
+            Runnable delivery = result;
+            mainHandler.post(() -> {
+                if (!handle.isCancelled()) {
+                    handle.finish();
+                    delivery.run();
+                }
+            });
         });
+        return handle;
     }
 
     /**
-     * Get search results from a specific URL (for pagination)
+     * Add books whose title or author is spelled close to the query. Catalog thread only.
      */
-    public void getSearchResultsFromUrl(String url, DataCallback<List<Audiobook>> callback) {
-        webDataSource.getSearchResultsFromUrl(url, new WebDataSource.Callback<List<Audiobook>>() {
-            @Override
-            public void onSuccess(List<Audiobook> result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onSuccess(new ArrayList<>());
-                }
+    private void addCloseMatches(String query, List<Audiobook> hits, int limit) {
+        Set<String> seen = new HashSet<>();
+        for (Audiobook hit : hits) {
+            seen.add(hit.getUrl());
+        }
+        int[] rowIds = trigramIndex().search(query, limit, TrigramIndex.DEFAULT_MIN_SCORE);
+        for (Audiobook match : catalog.getCards(rowIds)) {
+            if (hits.size() < limit && seen.add(match.getUrl())) {
+                hits.add(match);
             }
+        }
+    }
 
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error getting search results from URL", e);
-                callback.onError(e);
-            }
-        });
+    /**
+     * The trigram index, rebuilt if the catalog changed and the last build is old enough.
+     * Catalog thread only.
+     */
+    private TrigramIndex trigramIndex() {
+        long version = catalog.getChangeCount();
+        long now = System.currentTimeMillis();
+        if (trigramIndex == null || (trigramIndex.getVersion() != version
+                && now - trigramIndexBuiltAt >= TRIGRAM_REBUILD_INTERVAL_MS)) {
+            TrigramIndex.Builder builder = new TrigramIndex.Builder();
+            catalog.forEachSearchText((rowId, title, author) ->
+                    builder.add(rowId, author != null ? title + " " + author : title));
+            trigramIndex = builder.build(version);
+            trigramIndexBuiltAt = now;
+            Log.d(TAG, "Indexed " + trigramIndex.getBookCount() + " books for close matches in "
+                    + (System.currentTimeMillis() - now) + "ms");
+        }
+        return trigramIndex;
     }
 
     /**
-     * Get next page URL for search pagination
+     * Titles and authors starting with what was typed, from every book seen so far.
+     * Answers from memory at once, so it can run on every keystroke.
      */
-    public void getNextPageUrl(String searchQuery, int currentPage, DataCallback<String> callback) {
-        webDataSource.getNextPageUrl(searchQuery, currentPage, new WebDataSource.Callback<String>() {
-            @Override
-            public void onSuccess(String result) {
-                callback.onSuccess(result);
-            }
+    public List<String> suggest(String prefix, int limit) {
+        return suggestions != null ? suggestions.suggest(prefix, limit) : new ArrayList<>();
+    }
 
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error getting next page URL", e);
-                callback.onError(e);
+    /**
+     * Add parsed books to the suggestions, and to the catalog in the background. Cards of known books only fill
+     * in what the catalog is missing.
+     */
+    private void indexCards(List<Audiobook> books) {
+        if (suggestions != null) {
+            suggestions.addAll(books);
+        }
+        if (catalog == null || books.isEmpty()) {
+            return;
+        }
+        List<Audiobook> copy = new ArrayList<>(books);
+        catalogExecutor.execute(() -> {
+            try {
+                catalog.storeCards(copy);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Could not index " + copy.size() + " books", e);
             }
         });
     }
 
     /**
-     * Cleanup resources
+     * Get search results from a specific URL (for pagination)
+     */
+    public Cancellable getSearchResultsFromUrl(String url, DataCallback<Page<Audiobook>> callback) {
+        return staleWhileRevalidate(CachePolicy.SEARCH, pageSlot(url),
+                (source, priority, cb) -> source.getSearchResultsFromUrl(url, priority, cb),
+                callback, "Error getting search results from URL");
+    }
+
+    /**
+     * Drop the memory-cached result for a URL, e.g. on pull-to-refresh. The next request
+     * shows the disk copy, if any, and always refreshes it from the network.
+     */
+    public void invalidate(String url) {
+        memoryCache.invalidate(url);
+    }
+
+    /**
+     * Release memory when the system asks for it. Called from GoldenAudiobookApp.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            memoryCache.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimTo(0.5f);
+        }
+    }
+
+    /**
+     * Hit rates of the memory cache
      */
-    public void shutdown() {
-        webDataSource.shutdown();
+    public MemoryCache.Stats getMemoryCacheStats() {
+        return memoryCache.getStats();
     }
 }
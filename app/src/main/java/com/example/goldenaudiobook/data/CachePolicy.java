@@ -0,0 +1,39 @@
+package com.example.goldenaudiobook.data;
+
+/**
+ * Stale-while-revalidate settings of the list endpoints.
+ * A cached result younger than its TTL is shown without a refresh; an older one is
+ * shown at once and refreshed in the background. TTLs can be changed at runtime through
+ * AudiobookRepository.setCacheTtl().
+ */
+public enum CachePolicy {
+    /** Random home grid, reshuffled by the site */
+    HOME(5 * 60 * 1000L, FetchPriority.VISIBLE),
+    /** Category list from the sidebar widget */
+    CATEGORIES(24 * 60 * 60 * 1000L, FetchPriority.VISIBLE),
+    /** Category archive pages */
+    CATEGORY(30 * 60 * 1000L, FetchPriority.VISIBLE),
+    /** Books of one author */
+    AUTHOR(6 * 60 * 60 * 1000L, FetchPriority.VISIBLE),
+    /** Search results and their further pages */
+    SEARCH(30 * 60 * 1000L, FetchPriority.INTERACTIVE);
+
+    private final long defaultTtlMs;
+    private final FetchPriority loadPriority;
+
+    CachePolicy(long defaultTtlMs, FetchPriority loadPriority) {
+        this.defaultTtlMs = defaultTtlMs;
+        this.loadPriority = loadPriority;
+    }
+
+    public long getDefaultTtlMs() {
+        return defaultTtlMs;
+    }
+
+    /**
+     * Lane for a load with nothing cached, when the user is waiting for the result
+     */
+    public FetchPriority getLoadPriority() {
+        return loadPriority;
+    }
+}
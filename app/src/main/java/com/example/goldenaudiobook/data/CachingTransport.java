@@ -0,0 +1,252 @@
+package com.example.goldenaudiobook.data;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HttpTransport decorator that keeps downloaded pages in a PageCache and revalidates
+ * them with conditional GETs. A 304 answer is served from disk, so going back to a
+ * page costs one small round trip instead of a full download.
+ * <p>
+ * A request with "Cache-Control: only-if-cached" never touches the network: it gets the
+ * cached page, however old, or a 504 if there is none.
+ */
+public class CachingTransport implements HttpTransport {
+    private static final String TAG = "CachingTransport";
+
+    /**
+     * Response header added by this transport: HIT when the body came from disk, MISS otherwise
+     */
+    public static final String HEADER_CACHE_STATUS = "X-Page-Cache";
+    public static final String CACHE_HIT = "HIT";
+    public static final String CACHE_MISS = "MISS";
+
+    public static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    public static final String ONLY_IF_CACHED = "only-if-cached";
+    // Status used for an only-if-cached request that has nothing cached, as in OkHttp
+    private static final int GATEWAY_TIMEOUT = 504;
+
+    private final HttpTransport delegate;
+    private final PageCache cache;
+    // Canonical URLs whose 404 page is content, not an error
+    private final Set<String> notFoundPages;
+
+    public CachingTransport(HttpTransport delegate, PageCache cache) {
+        this(delegate, cache, Collections.emptySet());
+    }
+
+    /**
+     * @param notFoundPages URLs that answer 404 with a page worth keeping, cached like a 200
+     */
+    public CachingTransport(HttpTransport delegate, PageCache cache, Set<String> notFoundPages) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.notFoundPages = new HashSet<>();
+        for (String url : notFoundPages) {
+            this.notFoundPages.add(UrlCanonicalizer.canonicalize(url));
+        }
+    }
+
+    @Override
+    public Response get(Request request) throws IOException {
+        String url = request.getUrl();
+        PageCache.Entry cached = cache.get(url);
+
+        if (ONLY_IF_CACHED.equals(request.getHeaders().get(HEADER_CACHE_CONTROL))) {
+            return offline(url, cached);
+        }
+
+        Request networkRequest = request;
+        if (cached != null && cached.hasValidators()) {
+            networkRequest = copy(request);
+            if (cached.getEtag() != null) {
+                networkRequest.header("If-None-Match", cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                networkRequest.header("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        Response response = delegate.get(networkRequest);
+
+        if (response.getCode() == 304 && cached != null) {
+            response.close();
+            try {
+                InputStream body = cache.openBody(cached);
+                cache.recordNotModified();
+                cache.recordHit();
+                Log.d(TAG, "Revalidated from cache: " + url);
+                return fromCache(cached, body);
+            } catch (IOException e) {
+                // Entry vanished between lookup and open; fetch the full page instead
+                Log.w(TAG, "Cached body unreadable, refetching " + url, e);
+                cache.remove(url);
+                return get(request);
+            }
+        }
+
+        cache.recordMiss();
+        if (!isCacheable(url, response)) {
+            if (response.getCode() == 404 && cached != null) {
+                // The page is gone; do not keep serving it to offline reads
+                cache.remove(url);
+            }
+            return response;
+        }
+
+        PageCache.Editor editor;
+        try {
+            editor = cache.edit(url, response.getCode(), response.header("ETag"),
+                    response.header("Last-Modified"), response.getCharset());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not open cache entry for " + url, e);
+            return response;
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>(response.getHeaders());
+        headers.put(HEADER_CACHE_STATUS, CACHE_MISS);
+        return new Response(response.getCode(), response.getUrl(), headers, response.getCharset(),
+                new CacheWritingInputStream(response.getBody(), editor));
+    }
+
+    /**
+     * Answer an only-if-cached request from disk alone
+     */
+    private Response offline(String url, PageCache.Entry cached) {
+        if (cached != null) {
+            try {
+                InputStream body = cache.openBody(cached);
+                cache.recordHit();
+                return fromCache(cached, body);
+            } catch (IOException e) {
+                Log.w(TAG, "Cached body unreadable: " + url, e);
+                cache.remove(url);
+            }
+        }
+        cache.recordMiss();
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(HEADER_CACHE_STATUS, CACHE_MISS);
+        return new Response(GATEWAY_TIMEOUT, url, headers, null, new ByteArrayInputStream(new byte[0]));
+    }
+
+    /**
+     * Cache successful pages, and the 404 pages of URLs known to answer with content, like
+     * the categories widget page. Other 404s are not kept, so a post that comes back is not
+     * hidden behind its missing page.
+     */
+    private boolean isCacheable(String url, Response response) {
+        if (response.getCode() != 200
+                && (response.getCode() != 404 || !notFoundPages.contains(UrlCanonicalizer.canonicalize(url)))) {
+            return false;
+        }
+        String cacheControl = response.header("Cache-Control");
+        return cacheControl == null || !cacheControl.contains("no-store");
+    }
+
+    private static Response fromCache(PageCache.Entry entry, InputStream body) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (entry.getEtag() != null) {
+            headers.put("ETag", entry.getEtag());
+        }
+        if (entry.getLastModified() != null) {
+            headers.put("Last-Modified", entry.getLastModified());
+        }
+        headers.put(HEADER_CACHE_STATUS, CACHE_HIT);
+        return new Response(entry.getStatusCode(), entry.getUrl(), headers, entry.getCharset(), body);
+    }
+
+    private static Request copy(Request request) {
+        Request copy = new Request(request.getUrl()).cancellationToken(request.getCancellationToken());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            copy.header(header.getKey(), header.getValue());
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the body into the cache while the parser reads it.
+     * The entry is committed only if the body was read to the end.
+     */
+    private static class CacheWritingInputStream extends FilterInputStream {
+        private final PageCache.Editor editor;
+        private boolean failed;
+        private boolean complete;
+
+        CacheWritingInputStream(InputStream in, PageCache.Editor editor) {
+            super(in);
+            this.editor = editor;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                complete = true;
+            } else if (!failed) {
+                try {
+                    editor.getOutputStream().write(b);
+                } catch (IOException e) {
+                    abortCache(e);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count == -1) {
+                complete = true;
+            } else if (count > 0 && !failed) {
+                try {
+                    editor.getOutputStream().write(buffer, offset, count);
+                } catch (IOException e) {
+                    abortCache(e);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would leave a hole in the cached copy
+            abortCache(null);
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (complete && !failed) {
+                    editor.commit();
+                } else {
+                    editor.abort();
+                }
+            }
+        }
+
+        private void abortCache(IOException cause) {
+            if (cause != null) {
+                Log.w(TAG, "Cache write failed", cause);
+            }
+            failed = true;
+            editor.abort();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.goldenaudiobook.data;
+
+/**
+ * Handle returned by every data request so the caller can abandon it
+ */
+public interface Cancellable {
+
+    /**
+     * Abandon the request. Queued work is dropped, a running download is aborted,
+     * and the callback will not be invoked. Safe to call more than once.
+     */
+    void cancel();
+
+    boolean isCancelled();
+
+    /**
+     * True once the request has delivered its result or has been cancelled
+     */
+    boolean isDone();
+}
@@ -0,0 +1,72 @@
+package com.example.goldenaudiobook.data;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancellable with listeners, shared between the scheduler, the transport and the
+ * callback delivery of one request
+ */
+public class CancellationToken implements Cancellable {
+    private final List<Runnable> listeners = new ArrayList<>();
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+
+    @Override
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled || finished) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        for (Runnable listener : toRun) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return cancelled || finished;
+    }
+
+    /**
+     * Mark the request as completed. Later cancel() calls are ignored.
+     */
+    public void finish() {
+        synchronized (this) {
+            finished = true;
+            listeners.clear();
+        }
+    }
+
+    /**
+     * Run the listener when the token is cancelled, or right away if it already was
+     */
+    public void onCancel(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                if (!finished) {
+                    listeners.add(listener);
+                }
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    public void throwIfCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+    }
+}
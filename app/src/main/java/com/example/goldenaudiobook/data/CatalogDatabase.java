@@ -0,0 +1,594 @@
+package com.example.goldenaudiobook.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local copy of the site's catalog, filled by SitemapCrawler.
+ * Books are keyed by canonical post URL and carry the sitemap lastmod of the details that
+ * were stored, so a crawl only fetches posts that are new or changed. A book whose listing
+ * changed but has not been fetched yet is pending; pending rows and unfinished sitemaps
+ * are the crawl's progress, which lets an interrupted crawl resume where it stopped.
+ * FeedSync adds new posts from the feed between crawls and keeps its position in sync_state,
+ * and the repository adds the cards of every list page it parses.
+ * <p>
+ * Title, author, categories and description are indexed in the books_fts full-text table,
+ * which triggers keep in step with books, so search() works offline.
+ * <p>
+ * Everything in here can be crawled again, so a schema change simply rebuilds the tables.
+ */
+public class CatalogDatabase extends SQLiteOpenHelper {
+    private static final String TAG = "CatalogDatabase";
+
+    private static final String NAME = "catalog.db";
+    private static final int VERSION = 4;
+
+    // A post that failed this often is skipped until its lastmod changes
+    static final int MAX_FAILURES = 3;
+
+    // Indexed columns of books_fts, in matchinfo order, and how much a hit in each counts
+    private static final String FTS_COLUMNS = "title, author, categories, description";
+    private static final double[] COLUMN_WEIGHTS = {4.0, 3.0, 1.0, 0.5};
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Matches ranked per search; the rest of a very broad prefix match is not looked at
+    private static final int MAX_CANDIDATES = 500;
+
+    private static volatile CatalogDatabase instance;
+
+    // Bumped by every write that changes searchable text, so derived indexes know to rebuild
+    private final AtomicLong changeCount = new AtomicLong();
+
+    public CatalogDatabase(Context context, String name) {
+        super(context, name, null, VERSION);
+    }
+
+    /**
+     * Open the app-wide catalog in the app's database directory
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (CatalogDatabase.class) {
+                if (instance == null) {
+                    instance = new CatalogDatabase(context.getApplicationContext(), NAME);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the app-wide catalog, or null if init() has not been called
+     */
+    public static CatalogDatabase getInstance() {
+        return instance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // The crawler writes while screens read
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE books ("
+                + "url TEXT PRIMARY KEY, "
+                + "post_id TEXT, "
+                + "title TEXT, "
+                + "author TEXT, "
+                + "author_url TEXT, "
+                + "image_url TEXT, "
+                + "published TEXT, "
+                + "categories TEXT, "
+                + "description TEXT, "
+                + "lastmod TEXT, "
+                + "pending INTEGER NOT NULL DEFAULT 1, "
+                + "pending_lastmod TEXT, "
+                + "failures INTEGER NOT NULL DEFAULT 0, "
+                + "fetched_at INTEGER)");
+        db.execSQL("CREATE INDEX books_pending ON books (pending_lastmod) WHERE pending = 1");
+        createPostIdIndex(db);
+        db.execSQL("CREATE TABLE sitemaps ("
+                + "url TEXT PRIMARY KEY, "
+                + "lastmod TEXT, "
+                + "pending INTEGER NOT NULL DEFAULT 1, "
+                + "pending_lastmod TEXT)");
+        db.execSQL("CREATE TABLE sync_state (name TEXT PRIMARY KEY, value TEXT)");
+
+        // External content table: the text lives in books only, docid is the books rowid
+        db.execSQL("CREATE VIRTUAL TABLE books_fts USING fts4(content=\"books\", " + FTS_COLUMNS + ")");
+        String indexRow = "INSERT INTO books_fts (docid, " + FTS_COLUMNS + ") "
+                + "VALUES (new.rowid, new.title, new.author, new.categories, new.description); ";
+        String unindexRow = "DELETE FROM books_fts WHERE docid = old.rowid; ";
+        // Crawl bookkeeping updates leave the index alone
+        db.execSQL("CREATE TRIGGER books_fts_insert AFTER INSERT ON books BEGIN " + indexRow + "END");
+        db.execSQL("CREATE TRIGGER books_fts_before_update BEFORE UPDATE OF " + FTS_COLUMNS
+                + " ON books BEGIN " + unindexRow + "END");
+        db.execSQL("CREATE TRIGGER books_fts_after_update AFTER UPDATE OF " + FTS_COLUMNS
+                + " ON books BEGIN " + indexRow + "END");
+        db.execSQL("CREATE TRIGGER books_fts_delete BEFORE DELETE ON books BEGIN " + unindexRow + "END");
+    }
+
+    private static void createPostIdIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX books_post_id ON books (post_id) WHERE post_id IS NOT NULL");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion == 3) {
+            // Only the post id lookup is new, so the crawled catalog is kept
+            createPostIdIndex(db);
+            return;
+        }
+        Log.i(TAG, "Rebuilding catalog for schema " + newVersion);
+        db.execSQL("DROP TABLE IF EXISTS books_fts");
+        db.execSQL("DROP TABLE IF EXISTS books");
+        db.execSQL("DROP TABLE IF EXISTS sitemaps");
+        db.execSQL("DROP TABLE IF EXISTS sync_state");
+        onCreate(db);
+    }
+
+    /**
+     * A sitemap or post URL with its lastmod, which may be null
+     */
+    public static final class Entry {
+        private final String url;
+        private final String lastmod;
+
+        public Entry(String url, String lastmod) {
+            this.url = url;
+            this.lastmod = lastmod;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getLastmod() {
+            return lastmod;
+        }
+    }
+
+    /**
+     * Record the sitemaps listed by the index. New ones, changed ones and ones the index
+     * gives no lastmod for are marked for reading.
+     */
+    public void queueSitemaps(List<Entry> sitemaps) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(
+                "INSERT OR IGNORE INTO sitemaps (url, pending, pending_lastmod) VALUES (?, 1, ?)");
+             SQLiteStatement update = db.compileStatement(
+                     "UPDATE sitemaps SET pending = 1, pending_lastmod = ? "
+                             + "WHERE url = ? AND (? IS NULL OR lastmod IS NULL OR lastmod <> ?)")) {
+            for (Entry sitemap : sitemaps) {
+                String url = UrlCanonicalizer.canonicalize(sitemap.url);
+                bindNullable(insert, 1, url);
+                bindNullable(insert, 2, sitemap.lastmod);
+                if (insert.executeInsert() == -1) {
+                    bindNullable(update, 1, sitemap.lastmod);
+                    bindNullable(update, 2, url);
+                    bindNullable(update, 3, sitemap.lastmod);
+                    bindNullable(update, 4, sitemap.lastmod);
+                    update.executeUpdateDelete();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Sitemaps still to be read, with the lastmod to record once they are
+     */
+    public List<Entry> pendingSitemaps() {
+        List<Entry> result = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT url, pending_lastmod FROM sitemaps WHERE pending = 1 ORDER BY url", null)) {
+            while (cursor.moveToNext()) {
+                result.add(new Entry(cursor.getString(0), cursor.isNull(1) ? null : cursor.getString(1)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Mark a sitemap as read; it is skipped until the index lists a different lastmod
+     */
+    public void sitemapDone(Entry sitemap) {
+        getWritableDatabase().execSQL("UPDATE sitemaps SET pending = 0, lastmod = ?, pending_lastmod = NULL "
+                + "WHERE url = ?", new Object[]{sitemap.lastmod, UrlCanonicalizer.canonicalize(sitemap.url)});
+    }
+
+    /**
+     * Record one batch of post URLs from a sitemap. New posts and posts whose lastmod
+     * differs from the stored details become pending.
+     *
+     * @return how many posts became pending
+     */
+    public int queueBooks(List<Entry> books) {
+        int queued = 0;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(
+                "INSERT OR IGNORE INTO books (url, pending, pending_lastmod) VALUES (?, 1, ?)");
+             SQLiteStatement update = db.compileStatement(
+                     "UPDATE books SET pending = 1, pending_lastmod = ?, failures = 0 "
+                             + "WHERE url = ? AND ? IS NOT NULL AND (lastmod IS NULL OR lastmod <> ?) "
+                             + "AND (pending = 0 OR pending_lastmod IS NULL OR pending_lastmod <> ?)")) {
+            for (Entry book : books) {
+                String url = UrlCanonicalizer.canonicalize(book.url);
+                bindNullable(insert, 1, url);
+                bindNullable(insert, 2, book.lastmod);
+                if (insert.executeInsert() != -1) {
+                    queued++;
+                    continue;
+                }
+                bindNullable(update, 1, book.lastmod);
+                bindNullable(update, 2, url);
+                bindNullable(update, 3, book.lastmod);
+                bindNullable(update, 4, book.lastmod);
+                bindNullable(update, 5, book.lastmod);
+                queued += update.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return queued;
+    }
+
+    /**
+     * Pending posts, most recently modified first
+     */
+    public List<Entry> pendingBooks(int limit) {
+        List<Entry> result = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT url, pending_lastmod FROM books WHERE pending = 1 AND failures < ? "
+                        + "ORDER BY pending_lastmod DESC LIMIT ?",
+                new String[]{String.valueOf(MAX_FAILURES), String.valueOf(limit)})) {
+            while (cursor.moveToNext()) {
+                result.add(new Entry(cursor.getString(0), cursor.isNull(1) ? null : cursor.getString(1)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Store fetched details for a pending post. If the sitemap listed a newer lastmod in
+     * the meantime, the post stays pending.
+     */
+    public void storeBook(Entry book, Audiobook details) {
+        getWritableDatabase().execSQL("UPDATE books SET post_id = ?, title = ?, author = ?, author_url = ?, "
+                        + "image_url = ?, published = ?, categories = ?, description = ?, lastmod = ?, "
+                        + "pending = (pending_lastmod IS NOT ? AND pending_lastmod IS NOT NULL), "
+                        + "pending_lastmod = CASE WHEN pending_lastmod IS ? THEN NULL ELSE pending_lastmod END, "
+                        + "failures = 0, fetched_at = ? WHERE url = ?",
+                new Object[]{details.getId(), details.getTitle(), details.getAuthor(), details.getAuthorUrl(),
+                        details.getImageUrl(), details.getPublishedDate(), joinCategories(details.getCategories()),
+                        details.getDescription(), book.lastmod, book.lastmod, book.lastmod,
+                        System.currentTimeMillis(), UrlCanonicalizer.canonicalize(book.url)});
+        changeCount.incrementAndGet();
+    }
+
+    /**
+     * Count a failed fetch of a pending post
+     */
+    public void recordFailure(Entry book) {
+        getWritableDatabase().execSQL("UPDATE books SET failures = failures + 1 WHERE url = ?",
+                new Object[]{UrlCanonicalizer.canonicalize(book.url)});
+    }
+
+    /**
+     * Forget a post that is gone from the site
+     */
+    public void removeBook(Entry book) {
+        getWritableDatabase().execSQL("DELETE FROM books WHERE url = ?",
+                new Object[]{UrlCanonicalizer.canonicalize(book.url)});
+        changeCount.incrementAndGet();
+    }
+
+    /**
+     * Store posts read from the feed or a list page. New posts are stored as they are,
+     * without a detail fetch; known posts only get the fields they are missing.
+     *
+     * @return how many posts were new
+     */
+    public int storeCards(List<Audiobook> books) {
+        int added = 0;
+        int changed = 0;
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(
+                "INSERT OR IGNORE INTO books (url, post_id, title, author, image_url, published, categories, "
+                        + "description, pending, fetched_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?)");
+             SQLiteStatement update = db.compileStatement(
+                     "UPDATE books SET post_id = COALESCE(post_id, ?), title = COALESCE(title, ?), "
+                             + "author = COALESCE(author, ?), image_url = COALESCE(image_url, ?), "
+                             + "published = COALESCE(published, ?), categories = COALESCE(categories, ?), "
+                             + "description = COALESCE(description, ?) WHERE url = ? "
+                             // Leave complete rows, and so the full-text index, untouched
+                             + "AND (post_id IS NULL OR title IS NULL OR author IS NULL OR image_url IS NULL "
+                             + "OR published IS NULL OR categories IS NULL OR description IS NULL)")) {
+            for (Audiobook book : books) {
+                if (book.getUrl() == null || book.getTitle() == null) {
+                    continue;
+                }
+                String url = UrlCanonicalizer.canonicalize(book.getUrl());
+                String categories = joinCategories(book.getCategories());
+                bindNullable(insert, 1, url);
+                bindNullable(insert, 2, book.getId());
+                bindNullable(insert, 3, book.getTitle());
+                bindNullable(insert, 4, book.getAuthor());
+                bindNullable(insert, 5, book.getImageUrl());
+                bindNullable(insert, 6, book.getPublishedDate());
+                bindNullable(insert, 7, categories);
+                bindNullable(insert, 8, book.getDescription());
+                insert.bindLong(9, now);
+                if (insert.executeInsert() != -1) {
+                    added++;
+                    continue;
+                }
+                bindNullable(update, 1, book.getId());
+                bindNullable(update, 2, book.getTitle());
+                bindNullable(update, 3, book.getAuthor());
+                bindNullable(update, 4, book.getImageUrl());
+                bindNullable(update, 5, book.getPublishedDate());
+                bindNullable(update, 6, categories);
+                bindNullable(update, 7, book.getDescription());
+                bindNullable(update, 8, url);
+                changed += update.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (added + changed > 0) {
+            changeCount.incrementAndGet();
+        }
+        return added;
+    }
+
+    /**
+     * Whether a post is already stored with its card fields, looked up by post id or, for
+     * rows without one, by URL. Posts the sitemap crawl only queued do not count.
+     */
+    public boolean hasPost(String postId, String url) {
+        String canonical = url == null ? null : UrlCanonicalizer.canonicalize(url);
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT 1 FROM books WHERE title IS NOT NULL AND (post_id = ? OR url = ?) LIMIT 1",
+                new String[]{postId == null ? "" : postId, canonical == null ? "" : canonical})) {
+            return cursor.moveToFirst();
+        }
+    }
+
+    /**
+     * Full-text search of the stored books, best match first. Every word of the query has
+     * to match, the last one also as a prefix since it may still be being typed. Ranking is
+     * BM25 over the indexed columns, with title and author hits counting the most.
+     * Runs on the caller's thread.
+     */
+    public List<Audiobook> search(String query, int limit) {
+        String match = matchExpression(query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        List<Ranked> ranked = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT b.url, b.post_id, b.title, b.author, b.author_url, b.image_url, b.published, "
+                        + "b.categories, matchinfo(books_fts, 'pcnalx') "
+                        + "FROM books_fts JOIN books b ON b.rowid = books_fts.docid "
+                        + "WHERE books_fts MATCH ? AND b.title IS NOT NULL "
+                        + "ORDER BY books_fts.docid DESC LIMIT ?",
+                new String[]{match, String.valueOf(MAX_CANDIDATES)})) {
+            while (cursor.moveToNext()) {
+                ranked.add(new Ranked(readCard(cursor), score(cursor.getBlob(8))));
+            }
+        }
+        // Stable, so equal scores keep the most recently stored first
+        Collections.sort(ranked, (a, b) -> Double.compare(b.score, a.score));
+        List<Audiobook> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(ranked.get(i).book);
+        }
+        return result;
+    }
+
+    /**
+     * Receives the searchable text of one book
+     */
+    public interface SearchTextVisitor {
+        void visit(int rowId, String title, String author);
+    }
+
+    /**
+     * Walk the title and author of every book that has one, for building search indexes
+     */
+    public void forEachSearchText(SearchTextVisitor visitor) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT rowid, title, author FROM books WHERE title IS NOT NULL", null)) {
+            while (cursor.moveToNext()) {
+                visitor.visit(cursor.getInt(0), cursor.getString(1), cursor.isNull(2) ? null : cursor.getString(2));
+            }
+        }
+    }
+
+    /**
+     * Cards of the books with the given row ids, in that order; ids no longer stored are skipped
+     */
+    public List<Audiobook> getCards(int[] rowIds) {
+        List<Audiobook> result = new ArrayList<>(rowIds.length);
+        if (rowIds.length == 0) {
+            return result;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (int rowId : rowIds) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(rowId);
+        }
+        Map<Integer, Audiobook> byRowId = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT url, post_id, title, author, author_url, image_url, published, categories, rowid "
+                        + "FROM books WHERE title IS NOT NULL AND rowid IN (" + ids + ")", null)) {
+            while (cursor.moveToNext()) {
+                byRowId.put(cursor.getInt(8), readCard(cursor));
+            }
+        }
+        for (int rowId : rowIds) {
+            Audiobook card = byRowId.get(rowId);
+            if (card != null) {
+                result.add(card);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Bumped whenever a book's searchable text changes
+     */
+    public long getChangeCount() {
+        return changeCount.get();
+    }
+
+    private static final class Ranked {
+        final Audiobook book;
+        final double score;
+
+        Ranked(Audiobook book, double score) {
+            this.book = book;
+            this.score = score;
+        }
+    }
+
+    private static Audiobook readCard(Cursor cursor) {
+        Audiobook book = new Audiobook();
+        book.setUrl(cursor.getString(0));
+        book.setId(cursor.isNull(1) ? null : cursor.getString(1));
+        book.setTitle(cursor.getString(2));
+        book.setAuthor(cursor.isNull(3) ? null : cursor.getString(3));
+        book.setAuthorUrl(cursor.isNull(4) ? null : cursor.getString(4));
+        book.setImageUrl(cursor.isNull(5) ? null : cursor.getString(5));
+        book.setPublishedDate(cursor.isNull(6) ? null : cursor.getString(6));
+        if (!cursor.isNull(7)) {
+            for (String category : cursor.getString(7).split("\n")) {
+                book.addCategory(category);
+            }
+        }
+        return book;
+    }
+
+    /**
+     * FTS query for what the user typed: each word quoted, the last one as a prefix.
+     * Null if there is no word to look for.
+     */
+    static String matchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append("\" ");
+            }
+            match.append('"').append(word);
+        }
+        return match.length() == 0 ? null : match.append("*\"").toString();
+    }
+
+    /**
+     * BM25 from matchinfo 'pcnalx': phrase and column counts, row count, average and row
+     * lengths per column, then hits in this row, hits in all rows and rows with hits for
+     * each phrase and column
+     */
+    static double score(byte[] matchinfo) {
+        IntBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        int rows = info.get(2);
+        int averages = 3;
+        int lengths = averages + columns;
+        int hits = lengths + columns;
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < COLUMN_WEIGHTS.length; column++) {
+                int x = hits + 3 * (phrase * columns + column);
+                int rowHits = info.get(x);
+                if (rowHits == 0) {
+                    continue;
+                }
+                int rowsWithHits = info.get(x + 2);
+                double idf = Math.log(1 + (rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                double lengthRatio = (double) info.get(lengths + column) / Math.max(1, info.get(averages + column));
+                double tf = rowHits * (K1 + 1) / (rowHits + K1 * (1 - B + B * lengthRatio));
+                score += COLUMN_WEIGHTS[column] * idf * tf;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * A value a sync job stored, or null
+     */
+    public String getSyncState(String name) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT value FROM sync_state WHERE name = ?", new String[]{name})) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    public void putSyncState(String name, String value) {
+        getWritableDatabase().execSQL("INSERT OR REPLACE INTO sync_state (name, value) VALUES (?, ?)",
+                new Object[]{name, value});
+    }
+
+    public int getBookCount() {
+        return count("SELECT COUNT(*) FROM books WHERE fetched_at IS NOT NULL");
+    }
+
+    public int getPendingCount() {
+        return count("SELECT COUNT(*) FROM books WHERE pending = 1 AND failures < " + MAX_FAILURES);
+    }
+
+    private int count(String sql) {
+        try (SQLiteStatement statement = getReadableDatabase().compileStatement(sql)) {
+            return (int) statement.simpleQueryForLong();
+        }
+    }
+
+    private static String joinCategories(List<String> categories) {
+        return categories.isEmpty() ? null : String.join("\n", categories);
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the details of many books, at most parallelism at a time. Results are delivered in
+ * request order, where one that arrives early waits for the ones before it, or in
+ * completion order, as soon as each is in. A URL that fails is reported on its own and
+ * does not stop the others.
+ * <p>
+ * Callbacks run on the thread the fetches deliver on, the main thread for the repository
+ * and the data sources; request order relies on that being a single thread.
+ */
+public class DetailBatch {
+
+    public enum Order {
+        REQUEST, COMPLETION
+    }
+
+    /**
+     * Loads the details of one book
+     */
+    public interface Fetch {
+        Cancellable fetch(String url, AudiobookRepository.DataCallback<Audiobook> callback);
+    }
+
+    /**
+     * Receives the outcome of each URL, then of the whole batch
+     */
+    public interface Listener {
+        default void onResult(int index, String url, Audiobook details) {
+        }
+
+        default void onFailure(int index, String url, Exception e) {
+        }
+
+        /**
+         * Every URL has succeeded or failed
+         */
+        default void onComplete(Result result) {
+        }
+    }
+
+    /**
+     * Outcome of every URL of a batch, by position in the request
+     */
+    public static final class Result {
+        private final Audiobook[] details;
+        private final Exception[] errors;
+
+        Result(Audiobook[] details, Exception[] errors) {
+            this.details = details;
+            this.errors = errors;
+        }
+
+        public int size() {
+            return details.length;
+        }
+
+        /**
+         * Details of the URL at this position, or null if it failed
+         */
+        public Audiobook getDetails(int index) {
+            return details[index];
+        }
+
+        /**
+         * Why the URL at this position failed, or null if it succeeded
+         */
+        public Exception getError(int index) {
+            return errors[index];
+        }
+
+        public int getFailedCount() {
+            int failed = 0;
+            for (Exception error : errors) {
+                if (error != null) {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+    }
+
+    private final List<String> urls;
+    private final int parallelism;
+    private final Order order;
+    private final Fetch fetch;
+    private final Listener listener;
+    private final CancellationToken handle = new CancellationToken();
+    private final RequestGroup requests = new RequestGroup();
+
+    private final Audiobook[] details;
+    private final Exception[] errors;
+    private final boolean[] settled;
+    private int nextToRequest;
+    private int nextToDeliver;
+    private int inFlight;
+    private int settledCount;
+
+    public DetailBatch(List<String> urls, int parallelism, Order order, Fetch fetch, Listener listener) {
+        this.urls = new ArrayList<>(urls);
+        this.parallelism = Math.max(1, parallelism);
+        this.order = order;
+        this.fetch = fetch;
+        this.listener = listener;
+        this.details = new Audiobook[this.urls.size()];
+        this.errors = new Exception[this.urls.size()];
+        this.settled = new boolean[this.urls.size()];
+        handle.onCancel(requests::cancelAll);
+    }
+
+    /**
+     * Start fetching. The handle cancels the URLs not fetched yet; nothing more is delivered.
+     */
+    public Cancellable start() {
+        if (urls.isEmpty()) {
+            handle.finish();
+            listener.onComplete(new Result(details, errors));
+            return handle;
+        }
+        List<Integer> toStart;
+        synchronized (this) {
+            toStart = claim();
+        }
+        startAll(toStart);
+        return handle;
+    }
+
+    /**
+     * Indexes to start now, keeping at most parallelism in flight
+     */
+    private List<Integer> claim() {
+        List<Integer> toStart = new ArrayList<>();
+        while (inFlight < parallelism && nextToRequest < urls.size()) {
+            inFlight++;
+            toStart.add(nextToRequest++);
+        }
+        return toStart;
+    }
+
+    private void startAll(List<Integer> indexes) {
+        for (int index : indexes) {
+            if (handle.isCancelled()) {
+                return;
+            }
+            requests.add(fetch.fetch(urls.get(index), new AudiobookRepository.DataCallback<Audiobook>() {
+                @Override
+                public void onSuccess(Audiobook data) {
+                    if (data != null) {
+                        settle(index, data, null);
+                    } else {
+                        settle(index, null, new IllegalStateException("No details for " + urls.get(index)));
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    settle(index, null, e);
+                }
+            }));
+        }
+    }
+
+    private void settle(int index, Audiobook data, Exception error) {
+        List<Integer> deliver = new ArrayList<>();
+        List<Integer> toStart;
+        boolean complete;
+        synchronized (this) {
+            if (handle.isCancelled() || settled[index]) {
+                return;
+            }
+            settled[index] = true;
+            details[index] = data;
+            errors[index] = error;
+            inFlight--;
+            settledCount++;
+            if (order == Order.COMPLETION) {
+                deliver.add(index);
+            } else {
+                while (nextToDeliver < urls.size() && settled[nextToDeliver]) {
+                    deliver.add(nextToDeliver++);
+                }
+            }
+            toStart = claim();
+            complete = settledCount == urls.size();
+        }
+        // Listeners run outside the lock, so they may start or cancel other work
+        for (int i : deliver) {
+            if (handle.isCancelled()) {
+                return;
+            }
+            if (details[i] != null) {
+                listener.onResult(i, urls.get(i), details[i]);
+            } else {
+                listener.onFailure(i, urls.get(i), errors[i]);
+            }
+        }
+        startAll(toStart);
+        if (complete && !handle.isCancelled()) {
+            handle.finish();
+            listener.onComplete(new Result(details, errors));
+        }
+    }
+}
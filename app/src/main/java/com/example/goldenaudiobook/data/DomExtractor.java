@@ -0,0 +1,389 @@
+package com.example.goldenaudiobook.data;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Single-pass extraction of the elements WebDataSource reads from detail pages and post cards.
+ * Every selector the parsers used to run as a separate select()/selectFirst() over the whole
+ * tree is answered in one traversal. Each element's class attribute is scanned once into a bit
+ * set, and open ancestors are tracked with counters, so descendant selectors such as
+ * ".post-single h1" cost a counter check instead of a walk up the tree.
+ * First-match fields follow document order, the same order selectFirst() uses.
+ */
+final class DomExtractor {
+
+    private DomExtractor() {
+    }
+
+    /**
+     * Scan a detail page
+     */
+    static Detail scanDetail(Element root) {
+        Detail detail = new Detail();
+        NodeTraversor.traverse(detail, root);
+        return detail;
+    }
+
+    /**
+     * Scan one post card of a list page
+     */
+    static Card scanCard(Element post) {
+        Card card = new Card();
+        NodeTraversor.traverse(card, post);
+        return card;
+    }
+
+    // Class bits, read once per element by classBits()
+    private static final int POST_SINGLE = 1;
+    private static final int ENTRY_CONTENT = 1 << 1;
+    private static final int POST_CONTENT = 1 << 2;
+    private static final int POST_COVER = 1 << 3;
+    private static final int COLLAPSE_CONTENT = 1 << 4;
+    private static final int TITLE_PAGE = 1 << 5;
+    private static final int ENTRY_TITLE = 1 << 6;
+    private static final int ENTRY_DATE = 1 << 7;
+    private static final int CATEGORY_META = 1 << 8;
+    private static final int TAGS_LINKS = 1 << 9;
+    private static final int TITLE_POST = 1 << 10;
+    private static final int POST_TITLE = 1 << 11;
+    private static final int VIEW_TITLE = 1 << 12;
+    private static final int VIEW_THUMBNAIL = 1 << 13;
+    private static final int VIEW_THUMBNAIL_LINK = 1 << 14;
+    private static final int POSTED_ON = 1 << 15;
+    // Tag bits, set by the visitors rather than classBits()
+    private static final int AUDIO = 1 << 16;
+    private static final int H2 = 1 << 17;
+    private static final int ANCHOR = 1 << 18;
+
+    /**
+     * Bits of the classes the extractors care about, from a single scan of the class attribute
+     */
+    private static int classBits(Element el) {
+        String classes = el.className();
+        int bits = 0;
+        int length = classes.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && Character.isWhitespace(classes.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < length && !Character.isWhitespace(classes.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                bits |= classBit(classes.substring(start, end).toLowerCase(Locale.ROOT));
+            }
+            start = end;
+        }
+        return bits;
+    }
+
+    private static int classBit(String name) {
+        switch (name) {
+            case "post-single":
+                return POST_SINGLE;
+            case "entry-content":
+                return ENTRY_CONTENT;
+            case "post-content":
+                return POST_CONTENT;
+            case "post-cover":
+                return POST_COVER;
+            case "collapseomatic_content":
+                return COLLAPSE_CONTENT;
+            case "title-page":
+                return TITLE_PAGE;
+            case "entry-title":
+                return ENTRY_TITLE;
+            case "entry-date":
+                return ENTRY_DATE;
+            case "post-meta-category":
+                return CATEGORY_META;
+            case "tags-links":
+                return TAGS_LINKS;
+            case "title-post":
+                return TITLE_POST;
+            case "post-title":
+                return POST_TITLE;
+            case "pt-cv-title":
+                return VIEW_TITLE;
+            case "pt-cv-thumbnail":
+                return VIEW_THUMBNAIL;
+            case "pt-cv-href-thumbnail":
+                return VIEW_THUMBNAIL_LINK;
+            case "posted-on":
+                return POSTED_ON;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Class bits of the open elements, indexed by depth, so tail() need not rescan them
+     */
+    private static final class BitStack {
+        private int[] bits = new int[32];
+
+        void set(int depth, int value) {
+            if (depth >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(depth + 1, bits.length * 2));
+            }
+            bits[depth] = value;
+        }
+
+        int get(int depth) {
+            return bits[depth];
+        }
+    }
+
+    private static boolean isCategoryLink(Element el) {
+        return el.nameIs("a") && "category tag".equalsIgnoreCase(el.attr("rel"));
+    }
+
+    /**
+     * Elements of an audiobook detail page
+     */
+    static final class Detail implements NodeVisitor {
+        /** h1.title-page, h1.entry-title, .post-single h1 */
+        Element title;
+        /** .post-single img, .entry-content img, .post-cover img */
+        Element image;
+        /** .post-single .collapseomatic_content, .entry-content, .post-content */
+        Element content;
+        /** .entry-date, time[datetime] */
+        Element date;
+        /** audio source[src] */
+        final List<String> sourceUrls = new ArrayList<>();
+        /** audio[src] */
+        final List<String> audioUrls = new ArrayList<>();
+        /** iframe[src*='audio'], iframe[src*='player'] */
+        final List<String> playerIframes = new ArrayList<>();
+        /** .post-meta-category a[rel=category tag] */
+        final List<String> categories = new ArrayList<>();
+        /** Last of .tags-links a */
+        Element lastTagLink;
+
+        private final BitStack open = new BitStack();
+        private int postSingle;
+        private int imageContainer;
+        private int categoryMeta;
+        private int tagsLinks;
+        private int audio;
+
+        @Override
+        public void head(Node node, int depth) {
+            if (!(node instanceof Element)) {
+                return;
+            }
+            Element el = (Element) node;
+            String tag = el.normalName();
+            int bits = classBits(el);
+
+            if (title == null && tag.equals("h1")
+                    && (postSingle > 0 || (bits & (TITLE_PAGE | ENTRY_TITLE)) != 0)) {
+                title = el;
+            }
+            if (image == null && tag.equals("img") && imageContainer > 0) {
+                image = el;
+            }
+            if (content == null && ((bits & (ENTRY_CONTENT | POST_CONTENT)) != 0
+                    || (postSingle > 0 && (bits & COLLAPSE_CONTENT) != 0))) {
+                content = el;
+            }
+            if (date == null && ((bits & ENTRY_DATE) != 0 || (tag.equals("time") && el.hasAttr("datetime")))) {
+                date = el;
+            }
+            switch (tag) {
+                case "source":
+                    if (audio > 0 && !el.attr("src").isEmpty()) {
+                        sourceUrls.add(el.attr("src"));
+                    }
+                    break;
+                case "audio":
+                    if (!el.attr("src").isEmpty()) {
+                        audioUrls.add(el.attr("src"));
+                    }
+                    break;
+                case "iframe":
+                    String src = el.attr("src");
+                    // Case-insensitive, like the [src*=...] selector this replaces
+                    String lowerSrc = src.toLowerCase(Locale.ROOT);
+                    if (lowerSrc.contains("audio") || lowerSrc.contains("player")) {
+                        playerIframes.add(src);
+                    }
+                    break;
+                case "a":
+                    if (categoryMeta > 0 && isCategoryLink(el)) {
+                        categories.add(el.text());
+                    }
+                    if (tagsLinks > 0) {
+                        lastTagLink = el;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            // Ancestor counters apply to descendants only, so they are raised after matching
+            if (tag.equals("audio")) {
+                bits |= AUDIO;
+            }
+            open.set(depth, bits);
+            adjust(bits, 1);
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (node instanceof Element) {
+                adjust(open.get(depth), -1);
+            }
+        }
+
+        private void adjust(int bits, int delta) {
+            if (bits == 0) {
+                return;
+            }
+            if ((bits & POST_SINGLE) != 0) {
+                postSingle += delta;
+            }
+            if ((bits & (POST_SINGLE | ENTRY_CONTENT | POST_COVER)) != 0) {
+                imageContainer += delta;
+            }
+            if ((bits & CATEGORY_META) != 0) {
+                categoryMeta += delta;
+            }
+            if ((bits & TAGS_LINKS) != 0) {
+                tagsLinks += delta;
+            }
+            if ((bits & AUDIO) != 0) {
+                audio += delta;
+            }
+        }
+    }
+
+    /**
+     * Elements of one post card. The per-page parsers pick the fields their layout uses.
+     */
+    static final class Card implements NodeVisitor {
+        /** h2.title-post a */
+        Element titlePostLink;
+        /** .entry-title a, .post-title a, h2 a */
+        Element headingLink;
+        /** .pt-cv-title a */
+        Element viewTitleLink;
+        /** img */
+        Element image;
+        /** img.pt-cv-thumbnail */
+        Element viewThumbnail;
+        /** a.pt-cv-href-thumbnail img */
+        Element viewLinkedImage;
+        /** time.entry-date */
+        Element entryTime;
+        /** .posted-on time, .entry-date */
+        Element postedDate;
+        /** .post-meta-category a[rel=category tag] */
+        final List<String> categories = new ArrayList<>();
+
+        private final BitStack open = new BitStack();
+        private int titlePost;
+        private int heading;
+        private int viewTitle;
+        private int viewThumbnailLink;
+        private int postedOn;
+        private int categoryMeta;
+
+        @Override
+        public void head(Node node, int depth) {
+            if (!(node instanceof Element)) {
+                return;
+            }
+            Element el = (Element) node;
+            String tag = el.normalName();
+            int bits = classBits(el);
+
+            switch (tag) {
+                case "a":
+                    if (titlePostLink == null && titlePost > 0) {
+                        titlePostLink = el;
+                    }
+                    if (headingLink == null && heading > 0) {
+                        headingLink = el;
+                    }
+                    if (viewTitleLink == null && viewTitle > 0) {
+                        viewTitleLink = el;
+                    }
+                    if (categoryMeta > 0 && isCategoryLink(el)) {
+                        categories.add(el.text());
+                    }
+                    bits |= ANCHOR;
+                    break;
+                case "img":
+                    if (image == null) {
+                        image = el;
+                    }
+                    if (viewThumbnail == null && (bits & VIEW_THUMBNAIL) != 0) {
+                        viewThumbnail = el;
+                    }
+                    if (viewLinkedImage == null && viewThumbnailLink > 0) {
+                        viewLinkedImage = el;
+                    }
+                    break;
+                case "time":
+                    if (entryTime == null && (bits & ENTRY_DATE) != 0) {
+                        entryTime = el;
+                    }
+                    break;
+                case "h2":
+                    bits |= H2;
+                    break;
+                default:
+                    break;
+            }
+            if (postedDate == null && ((tag.equals("time") && postedOn > 0) || (bits & ENTRY_DATE) != 0)) {
+                postedDate = el;
+            }
+
+            open.set(depth, bits);
+            adjust(bits, 1);
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (node instanceof Element) {
+                adjust(open.get(depth), -1);
+            }
+        }
+
+        private void adjust(int bits, int delta) {
+            if (bits == 0) {
+                return;
+            }
+            if ((bits & H2) != 0 && (bits & TITLE_POST) != 0) {
+                titlePost += delta;
+            }
+            if ((bits & (H2 | ENTRY_TITLE | POST_TITLE)) != 0) {
+                heading += delta;
+            }
+            if ((bits & VIEW_TITLE) != 0) {
+                viewTitle += delta;
+            }
+            if ((bits & ANCHOR) != 0 && (bits & VIEW_THUMBNAIL_LINK) != 0) {
+                viewThumbnailLink += delta;
+            }
+            if ((bits & POSTED_ON) != 0) {
+                postedOn += delta;
+            }
+            if ((bits & CATEGORY_META) != 0) {
+                categoryMeta += delta;
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+
+/**
+ * Delta sync of new posts from the site feed into the CatalogDatabase.
+ * The feed lists the newest posts first, so reading stops at the first post the catalog
+ * already holds. Post ids are not compared by size: a draft started long ago and published
+ * today has a low id but is still new. A sync with nothing new reads one feed page, and
+ * through the page cache that is usually a 304.
+ * <p>
+ * Both the WordPress RSS feed and its Atom variant are understood.
+ */
+public class FeedSync {
+    private static final String TAG = "FeedSync";
+
+    public static final String DEFAULT_FEED_URL = "https://goldenaudiobook.net/feed/";
+
+    // Feed pages read at most per sync; older gaps are left to the sitemap crawl
+    private static final int MAX_PAGES = 5;
+
+    private final HttpTransport transport;
+    private final CatalogDatabase catalog;
+    private final String feedUrl;
+    private final FetchScheduler scheduler;
+    private final Handler mainHandler;
+
+    public FeedSync(CatalogDatabase catalog) {
+        this(WebDataSource.defaultTransport(), catalog, DEFAULT_FEED_URL);
+    }
+
+    public FeedSync(HttpTransport transport, CatalogDatabase catalog, String feedUrl) {
+        this.transport = transport;
+        this.catalog = catalog;
+        this.feedUrl = feedUrl;
+        this.scheduler = FetchScheduler.getInstance();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Read the feed up to the last post seen and store what is new, in the BACKGROUND lane.
+     * The callback gets the number of new posts on the main thread.
+     */
+    public Cancellable sync(WebDataSource.Callback<Integer> callback) {
+        CancellationToken token = new CancellationToken();
+        scheduler.execute(feedUrl, FetchPriority.BACKGROUND, token, () -> {
+            try {
+                int added = syncNow(token);
+                deliver(token, () -> callback.onSuccess(added));
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Feed sync failed", e);
+                deliver(token, () -> callback.onError(e));
+            }
+        });
+        return token;
+    }
+
+    private int syncNow(CancellationToken token) throws IOException {
+        List<Audiobook> fresh = new ArrayList<>();
+        boolean reachedSeen = false;
+        int page = 1;
+        // Into an empty catalog, the first page is enough to start from
+        int maxPages = catalog.getBookCount() > 0 ? MAX_PAGES : 1;
+        while (!reachedSeen && page <= maxPages) {
+            List<Audiobook> items;
+            try {
+                items = readFeed(page == 1 ? feedUrl : feedUrl + "?paged=" + page, token);
+            } catch (HttpStatusException e) {
+                // Past the last feed page
+                if (page > 1 && e.getStatusCode() == 404) {
+                    break;
+                }
+                throw e;
+            }
+            if (items.isEmpty()) {
+                break;
+            }
+            for (Audiobook item : items) {
+                if (catalog.hasPost(item.getId(), item.getUrl())) {
+                    reachedSeen = true;
+                    break;
+                }
+                fresh.add(item);
+            }
+            page++;
+        }
+        int added = catalog.storeCards(fresh);
+        SuggestionTrie suggestions = SuggestionTrie.getInstance();
+        if (suggestions != null) {
+            suggestions.addAll(fresh);
+        }
+        Log.i(TAG, "Feed sync: " + fresh.size() + " posts before the first known one, " + added + " new, "
+                + (page - 1) + " pages");
+        return added;
+    }
+
+    private void deliver(CancellationToken token, Runnable delivery) {
+        mainHandler.post(() -> {
+            if (!token.isCancelled()) {
+                token.finish();
+                delivery.run();
+            }
+        });
+    }
+
+    /**
+     * Stream one feed page into cards
+     */
+    private List<Audiobook> readFeed(String url, CancellationToken token) throws IOException {
+        token.throwIfCancelled();
+        HttpTransport.Request request = new HttpTransport.Request(url)
+                .header("User-Agent", WebDataSource.USER_AGENT)
+                .cancellationToken(token);
+        try (HttpTransport.Response response = transport.get(request)) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException("HTTP error fetching URL", response.getCode(), url);
+            }
+            XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+            parser.setInput(response.getBody(), response.getCharset());
+            List<Audiobook> items = new ArrayList<>();
+            ItemBuilder item = null;
+            int depth = 0;
+            for (int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+                if (event == XmlPullParser.START_TAG) {
+                    String name = parser.getName();
+                    if (item == null && ("item".equals(name) || "entry".equals(name))) {
+                        item = new ItemBuilder();
+                        depth = parser.getDepth();
+                    } else if (item != null && parser.getDepth() == depth + 1) {
+                        item.field(parser, name);
+                    }
+                } else if (event == XmlPullParser.END_TAG && item != null && parser.getDepth() == depth) {
+                    Audiobook built = item.build(url);
+                    if (built != null) {
+                        items.add(built);
+                    }
+                    item = null;
+                }
+            }
+            return items;
+        } catch (XmlPullParserException e) {
+            throw new IOException("Malformed feed " + url, e);
+        }
+    }
+
+    /**
+     * Collects the fields of one RSS item or Atom entry
+     */
+    private static final class ItemBuilder {
+        String guid;
+        String link;
+        String title;
+        String date;
+        String html;
+        final List<String> categories = new ArrayList<>();
+
+        void field(XmlPullParser parser, String name) throws IOException, XmlPullParserException {
+            switch (name) {
+                case "guid":
+                case "id":
+                    guid = parser.nextText().trim();
+                    break;
+                case "link":
+                    // RSS has the URL as text, Atom in href of the alternate link
+                    String href = parser.getAttributeValue(null, "href");
+                    String rel = parser.getAttributeValue(null, "rel");
+                    if (href != null) {
+                        if (rel == null || "alternate".equals(rel)) {
+                            link = href;
+                        }
+                    } else {
+                        link = parser.nextText().trim();
+                    }
+                    break;
+                case "title":
+                    title = parser.nextText().trim();
+                    break;
+                case "pubDate":
+                case "published":
+                    date = parser.nextText().trim();
+                    break;
+                case "category":
+                    String term = parser.getAttributeValue(null, "term");
+                    String category = term != null ? term : parser.nextText().trim();
+                    if (!category.isEmpty()) {
+                        categories.add(category);
+                    }
+                    break;
+                case "content:encoded":
+                case "content":
+                    html = parser.nextText();
+                    break;
+                case "description":
+                case "summary":
+                    if (html == null) {
+                        html = parser.nextText();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Audiobook build(String baseUrl) {
+            if (link == null || link.isEmpty() || title == null) {
+                return null;
+            }
+            Audiobook book = new Audiobook();
+            book.setUrl(link);
+            String cleanTitle = Jsoup.parse(title).text().replace("Audiobook", "").trim();
+            book.setTitle(cleanTitle);
+            if (cleanTitle.contains("–")) {
+                String[] parts = cleanTitle.split("–");
+                if (parts.length > 1) {
+                    book.setAuthor(parts[0].trim());
+                }
+            }
+            for (String category : categories) {
+                book.addCategory(category);
+            }
+            book.setPublishedDate(formatDate(date));
+            if (html != null) {
+                Document content = Jsoup.parseBodyFragment(html, baseUrl);
+                Element image = content.selectFirst("img[src]");
+                if (image != null) {
+                    book.setImageUrl(WebDataSource.removeDimensions(image.absUrl("src")));
+                }
+                String text = content.text();
+                book.setDescription(text.length() > 500 ? text.substring(0, 497) + "..." : text);
+            }
+            if (guid != null) {
+                Matcher matcher = SelectorRegistry.GUID_POST_ID.matcher(guid);
+                if (matcher.find()) {
+                    book.setId(matcher.group(1));
+                }
+            }
+            return book;
+        }
+    }
+
+    /**
+     * Feed dates (RFC 822 in RSS, ISO 8601 in Atom) the way the theme prints them
+     */
+    private static String formatDate(String date) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        SimpleDateFormat out = new SimpleDateFormat("MMMM d, yyyy", Locale.US);
+        for (String pattern : new String[]{"EEE, dd MMM yyyy HH:mm:ss Z", "yyyy-MM-dd'T'HH:mm:ssXXX"}) {
+            try {
+                return out.format(new SimpleDateFormat(pattern, Locale.US).parse(date));
+            } catch (ParseException e) {
+                // Try the next format
+            }
+        }
+        return date;
+    }
+}
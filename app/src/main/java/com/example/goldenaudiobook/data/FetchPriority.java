@@ -0,0 +1,15 @@
+package com.example.goldenaudiobook.data;
+
+/**
+ * Scheduling lanes for fetches, highest priority first
+ */
+public enum FetchPriority {
+    /** A detail page or search the user just asked for */
+    INTERACTIVE,
+    /** The list page currently on screen */
+    VISIBLE,
+    /** Next page or detail prefetch that may never be shown */
+    SPECULATIVE,
+    /** Catalog sync and crawling */
+    BACKGROUND
+}
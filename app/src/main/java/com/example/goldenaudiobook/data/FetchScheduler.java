@@ -0,0 +1,443 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide scheduler for network fetches.
+ * Every WebDataSource shares it, so the number of concurrent fetches is capped for the
+ * whole app instead of one thread per screen, with an extra cap per host.
+ * <p>
+ * Fetches are queued in priority lanes (see FetchPriority). Free slots always go to the
+ * highest lane first, and one slot is kept free of speculative and background work so a
+ * tap never waits behind prefetching. To keep the lower lanes moving, a task that has
+ * waited longer than its lane's aging limit moves to the back of the lane above, one lane
+ * at a time. Tasks age up to VISIBLE at most, so INTERACTIVE work is never overtaken.
+ */
+public final class FetchScheduler {
+    private static final String TAG = "FetchScheduler";
+
+    public static final int DEFAULT_MAX_PARALLELISM = 4;
+    public static final int DEFAULT_MAX_PER_HOST = 3;
+
+    // Slots that speculative and background fetches may not use
+    private static final int RESERVED_SLOTS = 1;
+    // How long a task waits in each lane before it moves up one; the top two lanes do not age
+    private static final long[] AGING_LIMIT_MS = {0, 0, 3000, 10000};
+    // Highest lane a task can age into
+    private static final int AGING_CEILING = FetchPriority.VISIBLE.ordinal();
+
+    private static volatile FetchScheduler instance;
+
+    private final Executor workers;
+    private final LongSupplier clock;
+    private final ArrayDeque<Task>[] lanes;
+    private final LatencyHistogram[] laneLatency;
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+
+    private int maxParallelism;
+    private int maxPerHost;
+    private int running;
+
+    // Metrics, guarded by this
+    private int peakQueueDepth;
+    private long dispatchedCount;
+    private long completedCount;
+    private long droppedCount;
+    private long totalWaitMs;
+    private long maxWaitMs;
+
+    private FetchScheduler(int maxParallelism, int maxPerHost) {
+        // Thread count is bounded by dispatch(), not by the pool itself
+        this(maxParallelism, maxPerHost, Executors.newCachedThreadPool(new BackgroundThreadFactory()),
+                SystemClock::elapsedRealtime);
+    }
+
+    /**
+     * Scheduler running its tasks on the given executor, with a clock in milliseconds
+     */
+    FetchScheduler(int maxParallelism, int maxPerHost, Executor workers, LongSupplier clock) {
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        FetchPriority[] priorities = FetchPriority.values();
+        this.lanes = newLanes(priorities.length);
+        this.laneLatency = new LatencyHistogram[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            laneLatency[i] = new LatencyHistogram();
+        }
+        this.workers = workers;
+        this.clock = clock;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<Task>[] newLanes(int count) {
+        ArrayDeque<Task>[] result = new ArrayDeque[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new ArrayDeque<>();
+        }
+        return result;
+    }
+
+    /**
+     * Get the shared scheduler, creating it with default limits on first use
+     */
+    public static FetchScheduler getInstance() {
+        if (instance == null) {
+            synchronized (FetchScheduler.class) {
+                if (instance == null) {
+                    instance = new FetchScheduler(DEFAULT_MAX_PARALLELISM, DEFAULT_MAX_PER_HOST);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Change the concurrency limits. Fetches already running are not interrupted.
+     */
+    public void setLimits(int maxParallelism, int maxPerHost) {
+        synchronized (this) {
+            this.maxParallelism = Math.max(1, maxParallelism);
+            this.maxPerHost = Math.max(1, maxPerHost);
+        }
+        dispatch();
+    }
+
+    /**
+     * Queue a fetch for the given URL in a priority lane. The URL is only used to apply
+     * the per-host limit. If the token is cancelled while the fetch is still queued,
+     * the work is dropped.
+     */
+    public void execute(String url, FetchPriority priority, CancellationToken token, Runnable work) {
+        Task task = new Task(hostOf(url), priority, token, work);
+        synchronized (this) {
+            lanes[priority.ordinal()].addLast(task);
+            int depth = queueDepth();
+            if (depth > peakQueueDepth) {
+                peakQueueDepth = depth;
+            }
+        }
+        token.onCancel(() -> dropQueued(task));
+        dispatch();
+    }
+
+    /**
+     * Move a still-queued fetch to a higher lane, e.g. when the user taps a book that is
+     * being prefetched. Lowering the priority is ignored.
+     */
+    public void promote(CancellationToken token, FetchPriority priority) {
+        synchronized (this) {
+            for (int lane = priority.ordinal() + 1; lane < lanes.length; lane++) {
+                Iterator<Task> it = lanes[lane].iterator();
+                while (it.hasNext()) {
+                    Task task = it.next();
+                    if (task.token == token) {
+                        it.remove();
+                        task.priority = priority;
+                        task.enterLane(priority.ordinal(), clock.getAsLong());
+                        lanes[priority.ordinal()].addLast(task);
+                        break;
+                    }
+                }
+            }
+        }
+        dispatch();
+    }
+
+    private void dropQueued(Task task) {
+        synchronized (this) {
+            if (lanes[task.lane].remove(task)) {
+                droppedCount++;
+            }
+        }
+    }
+
+    private int queueDepth() {
+        int depth = 0;
+        for (ArrayDeque<Task> lane : lanes) {
+            depth += lane.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Start as many queued tasks as the global and per-host limits allow
+     */
+    private void dispatch() {
+        while (true) {
+            Task next = null;
+            synchronized (this) {
+                if (running >= maxParallelism) {
+                    return;
+                }
+                long now = clock.getAsLong();
+                next = pollNext(now);
+                if (next == null) {
+                    return;
+                }
+                running++;
+                Integer hostCount = runningPerHost.get(next.host);
+                runningPerHost.put(next.host, hostCount == null ? 1 : hostCount + 1);
+
+                long waitMs = now - next.enqueuedAt;
+                dispatchedCount++;
+                totalWaitMs += waitMs;
+                if (waitMs > maxWaitMs) {
+                    maxWaitMs = waitMs;
+                }
+            }
+            workers.execute(next);
+        }
+    }
+
+    /**
+     * Remove and return the next task to start, or null if nothing may start now.
+     * Must be called with the lock held.
+     */
+    private Task pollNext(long now) {
+        age(now);
+        boolean lowLanesAllowed = maxParallelism <= RESERVED_SLOTS
+                || running < maxParallelism - RESERVED_SLOTS;
+        for (int lane = 0; lane < lanes.length; lane++) {
+            if (!lowLanesAllowed && isLowLane(lane)) {
+                return null;
+            }
+            Task candidate = firstEligible(lanes[lane]);
+            if (candidate != null) {
+                lanes[lane].remove(candidate);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starvation protection: move every task that has waited its lane's aging limit to the
+     * back of the lane above. Lanes are in entry order, so only heads need checking, and
+     * starting from the bottom lets a task climb only one lane per call.
+     * Must be called with the lock held.
+     */
+    private void age(long now) {
+        for (int lane = lanes.length - 1; lane > AGING_CEILING; lane--) {
+            Task head;
+            while ((head = lanes[lane].peekFirst()) != null && now - head.laneSince >= AGING_LIMIT_MS[lane]) {
+                lanes[lane].pollFirst();
+                head.enterLane(lane - 1, now);
+                lanes[lane - 1].addLast(head);
+            }
+        }
+    }
+
+    private static boolean isLowLane(int lane) {
+        return lane >= FetchPriority.SPECULATIVE.ordinal();
+    }
+
+    /**
+     * First task in the lane whose host is under its limit; cancelled tasks are dropped on the way
+     */
+    private Task firstEligible(ArrayDeque<Task> lane) {
+        Iterator<Task> it = lane.iterator();
+        while (it.hasNext()) {
+            Task candidate = it.next();
+            if (candidate.token.isCancelled()) {
+                it.remove();
+                droppedCount++;
+                continue;
+            }
+            Integer hostCount = runningPerHost.get(candidate.host);
+            if (hostCount == null || hostCount < maxPerHost) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void onFinished(Task task) {
+        laneLatency[task.priority.ordinal()].record(clock.getAsLong() - task.enqueuedAt);
+        synchronized (this) {
+            running--;
+            completedCount++;
+            Integer hostCount = runningPerHost.get(task.host);
+            if (hostCount == null || hostCount <= 1) {
+                runningPerHost.remove(task.host);
+            } else {
+                runningPerHost.put(task.host, hostCount - 1);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Snapshot of queue depth and wait-time metrics
+     */
+    public synchronized Stats getStats() {
+        long averageWaitMs = dispatchedCount == 0 ? 0 : totalWaitMs / dispatchedCount;
+        return new Stats(queueDepth(), running, peakQueueDepth, completedCount, droppedCount,
+                averageWaitMs, maxWaitMs);
+    }
+
+    /**
+     * End-to-end latency (queue wait plus fetch) of the fetches finished in a lane
+     */
+    public LatencyHistogram getLatencyHistogram(FetchPriority priority) {
+        return laneLatency[priority.ordinal()];
+    }
+
+    static String hostOf(String url) {
+        if (url == null) {
+            return "";
+        }
+        int start = url.indexOf("://");
+        if (start < 0) {
+            return "";
+        }
+        start += 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        String authority = url.substring(start, end);
+        String host = authority.substring(authority.lastIndexOf('@') + 1);
+        int port = host.lastIndexOf(':');
+        if (port >= 0 && host.indexOf(']') < port) {
+            host = host.substring(0, port);
+        }
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    private final class Task implements Runnable {
+        final String host;
+        final CancellationToken token;
+        final Runnable work;
+        final long enqueuedAt;
+        // Lane asked for; latency is recorded against it
+        FetchPriority priority;
+        // Lane the task is queued in, higher than priority once it has aged
+        int lane;
+        long laneSince;
+
+        Task(String host, FetchPriority priority, CancellationToken token, Runnable work) {
+            this.host = host;
+            this.priority = priority;
+            this.token = token;
+            this.work = work;
+            this.enqueuedAt = clock.getAsLong();
+            enterLane(priority.ordinal(), enqueuedAt);
+        }
+
+        void enterLane(int lane, long now) {
+            this.lane = lane;
+            this.laneSince = now;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!token.isCancelled()) {
+                    work.run();
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Fetch task failed for host " + host, e);
+            } finally {
+                onFinished(this);
+            }
+        }
+    }
+
+    /**
+     * Creates fetch threads at background priority so scraping never competes with the UI thread
+     */
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "fetch-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Immutable metrics snapshot
+     */
+    public static final class Stats {
+        private final int queueDepth;
+        private final int running;
+        private final int peakQueueDepth;
+        private final long completed;
+        private final long dropped;
+        private final long averageWaitMs;
+        private final long maxWaitMs;
+
+        Stats(int queueDepth, int running, int peakQueueDepth, long completed, long dropped,
+              long averageWaitMs, long maxWaitMs) {
+            this.queueDepth = queueDepth;
+            this.running = running;
+            this.peakQueueDepth = peakQueueDepth;
+            this.completed = completed;
+            this.dropped = dropped;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public int getPeakQueueDepth() {
+            return peakQueueDepth;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * Number of queued fetches that were cancelled before they started
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        public long getAverageWaitMs() {
+            return averageWaitMs;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "queueDepth=" + queueDepth +
+                    ", running=" + running +
+                    ", peakQueueDepth=" + peakQueueDepth +
+                    ", completed=" + completed +
+                    ", dropped=" + dropped +
+                    ", averageWaitMs=" + averageWaitMs +
+                    ", maxWaitMs=" + maxWaitMs +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.goldenaudiobook.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pluggable HTTP transport used by WebDataSource to download pages.
+ * The response body is handed to Jsoup unchanged, so the parsing code does not
+ * depend on which client performed the request.
+ */
+public interface HttpTransport {
+
+    /**
+     * Perform a GET request. The caller must close the returned response.
+     * If the request carries a cancellation token, cancelling it must abort the call.
+     */
+    Response get(Request request) throws IOException;
+
+    /**
+     * GET request description
+     */
+    final class Request {
+        private final String url;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private CancellationToken cancellationToken;
+
+        public Request(String url) {
+            this.url = url;
+        }
+
+        public Request header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        /**
+         * Abort the request, including a body read in progress, when the token is cancelled
+         */
+        public Request cancellationToken(CancellationToken token) {
+            this.cancellationToken = token;
+            return this;
+        }
+
+        public CancellationToken getCancellationToken() {
+            return cancellationToken;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Map<String, String> getHeaders() {
+            return Collections.unmodifiableMap(headers);
+        }
+    }
+
+    /**
+     * Response with a streaming body
+     */
+    final class Response implements Closeable {
+        private final int code;
+        private final String url;
+        private final Map<String, String> headers;
+        private final String charset;
+        private final InputStream body;
+
+        /**
+         * @param url final URL after redirects, used as base URI for parsing
+         * @param headers response headers, keys in any case
+         * @param charset charset from Content-Type, or null to let Jsoup detect it
+         */
+        public Response(int code, String url, Map<String, String> headers, String charset, InputStream body) {
+            this.code = code;
+            this.url = url;
+            this.headers = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                this.headers.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+            }
+            this.charset = charset;
+            this.body = body;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        public Map<String, String> getHeaders() {
+            return Collections.unmodifiableMap(headers);
+        }
+
+        public String getCharset() {
+            return charset;
+        }
+
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
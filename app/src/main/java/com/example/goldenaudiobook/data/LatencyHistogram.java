@@ -0,0 +1,84 @@
+package com.example.goldenaudiobook.data;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bucket latency histogram in milliseconds. Cheap enough to update on every fetch.
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKET_BOUNDS_MS = {
+            10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000
+    };
+
+    // One extra bucket for everything above the last bound
+    private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+    private long total;
+    private long sumMs;
+    private long maxMs;
+
+    public synchronized void record(long latencyMs) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && latencyMs > BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        total++;
+        sumMs += latencyMs;
+        if (latencyMs > maxMs) {
+            maxMs = latencyMs;
+        }
+    }
+
+    public synchronized long getCount() {
+        return total;
+    }
+
+    public synchronized long getMeanMs() {
+        return total == 0 ? 0 : sumMs / total;
+    }
+
+    public synchronized long getMaxMs() {
+        return maxMs;
+    }
+
+    /**
+     * Upper bound of the bucket containing the given percentile (0-100)
+     */
+    public synchronized long getPercentileMs(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : maxMs;
+            }
+        }
+        return maxMs;
+    }
+
+    /**
+     * Bucket upper bounds; the counts array has one more trailing overflow bucket
+     */
+    public static long[] getBucketBoundsMs() {
+        return BUCKET_BOUNDS_MS.clone();
+    }
+
+    public synchronized long[] getCounts() {
+        return counts.clone();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LatencyHistogram{" +
+                "count=" + total +
+                ", meanMs=" + getMeanMs() +
+                ", p50Ms=" + getPercentileMs(50) +
+                ", p90Ms=" + getPercentileMs(90) +
+                ", maxMs=" + maxMs +
+                ", counts=" + Arrays.toString(counts) +
+                '}';
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Category;
+import com.example.goldenaudiobook.model.Page;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * App-wide LRU cache of parsed objects, so a book parsed for one screen is not parsed again
+ * for the next. Holds audiobooks by book URL, list pages by page URL and the category list.
+ * <p>
+ * Books arrive in two shapes: the card of a list page and the full detail page. A card
+ * never replaces a cached detail, and a detail takes the fields it lacks from the cached card.
+ * Cached objects are shared and must not be modified.
+ * <p>
+ * The size is bounded in parsed objects: one per book, one per page plus its items.
+ * Pages and the category list are stamped with their store time for stale-while-revalidate.
+ */
+public class MemoryCache {
+    private static final String TAG = "MemoryCache";
+
+    public static final int DEFAULT_MAX_OBJECTS = 2000;
+
+    private static final String BOOK_PREFIX = "book:";
+    private static final String PAGE_PREFIX = "page:";
+    private static final String CATEGORIES_KEY = "categories";
+
+    private final LruCache<String, Object> entries;
+
+    // Counters, guarded by this
+    private long bookHits;
+    private long bookMisses;
+    private long pageHits;
+    private long pageMisses;
+    private long categoryHits;
+    private long categoryMisses;
+    private long merges;
+
+    public MemoryCache(int maxObjects) {
+        this.entries = new LruCache<String, Object>(maxObjects) {
+            @Override
+            protected int sizeOf(String key, Object value) {
+                return weightOf(value);
+            }
+        };
+    }
+
+    private static int weightOf(Object value) {
+        if (value instanceof Stamped) {
+            value = ((Stamped<?>) value).value;
+        }
+        if (value instanceof Page) {
+            return 1 + ((Page<?>) value).getItems().size();
+        }
+        if (value instanceof List) {
+            return 1 + ((List<?>) value).size();
+        }
+        return 1;
+    }
+
+    /**
+     * Cache key for a URL, shared by all spellings of it
+     */
+    static String keyFor(String url) {
+        return UrlCanonicalizer.canonicalize(url);
+    }
+
+    /**
+     * The full details of a book, or null if only its list card (or nothing) is cached
+     */
+    public Audiobook getDetails(String url) {
+        Object entry = entries.get(BOOK_PREFIX + keyFor(url));
+        synchronized (this) {
+            if (entry instanceof BookEntry && ((BookEntry) entry).details) {
+                bookHits++;
+                return ((BookEntry) entry).book;
+            }
+            bookMisses++;
+            return null;
+        }
+    }
+
+    /**
+     * Store freshly parsed details, filling the fields the detail page lacks from a cached
+     * card. The details passed in may be shared by every caller of a coalesced fetch, so a
+     * merge goes into a copy. Returns the object that was stored, which is the one to show.
+     */
+    public Audiobook putDetails(String url, Audiobook details) {
+        String key = BOOK_PREFIX + keyFor(url);
+        Object entry = entries.get(key);
+        Audiobook stored = details;
+        if (entry instanceof BookEntry && !((BookEntry) entry).details) {
+            stored = new Audiobook(details);
+            mergeCard(stored, ((BookEntry) entry).book);
+            synchronized (this) {
+                merges++;
+            }
+        }
+        entries.put(key, new BookEntry(stored, true));
+        return stored;
+    }
+
+    /**
+     * Copy card fields into details where the detail page had nothing. Only the copied
+     * details object is written, never the shared card.
+     */
+    private static void mergeCard(Audiobook details, Audiobook card) {
+        if (isEmpty(details.getTitle())) {
+            details.setTitle(card.getTitle());
+        }
+        if (isEmpty(details.getAuthor())) {
+            details.setAuthor(card.getAuthor());
+        }
+        if (isEmpty(details.getImageUrl())) {
+            details.setImageUrl(card.getImageUrl());
+        }
+        if (isEmpty(details.getPublishedDate())) {
+            details.setPublishedDate(card.getPublishedDate());
+        }
+        if (details.getCategories().isEmpty()) {
+            for (String category : card.getCategories()) {
+                details.addCategory(category);
+            }
+        }
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * A cached list page with its store time, or null
+     */
+    @SuppressWarnings("unchecked")
+    public Stamped<Page<Audiobook>> getPage(String url) {
+        Object entry = entries.get(PAGE_PREFIX + keyFor(url));
+        synchronized (this) {
+            if (entry instanceof Stamped) {
+                pageHits++;
+                return (Stamped<Page<Audiobook>>) entry;
+            }
+            pageMisses++;
+            return null;
+        }
+    }
+
+    /**
+     * Store a list page under its URL, and each of its cards under the book URL
+     *
+     * @param stale true if the page was read from disk and its age is unknown
+     */
+    public void putPage(Page<Audiobook> page, boolean stale) {
+        entries.put(PAGE_PREFIX + keyFor(page.getUrl()), new Stamped<>(page, stale));
+        for (Audiobook card : page.getItems()) {
+            if (isEmpty(card.getUrl())) {
+                continue;
+            }
+            String key = BOOK_PREFIX + keyFor(card.getUrl());
+            Object entry = entries.get(key);
+            if (!(entry instanceof BookEntry) || !((BookEntry) entry).details) {
+                entries.put(key, new BookEntry(card, false));
+            }
+        }
+    }
+
+    /**
+     * The cached category list with its store time, or null
+     */
+    @SuppressWarnings("unchecked")
+    public Stamped<List<Category>> getCategories() {
+        Object entry = entries.get(CATEGORIES_KEY);
+        synchronized (this) {
+            if (entry instanceof Stamped) {
+                categoryHits++;
+                return (Stamped<List<Category>>) entry;
+            }
+            categoryMisses++;
+            return null;
+        }
+    }
+
+    /**
+     * @param stale true if the list was read from disk and its age is unknown
+     */
+    public void putCategories(List<Category> categories, boolean stale) {
+        entries.put(CATEGORIES_KEY, new Stamped<>(Collections.unmodifiableList(new ArrayList<>(categories)), stale));
+    }
+
+    /**
+     * Forget whatever is cached for a URL, e.g. before a pull-to-refresh
+     */
+    public void invalidate(String url) {
+        String key = keyFor(url);
+        entries.remove(PAGE_PREFIX + key);
+        entries.remove(BOOK_PREFIX + key);
+    }
+
+    /**
+     * Shrink to the given fraction of the maximum size, dropping least recently used entries
+     */
+    public void trimTo(float fraction) {
+        int target = (int) (entries.maxSize() * fraction);
+        entries.trimToSize(target);
+        Log.d(TAG, "Trimmed to " + entries.size() + " of " + entries.maxSize());
+    }
+
+    public void clear() {
+        entries.evictAll();
+    }
+
+    /**
+     * Snapshot of hit rates and size
+     */
+    public synchronized Stats getStats() {
+        return new Stats(bookHits, bookMisses, pageHits, pageMisses, categoryHits, categoryMisses,
+                merges, entries.evictionCount(), entries.size(), entries.maxSize());
+    }
+
+    /**
+     * A cached value with the time it was stored
+     */
+    public static final class Stamped<T> {
+        private final T value;
+        private final long storedAt;
+        private final boolean stale;
+
+        Stamped(T value, boolean stale) {
+            this.value = value;
+            this.storedAt = SystemClock.elapsedRealtime();
+            this.stale = stale;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * True if the value was stored less than ttlMs ago and did not come from disk
+         */
+        public boolean isFresh(long ttlMs) {
+            return !stale && SystemClock.elapsedRealtime() - storedAt < ttlMs;
+        }
+    }
+
+    /**
+     * A cached book and whether it came from the detail page or only from a list card
+     */
+    private static final class BookEntry {
+        final Audiobook book;
+        final boolean details;
+
+        BookEntry(Audiobook book, boolean details) {
+            this.book = book;
+            this.details = details;
+        }
+    }
+
+    /**
+     * Immutable metrics snapshot
+     */
+    public static final class Stats {
+        private final long bookHits;
+        private final long bookMisses;
+        private final long pageHits;
+        private final long pageMisses;
+        private final long categoryHits;
+        private final long categoryMisses;
+        private final long merges;
+        private final long evictions;
+        private final int size;
+        private final int maxSize;
+
+        Stats(long bookHits, long bookMisses, long pageHits, long pageMisses, long categoryHits,
+              long categoryMisses, long merges, long evictions, int size, int maxSize) {
+            this.bookHits = bookHits;
+            this.bookMisses = bookMisses;
+            this.pageHits = pageHits;
+            this.pageMisses = pageMisses;
+            this.categoryHits = categoryHits;
+            this.categoryMisses = categoryMisses;
+            this.merges = merges;
+            this.evictions = evictions;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        public long getBookHits() {
+            return bookHits;
+        }
+
+        public long getBookMisses() {
+            return bookMisses;
+        }
+
+        public long getPageHits() {
+            return pageHits;
+        }
+
+        public long getPageMisses() {
+            return pageMisses;
+        }
+
+        public long getCategoryHits() {
+            return categoryHits;
+        }
+
+        public long getCategoryMisses() {
+            return categoryMisses;
+        }
+
+        /**
+         * Number of details that took fields from a cached list card
+         */
+        public long getMerges() {
+            return merges;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * Hits over all lookups, 0 when nothing has been looked up yet
+         */
+        public float getHitRate() {
+            long hits = bookHits + pageHits + categoryHits;
+            long lookups = hits + bookMisses + pageMisses + categoryMisses;
+            return lookups == 0 ? 0f : (float) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hitRate=" + getHitRate() +
+                    ", books=" + bookHits + "/" + (bookHits + bookMisses) +
+                    ", pages=" + pageHits + "/" + (pageHits + pageMisses) +
+                    ", categories=" + categoryHits + "/" + (categoryHits + categoryMisses) +
+                    ", merges=" + merges +
+                    ", evictions=" + evictions +
+                    ", size=" + size + "/" + maxSize +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dns;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okhttp3.brotli.BrotliInterceptor;
+
+/**
+ * HttpTransport backed by a single shared OkHttpClient.
+ * Connections are pooled and kept alive between pages, HTTP/2 is negotiated when the
+ * server offers it, bodies are requested with brotli/gzip compression, and the shared
+ * client keeps one TLS session cache so reconnects resume sessions instead of doing
+ * a full handshake. DNS lookups are cached for a short time.
+ */
+public class OkHttpTransport implements HttpTransport {
+    private static final int TIMEOUT_MS = 30000;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long DNS_TTL_MS = 5 * 60 * 1000;
+
+    private static volatile OkHttpTransport defaultInstance;
+
+    private final OkHttpClient client;
+
+    public OkHttpTransport(OkHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Get the app-wide transport. All callers share one client, and with it
+     * one connection pool and one TLS session cache.
+     */
+    public static OkHttpTransport getDefault() {
+        if (defaultInstance == null) {
+            synchronized (OkHttpTransport.class) {
+                if (defaultInstance == null) {
+                    defaultInstance = new OkHttpTransport(createClient());
+                }
+            }
+        }
+        return defaultInstance;
+    }
+
+    private static OkHttpClient createClient() {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                // Sends "Accept-Encoding: br,gzip" and decodes the body transparently
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                .dns(new CachingDns(Dns.SYSTEM, DNS_TTL_MS))
+                .connectTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .callTimeout(TIMEOUT_MS * 2L, TimeUnit.MILLISECONDS)
+                .followRedirects(true)
+                .followSslRedirects(true)
+                .build();
+    }
+
+    @Override
+    public Response get(Request request) throws IOException {
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.getUrl()).get();
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+
+        Call call = client.newCall(builder.build());
+        CancellationToken token = request.getCancellationToken();
+        if (token != null) {
+            // Cancelling the call also fails a body read that is already in progress
+            token.onCancel(call::cancel);
+        }
+        okhttp3.Response response = call.execute();
+        ResponseBody body = response.body();
+        if (body == null) {
+            response.close();
+            throw new IOException("Empty response body for " + request.getUrl());
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : response.headers().names()) {
+            headers.put(name, response.header(name));
+        }
+
+        String charset = null;
+        MediaType contentType = body.contentType();
+        if (contentType != null) {
+            Charset declared = contentType.charset();
+            if (declared != null) {
+                charset = declared.name();
+            }
+        }
+
+        return new Response(response.code(), response.request().url().toString(),
+                headers, charset, body.byteStream());
+    }
+
+    /**
+     * Dns that remembers successful lookups for a fixed time.
+     * Every page of the scraper hits the same host, so this removes a lookup per request.
+     */
+    static class CachingDns implements Dns {
+        private final Dns delegate;
+        private final long ttlMs;
+        private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+        CachingDns(Dns delegate, long ttlMs) {
+            this.delegate = delegate;
+            this.ttlMs = ttlMs;
+        }
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            long now = SystemClock.elapsedRealtime();
+            Entry entry = cache.get(hostname);
+            if (entry != null && now - entry.resolvedAt < ttlMs) {
+                return entry.addresses;
+            }
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            cache.put(hostname, new Entry(addresses, now));
+            return addresses;
+        }
+
+        private static class Entry {
+            final List<InetAddress> addresses;
+            final long resolvedAt;
+
+            Entry(List<InetAddress> addresses, long resolvedAt) {
+                this.addresses = addresses;
+                this.resolvedAt = resolvedAt;
+            }
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.goldenaudiobook.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LRU on-disk cache of raw page HTML with the validators needed for conditional GETs.
+ * Each entry is one file: a small header (url, status, ETag, Last-Modified, charset,
+ * store time) followed by the body bytes exactly as downloaded.
+ */
+public class PageCache {
+    private static final String TAG = "PageCache";
+    private static final int MAGIC = 0x47504331; // "GPC1"
+    private static final String SUFFIX = ".page";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    public static final long DEFAULT_MAX_BYTES = 20L * 1024 * 1024;
+
+    private static volatile PageCache instance;
+
+    private final File directory;
+    private final long maxBytes;
+    private final AtomicInteger tempCounter = new AtomicInteger();
+
+    // Keyed by canonical URL and access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private boolean loaded;
+    private long totalBytes;
+
+    // Counters
+    private long hitCount;
+    private long missCount;
+    private long notModifiedCount;
+    private long storeCount;
+    private long evictionCount;
+
+    public PageCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Install the app-wide cache under the app cache directory
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (PageCache.class) {
+                if (instance == null) {
+                    File dir = new File(context.getCacheDir(), "pages");
+                    instance = new PageCache(dir, DEFAULT_MAX_BYTES);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the app-wide cache, or null if init() has not been called
+     */
+    public static PageCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Look up the cached entry for a URL, or null if there is none
+     */
+    public synchronized Entry get(String url) {
+        ensureLoaded();
+        return index.get(UrlCanonicalizer.canonicalize(url));
+    }
+
+    /**
+     * Open the body of a cached entry. The caller must close the stream.
+     */
+    public InputStream openBody(Entry entry) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry.file)));
+        try {
+            readHeader(in, entry.file);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Start writing a new body for the URL. Nothing is visible until the editor is committed.
+     */
+    public Editor edit(String url, int statusCode, String etag, String lastModified, String charset)
+            throws IOException {
+        synchronized (this) {
+            ensureLoaded();
+        }
+        String name = fileName(UrlCanonicalizer.canonicalize(url));
+        File temp = new File(directory, name + "." + tempCounter.incrementAndGet() + TEMP_SUFFIX);
+        Entry entry = new Entry(url, statusCode, etag, lastModified, charset,
+                System.currentTimeMillis(), new File(directory, name + SUFFIX), 0);
+        return new Editor(entry, temp);
+    }
+
+    /**
+     * Remove the entry for a URL, if any
+     */
+    public synchronized void remove(String url) {
+        ensureLoaded();
+        Entry entry = index.remove(UrlCanonicalizer.canonicalize(url));
+        if (entry != null) {
+            totalBytes -= entry.size;
+            deleteQuietly(entry.file);
+        }
+    }
+
+    synchronized void recordHit() {
+        hitCount++;
+    }
+
+    synchronized void recordMiss() {
+        missCount++;
+    }
+
+    synchronized void recordNotModified() {
+        notModifiedCount++;
+    }
+
+    private synchronized void commit(Entry entry, File temp) {
+        String key = UrlCanonicalizer.canonicalize(entry.url);
+        Entry previous = index.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.size;
+        }
+        if (!temp.renameTo(entry.file)) {
+            Log.w(TAG, "Could not commit cache entry for " + entry.url);
+            deleteQuietly(temp);
+            if (previous != null) {
+                deleteQuietly(previous.file);
+            }
+            return;
+        }
+        index.put(key, entry);
+        totalBytes += entry.size;
+        storeCount++;
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            totalBytes -= eldest.size;
+            evictionCount++;
+            deleteQuietly(eldest.file);
+        }
+    }
+
+    /**
+     * Rebuild the index from disk, oldest files first so they are evicted first
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create cache directory " + directory);
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> pages = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                deleteQuietly(file);
+            } else if (file.getName().endsWith(SUFFIX)) {
+                pages.add(file);
+            }
+        }
+        Collections.sort(pages, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : pages) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                Entry entry = readHeader(in, file);
+                // Files written under an older key scheme may collide; the newer one wins
+                Entry previous = index.put(UrlCanonicalizer.canonicalize(entry.url), entry);
+                if (previous != null) {
+                    totalBytes -= previous.size;
+                    deleteQuietly(previous.file);
+                }
+                totalBytes += entry.size;
+            } catch (IOException e) {
+                Log.w(TAG, "Dropping unreadable cache file " + file.getName(), e);
+                deleteQuietly(file);
+            }
+        }
+        trimToSize();
+        Log.d(TAG, "Loaded " + index.size() + " cached pages, " + totalBytes + " bytes");
+    }
+
+    private static Entry readHeader(DataInputStream in, File file) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Bad cache file header");
+        }
+        String url = in.readUTF();
+        int statusCode = in.readInt();
+        String etag = emptyToNull(in.readUTF());
+        String lastModified = emptyToNull(in.readUTF());
+        String charset = emptyToNull(in.readUTF());
+        long storedAt = in.readLong();
+        return new Entry(url, statusCode, etag, lastModified, charset, storedAt, file, file.length());
+    }
+
+    private static void writeHeader(DataOutputStream out, Entry entry) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeUTF(entry.url);
+        out.writeInt(entry.statusCode);
+        out.writeUTF(entry.etag != null ? entry.etag : "");
+        out.writeUTF(entry.lastModified != null ? entry.lastModified : "");
+        out.writeUTF(entry.charset != null ? entry.charset : "");
+        out.writeLong(entry.storedAt);
+    }
+
+    private static String fileName(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file.getName());
+        }
+    }
+
+    /**
+     * Snapshot of cache counters
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hitCount, missCount, notModifiedCount, storeCount, evictionCount,
+                index.size(), totalBytes, maxBytes);
+    }
+
+    /**
+     * Metadata of one cached page
+     */
+    public static final class Entry {
+        private final String url;
+        private final int statusCode;
+        private final String etag;
+        private final String lastModified;
+        private final String charset;
+        private final long storedAt;
+        private final File file;
+        private final long size;
+
+        Entry(String url, int statusCode, String etag, String lastModified, String charset,
+              long storedAt, File file, long size) {
+            this.url = url;
+            this.statusCode = statusCode;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.charset = charset;
+            this.storedAt = storedAt;
+            this.file = file;
+            this.size = size;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getCharset() {
+            return charset;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * Writes a body to a temp file and publishes it on commit
+     */
+    public final class Editor {
+        private final Entry pending;
+        private final File temp;
+        private final DataOutputStream out;
+        private boolean done;
+
+        Editor(Entry pending, File temp) throws IOException {
+            this.pending = pending;
+            this.temp = temp;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            writeHeader(out, pending);
+        }
+
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        public void commit() {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write cache entry for " + pending.url, e);
+                deleteQuietly(temp);
+                return;
+            }
+            PageCache.this.commit(new Entry(pending.url, pending.statusCode, pending.etag,
+                    pending.lastModified, pending.charset, pending.storedAt, pending.file, temp.length()), temp);
+        }
+
+        public void abort() {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Temp file is deleted below anyway
+            }
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Immutable counter snapshot
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long notModifiedCount;
+        private final long storeCount;
+        private final long evictionCount;
+        private final int entryCount;
+        private final long sizeBytes;
+        private final long maxBytes;
+
+        Stats(long hitCount, long missCount, long notModifiedCount, long storeCount, long evictionCount,
+              int entryCount, long sizeBytes, long maxBytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.notModifiedCount = notModifiedCount;
+            this.storeCount = storeCount;
+            this.evictionCount = evictionCount;
+            this.entryCount = entryCount;
+            this.sizeBytes = sizeBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getNotModifiedCount() {
+            return notModifiedCount;
+        }
+
+        public long getStoreCount() {
+            return storeCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hits=" + hitCount +
+                    ", misses=" + missCount +
+                    ", notModified=" + notModifiedCount +
+                    ", stores=" + storeCount +
+                    ", evictions=" + evictionCount +
+                    ", entries=" + entryCount +
+                    ", bytes=" + sizeBytes + "/" + maxBytes +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.goldenaudiobook.data;
+
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
+
+/**
+ * Loads every page of a numbered list. The first page tells how many there are; the rest
+ * are then loaded in parallel, at most maxConcurrent at a time. Pages are delivered in page
+ * order: one that arrives early waits until all pages before it are in. A page that fails
+ * is skipped so the pages after it still come.
+ * <p>
+ * If the first page has a next page but no total, the pages are followed one by one.
+ * All callbacks run on the main thread, where the repository delivers its results.
+ */
+public class PageFanOut {
+    private static final String TAG = "PageFanOut";
+
+    public static final int DEFAULT_MAX_CONCURRENT = 4;
+    // Beyond this the list is cut off, so a broken page count cannot start hundreds of loads
+    public static final int MAX_PAGES = 50;
+
+    /**
+     * Receives the pages in order
+     */
+    public interface Listener {
+        /**
+         * A card of the first page while it is still downloading
+         */
+        default void onItem(Audiobook item) {
+        }
+
+        void onPage(Page<Audiobook> page);
+
+        /**
+         * Every page is delivered or has failed
+         */
+        void onComplete(int pagesLoaded, int pagesFailed);
+
+        /**
+         * The first page failed; nothing more comes
+         */
+        void onError(Exception e);
+    }
+
+    /**
+     * URL of a page of the list by number
+     */
+    public interface PageUrls {
+        String pageUrl(int pageNumber);
+    }
+
+    private final PagingEngine.PageSource source;
+    private final PageUrls pageUrls;
+    private final int maxConcurrent;
+    private final Listener listener;
+    private final CancellationToken handle = new CancellationToken();
+    private final RequestGroup requests = new RequestGroup();
+
+    private int totalPages;
+    // Pages that arrived ahead of their turn, by number
+    private Page<?>[] arrived;
+    private boolean[] failed;
+    private int nextToRequest;
+    private int nextToDeliver;
+    private int inFlight;
+    private int pagesLoaded;
+    private int pagesFailed;
+
+    public PageFanOut(PagingEngine.PageSource source, PageUrls pageUrls, int maxConcurrent, Listener listener) {
+        this.source = source;
+        this.pageUrls = pageUrls;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.listener = listener;
+        handle.onCancel(requests::cancelAll);
+    }
+
+    /**
+     * Start with the first page. The handle cancels every page still loading.
+     */
+    public Cancellable start(String firstUrl) {
+        requests.add(source.load(firstUrl, new AudiobookRepository.StreamCallback<Audiobook>() {
+            private boolean delivered;
+
+            @Override
+            public void onItem(Audiobook item) {
+                if (!handle.isCancelled()) {
+                    listener.onItem(item);
+                }
+            }
+
+            @Override
+            public void onSuccess(Page<Audiobook> page) {
+                // A refreshed copy of a cached page comes second; the list has moved on
+                if (handle.isCancelled() || delivered) {
+                    return;
+                }
+                delivered = true;
+                pagesLoaded++;
+                listener.onPage(page);
+                if (page.getTotalPages() > 1) {
+                    fanOut(Math.min(page.getTotalPages(), MAX_PAGES));
+                } else if (page.getTotalPages() == Page.UNKNOWN_TOTAL && page.hasNext()) {
+                    follow(page.getNextUrl(), 2);
+                } else {
+                    complete();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!handle.isCancelled()) {
+                    handle.finish();
+                    listener.onError(e);
+                }
+            }
+        }));
+        return handle;
+    }
+
+    private void fanOut(int total) {
+        totalPages = total;
+        arrived = new Page<?>[total + 1];
+        failed = new boolean[total + 1];
+        nextToRequest = 2;
+        nextToDeliver = 2;
+        Log.d(TAG, "Loading pages 2-" + total + ", " + maxConcurrent + " at a time");
+        requestMore();
+    }
+
+    private void requestMore() {
+        while (inFlight < maxConcurrent && nextToRequest <= totalPages) {
+            request(nextToRequest++);
+        }
+    }
+
+    private void request(int pageNumber) {
+        inFlight++;
+        requests.add(source.load(pageUrls.pageUrl(pageNumber), new AudiobookRepository.DataCallback<Page<Audiobook>>() {
+            private boolean settled;
+
+            @Override
+            public void onSuccess(Page<Audiobook> page) {
+                if (handle.isCancelled() || settled) {
+                    return;
+                }
+                settled = true;
+                inFlight--;
+                arrived[pageNumber] = page;
+                deliverInOrder();
+                requestMore();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (handle.isCancelled() || settled) {
+                    return;
+                }
+                settled = true;
+                inFlight--;
+                Log.w(TAG, "Skipping page " + pageNumber + ": " + e.getMessage());
+                failed[pageNumber] = true;
+                deliverInOrder();
+                requestMore();
+            }
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliverInOrder() {
+        while (nextToDeliver <= totalPages && (arrived[nextToDeliver] != null || failed[nextToDeliver])) {
+            Page<Audiobook> page = (Page<Audiobook>) arrived[nextToDeliver];
+            arrived[nextToDeliver] = null;
+            nextToDeliver++;
+            if (page != null) {
+                pagesLoaded++;
+                listener.onPage(page);
+            } else {
+                pagesFailed++;
+            }
+        }
+        if (nextToDeliver > totalPages) {
+            complete();
+        }
+    }
+
+    /**
+     * Without a total, each page's cursor leads to the next one
+     */
+    private void follow(String url, int pageNumber) {
+        requests.add(source.load(url, new AudiobookRepository.DataCallback<Page<Audiobook>>() {
+            private boolean settled;
+
+            @Override
+            public void onSuccess(Page<Audiobook> page) {
+                if (handle.isCancelled() || settled) {
+                    return;
+                }
+                settled = true;
+                pagesLoaded++;
+                listener.onPage(page);
+                if (page.hasNext() && pageNumber < MAX_PAGES) {
+                    follow(page.getNextUrl(), pageNumber + 1);
+                } else {
+                    complete();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (handle.isCancelled() || settled) {
+                    return;
+                }
+                settled = true;
+                Log.w(TAG, "Stopping at page " + pageNumber + ": " + e.getMessage());
+                pagesFailed++;
+                complete();
+            }
+        }));
+    }
+
+    private void complete() {
+        handle.finish();
+        listener.onComplete(pagesLoaded, pagesFailed);
+    }
+}
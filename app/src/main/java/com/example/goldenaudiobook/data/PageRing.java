@@ -0,0 +1,64 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Page;
+
+/**
+ * The last few pages of a numbered list, by page number, so going back and forth between
+ * them needs no network. A fixed ring of slots: a page not held yet takes the slot of the
+ * oldest one, so it never holds more than its capacity.
+ * <p>
+ * Not thread safe; view models use it on the main thread.
+ */
+public class PageRing<T> {
+    private final int[] numbers;
+    private final Page<T>[] pages;
+    // Slot the next new page goes to, which holds the oldest page once the ring is full
+    private int next;
+
+    @SuppressWarnings("unchecked")
+    public PageRing(int capacity) {
+        numbers = new int[Math.max(1, capacity)];
+        pages = (Page<T>[]) new Page[numbers.length];
+    }
+
+    /**
+     * The page with this number, or null if it is not held
+     */
+    public Page<T> get(int pageNumber) {
+        int slot = slotOf(pageNumber);
+        return slot >= 0 ? pages[slot] : null;
+    }
+
+    public boolean contains(int pageNumber) {
+        return slotOf(pageNumber) >= 0;
+    }
+
+    /**
+     * Hold a page. A newer copy of a page already held replaces it in its slot.
+     */
+    public void put(Page<T> page) {
+        int slot = slotOf(page.getPageNumber());
+        if (slot < 0) {
+            slot = next;
+            next = (next + 1) % pages.length;
+        }
+        numbers[slot] = page.getPageNumber();
+        pages[slot] = page;
+    }
+
+    public void clear() {
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = null;
+        }
+        next = 0;
+    }
+
+    private int slotOf(int pageNumber) {
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] != null && numbers[i] == pageNumber) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
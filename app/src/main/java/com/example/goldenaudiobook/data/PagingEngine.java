@@ -0,0 +1,384 @@
+package com.example.goldenaudiobook.data;
+
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Infinite scroll over a paginated list, one engine per list screen.
+ * Pages are appended as the user scrolls, and a post that a later page repeats is shown only
+ * once, recognised by post id or canonical URL. When the viewport comes
+ * within prefetchDistance items of the end, the next page is loaded along with its covers,
+ * so it is usually there before the user is.
+ * <p>
+ * Only a window of maxPages pages is kept; the page farthest from the viewport is dropped
+ * and loaded again from its cursor if the user scrolls back to it. So a long session costs
+ * a bounded amount of memory, and each change copies at most the window into the new list.
+ * <p>
+ * All methods are called on the main thread, where the repository delivers its results.
+ */
+public class PagingEngine {
+    private static final String TAG = "PagingEngine";
+
+    public static final int DEFAULT_MAX_PAGES = 8;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 6;
+
+    /**
+     * Loads the list page at a URL
+     */
+    public interface PageSource {
+        Cancellable load(String url, AudiobookRepository.DataCallback<Page<Audiobook>> callback);
+    }
+
+    /**
+     * Receives the window as it changes
+     */
+    public interface Listener {
+        /**
+         * The items to show. Streaming is true while the first page is still being parsed.
+         */
+        void onItems(List<Audiobook> items, boolean streaming);
+
+        void onError(Exception e, boolean firstPage);
+
+        default void onLoadingMore(boolean loading) {
+        }
+
+        /**
+         * Covers of a page loaded ahead of the viewport, worth warming in the image cache
+         */
+        default void onPrefetchCovers(List<String> imageUrls) {
+        }
+    }
+
+    private enum Direction {
+        FIRST, AFTER, BEFORE
+    }
+
+    /**
+     * One loaded page with the keys of the items it contributed, post id and canonical URL
+     */
+    private static final class Chunk {
+        final String url;
+        final String previousUrl;
+        final String nextUrl;
+        final List<Audiobook> items = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+
+        Chunk(Page<Audiobook> page) {
+            this.url = UrlCanonicalizer.canonicalize(page.getUrl());
+            this.previousUrl = page.getPreviousUrl();
+            this.nextUrl = page.getNextUrl();
+        }
+    }
+
+    private final PageSource source;
+    private final Listener listener;
+    private final int maxPages;
+    private final int prefetchDistance;
+    private final RequestGroup requests = new RequestGroup();
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Set<String> keys = new HashSet<>();
+    private int itemCount;
+    // Bumped on every reset, so late results of an earlier list are ignored
+    private int generation;
+    private boolean loadingAfter;
+    private boolean loadingBefore;
+    // After a failed load only an explicit loadMore() tries again, not every scroll
+    private boolean paused;
+    private int firstVisible;
+    private int lastVisible;
+
+    public PagingEngine(PageSource source, Listener listener) {
+        this(source, listener, DEFAULT_MAX_PAGES, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    public PagingEngine(PageSource source, Listener listener, int maxPages, int prefetchDistance) {
+        this.source = source;
+        this.listener = listener;
+        this.maxPages = Math.max(2, maxPages);
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Start a new list from its first page
+     */
+    public void start(String url) {
+        reset();
+        load(url, Direction.FIRST);
+    }
+
+    /**
+     * Start a new list from a first page loaded elsewhere
+     */
+    public void start(Page<Audiobook> firstPage) {
+        reset();
+        place(firstPage, Direction.FIRST);
+        emit();
+    }
+
+    /**
+     * Load the page after the window now, e.g. from an Older Posts button
+     */
+    public void loadMore() {
+        paused = false;
+        loadAfter();
+    }
+
+    private void loadAfter() {
+        Chunk last = last();
+        if (!loadingAfter && last != null && last.nextUrl != null && !last.nextUrl.isEmpty()) {
+            load(last.nextUrl, Direction.AFTER);
+        }
+    }
+
+    public boolean canLoadMore() {
+        Chunk last = last();
+        return last != null && last.nextUrl != null && !last.nextUrl.isEmpty();
+    }
+
+    /**
+     * Cursor of the page after the window, or null at the end
+     */
+    public String getNextUrl() {
+        return canLoadMore() ? last().nextUrl : null;
+    }
+
+    /**
+     * Whether there is a next page that scrolling will not load, because loading it failed;
+     * only loadMore() tries again
+     */
+    public boolean needsLoadMore() {
+        return paused && canLoadMore();
+    }
+
+    /**
+     * Report the adapter positions on screen. Loads ahead near either end of the window and
+     * drops pages far from the viewport.
+     */
+    public void onViewportChanged(int first, int last) {
+        firstVisible = Math.max(0, first);
+        lastVisible = Math.max(firstVisible, last);
+        if (trim()) {
+            emit();
+        }
+        if (paused) {
+            return;
+        }
+        if (lastVisible >= itemCount - prefetchDistance) {
+            loadAfter();
+        }
+        Chunk head = chunks.isEmpty() ? null : chunks.get(0);
+        if (firstVisible <= prefetchDistance && !loadingBefore && head != null
+                && head.previousUrl != null && !head.previousUrl.isEmpty()) {
+            load(head.previousUrl, Direction.BEFORE);
+        }
+    }
+
+    /**
+     * Cancel pending loads and forget the list
+     */
+    public void cancel() {
+        reset();
+    }
+
+    private void reset() {
+        generation++;
+        requests.cancelAll();
+        chunks.clear();
+        keys.clear();
+        itemCount = 0;
+        loadingAfter = false;
+        loadingBefore = false;
+        paused = false;
+        firstVisible = 0;
+        lastVisible = 0;
+    }
+
+    private Chunk last() {
+        return chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+    }
+
+    private void load(String url, Direction direction) {
+        int loadGeneration = generation;
+        if (direction == Direction.AFTER) {
+            loadingAfter = true;
+            listener.onLoadingMore(true);
+        } else if (direction == Direction.BEFORE) {
+            loadingBefore = true;
+        }
+        List<Audiobook> streamed = new ArrayList<>();
+        // A cached page is delivered first and its refresh after it; the refresh only
+        // replaces the page if the window still holds it
+        String[] placedUrl = new String[1];
+        requests.add(source.load(url, new AudiobookRepository.StreamCallback<Audiobook>() {
+            @Override
+            public void onItem(Audiobook item) {
+                // Only the first page streams; later ones arrive off screen
+                if (loadGeneration == generation && direction == Direction.FIRST && chunks.isEmpty()) {
+                    streamed.add(item);
+                    listener.onItems(new ArrayList<>(streamed), true);
+                }
+            }
+
+            @Override
+            public void onSuccess(Page<Audiobook> page) {
+                if (loadGeneration != generation) {
+                    return;
+                }
+                boolean refresh = placedUrl[0] != null;
+                if (refresh && indexOf(placedUrl[0]) < 0) {
+                    // Trimmed since the cached copy arrived; loaded again from its cursor
+                    return;
+                }
+                if (!refresh) {
+                    finishLoad(direction);
+                }
+                Chunk chunk = place(page, direction);
+                placedUrl[0] = chunk.url;
+                trim();
+                emit();
+                if (!refresh && direction != Direction.FIRST) {
+                    prefetchCovers(chunk);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (loadGeneration != generation) {
+                    return;
+                }
+                finishLoad(direction);
+                paused = direction != Direction.FIRST;
+                Log.w(TAG, "Could not load " + url, e);
+                listener.onError(e, direction == Direction.FIRST);
+            }
+        }));
+    }
+
+    private void finishLoad(Direction direction) {
+        if (direction == Direction.AFTER && loadingAfter) {
+            loadingAfter = false;
+            listener.onLoadingMore(false);
+        } else if (direction == Direction.BEFORE) {
+            loadingBefore = false;
+        }
+    }
+
+    /**
+     * Put a loaded page into the window. A page already there (a refreshed cached copy)
+     * is replaced where it is.
+     */
+    private Chunk place(Page<Audiobook> page, Direction direction) {
+        Chunk chunk = new Chunk(page);
+        int existing = indexOf(chunk.url);
+        if (existing >= 0) {
+            forget(chunks.get(existing));
+        }
+        for (Audiobook item : page.getItems()) {
+            // Cards from the local catalog may lack the post id, so the URL counts too
+            String url = UrlCanonicalizer.canonicalize(item.getUrl());
+            String id = item.getId();
+            if (keys.contains(url) || (id != null && keys.contains(id))) {
+                continue;
+            }
+            chunk.items.add(item);
+            chunk.keys.add(url);
+            keys.add(url);
+            if (id != null && keys.add(id)) {
+                chunk.keys.add(id);
+            }
+        }
+        itemCount += chunk.items.size();
+        if (existing >= 0) {
+            chunks.set(existing, chunk);
+        } else if (direction == Direction.BEFORE) {
+            chunks.add(0, chunk);
+            // Everything on screen moved down by the new page
+            firstVisible += chunk.items.size();
+            lastVisible += chunk.items.size();
+        } else {
+            chunks.add(chunk);
+        }
+        return chunk;
+    }
+
+    private int indexOf(String url) {
+        for (int i = 0; i < chunks.size(); i++) {
+            if (chunks.get(i).url.equals(url)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void forget(Chunk chunk) {
+        keys.removeAll(chunk.keys);
+        itemCount -= chunk.items.size();
+    }
+
+    /**
+     * Drop pages beyond maxPages, always the one at the end farther from the viewport
+     *
+     * @return whether anything was dropped
+     */
+    private boolean trim() {
+        boolean dropped = false;
+        while (chunks.size() > maxPages) {
+            int firstPage = chunkAt(firstVisible);
+            int lastPage = chunkAt(lastVisible);
+            int pagesBefore = firstPage;
+            int pagesAfter = chunks.size() - 1 - lastPage;
+            if (pagesBefore >= pagesAfter && pagesBefore > 0) {
+                Chunk head = chunks.remove(0);
+                forget(head);
+                firstVisible -= head.items.size();
+                lastVisible -= head.items.size();
+            } else if (pagesAfter > 0) {
+                forget(chunks.remove(chunks.size() - 1));
+            } else {
+                break;
+            }
+            dropped = true;
+        }
+        return dropped;
+    }
+
+    private int chunkAt(int position) {
+        int start = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            start += chunks.get(i).items.size();
+            if (position < start) {
+                return i;
+            }
+        }
+        return chunks.size() - 1;
+    }
+
+    private void emit() {
+        List<Audiobook> items = new ArrayList<>(itemCount);
+        for (Chunk chunk : chunks) {
+            items.addAll(chunk.items);
+        }
+        listener.onItems(items, false);
+    }
+
+    private void prefetchCovers(Chunk chunk) {
+        List<String> covers = new ArrayList<>();
+        for (Audiobook item : chunk.items) {
+            if (item.getImageUrl() != null && !item.getImageUrl().isEmpty()) {
+                covers.add(item.getImageUrl());
+            }
+        }
+        if (!covers.isEmpty()) {
+            listener.onPrefetchCovers(covers);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide single-flight table for fetches.
+ * While a fetch for a key is running, later requests for the same key are attached to it
+ * instead of starting another download, and every waiting callback gets the one result.
+ * Each caller holds its own handle; the shared fetch is only aborted once every caller
+ * attached to it has cancelled. Items streamed out of a fetch before a caller joined are
+ * replayed to it, so late joiners see the same sequence as the first caller.
+ */
+public final class RequestCoalescer {
+    private static final String TAG = "RequestCoalescer";
+
+    private static final RequestCoalescer INSTANCE = new RequestCoalescer();
+
+    private final Map<String, Flight> inFlight = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private long requestCount;
+    private long suppressedCount;
+
+    private RequestCoalescer() {
+    }
+
+    public static RequestCoalescer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Build the single-flight key for an operation on a URL.
+     * The operation is part of the key because the same page can be parsed in different ways.
+     */
+    public static String keyFor(String operation, String url) {
+        return operation + ":" + UrlCanonicalizer.canonicalize(url);
+    }
+
+    /**
+     * Register a caller for a key.
+     * If the caller asks for a higher priority than the running flight, the flight is
+     * promoted in the FetchScheduler so the caller does not wait in a low lane.
+     *
+     * @param handle the caller's own handle; cancelling it detaches only this caller
+     * @return the new flight if the caller is the first requester and must perform the fetch,
+     * or null if a fetch for this key is already running and the callback was attached to it
+     */
+    public <T> Flight join(String key, FetchPriority priority, CancellationToken handle,
+                           WebDataSource.Callback<T> callback) {
+        Flight flight;
+        boolean leader;
+        boolean promote = false;
+        List<Object> replay = null;
+        Waiter waiter = new Waiter(handle, callback);
+        synchronized (this) {
+            requestCount++;
+            flight = inFlight.get(key);
+            leader = flight == null;
+            if (leader) {
+                flight = new Flight(key, priority);
+                inFlight.put(key, flight);
+            } else {
+                suppressedCount++;
+                Log.d(TAG, "Coalesced duplicate request: " + key);
+                if (priority.compareTo(flight.priority) < 0) {
+                    flight.priority = priority;
+                    promote = true;
+                }
+                if (!flight.emitted.isEmpty()) {
+                    replay = new ArrayList<>(flight.emitted);
+                }
+            }
+            flight.waiters.add(waiter);
+            if (replay != null) {
+                // Posted under the lock so later emit() posts cannot overtake the replay
+                postItems(waiter, replay);
+            }
+        }
+        if (promote) {
+            FetchScheduler.getInstance().promote(flight.token, priority);
+        }
+        Flight joined = flight;
+        handle.onCancel(() -> leave(joined, waiter));
+        return leader ? flight : null;
+    }
+
+    private void leave(Flight flight, Waiter waiter) {
+        boolean abort;
+        synchronized (this) {
+            flight.waiters.remove(waiter);
+            abort = flight.waiters.isEmpty() && inFlight.get(flight.key) == flight;
+            if (abort) {
+                inFlight.remove(flight.key);
+            }
+        }
+        if (abort) {
+            Log.d(TAG, "All callers left, aborting: " + flight.key);
+            flight.token.cancel();
+        }
+    }
+
+    /**
+     * Hand one partial item of a streaming fetch to every caller that listens for items,
+     * on the main thread. Callers that join later get the items emitted so far.
+     */
+    public synchronized <T> void emit(Flight flight, T item) {
+        flight.emitted.add(item);
+        for (Waiter waiter : flight.waiters) {
+            postItems(waiter, Collections.singletonList(item));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void postItems(Waiter waiter, List<?> items) {
+        if (!(waiter.callback instanceof WebDataSource.StreamCallback)) {
+            return;
+        }
+        WebDataSource.StreamCallback<Object> listener = (WebDataSource.StreamCallback<Object>) waiter.callback;
+        mainHandler.post(() -> {
+            if (!waiter.handle.isCancelled()) {
+                for (Object item : items) {
+                    listener.onItem(item);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deliver a result to every caller still attached to the flight, on the main thread
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void complete(Flight flight, T result) {
+        List<Waiter> waiters = take(flight);
+        mainHandler.post(() -> {
+            for (Waiter waiter : waiters) {
+                if (!waiter.handle.isCancelled()) {
+                    waiter.handle.finish();
+                    ((WebDataSource.Callback<T>) waiter.callback).onSuccess(result);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deliver an error to every caller still attached to the flight, on the main thread
+     */
+    public void fail(Flight flight, Exception e) {
+        List<Waiter> waiters = take(flight);
+        mainHandler.post(() -> {
+            for (Waiter waiter : waiters) {
+                if (!waiter.handle.isCancelled()) {
+                    waiter.handle.finish();
+                    waiter.callback.onError(e);
+                }
+            }
+        });
+    }
+
+    private synchronized List<Waiter> take(Flight flight) {
+        if (inFlight.get(flight.key) == flight) {
+            inFlight.remove(flight.key);
+        }
+        flight.token.finish();
+        List<Waiter> waiters = new ArrayList<>(flight.waiters);
+        flight.waiters.clear();
+        flight.emitted.clear();
+        return waiters;
+    }
+
+    /**
+     * Total number of requests seen
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Number of requests that were served by another request's fetch
+     */
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * Number of distinct fetches currently running
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * One shared fetch and the callers waiting on it
+     */
+    public static final class Flight {
+        private final String key;
+        private final CancellationToken token = new CancellationToken();
+        private final List<Waiter> waiters = new ArrayList<>();
+        private final List<Object> emitted = new ArrayList<>();
+        private FetchPriority priority;
+
+        Flight(String key, FetchPriority priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+
+        /**
+         * Highest priority any caller asked for
+         */
+        public synchronized FetchPriority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Token of the shared fetch, cancelled when the last caller leaves
+         */
+        public CancellationToken getToken() {
+            return token;
+        }
+    }
+
+    private static final class Waiter {
+        final CancellationToken handle;
+        final WebDataSource.Callback<?> callback;
+
+        Waiter(CancellationToken handle, WebDataSource.Callback<?> callback) {
+            this.handle = handle;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.goldenaudiobook.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tracks the requests started by one owner (usually a ViewModel) so they can be
+ * cancelled together when the owner goes away
+ */
+public class RequestGroup {
+    private final List<Cancellable> requests = new ArrayList<>();
+
+    /**
+     * Track a request and return it. Requests that already finished are pruned.
+     */
+    public synchronized <T extends Cancellable> T add(T request) {
+        Iterator<Cancellable> it = requests.iterator();
+        while (it.hasNext()) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+        if (request != null) {
+            requests.add(request);
+        }
+        return request;
+    }
+
+    /**
+     * Cancel every tracked request
+     */
+    public void cancelAll() {
+        List<Cancellable> toCancel;
+        synchronized (this) {
+            toCancel = new ArrayList<>(requests);
+            requests.clear();
+        }
+        for (Cancellable request : toCancel) {
+            request.cancel();
+        }
+    }
+}
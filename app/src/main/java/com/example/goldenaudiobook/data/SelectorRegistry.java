@@ -0,0 +1,199 @@
+package com.example.goldenaudiobook.data;
+
+import android.util.Log;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+import java.util.regex.Pattern;
+
+/**
+ * Every CSS selector and regex the scraper uses, compiled once.
+ * jsoup Evaluators keep no per-document state between calls, so the fetch threads share them.
+ * <p>
+ * Where a page type has several known layouts, the candidates form a Fallbacks chain that
+ * remembers which one matched and tries the most successful one first next time.
+ * Generic last resorts that would also match the sidebar (e.g. ".widget li") are not part of
+ * any chain, because a learned win for them would hide the real post list.
+ */
+final class SelectorRegistry {
+    private static final String TAG = "SelectorRegistry";
+
+    private SelectorRegistry() {
+    }
+
+    // Regexes
+    static final Pattern PAGE_NUMBER = Pattern.compile("[?&]_page=(\\d+)|/page/(\\d+)/");
+    static final Pattern PAGE_PATH = Pattern.compile("/page/(\\d+)/");
+    static final Pattern IMAGE_DIMENSIONS = Pattern.compile("-(\\d+)x(\\d+)(?=\\.[^.]+$)");
+    static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // WordPress post ids: article id="post-123", body class="postid-123", guid ".../?p=123"
+    static final Pattern ARTICLE_POST_ID = Pattern.compile("^post-(\\d+)$");
+    static final Pattern BODY_POST_ID = Pattern.compile("(?:^|\\s)postid-(\\d+)(?:\\s|$)");
+    static final Pattern GUID_POST_ID = Pattern.compile("[?&]p=(\\d+)");
+
+    // Pagination blocks that end the post list; list streaming stops there
+    private static final String HOME_PAGINATION = ".pt-cv-pagination";
+    private static final String ARCHIVE_PAGINATION = ".nav-links, .navigation, .pagination, .wp-pagenavi";
+
+    // Home grid pagination
+    static final Evaluator HOME_PAGINATION_INFO = compile(".pt-cv-pagination.pt-cv-ajax.pagination");
+    static final Evaluator HOME_ACTIVE_PAGE = compile("li.cv-pageitem-number.active a");
+
+    // Archive pagination
+    static final Evaluator ARCHIVE_NEWER_LINK = compile(".nav-next a[href]");
+    static final Evaluator PAGE_LINKS = compile("a[href*='/page/']");
+
+    // Sidebar widgets
+    static final Evaluator RANDOM_WIDGET_POSTS = compile("li.arpw-li.arpw-clearfix");
+    static final Evaluator ALTERNATE_POSTS = compile(".arpw-random-post li, .random-post li, .widget li");
+    static final Evaluator CATEGORY_WIDGET_ITEMS =
+            compile("div.widget.widget_categories:not(#categories-2) ul > li.cat-item");
+    static final Evaluator CATEGORY_WIDGET = compile("div.widget.widget_categories");
+    static final Evaluator WIDGET_ITEMS = compile("ul > li.cat-item");
+    static final Evaluator LINK = compile("a");
+
+    // Post lists, one chain per page type
+    static final Fallbacks HOME_POSTS = new Fallbacks("home posts", HOME_PAGINATION,
+            "div.pt-cv-content-item");
+    static final Fallbacks CATEGORY_POSTS = new Fallbacks("category posts", ARCHIVE_PAGINATION,
+            "article[id^=post-]", "li.ilovewp-post", "article.post");
+    static final Fallbacks AUTHOR_POSTS = new Fallbacks("author posts", ARCHIVE_PAGINATION,
+            "li.ilovewp-post", "article[id^=post-]", "article.post");
+    static final Fallbacks SEARCH_POSTS = new Fallbacks("search posts", ARCHIVE_PAGINATION,
+            "li.ilovewp-post", "article[id^=post-]", "article.post", ".search-result, .result-item");
+
+    // Next-page links
+    static final Fallbacks ARCHIVE_NEXT = new Fallbacks("archive next page", null,
+            ".nav-previous a[href]", ".nav-links a[rel=prev], .nav-links .nav-previous a");
+    static final Fallbacks SEARCH_NEXT = new Fallbacks("search next page", null,
+            ".nav-previous a", "a.next.page-numbers[href]");
+
+    private static Evaluator compile(String query) {
+        return QueryParser.parse(query);
+    }
+
+    /**
+     * Alternative selectors for the same thing on one page type, tried in order of past success.
+     * Ties keep the declared order, so the first query is the default.
+     */
+    static final class Fallbacks {
+        private final String name;
+        private final String[] queries;
+        private final Evaluator pagination;
+        private final Evaluator[] evaluators;
+        // Each query OR'ed with the pagination block, for streamList()
+        private final Evaluator[] streamEvaluators;
+        private final int[] wins;
+        private volatile int[] order;
+
+        Fallbacks(String name, String paginationQuery, String... queries) {
+            this.name = name;
+            this.queries = queries;
+            this.pagination = paginationQuery != null ? compile(paginationQuery) : null;
+            this.evaluators = new Evaluator[queries.length];
+            this.streamEvaluators = new Evaluator[queries.length];
+            this.wins = new int[queries.length];
+            this.order = new int[queries.length];
+            for (int i = 0; i < queries.length; i++) {
+                evaluators[i] = compile(queries[i]);
+                streamEvaluators[i] = paginationQuery != null
+                        ? compile(queries[i] + ", " + paginationQuery) : evaluators[i];
+                order[i] = i;
+            }
+        }
+
+        /**
+         * Index of the query to try first
+         */
+        int preferred() {
+            return order[0];
+        }
+
+        /**
+         * Pagination block that follows the posts, or null for chains that are not streamed
+         */
+        Evaluator pagination() {
+            return pagination;
+        }
+
+        /**
+         * The query at index, also matching the pagination block the chain was built with
+         */
+        Evaluator streamQuery(int index) {
+            return streamEvaluators[index];
+        }
+
+        /**
+         * All matches of the first query that matches anything
+         */
+        Elements select(Element root) {
+            return selectExcept(root, -1);
+        }
+
+        /**
+         * Like select(), skipping a query that has already been tried
+         */
+        Elements selectExcept(Element root, int skip) {
+            for (int index : order) {
+                if (index == skip) {
+                    continue;
+                }
+                Elements found = root.select(evaluators[index]);
+                if (!found.isEmpty()) {
+                    recordWin(index);
+                    return found;
+                }
+            }
+            return new Elements();
+        }
+
+        /**
+         * First match of the first query that matches anything
+         */
+        Element selectFirst(Element root) {
+            for (int index : order) {
+                Element found = root.selectFirst(evaluators[index]);
+                if (found != null) {
+                    recordWin(index);
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Count a match for the query at index and move it ahead of queries with fewer wins
+         */
+        synchronized void recordWin(int index) {
+            wins[index]++;
+            int[] current = order;
+            int position = 0;
+            while (current[position] != index) {
+                position++;
+            }
+            if (position == 0 || wins[current[position - 1]] >= wins[index]) {
+                return;
+            }
+            int[] reordered = current.clone();
+            while (position > 0 && wins[reordered[position - 1]] < wins[index]) {
+                reordered[position] = reordered[position - 1];
+                position--;
+            }
+            reordered[position] = index;
+            order = reordered;
+            Log.d(TAG, "Now trying \"" + queries[index] + "\" first for " + name);
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder builder = new StringBuilder(name).append(" {");
+            for (int index : order) {
+                builder.append(" \"").append(queries[index]).append("\"=").append(wins[index]);
+            }
+            return builder.append(" }").toString();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.NavItem;
+import com.example.goldenaudiobook.model.Page;
+import com.example.goldenaudiobook.model.Shelf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the shelves of the home screen, one per category of the navigation, all at the same
+ * time. Each shelf is delivered as soon as its own page arrives. A shelf that takes longer
+ * than the timeout is given up on, so one slow category does not hold up the rest.
+ * <p>
+ * All callbacks run on the main thread, where the repository delivers its results.
+ */
+public class ShelfFanOut {
+    private static final String TAG = "ShelfFanOut";
+
+    public static final long DEFAULT_SHELF_TIMEOUT_MS = 8000;
+
+    /**
+     * Receives the shelves as they load
+     */
+    public interface Listener {
+        /**
+         * The shelves there will be, all still loading, so the screen can lay them out
+         */
+        void onShelves(List<Shelf> shelves);
+
+        /**
+         * A shelf loaded, changed on refresh, or was given up on
+         */
+        void onShelf(int index, Shelf shelf);
+
+        /**
+         * The categories could not be loaded; no shelves come
+         */
+        void onError(Exception e);
+    }
+
+    /**
+     * Loads the navigation items whose categories become shelves
+     */
+    public interface CategorySource {
+        Cancellable load(AudiobookRepository.DataCallback<List<NavItem>> callback);
+    }
+
+    private final CategorySource categories;
+    private final PagingEngine.PageSource pages;
+    private final long timeoutMs;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CancellationToken handle = new CancellationToken();
+    private final RequestGroup requests = new RequestGroup();
+    private int unsettled;
+
+    public ShelfFanOut(CategorySource categories, PagingEngine.PageSource pages, long timeoutMs, Listener listener) {
+        this.categories = categories;
+        this.pages = pages;
+        this.timeoutMs = timeoutMs;
+        this.listener = listener;
+        handle.onCancel(requests::cancelAll);
+    }
+
+    /**
+     * Load the categories, then every shelf. The handle cancels whatever is still loading.
+     */
+    public Cancellable start() {
+        requests.add(categories.load(new AudiobookRepository.DataCallback<List<NavItem>>() {
+            @Override
+            public void onSuccess(List<NavItem> items) {
+                if (handle.isCancelled()) {
+                    return;
+                }
+                List<Shelf> shelves = new ArrayList<>();
+                for (NavItem item : items) {
+                    if (item.isCategory() && item.getUrl() != null) {
+                        shelves.add(new Shelf(item.getTitle(), item.getUrl()));
+                    }
+                }
+                listener.onShelves(new ArrayList<>(shelves));
+                unsettled = shelves.size();
+                if (unsettled == 0) {
+                    handle.finish();
+                }
+                for (int i = 0; i < shelves.size(); i++) {
+                    load(i, shelves.get(i));
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!handle.isCancelled()) {
+                    handle.finish();
+                    listener.onError(e);
+                }
+            }
+        }));
+        return handle;
+    }
+
+    private void load(int index, Shelf shelf) {
+        // Settled once loaded, failed or timed out; a refreshed page may still update it
+        boolean[] settled = new boolean[1];
+        boolean[] givenUp = new boolean[1];
+        Cancellable[] request = new Cancellable[1];
+        Runnable timeout = () -> {
+            if (!settled[0] && !handle.isCancelled()) {
+                Log.w(TAG, "Shelf " + shelf.getTitle() + " timed out after " + timeoutMs + "ms");
+                givenUp[0] = true;
+                request[0].cancel();
+                settle(settled);
+                listener.onShelf(index, shelf.failed());
+            }
+        };
+        request[0] = requests.add(pages.load(shelf.getUrl(), new AudiobookRepository.DataCallback<Page<Audiobook>>() {
+            @Override
+            public void onSuccess(Page<Audiobook> page) {
+                if (handle.isCancelled() || givenUp[0]) {
+                    return;
+                }
+                mainHandler.removeCallbacks(timeout);
+                settle(settled);
+                listener.onShelf(index, shelf.withItems(page.getItems()));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (handle.isCancelled() || givenUp[0] || settled[0]) {
+                    return;
+                }
+                mainHandler.removeCallbacks(timeout);
+                Log.w(TAG, "Shelf " + shelf.getTitle() + " failed: " + e.getMessage());
+                settle(settled);
+                listener.onShelf(index, shelf.failed());
+            }
+        }));
+        mainHandler.postDelayed(timeout, timeoutMs);
+        handle.onCancel(() -> mainHandler.removeCallbacks(timeout));
+    }
+
+    private void settle(boolean[] settled) {
+        if (!settled[0]) {
+            settled[0] = true;
+            if (--unsettled == 0) {
+                handle.finish();
+            }
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import org.jsoup.HttpStatusException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Fills the CatalogDatabase from the WordPress sitemaps instead of walking category pages.
+ * The sitemap index and the post sitemaps are read as streams; post URLs go to the catalog
+ * in batches, and only posts whose lastmod is new are fetched.
+ * <p>
+ * A crawl runs as a chain of tasks in the BACKGROUND lane, one sitemap or one batch of
+ * detail fetches at a time, so user requests never wait behind it. Its progress lives in
+ * the catalog (unread sitemaps, pending posts): a crawl that is cancelled, killed or out of
+ * budget continues from there next time.
+ */
+public class SitemapCrawler {
+    private static final String TAG = "SitemapCrawler";
+
+    public static final String DEFAULT_INDEX_URL = "https://goldenaudiobook.net/wp-sitemap.xml";
+    // SEO plugins replace the core sitemap with this one
+    private static final String PLUGIN_INDEX_URL = "https://goldenaudiobook.net/sitemap_index.xml";
+
+    public static final int DEFAULT_FETCH_BUDGET = 100;
+
+    // Post URLs written per transaction while a sitemap streams in
+    private static final int QUEUE_BATCH = 200;
+    // Detail pages stored per transaction, and fetched in parallel
+    private static final int FETCH_BATCH = 16;
+    private static final int FETCH_PARALLELISM = 4;
+
+    // Post sitemaps of WordPress core and of the common SEO plugins
+    private static final Pattern POST_SITEMAP =
+            Pattern.compile("(?:wp-sitemap-posts-post-\\d+|post-sitemap\\d*)\\.xml");
+
+    private final HttpTransport transport;
+    private final WebDataSource dataSource;
+    private final CatalogDatabase catalog;
+    private final String[] indexUrls;
+    private final FetchScheduler scheduler;
+    private final Handler mainHandler;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Crawler for the site. It uses the network transport without the page cache, so the
+     * crawl does not evict the pages the screens use.
+     */
+    public SitemapCrawler(CatalogDatabase catalog) {
+        this(OkHttpTransport.getDefault(), catalog, DEFAULT_INDEX_URL, PLUGIN_INDEX_URL);
+    }
+
+    /**
+     * @param indexUrls sitemap indexes to try in order; the next is used if one is missing
+     */
+    public SitemapCrawler(HttpTransport transport, CatalogDatabase catalog, String... indexUrls) {
+        this.transport = transport;
+        this.dataSource = new WebDataSource(transport);
+        this.catalog = catalog;
+        this.indexUrls = indexUrls;
+        this.scheduler = FetchScheduler.getInstance();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Update the catalog: read the sitemaps that changed, then fetch up to fetchBudget new
+     * or changed posts. The callback gets the progress on the main thread.
+     */
+    public Cancellable crawl(int fetchBudget, WebDataSource.Callback<Progress> callback) {
+        CancellationToken token = new CancellationToken();
+        if (!running.compareAndSet(false, true)) {
+            token.finish();
+            mainHandler.post(() -> callback.onError(new IllegalStateException("A crawl is already running")));
+            return token;
+        }
+        // Queued tasks of a cancelled crawl are dropped, so nothing else would reset this
+        token.onCancel(() -> running.set(false));
+        Run run = new Run(token, fetchBudget, callback);
+        scheduler.execute(indexUrls[0], FetchPriority.BACKGROUND, token, () -> readIndex(run, 0));
+        return token;
+    }
+
+    /**
+     * Queue the post sitemaps listed by the index; the catalog marks the changed ones
+     */
+    private void readIndex(Run run, int index) {
+        String indexUrl = indexUrls[index];
+        try {
+            List<CatalogDatabase.Entry> sitemaps = new ArrayList<>();
+            readSitemap(indexUrl, run.token, (element, entry) -> {
+                if ("sitemap".equals(element) && POST_SITEMAP.matcher(entry.getUrl()).find()) {
+                    sitemaps.add(entry);
+                }
+            });
+            catalog.queueSitemaps(sitemaps);
+            Log.d(TAG, "Index " + indexUrl + " lists " + sitemaps.size() + " post sitemaps");
+        } catch (HttpStatusException e) {
+            if (index + 1 < indexUrls.length) {
+                Log.d(TAG, "No sitemap index at " + indexUrl + " (" + e.getStatusCode() + ")");
+                readIndex(run, index + 1);
+                return;
+            }
+            fail(run, e);
+            return;
+        } catch (IOException | RuntimeException e) {
+            fail(run, e);
+            return;
+        }
+        readNextSitemap(run);
+    }
+
+    /**
+     * Read the first unread post sitemap, then the next one in a new task
+     */
+    private void readNextSitemap(Run run) {
+        List<CatalogDatabase.Entry> pending = catalog.pendingSitemaps();
+        if (pending.isEmpty()) {
+            fetchNextBatch(run);
+            return;
+        }
+        CatalogDatabase.Entry sitemap = pending.get(0);
+        scheduler.execute(sitemap.getUrl(), FetchPriority.BACKGROUND, run.token, () -> {
+            try {
+                readPostSitemap(run, sitemap);
+            } catch (HttpStatusException e) {
+                if (e.getStatusCode() != 404 && e.getStatusCode() != 410) {
+                    fail(run, e);
+                    return;
+                }
+                Log.d(TAG, "Sitemap gone: " + sitemap.getUrl());
+            } catch (IOException | RuntimeException e) {
+                fail(run, e);
+                return;
+            }
+            catalog.sitemapDone(sitemap);
+            run.sitemapsRead.incrementAndGet();
+            readNextSitemap(run);
+        });
+    }
+
+    private void readPostSitemap(Run run, CatalogDatabase.Entry sitemap) throws IOException {
+        List<CatalogDatabase.Entry> batch = new ArrayList<>(QUEUE_BATCH);
+        readSitemap(sitemap.getUrl(), run.token, (element, entry) -> {
+            if (!"url".equals(element)) {
+                return;
+            }
+            batch.add(entry);
+            if (batch.size() == QUEUE_BATCH) {
+                run.queued.addAndGet(catalog.queueBooks(batch));
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            run.queued.addAndGet(catalog.queueBooks(batch));
+        }
+    }
+
+    /**
+     * Fetch the next batch of pending posts, newest first, and store them in a new task
+     */
+    private void fetchNextBatch(Run run) {
+        int room = run.budget - run.attempted;
+        List<CatalogDatabase.Entry> batch = room > 0
+                ? catalog.pendingBooks(Math.min(FETCH_BATCH, room)) : new ArrayList<>();
+        if (batch.isEmpty()) {
+            finish(run);
+            return;
+        }
+        run.attempted += batch.size();
+        List<String> urls = new ArrayList<>(batch.size());
+        for (CatalogDatabase.Entry book : batch) {
+            urls.add(book.getUrl());
+        }
+        DetailBatch.Fetch fetch = (url, callback) -> dataSource.getAudiobookDetails(url, FetchPriority.BACKGROUND,
+                new WebDataSource.Callback<Audiobook>() {
+                    @Override
+                    public void onSuccess(Audiobook result) {
+                        callback.onSuccess(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        callback.onError(e);
+                    }
+                });
+        Cancellable fetches = new DetailBatch(urls, FETCH_PARALLELISM, DetailBatch.Order.COMPLETION, fetch,
+                new DetailBatch.Listener() {
+                    @Override
+                    public void onComplete(DetailBatch.Result result) {
+                        // Callbacks run on the main thread; the database work does not
+                        scheduler.execute(batch.get(0).getUrl(), FetchPriority.BACKGROUND, run.token,
+                                () -> storeBatch(run, batch, result));
+                    }
+                }).start();
+        run.token.onCancel(fetches::cancel);
+    }
+
+    private void storeBatch(Run run, List<CatalogDatabase.Entry> batch, DetailBatch.Result result) {
+        List<Audiobook> stored = new ArrayList<>();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                CatalogDatabase.Entry book = batch.get(i);
+                Audiobook details = result.getDetails(i);
+                Exception error = result.getError(i);
+                if (details != null) {
+                    catalog.storeBook(book, details);
+                    stored.add(details);
+                    run.fetched.incrementAndGet();
+                } else if (error instanceof HttpStatusException
+                        && (((HttpStatusException) error).getStatusCode() == 404
+                        || ((HttpStatusException) error).getStatusCode() == 410)) {
+                    catalog.removeBook(book);
+                    run.removed.incrementAndGet();
+                } else {
+                    Log.w(TAG, "Could not fetch " + book.getUrl(), error);
+                    catalog.recordFailure(book);
+                    run.failed.incrementAndGet();
+                }
+            }
+        } catch (RuntimeException e) {
+            fail(run, e);
+            return;
+        }
+        SuggestionTrie suggestions = SuggestionTrie.getInstance();
+        if (suggestions != null) {
+            suggestions.addAll(stored);
+        }
+        fetchNextBatch(run);
+    }
+
+    private void finish(Run run) {
+        Progress progress = run.progress(catalog.getPendingCount());
+        Log.i(TAG, "Crawl finished: " + progress);
+        running.set(false);
+        mainHandler.post(() -> {
+            if (!run.token.isCancelled()) {
+                run.token.finish();
+                run.callback.onSuccess(progress);
+            }
+        });
+    }
+
+    private void fail(Run run, Exception e) {
+        Log.e(TAG, "Crawl stopped", e);
+        running.set(false);
+        mainHandler.post(() -> {
+            if (!run.token.isCancelled()) {
+                run.token.finish();
+                run.callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Receives the entries of a sitemap as they are parsed
+     */
+    private interface EntryHandler {
+        /**
+         * @param element "sitemap" for an index entry, "url" for a page entry
+         */
+        void onEntry(String element, CatalogDatabase.Entry entry) throws IOException;
+    }
+
+    /**
+     * Stream a sitemap or sitemap index and hand each loc/lastmod pair to the handler.
+     * Extension elements inside an entry (images, alternates) are ignored.
+     */
+    private void readSitemap(String url, CancellationToken token, EntryHandler handler) throws IOException {
+        token.throwIfCancelled();
+        HttpTransport.Request request = new HttpTransport.Request(url)
+                .header("User-Agent", WebDataSource.USER_AGENT)
+                .cancellationToken(token);
+        try (HttpTransport.Response response = transport.get(request)) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException("HTTP error fetching URL", response.getCode(), url);
+            }
+            XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+            parser.setInput(response.getBody(), response.getCharset());
+            String element = null;
+            String field = null;
+            int depth = 0;
+            String loc = null;
+            String lastmod = null;
+            for (int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+                if (event == XmlPullParser.START_TAG) {
+                    String name = parser.getName();
+                    if (element == null && ("url".equals(name) || "sitemap".equals(name))) {
+                        element = name;
+                        depth = parser.getDepth();
+                        loc = null;
+                        lastmod = null;
+                    } else if (element != null && parser.getDepth() == depth + 1) {
+                        field = name;
+                    }
+                } else if (event == XmlPullParser.TEXT && field != null) {
+                    if ("loc".equals(field)) {
+                        loc = parser.getText().trim();
+                    } else if ("lastmod".equals(field)) {
+                        lastmod = parser.getText().trim();
+                    }
+                } else if (event == XmlPullParser.END_TAG) {
+                    field = null;
+                    if (element != null && parser.getDepth() == depth) {
+                        if (loc != null && !loc.isEmpty()) {
+                            handler.onEntry(element, new CatalogDatabase.Entry(loc,
+                                    lastmod == null || lastmod.isEmpty() ? null : lastmod));
+                        }
+                        element = null;
+                        token.throwIfCancelled();
+                    }
+                }
+            }
+        } catch (XmlPullParserException e) {
+            throw new IOException("Malformed sitemap " + url, e);
+        }
+    }
+
+    /**
+     * State of one crawl. Counters are touched from the scheduler threads in turn.
+     */
+    private static final class Run {
+        final CancellationToken token;
+        final int budget;
+        final WebDataSource.Callback<Progress> callback;
+        final AtomicInteger sitemapsRead = new AtomicInteger();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger fetched = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        // Only touched by the task that schedules the next batch
+        volatile int attempted;
+
+        Run(CancellationToken token, int budget, WebDataSource.Callback<Progress> callback) {
+            this.token = token;
+            this.budget = budget;
+            this.callback = callback;
+        }
+
+        Progress progress(int pending) {
+            return new Progress(sitemapsRead.get(), queued.get(), fetched.get(), removed.get(), failed.get(), pending);
+        }
+    }
+
+    /**
+     * Immutable result of a crawl
+     */
+    public static final class Progress {
+        private final int sitemapsRead;
+        private final int queued;
+        private final int fetched;
+        private final int removed;
+        private final int failed;
+        private final int pending;
+
+        Progress(int sitemapsRead, int queued, int fetched, int removed, int failed, int pending) {
+            this.sitemapsRead = sitemapsRead;
+            this.queued = queued;
+            this.fetched = fetched;
+            this.removed = removed;
+            this.failed = failed;
+            this.pending = pending;
+        }
+
+        public int getSitemapsRead() {
+            return sitemapsRead;
+        }
+
+        /**
+         * Posts found new or changed in the sitemaps read by this crawl
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getFetched() {
+            return fetched;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * Posts still to be fetched by a later crawl
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        @Override
+        public String toString() {
+            return "Progress{" +
+                    "sitemapsRead=" + sitemapsRead +
+                    ", queued=" + queued +
+                    ", fetched=" + fetched +
+                    ", removed=" + removed +
+                    ", failed=" + failed +
+                    ", pending=" + pending +
+                    '}';
+        }
+    }
+}
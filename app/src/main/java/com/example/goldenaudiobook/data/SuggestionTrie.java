@@ -0,0 +1,479 @@
+package com.example.goldenaudiobook.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search-as-you-type completions over the titles and authors of every book the app has
+ * parsed. Strings live in a compressed (radix) trie keyed by their lower-cased, whitespace
+ * collapsed form; each node knows the highest weight below it, so suggest() walks the
+ * prefix and then takes the best completions first without visiting the rest of the
+ * subtree. A title weighs 1 and an author as much as the number of their titles, so
+ * prolific authors rank first. Adding a book whose title is known changes nothing, so
+ * pages seen again do not skew the weights.
+ * <p>
+ * The trie grows as books are added and is saved a few seconds after the last change.
+ * On disk the strings are stored in key order and front-coded: each one only stores how
+ * many leading characters it shares with the one before and the rest.
+ */
+public class SuggestionTrie {
+    private static final String TAG = "SuggestionTrie";
+    private static final int MAGIC = 0x47535431; // "GST1"
+    private static final String FILE_NAME = "suggestions.trie";
+    private static final long SAVE_DELAY_MS = 5000;
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static volatile SuggestionTrie instance;
+
+    private final File file;
+    private final ScheduledExecutorService io;
+
+    // Guarded by this
+    private Node root = new Node("");
+    private int size;
+    private boolean loaded;
+    private boolean saveScheduled;
+    // Title and author of books added before the saved trie was read, applied once it is
+    private final List<String[]> pending = new ArrayList<>();
+
+    public SuggestionTrie(File file) {
+        this.file = file;
+        this.io = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "suggestions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        io.execute(this::load);
+    }
+
+    /**
+     * Scratch trie for load(), without a file or thread of its own
+     */
+    private SuggestionTrie() {
+        this.file = null;
+        this.io = null;
+        this.loaded = true;
+    }
+
+    /**
+     * Open the app-wide trie under the app cache directory and start reading it
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (SuggestionTrie.class) {
+                if (instance == null) {
+                    instance = new SuggestionTrie(new File(context.getCacheDir(), FILE_NAME));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the app-wide trie, or null if init() has not been called
+     */
+    public static SuggestionTrie getInstance() {
+        return instance;
+    }
+
+    /**
+     * One trie node. The edge is the part of the key between the parent and this node;
+     * children are sorted by the first character of their edge.
+     */
+    private static final class Node {
+        String edge;
+        Node[] children = NO_CHILDREN;
+        // The string whose key ends here, or null
+        String text;
+        int weight;
+        // Highest weight in this subtree, this node included
+        int maxWeight;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+    }
+
+    /**
+     * Add the title and author of parsed books
+     */
+    public void addAll(List<Audiobook> books) {
+        boolean changed = false;
+        synchronized (this) {
+            for (Audiobook book : books) {
+                String title = clean(titleOf(book));
+                if (title == null) {
+                    continue;
+                }
+                String author = clean(book.getAuthor());
+                if (loaded) {
+                    changed |= addBook(title, author);
+                } else {
+                    pending.add(new String[]{title, author});
+                    changed = true;
+                }
+            }
+        }
+        if (changed) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Cards often carry "Author – Title" as their title; only the title part is a completion
+     */
+    private static String titleOf(Audiobook book) {
+        String title = book.getTitle();
+        if (title == null) {
+            return null;
+        }
+        int dash = title.indexOf('–');
+        return dash >= 0 ? title.substring(dash + 1) : title;
+    }
+
+    private static String clean(String text) {
+        if (text == null) {
+            return null;
+        }
+        String display = SelectorRegistry.WHITESPACE.matcher(text.trim()).replaceAll(" ");
+        return display.isEmpty() ? null : display;
+    }
+
+    /**
+     * Add a book's title and count it for its author, unless the title is already known
+     */
+    private boolean addBook(String title, String author) {
+        if (!insert(title, 1, true)) {
+            return false;
+        }
+        if (author != null) {
+            insert(author, 1, false);
+        }
+        return true;
+    }
+
+    private static String keyOf(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Add weight to a string, keeping the first spelling seen for its key. With onlyIfNew a
+     * known key is left as it is.
+     *
+     * @return whether the key was new
+     */
+    private boolean insert(String text, int weight, boolean onlyIfNew) {
+        String key = keyOf(text);
+        Node node = root;
+        int position = 0;
+        node.maxWeight = Math.max(node.maxWeight, weight);
+        while (position < key.length()) {
+            int index = childIndex(node, key.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(position));
+                node.children = insertChild(node.children, -index - 1, leaf);
+                node = leaf;
+                position = key.length();
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.edge, key, position);
+            if (common < child.edge.length()) {
+                // The key leaves this edge midway: split it
+                Node split = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                split.children = new Node[]{child};
+                split.maxWeight = child.maxWeight;
+                node.children[index] = split;
+                child = split;
+            }
+            position += common;
+            node = child;
+            node.maxWeight = Math.max(node.maxWeight, weight);
+        }
+        boolean added = node.text == null;
+        if (added) {
+            node.text = text;
+            size++;
+        } else if (onlyIfNew) {
+            return false;
+        }
+        node.weight += weight;
+        node.maxWeight = Math.max(node.maxWeight, node.weight);
+        // Ancestors only ever grow, so raise them to the new weight
+        if (node.weight > weight) {
+            raise(key, node.weight);
+        }
+        return added;
+    }
+
+    private void raise(String key, int weight) {
+        Node node = root;
+        int position = 0;
+        node.maxWeight = Math.max(node.maxWeight, weight);
+        while (position < key.length()) {
+            node = node.children[childIndex(node, key.charAt(position))];
+            position += node.edge.length();
+            node.maxWeight = Math.max(node.maxWeight, weight);
+        }
+    }
+
+    private static int childIndex(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = node.children[mid].edge.charAt(0);
+            if (c < first) {
+                low = mid + 1;
+            } else if (c > first) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static Node[] insertChild(Node[] children, int index, Node child) {
+        Node[] result = new Node[children.length + 1];
+        System.arraycopy(children, 0, result, 0, index);
+        result[index] = child;
+        System.arraycopy(children, index, result, index + 1, children.length - index);
+        return result;
+    }
+
+    private static int commonPrefix(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && edge.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Up to limit titles and authors starting with what was typed, most often seen first.
+     * Never touches disk or network, so it is safe on every keystroke.
+     */
+    public synchronized List<String> suggest(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        if (prefix == null || limit <= 0) {
+            return result;
+        }
+        String key = keyOf(SelectorRegistry.WHITESPACE.matcher(prefix.trim()).replaceAll(" "));
+        if (key.isEmpty()) {
+            return result;
+        }
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = childIndex(node, key.charAt(position));
+            if (index < 0) {
+                return result;
+            }
+            node = node.children[index];
+            int common = commonPrefix(node.edge, key, position);
+            if (common < node.edge.length() && position + common < key.length()) {
+                return result;
+            }
+            position += common;
+        }
+
+        // Best first: a subtree is opened only when its best weight can still make the list
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(node, false));
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate next = queue.poll();
+            if (next.complete) {
+                result.add(next.node.text);
+                continue;
+            }
+            if (next.node.text != null) {
+                queue.add(new Candidate(next.node, true));
+            }
+            for (Node child : next.node.children) {
+                queue.add(new Candidate(child, false));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A string (complete) or a subtree still to be opened
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final Node node;
+        final boolean complete;
+
+        Candidate(Node node, boolean complete) {
+            this.node = node;
+            this.complete = complete;
+        }
+
+        int priority() {
+            return complete ? node.weight : node.maxWeight;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byWeight = Integer.compare(other.priority(), priority());
+            if (byWeight != 0) {
+                return byWeight;
+            }
+            // On a tie a finished string beats a subtree that may hold one as good
+            return Boolean.compare(other.complete, complete);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized void scheduleSave() {
+        if (saveScheduled || !loaded) {
+            return;
+        }
+        saveScheduled = true;
+        io.schedule(this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Read the saved trie. Strings added meanwhile are applied on top.
+     */
+    private void load() {
+        Node loadedRoot = null;
+        int loadedSize = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a suggestion trie: " + file);
+            }
+            int count = in.readInt();
+            SuggestionTrie scratch = new SuggestionTrie();
+            String previous = "";
+            for (int i = 0; i < count; i++) {
+                int shared = readVarInt(in);
+                String text = previous.substring(0, shared) + in.readUTF();
+                scratch.insert(text, readVarInt(in), false);
+                previous = text;
+            }
+            loadedRoot = scratch.root;
+            loadedSize = scratch.size;
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No saved suggestions yet");
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable suggestions", e);
+        }
+        boolean changed;
+        synchronized (this) {
+            if (loadedRoot != null) {
+                root = loadedRoot;
+                size = loadedSize;
+            }
+            loaded = true;
+            for (String[] book : pending) {
+                addBook(book[0], book[1]);
+            }
+            changed = !pending.isEmpty();
+            pending.clear();
+        }
+        Log.i(TAG, "Loaded " + loadedSize + " suggestions");
+        if (changed) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Write all strings in key order, front-coded, to a temp file and move it into place
+     */
+    private void save() {
+        List<String> texts = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        synchronized (this) {
+            saveScheduled = false;
+            collect(root, texts, weights);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(texts.size());
+                String previous = "";
+                for (int i = 0; i < texts.size(); i++) {
+                    String text = texts.get(i);
+                    int shared = commonPrefix(previous, text, 0);
+                    // Never split a surrogate pair
+                    if (shared > 0 && Character.isHighSurrogate(text.charAt(shared - 1))) {
+                        shared--;
+                    }
+                    writeVarInt(out, shared);
+                    out.writeUTF(text.substring(shared));
+                    writeVarInt(out, weights.get(i));
+                    previous = text;
+                }
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot replace " + file);
+            }
+            Log.d(TAG, "Saved " + texts.size() + " suggestions, " + file.length() + " bytes");
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save suggestions", e);
+            temp.delete();
+        }
+    }
+
+    /**
+     * Strings and weights in key order: a node's own string, then its children in edge order
+     */
+    private static void collect(Node node, List<String> texts, List<Integer> weights) {
+        if (node.text != null) {
+            texts.add(node.text);
+            weights.add(node.weight);
+        }
+        for (Node child : node.children) {
+            collect(child, texts, weights);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
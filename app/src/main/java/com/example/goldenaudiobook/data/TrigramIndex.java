@@ -0,0 +1,203 @@
+package com.example.goldenaudiobook.data;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Typo-tolerant lookup of catalog books by title and author. Every word is cut into
+ * trigrams, padded with a space at both ends, so "Rowlings" shares " ro", "row", ... "ing"
+ * with "Rowling" and "Lee Chid" shares most of its trigrams with "Lee Child".
+ * A book matches by the share of the query's trigrams it contains.
+ * <p>
+ * The index is immutable and held in primitive arrays: the sorted trigram keys, and for
+ * each trigram a run of book numbers in one postings array (compressed sparse rows), so
+ * tens of thousands of books take a few hundred kilobytes and no per-entry objects.
+ * Build a new one with Builder when the catalog has changed.
+ */
+public final class TrigramIndex {
+    // Share of the query's trigrams a book needs to count as a match
+    public static final float DEFAULT_MIN_SCORE = 0.5f;
+    private static final int MIN_OVERLAP = 2;
+
+    // Trigram keys, three chars packed into a long, sorted
+    private final long[] trigrams;
+    // Postings of trigram i are postings[offsets[i]] until postings[offsets[i + 1]]
+    private final int[] offsets;
+    private final int[] postings;
+    // Per book: its catalog row id and its number of distinct trigrams
+    private final int[] rowIds;
+    private final int[] sizes;
+    private final long version;
+
+    private TrigramIndex(long[] trigrams, int[] offsets, int[] postings, int[] rowIds, int[] sizes, long version) {
+        this.trigrams = trigrams;
+        this.offsets = offsets;
+        this.postings = postings;
+        this.rowIds = rowIds;
+        this.sizes = sizes;
+        this.version = version;
+    }
+
+    /**
+     * The catalog change count this index was built from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getBookCount() {
+        return rowIds.length;
+    }
+
+    /**
+     * Row ids of the books closest to the query, best first: the highest share of the
+     * query's trigrams, then the fewest other trigrams. At most limit, none below minScore.
+     */
+    public int[] search(String query, int limit, float minScore) {
+        long[] wanted = trigramsOf(query);
+        if (wanted.length == 0 || limit <= 0) {
+            return new int[0];
+        }
+        int[] overlap = new int[rowIds.length];
+        int[] touched = new int[Math.min(rowIds.length, 64)];
+        int touchedCount = 0;
+        for (long trigram : wanted) {
+            int id = Arrays.binarySearch(trigrams, trigram);
+            if (id < 0) {
+                continue;
+            }
+            for (int p = offsets[id]; p < offsets[id + 1]; p++) {
+                int book = postings[p];
+                if (overlap[book]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, Math.min(rowIds.length, touched.length * 2));
+                    }
+                    touched[touchedCount++] = book;
+                }
+            }
+        }
+
+        int needed = Math.max(MIN_OVERLAP, (int) Math.ceil(minScore * wanted.length));
+        // Matches packed as (overlap, -size, book) so one sort of longs ranks them
+        long[] ranked = new long[touchedCount];
+        int matches = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int book = touched[i];
+            if (overlap[book] >= Math.min(needed, wanted.length)) {
+                ranked[matches++] = ((long) overlap[book] << 48)
+                        | ((long) (0xffff - Math.min(sizes[book], 0xffff)) << 32) | book;
+            }
+        }
+        Arrays.sort(ranked, 0, matches);
+        int[] result = new int[Math.min(limit, matches)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = rowIds[(int) ranked[matches - 1 - i]];
+        }
+        return result;
+    }
+
+    /**
+     * Distinct trigrams of the words in a text, sorted
+     */
+    static long[] trigramsOf(String text) {
+        if (text == null) {
+            return new long[0];
+        }
+        long[] result = new long[text.length() + 8];
+        int count = 0;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = ((long) padded.charAt(i) << 32)
+                        | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            }
+        }
+        Arrays.sort(result, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || result[i] != result[distinct - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * Collects books, then lays the index out in two passes: count postings per trigram,
+     * then fill them book by book, which keeps each run sorted. A builder builds once.
+     */
+    public static final class Builder {
+        private int[] rowIds = new int[256];
+        private long[][] bookTrigrams = new long[256][];
+        private int count;
+        private int totalPostings;
+
+        public Builder add(int rowId, String text) {
+            long[] keys = trigramsOf(text);
+            if (keys.length == 0) {
+                return this;
+            }
+            if (count == rowIds.length) {
+                rowIds = Arrays.copyOf(rowIds, count * 2);
+                bookTrigrams = Arrays.copyOf(bookTrigrams, count * 2);
+            }
+            rowIds[count] = rowId;
+            bookTrigrams[count] = keys;
+            count++;
+            totalPostings += keys.length;
+            return this;
+        }
+
+        public TrigramIndex build(long version) {
+            long[] all = new long[totalPostings];
+            int position = 0;
+            for (int book = 0; book < count; book++) {
+                System.arraycopy(bookTrigrams[book], 0, all, position, bookTrigrams[book].length);
+                position += bookTrigrams[book].length;
+            }
+            Arrays.sort(all);
+            int distinct = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (distinct == 0 || all[i] != all[distinct - 1]) {
+                    all[distinct++] = all[i];
+                }
+            }
+            long[] trigrams = Arrays.copyOf(all, distinct);
+
+            int[] offsets = new int[distinct + 1];
+            int[][] bookIds = new int[count][];
+            for (int book = 0; book < count; book++) {
+                long[] keys = bookTrigrams[book];
+                int[] ids = new int[keys.length];
+                // Keys are sorted, so each search can start after the previous hit
+                int from = 0;
+                for (int i = 0; i < keys.length; i++) {
+                    from = Arrays.binarySearch(trigrams, from, distinct, keys[i]);
+                    ids[i] = from;
+                    offsets[from + 1]++;
+                }
+                bookIds[book] = ids;
+                bookTrigrams[book] = null;
+            }
+            for (int i = 0; i < distinct; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] postings = new int[totalPostings];
+            int[] fill = Arrays.copyOf(offsets, distinct);
+            int[] sizes = new int[count];
+            for (int book = 0; book < count; book++) {
+                for (int id : bookIds[book]) {
+                    postings[fill[id]++] = book;
+                }
+                sizes[book] = bookIds[book].length;
+            }
+            return new TrigramIndex(trigrams, offsets, postings, Arrays.copyOf(rowIds, count), sizes, version);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.goldenaudiobook.data;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical spelling of a site URL, the key of every cache and single-flight map, so that
+ * equivalent URLs share one entry. Only keys are canonicalized; requests still go to the
+ * URL as given.
+ * <p>
+ * Rules:
+ * <ul>
+ * <li>the fragment is dropped, scheme and host are lower-cased, default ports are dropped</li>
+ * <li>path escapes use upper-case hex, unreserved characters are unescaped and non-ASCII
+ * characters escaped; a path without a file extension ends with a slash</li>
+ * <li>first-page markers (trailing page/1/, _page=1) and the id parameter that the theme
+ * adds to search pagination links are dropped</li>
+ * <li>query parameters are form-decoded, re-encoded with + for spaces and sorted by name;
+ * the search term is trimmed, its whitespace collapsed and lower-cased as the site's
+ * search is case-insensitive</li>
+ * </ul>
+ * So "https://GoldenAudiobook.net/page/1/?s=Lee%20Child&amp;id=28332#top" and
+ * "https://goldenaudiobook.net?s=lee+child" have the same key.
+ */
+public final class UrlCanonicalizer {
+    private static final Pattern FIRST_PAGE = Pattern.compile("/page/1/?$");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String HEX = "0123456789ABCDEF";
+
+    private UrlCanonicalizer() {
+    }
+
+    /**
+     * Canonical key for a URL, "" for null
+     */
+    public static String canonicalize(String url) {
+        if (url == null) {
+            return "";
+        }
+        String rest = url.trim();
+        int fragment = rest.indexOf('#');
+        if (fragment >= 0) {
+            rest = rest.substring(0, fragment);
+        }
+        String query = null;
+        int queryStart = rest.indexOf('?');
+        if (queryStart >= 0) {
+            query = rest.substring(queryStart + 1);
+            rest = rest.substring(0, queryStart);
+        }
+
+        String origin = "";
+        String path = rest;
+        int schemeEnd = rest.indexOf("://");
+        if (schemeEnd > 0) {
+            String scheme = rest.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+            int pathStart = rest.indexOf('/', schemeEnd + 3);
+            String authority = pathStart >= 0
+                    ? rest.substring(schemeEnd + 3, pathStart) : rest.substring(schemeEnd + 3);
+            path = pathStart >= 0 ? rest.substring(pathStart) : "";
+            origin = scheme + "://" + normalizeAuthority(scheme, authority);
+        }
+
+        String canonicalQuery = normalizeQuery(query);
+        String canonicalPath = normalizePath(path, origin.isEmpty());
+        return canonicalQuery.isEmpty() ? origin + canonicalPath : origin + canonicalPath + "?" + canonicalQuery;
+    }
+
+    private static String normalizeAuthority(String scheme, String authority) {
+        String host = authority.toLowerCase(Locale.ROOT);
+        if (("https".equals(scheme) && host.endsWith(":443")) || ("http".equals(scheme) && host.endsWith(":80"))) {
+            host = host.substring(0, host.lastIndexOf(':'));
+        }
+        return host;
+    }
+
+    private static String normalizePath(String path, boolean relative) {
+        if (path.isEmpty()) {
+            return relative ? "" : "/";
+        }
+        StringBuilder out = new StringBuilder(path.length() + 1);
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '%' && i + 2 < path.length() && isHex(path.charAt(i + 1)) && isHex(path.charAt(i + 2))) {
+                int value = Integer.parseInt(path.substring(i + 1, i + 3), 16);
+                if (isUnreserved(value)) {
+                    out.append((char) value);
+                } else {
+                    appendEscape(out, value);
+                }
+                i += 2;
+            } else if (c > 0x7e || c == ' ') {
+                int codePoint = path.codePointAt(i);
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    appendEscape(out, b & 0xff);
+                }
+                i += Character.charCount(codePoint) - 1;
+            } else {
+                out.append(c);
+            }
+        }
+        String normalized = FIRST_PAGE.matcher(out).replaceFirst("/");
+        int lastSegment = normalized.lastIndexOf('/');
+        if (!normalized.endsWith("/") && normalized.indexOf('.', lastSegment + 1) < 0) {
+            normalized += "/";
+        }
+        return normalized;
+    }
+
+    private static String normalizeQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return "";
+        }
+        List<String[]> params = new ArrayList<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = decode(equals >= 0 ? pair.substring(0, equals) : pair);
+            String value = equals >= 0 ? decode(pair.substring(equals + 1)) : null;
+            if ("id".equals(name) || ("_page".equals(name) && "1".equals(value))) {
+                continue;
+            }
+            if ("s".equals(name) && value != null) {
+                value = WHITESPACE.matcher(value.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+            }
+            params.add(new String[]{name, value});
+        }
+        // Stable, so repeated names keep their order
+        Collections.sort(params, (a, b) -> a[0].compareTo(b[0]));
+        StringBuilder out = new StringBuilder(query.length());
+        for (String[] param : params) {
+            if (out.length() > 0) {
+                out.append('&');
+            }
+            out.append(encode(param[0]));
+            if (param[1] != null) {
+                out.append('=').append(encode(param[1]));
+            }
+        }
+        return out.toString();
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            // Stray % that is not an escape: keep it as written
+            return value;
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return value;
+        }
+    }
+
+    private static void appendEscape(StringBuilder out, int value) {
+        out.append('%').append(HEX.charAt(value >> 4)).append(HEX.charAt(value & 0xf));
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isUnreserved(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
@@ -7,19 +7,32 @@ import android.util.Log;
 import com.example.goldenaudiobook.model.Audiobook;
 import com.example.goldenaudiobook.model.Category;
 import com.example.goldenaudiobook.model.NavItem;
+import com.example.goldenaudiobook.model.Page;
 
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Data source for scraping content from goldenaudiobook.net using JSoup
@@ -27,20 +40,76 @@ import java.util.regex.Pattern;
 public class WebDataSource {
     private static final String TAG = "WebDataSource";
     private static final String BASE_URL = "https://goldenaudiobook.net/";
-    private static final int TIMEOUT = 30000;
-
-    // Pagination state
-    private int currentPage = 1;
-    private int totalPages = 1;
-    private String nextPageUrl = null;
-    private String previousPageUrl = null;
-
-    private final ExecutorService executor;
+    // Any missing page renders the full sidebar with the categories widget
+    private static final String CATEGORIES_URL = "https://goldenaudiobook.net/wp-content/uploads/2018/08/611";
+    static final String USER_AGENT = "Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36";
+    // Threads for cache-only reads, which wait on local storage rather than the network
+    private static final int LOCAL_READ_THREADS = 2;
+    private static final ExecutorService LOCAL_READS = newDaemonPool(LOCAL_READ_THREADS, "page-cache-");
+    // Threads that read the rest of a streamed page into the cache after its result is out,
+    // so the tail does not hold a fetch slot
+    private static final int CACHE_TAIL_THREADS = 2;
+    private static final ExecutorService CACHE_TAILS = newDaemonPool(CACHE_TAIL_THREADS, "cache-tail-");
+
+    private final FetchScheduler scheduler;
+    protected final RequestCoalescer coalescer;
+    protected final HttpTransport transport;
     private final Handler mainHandler;
+    // Read pages from the page cache only, never from the network
+    protected final boolean cacheOnly;
 
     public WebDataSource() {
-        this.executor = Executors.newSingleThreadExecutor();
+        this(defaultTransport());
+    }
+
+    public WebDataSource(HttpTransport transport) {
+        this(transport, false);
+    }
+
+    WebDataSource(HttpTransport transport, boolean cacheOnly) {
+        this.scheduler = FetchScheduler.getInstance();
+        this.coalescer = RequestCoalescer.getInstance();
+        this.transport = transport;
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.cacheOnly = cacheOnly;
+    }
+
+    /**
+     * A data source over the same transport that parses pages from the on-disk page cache
+     * without going to the network. Requests for pages that are not cached fail.
+     */
+    public WebDataSource cacheOnly() {
+        return new WebDataSource(transport, true);
+    }
+
+    private static ExecutorService newDaemonPool(int threads, String namePrefix) {
+        AtomicInteger count = new AtomicInteger(1);
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, namePrefix + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a fetch in the scheduler's lane for its priority. Cache-only reads skip the scheduler
+     * and run on a local read thread, so they neither take network slots nor queue behind
+     * live fetches. Work whose token is cancelled before it starts is dropped.
+     */
+    protected void execute(String url, FetchPriority priority, CancellationToken token, Runnable work) {
+        if (!cacheOnly) {
+            scheduler.execute(url, priority, token, work);
+            return;
+        }
+        LOCAL_READS.execute(() -> {
+            try {
+                if (!token.isCancelled()) {
+                    work.run();
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Cache read failed for " + url, e);
+            }
+        });
     }
 
     /**
@@ -52,77 +121,303 @@ public class WebDataSource {
     }
 
     /**
-     * Fetch random audiobooks for home page
+     * Callback for list pages that also wants each item as soon as it has been parsed,
+     * before the page has finished downloading. onSuccess still gets the complete Page.
      */
-    public void getRandomAudiobooks(Callback<List<Audiobook>> callback) {
-        getRandomAudiobooksPage(BASE_URL, callback);
+    public interface StreamCallback<T> extends Callback<Page<T>> {
+        void onItem(T item);
     }
 
     /**
-     * Fetch random audiobooks with pagination
+     * Network transport, wrapped with the on-disk page cache when it has been installed
      */
-    public void getRandomAudiobooksPage(String url, Callback<List<Audiobook>> callback) {
-        executor.execute(() -> {
-            try {
-                List<Audiobook> audiobooks = new ArrayList<>();
-                String newurl=url;
+    static HttpTransport defaultTransport() {
+        HttpTransport network = OkHttpTransport.getDefault();
+        PageCache cache = PageCache.getInstance();
+        // The categories widget page answers 404 with the list in its body
+        return cache != null
+                ? new CachingTransport(network, cache, Collections.singleton(CATEGORIES_URL))
+                : network;
+    }
 
+    /**
+     * Download a page through the transport and parse it with Jsoup
+     */
+    private Document fetchDocument(String url, CancellationToken token) throws IOException {
+        return fetchDocument(url, false, token);
+    }
+
+    private Document fetchDocument(String url, boolean ignoreHttpErrors, CancellationToken token)
+            throws IOException {
+        token.throwIfCancelled();
+        HttpTransport.Request request = newRequest(url, token);
+        try (HttpTransport.Response response = transport.get(request)) {
+            checkCacheOnly(response, url);
+            if (!response.isSuccessful() && !ignoreHttpErrors) {
+                throw new HttpStatusException("HTTP error fetching URL", response.getCode(), url);
+            }
+            return Jsoup.parse(response.getBody(), response.getCharset(), response.getUrl());
+        }
+    }
 
-                if(!newurl.contains("https")){ // Check if URL is absolute
-                    newurl = BASE_URL+"?_page="+(currentPage+1);
-                    Log.i(TAG, "getRandomAudiobooksPage: next "+newurl);
-                    currentPage++; //
-                }else{
-                    if(currentPage>1){
-                        currentPage--;
+    protected HttpTransport.Request newRequest(String url, CancellationToken token) {
+        HttpTransport.Request request = new HttpTransport.Request(url)
+                .header("User-Agent", USER_AGENT)
+                .cancellationToken(token);
+        if (cacheOnly) {
+            request.header(CachingTransport.HEADER_CACHE_CONTROL, CachingTransport.ONLY_IF_CACHED);
+        }
+        return request;
+    }
+
+    /**
+     * In cache-only mode, fail unless the page came from the page cache
+     */
+    protected void checkCacheOnly(HttpTransport.Response response, String url) throws IOException {
+        if (cacheOnly && !CachingTransport.CACHE_HIT.equals(response.header(CachingTransport.HEADER_CACHE_STATUS))) {
+            throw new FileNotFoundException("Not in page cache: " + url);
+        }
+    }
+
+    /**
+     * Single-flight key; cache-only reads never join a network fetch or the other way round
+     */
+    private String flightKey(String operation, String url) {
+        return RequestCoalescer.keyFor(cacheOnly ? "cached-" + operation : operation, url);
+    }
+
+    /**
+     * Post a callback to the main thread unless the request was cancelled in the meantime
+     */
+    private void deliver(CancellationToken handle, Runnable delivery) {
+        mainHandler.post(() -> {
+            if (!handle.isCancelled()) {
+                handle.finish();
+                delivery.run();
+            }
+        });
+    }
+
+    /**
+     * Download a list page and parse it while it streams in.
+     * Each post is parsed as soon as its element closes and emitted to the flight's stream
+     * listeners. Once the pagination block has been parsed after at least one post, reading
+     * stops. Posts are selected with the chain's most successful query; if it matched nothing,
+     * the page is read to the end and the other queries are tried on the complete document.
+     */
+    private StreamedList streamList(String url, SelectorRegistry.Fallbacks posts, String type,
+                                    RequestCoalescer.Flight flight) throws IOException {
+        CancellationToken token = flight.getToken();
+        token.throwIfCancelled();
+        HttpTransport.Request request = newRequest(url, token);
+        HttpTransport.Response response = transport.get(request);
+        StreamedList list = new StreamedList(response);
+        try {
+            checkCacheOnly(response, url);
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException("HTTP error fetching URL", response.getCode(), url);
+            }
+            // WordPress serves UTF-8 when the header does not say otherwise
+            Charset charset = response.getCharset() != null
+                    ? Charset.forName(response.getCharset()) : StandardCharsets.UTF_8;
+            list.parser.parse(new BufferedReader(new InputStreamReader(response.getBody(), charset)),
+                    response.getUrl());
+
+            int layout = posts.preferred();
+            Evaluator pagination = posts.pagination();
+            Element element;
+            while ((element = list.parser.selectNext(posts.streamQuery(layout))) != null) {
+                if (element.is(pagination)) {
+                    // A match before the first post is a menu, not the list's pagination
+                    if (!list.audiobooks.isEmpty()) {
+                        list.pagination = element;
+                        break;
                     }
+                    continue;
+                }
+                Audiobook audiobook = parseAudiobookFromPost(element, type);
+                if (audiobook != null && audiobook.getTitle() != null && !audiobook.getTitle().isEmpty()) {
+                    list.audiobooks.add(audiobook);
+                    coalescer.emit(flight, audiobook);
+                    // Parsed posts are not needed again; keep the partial DOM small
+                    element.remove();
                 }
+            }
+            list.complete = element == null;
+            list.document = list.parser.document();
+            if (list.audiobooks.isEmpty()) {
+                parseFallbackPosts(list, posts, layout, type);
+            } else {
+                posts.recordWin(layout);
+            }
+            return list;
+        } catch (IOException | RuntimeException e) {
+            list.close();
+            throw e;
+        }
+    }
 
-                Document doc = Jsoup.connect(newurl)
-                        .timeout(TIMEOUT)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
+    /**
+     * Try the chain's other queries on the complete document
+     */
+    private void parseFallbackPosts(StreamedList list, SelectorRegistry.Fallbacks posts, int skip, String type) {
+        for (Element post : posts.selectExcept(list.document, skip)) {
+            Audiobook audiobook = parseAudiobookFromPost(post, type);
+            if (audiobook != null && audiobook.getTitle() != null && !audiobook.getTitle().isEmpty()) {
+                list.audiobooks.add(audiobook);
+            }
+        }
+    }
 
-                // Parse pagination info
-                parseRandomPagination(doc);
+    /**
+     * Result of streamList(). Closing it releases the connection; if the body is being
+     * written to the page cache, the unread tail is drained in the background first so the
+     * entry is committed.
+     */
+    private static final class StreamedList implements Closeable {
+        final HttpTransport.Response response;
+        final StreamParser parser = new StreamParser(Parser.htmlParser());
+        List<Audiobook> audiobooks = new ArrayList<>();
+        Element pagination;
+        Document document;
+        boolean complete;
 
-                // Parse posts - try multiple selectors
-                Elements posts = doc.select("div.pt-cv-content-item");
+        StreamedList(HttpTransport.Response response) {
+            this.response = response;
+        }
 
-                if (posts.isEmpty()) {
-                    posts = doc.select("li.arpw-li.arpw-clearfix");
-                }
+        /**
+         * The pagination block if it was seen, otherwise the whole document
+         */
+        Element paginationRoot() {
+            return pagination != null ? pagination : document;
+        }
 
-                Log.i(TAG, "getRandomAudiobooks: " + posts.size());
+        /**
+         * Release the response. A page that stopped early on a cache miss is read to the end
+         * on a cache tail thread, so the cache copy is complete, after the fetch has given
+         * back its slot.
+         */
+        @Override
+        public void close() {
+            if (!complete && CachingTransport.CACHE_MISS.equals(
+                    response.header(CachingTransport.HEADER_CACHE_STATUS))) {
+                CACHE_TAILS.execute(this::finishCaching);
+                return;
+            }
+            parser.close();
+            response.close();
+        }
 
-                for (Element post : posts) {
-                    Audiobook audiobook = parseAudiobookFromPost(post, "random");
-                    if (audiobook != null && audiobook.getTitle() != null) {
-                        audiobooks.add(audiobook);
-                    }
+        private void finishCaching() {
+            try {
+                InputStream body = response.getBody();
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) != -1) {
+                    // discard; the cache copy is written as the bytes pass through
                 }
+            } catch (IOException e) {
+                // The result was already delivered; only the cache entry is lost
+                Log.w(TAG, "Could not finish caching " + response.getUrl(), e);
+            } finally {
+                parser.close();
+                response.close();
+            }
+        }
+    }
+
+    /**
+     * Fetch the first page of random audiobooks for home page
+     */
+    public Cancellable getRandomAudiobooks(Callback<Page<Audiobook>> callback) {
+        return getRandomAudiobooksPage(BASE_URL, callback);
+    }
+
+    /**
+     * URL of a home page by number. The post grid pages through the _page parameter.
+     */
+    public static String homePageUrl(int page) {
+        return page <= 1 ? BASE_URL : BASE_URL + "?_page=" + page;
+    }
+
+    /**
+     * The URL of another page of the same archive or search, in the HTML scheme
+     */
+    static String archivePageUrl(String url, int page) {
+        String base = stripQuery(url);
+        String query = url.length() > base.length() && url.charAt(base.length()) == '?'
+                ? stripFragment(url.substring(base.length())) : "";
+        base = SelectorRegistry.PAGE_PATH.matcher(base).replaceFirst("/");
+        if (!base.endsWith("/")) {
+            base += "/";
+        }
+        return (page <= 1 ? base : base + "page/" + page + "/") + query;
+    }
+
+    static String stripQuery(String url) {
+        String path = stripFragment(url);
+        int query = path.indexOf('?');
+        return query >= 0 ? path.substring(0, query) : path;
+    }
 
-                // If no posts found from archive, try alternate selectors
+    static String stripFragment(String url) {
+        int fragment = url.indexOf('#');
+        return fragment >= 0 ? url.substring(0, fragment) : url;
+    }
+
+    /**
+     * Fetch one page of random audiobooks, e.g. a cursor from a previous Page
+     */
+    public Cancellable getRandomAudiobooksPage(String url, Callback<Page<Audiobook>> callback) {
+        return getRandomAudiobooksPage(url, FetchPriority.VISIBLE, callback);
+    }
+
+    /**
+     * Fetch one page of random audiobooks in the given scheduler lane
+     */
+    public Cancellable getRandomAudiobooksPage(String url, FetchPriority priority, Callback<Page<Audiobook>> callback) {
+        String key = flightKey("home", url);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(url, priority, flight.getToken(), () -> {
+            try (StreamedList list = streamList(url, SelectorRegistry.HOME_POSTS, "random", flight)) {
+                List<Audiobook> audiobooks = list.audiobooks;
+
+                // Not the post grid; the whole page has been read, try the widgets
                 if (audiobooks.isEmpty()) {
-                    audiobooks = parseFromAlternateSelectors(doc);
+                    Document doc = list.document;
+                    for (Element post : doc.select(SelectorRegistry.RANDOM_WIDGET_POSTS)) {
+                        Audiobook audiobook = parseAudiobookFromPost(post, "random");
+                        if (audiobook != null && audiobook.getTitle() != null) {
+                            audiobooks.add(audiobook);
+                        }
+                    }
+                    if (audiobooks.isEmpty()) {
+                        audiobooks = parseFromAlternateSelectors(doc);
+                    }
                 }
 
-                List<Audiobook> finalAudiobooks = audiobooks;
-                mainHandler.post(() -> callback.onSuccess(finalAudiobooks));
-            } catch (IOException e) {
+                Log.i(TAG, "getRandomAudiobooks: " + audiobooks.size());
+                coalescer.complete(flight, parseRandomPagination(list.paginationRoot(), url, audiobooks));
+            } catch (IOException | RuntimeException e) {
                 Log.e(TAG, "Error fetching random audiobooks", e);
-                mainHandler.post(() -> callback.onError(e));
+                coalescer.fail(flight, e);
             }
         });
+        return handle;
     }
 
     /**
-     * Parse pagination info from random/home page
+     * Build the home Page from the pagination element of the post grid
      */
-    private void parseRandomPagination(Document doc) {
+    private Page<Audiobook> parseRandomPagination(Element root, String url, List<Audiobook> audiobooks) {
+        int pageNumber = pageNumberFromUrl(url);
+        int totalPages = pageNumber;
         try {
-            // Parse total pages from pagination element
-            Element paginationElement = doc.selectFirst(".pt-cv-pagination.pt-cv-ajax.pagination");
+            Element paginationElement = root.selectFirst(SelectorRegistry.HOME_PAGINATION_INFO);
             if (paginationElement != null) {
                 String totalPagesStr = paginationElement.attr("data-totalpages");
                 try {
@@ -132,205 +427,142 @@ public class WebDataSource {
                 }
 
                 Element currentPageElement =
-                        paginationElement.selectFirst("li.cv-pageitem-number.active a");
-
+                        paginationElement.selectFirst(SelectorRegistry.HOME_ACTIVE_PAGE);
                 if (currentPageElement != null) {
-                    currentPage = Integer.parseInt(currentPageElement.text());
+                    pageNumber = Integer.parseInt(currentPageElement.text().trim());
                 }
-
-                Log.i(TAG, "Current page: " + currentPage);
-
-                // Find next page URL
-                Element nextLink = paginationElement.selectFirst(".cv-pageitem-last a, .pt-cv-pageitem-last a");
-                if (nextLink != null) {
-                    Log.i(TAG, "next: "+nextLink);
-                    nextPageUrl = nextLink.attr("href");
-                } else {
-                    // Try next page link
-
-                    String nextPageUrl1 = BASE_URL+"?_page="+(currentPage+1);
-                    if(!nextPageUrl1.isEmpty()&&nextPageUrl1 != null){
-                        Log.i(TAG, "next: "+nextPageUrl);
-                        this.nextPageUrl = nextPageUrl1;
-
-                        nextPageUrl = nextPageUrl1;
-                    }
-                    else{
-                        this.nextPageUrl = nextPageUrl1;
-                        nextPageUrl = nextPageUrl1;
-                    }
-                    //this.
-
-
-                }
-
-                // Find previous page URL
-                Element prevLink = paginationElement.selectFirst(".cv-pageitem-first a, .pt-cv-pageitem-first a");
-                if (prevLink != null) {
-                    previousPageUrl = prevLink.attr("href");
-                } else {
-                    // For first page, previous URL should be same base
-                    if (currentPage == 1) {
-                        previousPageUrl = BASE_URL;
-                    }else{
-                        previousPageUrl = BASE_URL+"?_page="+(currentPage-1);
-                    }
-                }
-
-                Log.d(TAG, "Pagination: page " + currentPage + " of " + totalPages);
-                Log.d(TAG, "current page URL: " + nextPageUrl);
-                Log.d(TAG, "Next page URL: " + nextPageUrl);
-                Log.d(TAG, "Previous page URL: " + previousPageUrl);
             }
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             Log.e(TAG, "Error parsing pagination", e);
         }
-    }
-
-    /**
-     * Get current page number
-     */
-    public int getCurrentPage() {
-        return currentPage;
-    }
-
-    /**
-     * Get total pages
-     */
-    public int getTotalPages() {
-        return totalPages;
-    }
 
-    /**
-     * Check if next page exists
-     */
-    public boolean hasNextPage() {
-        return nextPageUrl != null && currentPage < totalPages;
+        String nextUrl = pageNumber < totalPages ? homePageUrl(pageNumber + 1) : null;
+        String previousUrl = pageNumber > 1 ? homePageUrl(pageNumber - 1) : null;
+        Log.d(TAG, "Pagination: page " + pageNumber + " of " + totalPages);
+        return new Page<>(audiobooks, url, nextUrl, previousUrl, pageNumber, totalPages);
     }
 
     /**
-     * Check if previous page exists
+     * Page number encoded in a list URL, either as ?_page=N or as /page/N/
      */
-    public boolean hasPreviousPage() {
-        return currentPage > 1;
+    static int pageNumberFromUrl(String url) {
+        Matcher matcher = SelectorRegistry.PAGE_NUMBER.matcher(url != null ? url : "");
+        if (matcher.find()) {
+            String number = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            try {
+                return Math.max(1, Integer.parseInt(number));
+            } catch (NumberFormatException e) {
+                return 1;
+            }
+        }
+        return 1;
     }
 
     /**
-     * Get URL for next page
+     * URL of the newer posts page on a WordPress archive, or null on the first page
      */
-    public String getNextPageUrl() {
-        return nextPageUrl;
+    private String parseArchivePreviousUrl(Element root, int pageNumber) {
+        if (pageNumber <= 1) {
+            return null;
+        }
+        Element newerPosts = root.selectFirst(SelectorRegistry.ARCHIVE_NEWER_LINK);
+        return newerPosts != null ? newerPosts.attr("href") : null;
     }
 
     /**
-     * Get URL for previous page
+     * Number of pages of a WordPress archive: the highest page link of the same archive,
+     * which the numbered pagination always shows. UNKNOWN_TOTAL if there is a next page but
+     * no numbered links.
      */
-    public String getPreviousPageUrl() {
-        if (previousPageUrl != null) {
-            return previousPageUrl;
+    private int parseArchiveTotalPages(Element root, String url, int pageNumber, String nextUrl) {
+        String firstPage = archivePageUrl(url, 1);
+        int query = firstPage.indexOf('?');
+        if (query >= 0) {
+            firstPage = firstPage.substring(0, query);
         }
-        // Construct previous page URL if not found
-        if (currentPage > 1) {
-            if (currentPage == 2) {
-                return BASE_URL;
+        int totalPages = pageNumber;
+        for (Element link : root.select(SelectorRegistry.PAGE_LINKS)) {
+            String href = link.attr("href");
+            Matcher matcher = SelectorRegistry.PAGE_PATH.matcher(href);
+            if (href.startsWith(firstPage) && matcher.find()) {
+                try {
+                    totalPages = Math.max(totalPages, Integer.parseInt(matcher.group(1)));
+                } catch (NumberFormatException e) {
+                    // not a page link after all
+                }
             }
-            return BASE_URL + "page/" + (currentPage - 1) + "/";
         }
-        return null;
+        return nextUrl != null && totalPages <= pageNumber ? Page.UNKNOWN_TOTAL : totalPages;
     }
+
     /**
      * Fetch audiobooks by category with pagination
      */
-    public void getAudiobooksByCategory(String categoryUrl, Callback<List<Audiobook>> callback) {
-        getAudiobooksByCategoryPage(categoryUrl, null, callback);
+    public Cancellable getAudiobooksByCategory(String categoryUrl, Callback<Page<Audiobook>> callback) {
+        return getAudiobooksByCategoryPage(categoryUrl, null, callback);
     }
 
     /**
      * Fetch audiobooks by category with specific page URL
      */
-    public void getAudiobooksByCategoryPage(String categoryUrl, String pageUrl, Callback<List<Audiobook>> callback) {
-        executor.execute(() -> {
-            try {
-                List<Audiobook> audiobooks = new ArrayList<>();
-                String url = pageUrl != null ? pageUrl : categoryUrl;
+    public Cancellable getAudiobooksByCategoryPage(String categoryUrl, String pageUrl, Callback<Page<Audiobook>> callback) {
+        return getAudiobooksByCategoryPage(categoryUrl, pageUrl, FetchPriority.VISIBLE, callback);
+    }
 
-                Document doc = Jsoup.connect(url)
-                        .timeout(TIMEOUT)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
+    /**
+     * Fetch audiobooks by category with specific page URL in the given scheduler lane
+     */
+    public Cancellable getAudiobooksByCategoryPage(String categoryUrl, String pageUrl, FetchPriority priority,
+                                                   Callback<Page<Audiobook>> callback) {
+        String url = pageUrl != null ? pageUrl : categoryUrl;
+        String key = flightKey("category", url);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(url, priority, flight.getToken(), () -> {
+            try (StreamedList list = streamList(url, SelectorRegistry.CATEGORY_POSTS, "category", flight)) {
+                List<Audiobook> audiobooks = list.audiobooks;
+                Log.i(TAG, "getAudiobooksByCategory: " + audiobooks.size());
 
                 // Parse pagination info
-                String nextPageUrl = parseCategoryPagination(doc);
-
-                // Updated selectors based on the HTML structure
-                Elements posts = doc.select("article[id^=post-]");
-                if (posts.isEmpty()) {
-                    posts = doc.select("li.ilovewp-post");
-                }
-                if (posts.isEmpty()) {
-                    posts = doc.select("article.post");
-                }
-                Log.i(TAG, "getAudiobooksByCategory: "+ posts.size());
-                for (Element post : posts) {
-                    Audiobook audiobook = parseAudiobookFromPost(post, "category");
-                    if (audiobook != null && audiobook.getTitle() != null) {
-                        audiobooks.add(audiobook);
-                    }
-                }
-
-                // Store the next page URL for this category
-                if (nextPageUrl != null) {
-                    this.nextPageUrl = nextPageUrl;
-                }
-
-                mainHandler.post(() -> callback.onSuccess(audiobooks));
-            } catch (IOException e) {
+                Element pagination = list.paginationRoot();
+                int pageNumber = pageNumberFromUrl(url);
+                coalescer.complete(flight, new Page<>(audiobooks, url, parseCategoryPagination(pagination),
+                        parseArchivePreviousUrl(pagination, pageNumber), pageNumber, Page.UNKNOWN_TOTAL));
+            } catch (IOException | RuntimeException e) {
                 Log.e(TAG, "Error fetching category audiobooks", e);
-                mainHandler.post(() -> callback.onError(e));
+                coalescer.fail(flight, e);
             }
         });
+        return handle;
     }
 
     /**
      * Parse pagination info from category page
      * Returns the URL for the next page (Older Posts)
      */
-    private String parseCategoryPagination(Document doc) {
+    private String parseCategoryPagination(Element doc) {
         try {
-            // Look for nav-previous link (Older Posts)
-            Element navPrevious = doc.selectFirst(".nav-previous a, .nav-previous");
-            if (navPrevious != null) {
-                Element link = navPrevious.selectFirst("a[href]");
-                if (link != null) {
-                    String href = link.attr("href");
-                    Log.d(TAG, "Found next page URL: " + href);
-                    return href;
-                }
-            }
-
-            // Also check for nav-links with older posts
-            Element olderPosts = doc.selectFirst(".nav-links a[rel=prev], .nav-links .nav-previous a");
+            // Older Posts link, in whichever archive layout matched last
+            Element olderPosts = SelectorRegistry.ARCHIVE_NEXT.selectFirst(doc);
             if (olderPosts != null) {
                 String href = olderPosts.attr("href");
-                Log.d(TAG, "Found older posts URL: " + href);
+                Log.d(TAG, "Found next page URL: " + href);
                 return href;
             }
 
             // Try to find any pagination link that contains "page" in URL
-            Elements pageLinks = doc.select("a[href*='/page/']");
-            for (Element link : pageLinks) {
+            for (Element link : doc.select(SelectorRegistry.PAGE_LINKS)) {
                 String href = link.attr("href");
-                if (href.contains("/page/") ) {
-                    // Extract page number
-                    java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("/page/(\\d+)/");
-                    java.util.regex.Matcher matcher = pattern.matcher(href);
-                    if (matcher.find()) {
-                        int pageNum = Integer.parseInt(matcher.group(1));
-                        // Return the first page link found (assuming ascending order)
-                        if (pageNum > 1) {
-                            Log.d(TAG, "Found page link: " + href);
-                            return href;
-                        }
+                Matcher matcher = SelectorRegistry.PAGE_PATH.matcher(href);
+                if (matcher.find()) {
+                    int pageNum = Integer.parseInt(matcher.group(1));
+                    // Return the first page link found (assuming ascending order)
+                    if (pageNum > 1) {
+                        Log.d(TAG, "Found page link: " + href);
+                        return href;
                     }
                 }
             }
@@ -340,13 +572,6 @@ public class WebDataSource {
         return null;
     }
 
-    /**
-     * Get the next page URL for categories
-     */
-    public String getCategoryNextPageUrl() {
-        return nextPageUrl;
-    }
-
     /**
      * Parse audiobook from post element based on audiobookcard.txt structure
      */
@@ -355,53 +580,51 @@ public class WebDataSource {
     /**
      * Fetch all audiobooks by an author
      */
-    public void getAuthorAllResultsAudiobooks(String authorUrl, Callback<List<Audiobook>> callback) {
-        executor.execute(() -> {
-            try {
-                List<Audiobook> audiobooks = new ArrayList<>();
-
-                Document doc = Jsoup.connect(authorUrl)
-                        .timeout(TIMEOUT)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
-
-                // Parse posts from author page - use the structure from author pages
-                Elements posts = doc.select("li.ilovewp-post");
-                if (posts.isEmpty()) {
-                    posts = doc.select("article[id^=post-]");
-                }
-                if (posts.isEmpty()) {
-                    posts = doc.select("article.post");
-                }
-
-                Log.i(TAG, "getAuthorAllResultsAudiobooks: Found " + posts.size() + " posts for author URL: " + authorUrl);
-
-                for (Element post : posts) {
-                    Audiobook audiobook = parseAudiobookFromPost(post, "author");
-                    if (audiobook != null && audiobook.getTitle() != null && !audiobook.getTitle().isEmpty()) {
-                        audiobooks.add(audiobook);
-                    }
-                }
+    public Cancellable getAuthorAllResultsAudiobooks(String authorUrl, Callback<Page<Audiobook>> callback) {
+        return getAuthorAllResultsAudiobooks(authorUrl, FetchPriority.VISIBLE, callback);
+    }
 
-                List<Audiobook> finalAudiobooks = audiobooks;
-                mainHandler.post(() -> callback.onSuccess(finalAudiobooks));
-            } catch (IOException e) {
+    /**
+     * Fetch all audiobooks by an author in the given scheduler lane
+     */
+    public Cancellable getAuthorAllResultsAudiobooks(String authorUrl, FetchPriority priority,
+                                                     Callback<Page<Audiobook>> callback) {
+        String key = flightKey("author", authorUrl);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(authorUrl, priority, flight.getToken(), () -> {
+            try (StreamedList list = streamList(authorUrl, SelectorRegistry.AUTHOR_POSTS, "author", flight)) {
+                List<Audiobook> audiobooks = list.audiobooks;
+
+                Log.i(TAG, "getAuthorAllResultsAudiobooks: Found " + audiobooks.size() + " posts for author URL: " + authorUrl);
+
+                Element pagination = list.paginationRoot();
+                int pageNumber = pageNumberFromUrl(authorUrl);
+                String nextUrl = parseCategoryPagination(pagination);
+                coalescer.complete(flight, new Page<>(audiobooks, authorUrl, nextUrl,
+                        parseArchivePreviousUrl(pagination, pageNumber), pageNumber,
+                        parseArchiveTotalPages(pagination, authorUrl, pageNumber, nextUrl)));
+            } catch (IOException | RuntimeException e) {
                 Log.e(TAG, "Error fetching author audiobooks: " + authorUrl, e);
-                mainHandler.post(() -> callback.onError(e));
+                coalescer.fail(flight, e);
             }
         });
+        return handle;
     }
 
     /**
      * Parse audiobook from author page posts
      * Based on the author page HTML structure
      */
-    private void parseAuthorBooksPost(Element post, Audiobook audiobook) {
+    private void parseAuthorBooksPost(DomExtractor.Card card, Audiobook audiobook) {
         try {
             // Parse title from h2.title-post a (same as category structure)
-            Element titleElement = post.selectFirst("h2.title-post a");
+            Element titleElement = card.titlePostLink;
             if (titleElement == null) {
-                titleElement = post.selectFirst(".entry-title a, .post-title a, h2 a");
+                titleElement = card.headingLink;
             }
 
             if (titleElement != null) {
@@ -417,7 +640,7 @@ public class WebDataSource {
             }
 
             // Parse image from .post-cover img or img attachment
-            Element imgElement = post.selectFirst("img");
+            Element imgElement = card.image;
             if (imgElement != null) {
                 String imageUrl = imgElement.attr("data-src");
                 if (imageUrl.isEmpty()) {
@@ -428,19 +651,18 @@ public class WebDataSource {
             }
 
             // Parse categories from .post-meta-category a
-            Elements categoryElements = post.select(".post-meta-category a[rel=category tag]");
-            if (!categoryElements.isEmpty()) {
-                for (Element cat : categoryElements) {
-                    audiobook.addCategory(cat.text());
+            if (!card.categories.isEmpty()) {
+                for (String cat : card.categories) {
+                    audiobook.addCategory(cat);
                 }
             } else {
                 audiobook.addCategory("Author Result");
             }
 
             // Parse date from time.entry-date
-            Element dateElement = post.selectFirst("time.entry-date");
+            Element dateElement = card.entryTime;
             if (dateElement == null) {
-                dateElement = post.selectFirst(".posted-on time, .entry-date");
+                dateElement = card.postedDate;
             }
 
             if (dateElement != null) {
@@ -470,26 +692,32 @@ public class WebDataSource {
     private Audiobook parseAudiobookFromPost(Element post, String location) {
         try {
             Audiobook audiobook = new Audiobook();
+            // One walk over the card collects what every layout below may need
+            DomExtractor.Card card = DomExtractor.scanCard(post);
+            Matcher postId = SelectorRegistry.ARTICLE_POST_ID.matcher(post.id());
+            if (postId.find()) {
+                audiobook.setId(postId.group(1));
+            }
 
             switch (location) {
                 case "category":
-                    parseCategoryPost(post, audiobook);
+                    parseCategoryPost(card, audiobook);
                     break;
                 case "home":
-                    parseHomePost(post, audiobook);
+                    parseHomePost(card, audiobook);
                     break;
                 case "random":
-                    parseRandomPost(post, audiobook);
+                    parseRandomPost(card, audiobook);
                     break;
                 case "search":
-                    parseSearchPost(post, audiobook);
+                    parseSearchPost(card, audiobook);
                     break;
                 case "author":
-                    parseAuthorBooksPost(post, audiobook);
+                    parseAuthorBooksPost(card, audiobook);
                     break;
                 default:
                     // Default parsing logic
-                    parseCategoryPost(post, audiobook);
+                    parseCategoryPost(card, audiobook);
                     break;
             }
 
@@ -508,13 +736,13 @@ public class WebDataSource {
         }
     }
 
-    private void parseHomePost(Element post, Audiobook audiobook) {
+    private void parseHomePost(DomExtractor.Card card, Audiobook audiobook) {
     }
 
-    private void parseRandomPost(Element post, Audiobook audiobook) {
+    private void parseRandomPost(DomExtractor.Card card, Audiobook audiobook) {
         // Parse title from .pt-cv-title a
         String imageurlhd="";
-        Element titleElement = post.selectFirst(".pt-cv-title a");
+        Element titleElement = card.viewTitleLink;
         if (titleElement != null) {
             String title = titleElement.text().trim().replace("Audiobook", "");
             String url = titleElement.attr("href");
@@ -524,10 +752,10 @@ public class WebDataSource {
         }
 
         // Parse image from .pt-cv-thumbnail or a.pt-cv-href-thumbnail img
-        Element imgElement = post.selectFirst("img.pt-cv-thumbnail");
+        Element imgElement = card.viewThumbnail;
         Log.i(TAG, "parseRandomPost: "+imgElement);
         if (imgElement == null) {
-            imgElement = post.selectFirst("a.pt-cv-href-thumbnail img");
+            imgElement = card.viewLinkedImage;
             if (!imageurlhd.isEmpty()) {
                 audiobook.setImageUrl(imageurlhd);
             }
@@ -561,11 +789,11 @@ public class WebDataSource {
 
 
 
-    private void parseCategoryPost(Element post, Audiobook audiobook) {
+    private void parseCategoryPost(DomExtractor.Card card, Audiobook audiobook) {
         try {
             String imageurlhd="";
             // Parse title from h2.title-post a
-            Element titleElement = post.selectFirst("h2.title-post a");
+            Element titleElement = card.titlePostLink;
             if (titleElement != null) {
                 String title = titleElement.text().trim().replace("Audiobook", "").trim();
                 String url = titleElement.attr("href");
@@ -575,7 +803,7 @@ public class WebDataSource {
             }
 
             // Parse image from .post-cover img
-            Element imgElement = post.selectFirst("img");
+            Element imgElement = card.image;
             Log.i(TAG, "parseAudiobookFromPost imgElement: "+imgElement);
             if (imgElement != null ) {
                 if (!imageurlhd.isEmpty()) {
@@ -593,17 +821,16 @@ public class WebDataSource {
             }
 
             // Parse categories from .post-meta-category a
-            Elements categoryElements = post.select(".post-meta-category a[rel=category tag]");
-            if (!categoryElements.isEmpty()) {
-                for (Element cat : categoryElements) {
-                    audiobook.addCategory(cat.text());
+            if (!card.categories.isEmpty()) {
+                for (String cat : card.categories) {
+                    audiobook.addCategory(cat);
                 }
             } else {
                 audiobook.addCategory("Uncategorized");
             }
 
             // Parse date from time.entry-date
-            Element dateElement = post.selectFirst("time.entry-date");
+            Element dateElement = card.entryTime;
             if (dateElement != null) {
                 String date = dateElement.text().trim();
                 audiobook.setPublishedDate(date);
@@ -623,24 +850,40 @@ public class WebDataSource {
     }
 
     public static String removeDimensions(String url) {
-        return url.replaceAll("-(\\d+)x(\\d+)(?=\\.[^.]+$)", "");
+        return SelectorRegistry.IMAGE_DIMENSIONS.matcher(url).replaceAll("");
     }
 
     /**
      * Fetch audiobook details from detail page
      */
-    public void getAudiobookDetails(String url, Callback<Audiobook> callback) {
-        executor.execute(() -> {
+    public Cancellable getAudiobookDetails(String url, Callback<Audiobook> callback) {
+        return getAudiobookDetails(url, FetchPriority.INTERACTIVE, callback);
+    }
+
+    /**
+     * Fetch audiobook details in the given scheduler lane, e.g. SPECULATIVE for a prefetch.
+     * A later INTERACTIVE request for the same page promotes the queued fetch.
+     */
+    public Cancellable getAudiobookDetails(String url, FetchPriority priority, Callback<Audiobook> callback) {
+        String key = flightKey("details", url);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(url, priority, flight.getToken(), () -> {
             try {
-                Document doc = Jsoup.connect(url)
-                        .timeout(TIMEOUT)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
+                Document doc = fetchDocument(url, flight.getToken());
 
                 Audiobook audiobook = new Audiobook();
+                DomExtractor.Detail page = DomExtractor.scanDetail(doc);
+                Matcher postId = SelectorRegistry.BODY_POST_ID.matcher(doc.body().className());
+                if (postId.find()) {
+                    audiobook.setId(postId.group(1));
+                }
 
                 // Parse title
-                Element titleElement = doc.selectFirst("h1.title-page, h1.entry-title, .post-single h1");
+                Element titleElement = page.title;
                 if (titleElement != null) {
                     //Chris Wooding – The Ember Blade Audiobook
                     Log.i(TAG, "getAudiobookDetails: "+titleElement.text().trim());
@@ -652,16 +895,15 @@ public class WebDataSource {
                     audiobook.setAuthor(author.trim());
                 }
 
-                // Parse image
                 // Parse image - get highest resolution from srcset
-                Element imgElement = doc.selectFirst(".post-single img, .entry-content img, .post-cover img");
+                Element imgElement = page.image;
                 if (imgElement != null) {
                     String imageUrl = getHighestResolutionImage(imgElement);
                     audiobook.setImageUrl(imageUrl);
                 }
 
                 // Parse description/content
-                Element contentElement = doc.selectFirst(".post-single .collapseomatic_content, .entry-content, .post-content");
+                Element contentElement = page.content;
                 if (contentElement != null) {
                     // Get text content, limiting length
                     String text = contentElement.text();
@@ -672,25 +914,17 @@ public class WebDataSource {
                 }
 
                 // Parse audio URLs from audio elements
-                Elements audioElements = doc.select("audio source[src]");
                 List<String> audioUrls = new ArrayList<>();
                 List<String> trackNames = new ArrayList<>();
-
-                for (int i = 0; i < audioElements.size(); i++) {
-                    Element audioSrc = audioElements.get(i);
-                    String src = audioSrc.attr("src");
-                    if (!src.isEmpty()) {
-                        audioUrls.add(src);
-                        trackNames.add("Track " + (i + 1));
-                    }
+                for (String src : page.sourceUrls) {
+                    audioUrls.add(src);
+                    trackNames.add("Track " + audioUrls.size());
                 }
 
                 // Also check for direct audio src attributes
                 if (audioUrls.isEmpty()) {
-                    Elements directAudio = doc.select("audio[src]");
-                    for (Element audio : directAudio) {
-                        String src = audio.attr("src");
-                        if (!src.isEmpty() && !audioUrls.contains(src)) {
+                    for (String src : page.audioUrls) {
+                        if (!audioUrls.contains(src)) {
                             audioUrls.add(src);
                             trackNames.add("Track " + audioUrls.size());
                         }
@@ -699,9 +933,7 @@ public class WebDataSource {
 
                 // Look for iframe embedded players
                 if (audioUrls.isEmpty()) {
-                    Elements iframes = doc.select("iframe[src*='audio'], iframe[src*='player']");
-                    for (Element iframe : iframes) {
-                        String src = iframe.attr("src");
+                    for (String src : page.playerIframes) {
                         Log.d(TAG, "Found iframe: " + src);
                         // Extract audio URL from iframe if possible
                     }
@@ -711,21 +943,13 @@ public class WebDataSource {
                 audiobook.setTrackNames(trackNames);
 
                 // Parse categories from meta
-                Elements categoryElements = doc.select(".post-meta-category a[rel=category tag]");
-                for (Element cat : categoryElements) {
-                    audiobook.addCategory(cat.text());
+                for (String category : page.categories) {
+                    audiobook.addCategory(category);
                 }
 
-                // Parse author
-//                Element authorElement = doc.selectFirst(".post-meta a[rel=author], .author-name");
-//                if (authorElement != null) {
-//                    audiobook.setAuthor(authorElement.text().trim());
-//                }
-
                 // Parse author URL from tags
-                Elements authorUrlElements = doc.select(".tags-links a");
-                if (!authorUrlElements.isEmpty()) {
-                    Element lastAuthorElement = authorUrlElements.last();
+                Element lastAuthorElement = page.lastTagLink;
+                if (lastAuthorElement != null) {
                     String authorUrl = lastAuthorElement.attr("href");
                     String authorName = lastAuthorElement.text().trim();
                     Log.i(TAG, "authorUrlElement: " + authorName);
@@ -734,19 +958,20 @@ public class WebDataSource {
                 }
 
                 // Parse date
-                Element dateElement = doc.selectFirst(".entry-date, time[datetime]");
+                Element dateElement = page.date;
                 if (dateElement != null) {
                     audiobook.setPublishedDate(dateElement.text().trim());
                 }
 
                 audiobook.setUrl(url);
 
-                mainHandler.post(() -> callback.onSuccess(audiobook));
-            } catch (IOException e) {
+                coalescer.complete(flight, audiobook);
+            } catch (IOException | RuntimeException e) {
                 Log.e(TAG, "Error fetching audiobook details", e);
-                mainHandler.post(() -> callback.onError(e));
+                coalescer.fail(flight, e);
             }
         });
+        return handle;
     }
 
 
@@ -761,7 +986,7 @@ public class WebDataSource {
 
             for (String source : sources) {
                 source = source.trim();
-                String[] parts = source.split("\\s+"); // Split by whitespace
+                String[] parts = SelectorRegistry.WHITESPACE.split(source);
 
                 if (parts.length >= 2) {
                     String url = parts[0];
@@ -797,31 +1022,38 @@ public class WebDataSource {
     /**
      * Fetch all categories from the website
      */
-    public void getCategories(Callback<List<Category>> callback) {
-        executor.execute(() -> {
+    public Cancellable getCategories(Callback<List<Category>> callback) {
+        return getCategories(FetchPriority.VISIBLE, callback);
+    }
+
+    /**
+     * Fetch all categories in the given scheduler lane
+     */
+    public Cancellable getCategories(FetchPriority priority, Callback<List<Category>> callback) {
+        String key = flightKey("categories", CATEGORIES_URL);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(CATEGORIES_URL, priority, flight.getToken(), () -> {
             try {
                 List<Category> categories = new ArrayList<>();
 
-                Document doc = Jsoup.connect("https://goldenaudiobook.net/wp-content/uploads/2018/08/611")
-                        .timeout(TIMEOUT)
-                        .ignoreHttpErrors(true)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
+                Document doc = fetchDocument(CATEGORIES_URL, true, flight.getToken());
 
                 //Log.i(TAG, "getCategories: "+ doc.html());
 
-                Elements categoryItems = doc.select(
-                        "div.widget.widget_categories:not(#categories-2) ul > li.cat-item"
-                );
+                Elements categoryItems = doc.select(SelectorRegistry.CATEGORY_WIDGET_ITEMS);
 
                 if (categoryItems.isEmpty()) {
-                    Element firstWidget = doc.selectFirst("div.widget.widget_categories");
-                    categoryItems = firstWidget.select("ul > li.cat-item");
+                    Element firstWidget = doc.selectFirst(SelectorRegistry.CATEGORY_WIDGET);
+                    categoryItems = firstWidget.select(SelectorRegistry.WIDGET_ITEMS);
 
                 }
 
                 for (Element item : categoryItems) {
-                    Element link = item.selectFirst("a");
+                    Element link = item.selectFirst(SelectorRegistry.LINK);
                     if (link != null) {
                         String name = link.text();
                         String url = link.attr("href");
@@ -854,140 +1086,135 @@ public class WebDataSource {
                     categories = getDefaultCategories();
                 }
 
-                List<Category> finalCategories = categories;
-                mainHandler.post(() -> callback.onSuccess(finalCategories));
-            } catch (IOException e) {
+                coalescer.complete(flight, categories);
+            } catch (IOException | RuntimeException e) {
                 Log.e(TAG, "Error fetching categories", e);
-                mainHandler.post(() -> callback.onError(e));
+                coalescer.fail(flight, e);
             }
         });
+        return handle;
     }
 
     /**
      * Fetch navigation items from nav.txt structure
      */
-    public void getNavigationItems(Callback<List<NavItem>> callback) {
-        executor.execute(() -> {
-            List<NavItem> navItems = new ArrayList<>();
-
-            // Based on nav.txt structure
-            NavItem home = new NavItem("Home", BASE_URL, false);
-            home.setIcon("home");
-            navItems.add(home);
-
-            NavItem bestsellers = new NavItem("Bestsellers", BASE_URL + "category/bestsellers/", true);
-            bestsellers.setCategory(true);
-            navItems.add(bestsellers);
-
-            NavItem action = new NavItem("Action", BASE_URL + "category/action/", true);
-            action.setCategory(true);
-            navItems.add(action);
-
-            NavItem fantasy = new NavItem("Fantasy", BASE_URL + "category/audio-fantasy/", true);
-            fantasy.setCategory(true);
-            navItems.add(fantasy);
-
-            // Create parent item for Harry Potter
-            NavItem harryPotter = new NavItem("Harry Potter", BASE_URL + "?s=harry+potter", false);
-            NavItem jimDale = new NavItem("Jim Dale", BASE_URL + "?s=harry+potter+jim+dale", false);
-            NavItem stephenFry = new NavItem("Stephen Fry", BASE_URL + "?s=harry+potter+stephen+fry", false);
-            harryPotter.addSubItem(jimDale);
-            harryPotter.addSubItem(stephenFry);
-            navItems.add(harryPotter);
-
-            // Create parent item for Fifty Shades
-            NavItem fiftyShades = new NavItem("Fifty Shades", BASE_URL + "?s=shades+", false);
-            NavItem grey = new NavItem("Grey", BASE_URL + "grey-e-l-james/", false);
-            NavItem darker = new NavItem("Darker", BASE_URL + "e-l-james-darker-audiobook/", false);
-            NavItem freed = new NavItem("Freed", BASE_URL + "freed-fifty-shades-freed-as-told-by-christian-audiobook/", false);
-            fiftyShades.addSubItem(grey);
-            fiftyShades.addSubItem(darker);
-            fiftyShades.addSubItem(freed);
-            navItems.add(fiftyShades);
-
-            NavItem romance = new NavItem("Romance", BASE_URL + "category/audiobooks-romance/", true);
-            romance.setCategory(true);
-            navItems.add(romance);
-
-            NavItem mystery = new NavItem("Mystery", BASE_URL + "category/mystery/", true);
-            mystery.setCategory(true);
-            navItems.add(mystery);
-
-            NavItem thriller = new NavItem("Thriller", BASE_URL + "category/thriller/", true);
-            thriller.setCategory(true);
-            navItems.add(thriller);
-
-            mainHandler.post(() -> callback.onSuccess(navItems));
-        });
+    public Cancellable getNavigationItems(Callback<List<NavItem>> callback) {
+        CancellationToken handle = new CancellationToken();
+        List<NavItem> navItems = new ArrayList<>();
+
+        // Based on nav.txt structure
+        NavItem home = new NavItem("Home", BASE_URL, false);
+        home.setIcon("home");
+        navItems.add(home);
+
+        NavItem bestsellers = new NavItem("Bestsellers", BASE_URL + "category/bestsellers/", true);
+        bestsellers.setCategory(true);
+        navItems.add(bestsellers);
+
+        NavItem action = new NavItem("Action", BASE_URL + "category/action/", true);
+        action.setCategory(true);
+        navItems.add(action);
+
+        NavItem fantasy = new NavItem("Fantasy", BASE_URL + "category/audio-fantasy/", true);
+        fantasy.setCategory(true);
+        navItems.add(fantasy);
+
+        // Create parent item for Harry Potter
+        NavItem harryPotter = new NavItem("Harry Potter", BASE_URL + "?s=harry+potter", false);
+        NavItem jimDale = new NavItem("Jim Dale", BASE_URL + "?s=harry+potter+jim+dale", false);
+        NavItem stephenFry = new NavItem("Stephen Fry", BASE_URL + "?s=harry+potter+stephen+fry", false);
+        harryPotter.addSubItem(jimDale);
+        harryPotter.addSubItem(stephenFry);
+        navItems.add(harryPotter);
+
+        // Create parent item for Fifty Shades
+        NavItem fiftyShades = new NavItem("Fifty Shades", BASE_URL + "?s=shades+", false);
+        NavItem grey = new NavItem("Grey", BASE_URL + "grey-e-l-james/", false);
+        NavItem darker = new NavItem("Darker", BASE_URL + "e-l-james-darker-audiobook/", false);
+        NavItem freed = new NavItem("Freed", BASE_URL + "freed-fifty-shades-freed-as-told-by-christian-audiobook/", false);
+        fiftyShades.addSubItem(grey);
+        fiftyShades.addSubItem(darker);
+        fiftyShades.addSubItem(freed);
+        navItems.add(fiftyShades);
+
+        NavItem romance = new NavItem("Romance", BASE_URL + "category/audiobooks-romance/", true);
+        romance.setCategory(true);
+        navItems.add(romance);
+
+        NavItem mystery = new NavItem("Mystery", BASE_URL + "category/mystery/", true);
+        mystery.setCategory(true);
+        navItems.add(mystery);
+
+        NavItem thriller = new NavItem("Thriller", BASE_URL + "category/thriller/", true);
+        thriller.setCategory(true);
+        navItems.add(thriller);
+
+        // Nothing to download, so the list skips the fetch scheduler and takes no slot
+        deliver(handle, () -> callback.onSuccess(navItems));
+        return handle;
+    }
+
+    /**
+     * URL of the first results page for a search query, with spaces replaced by +
+     */
+    public static String searchUrl(String searchQuery) {
+        return BASE_URL + "?s=" + searchQuery.replace(" ", "+");
     }
 
     /**
      * Search for audiobooks by query
      * URL format: https://goldenaudiobook.net/?s=search+term
      */
-    public void getSearchResultsAudiobooks(String searchQuery, Callback<List<Audiobook>> callback) {
-        executor.execute(() -> {
-            try {
-                List<Audiobook> audiobooks = new ArrayList<>();
-
-                // Construct search URL - replace spaces with +
-                String encodedQuery = searchQuery.replace(" ", "+");
-                String searchUrl = BASE_URL + "?s=" + encodedQuery;
-
-                Log.d(TAG, "Searching for: " + searchQuery + " at URL: " + searchUrl);
-
-                Document doc = Jsoup.connect(searchUrl)
-                        .timeout(TIMEOUT)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
-
-                // Parse posts from search results - use the structure from search results
-                Elements posts = doc.select("li.ilovewp-post");
-                if (posts.isEmpty()) {
-                    posts = doc.select("article[id^=post-]");
-                }
-                if (posts.isEmpty()) {
-                    posts = doc.select("article.post");
-                }
-                if (posts.isEmpty()) {
-                    posts = doc.select(".search-result, .result-item");
-                }
+    public Cancellable getSearchResultsAudiobooks(String searchQuery, Callback<Page<Audiobook>> callback) {
+        return getSearchResultsAudiobooks(searchQuery, FetchPriority.INTERACTIVE, callback);
+    }
 
-                Log.d(TAG, "Search found " + posts.size() + " posts for query: " + searchQuery);
+    /**
+     * Search for audiobooks by query in the given scheduler lane
+     */
+    public Cancellable getSearchResultsAudiobooks(String searchQuery, FetchPriority priority,
+                                                  Callback<Page<Audiobook>> callback) {
+        String searchUrl = searchUrl(searchQuery);
+        String key = flightKey("search", searchUrl);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(searchUrl, priority, flight.getToken(), () -> {
+            Log.d(TAG, "Searching for: " + searchQuery + " at URL: " + searchUrl);
 
-                for (Element post : posts) {
-                    Audiobook audiobook = parseAudiobookFromPost(post, "search");
-                    if (audiobook != null && audiobook.getTitle() != null && !audiobook.getTitle().isEmpty()) {
-                        audiobooks.add(audiobook);
-                    }
-                }
+            try (StreamedList list = streamList(searchUrl, SelectorRegistry.SEARCH_POSTS, "search", flight)) {
+                List<Audiobook> audiobooks = list.audiobooks;
 
                 // If no results found, try alternate selectors
                 if (audiobooks.isEmpty()) {
                     Log.d(TAG, "No results found with primary selector, trying alternatives");
-                    audiobooks = parseFromAlternateSelectors(doc);
+                    audiobooks = parseFromAlternateSelectors(list.document);
                 }
 
-                List<Audiobook> finalAudiobooks = audiobooks;
-                mainHandler.post(() -> callback.onSuccess(finalAudiobooks));
-            } catch (IOException e) {
+                Log.d(TAG, "Search found " + audiobooks.size() + " posts for query: " + searchQuery);
+                coalescer.complete(flight, new Page<>(audiobooks, searchUrl, parseNextPageUrl(list.paginationRoot()),
+                        null, 1, Page.UNKNOWN_TOTAL));
+            } catch (IOException | RuntimeException e) {
                 Log.e(TAG, "Error searching for audiobooks: " + searchQuery, e);
-                mainHandler.post(() -> callback.onError(e));
+                coalescer.fail(flight, e);
             }
         });
+        return handle;
     }
 
     /**
      * Parse audiobook from search results
      * Based on the search results HTML structure
      */
-    private void parseSearchPost(Element post, Audiobook audiobook) {
+    private void parseSearchPost(DomExtractor.Card card, Audiobook audiobook) {
         try {
             // Parse title from h2.title-post a (same as category structure)
-            Element titleElement = post.selectFirst("h2.title-post a");
+            Element titleElement = card.titlePostLink;
             if (titleElement == null) {
                 // Try alternate selectors for search results
-                titleElement = post.selectFirst(".entry-title a, .post-title a, h2 a");
+                titleElement = card.headingLink;
             }
 
             if (titleElement != null) {
@@ -999,7 +1226,7 @@ public class WebDataSource {
             }
 
             // Parse image from .post-cover img or img attachment
-            Element imgElement = post.selectFirst("img");
+            Element imgElement = card.image;
             if (imgElement != null) {
                 String imageUrl = imgElement.attr("data-src");
                 if (imageUrl.isEmpty()) {
@@ -1016,19 +1243,18 @@ public class WebDataSource {
             }
 
             // Parse categories from .post-meta-category a
-            Elements categoryElements = post.select(".post-meta-category a[rel=category tag]");
-            if (!categoryElements.isEmpty()) {
-                for (Element cat : categoryElements) {
-                    audiobook.addCategory(cat.text());
+            if (!card.categories.isEmpty()) {
+                for (String cat : card.categories) {
+                    audiobook.addCategory(cat);
                 }
             } else {
                 audiobook.addCategory("Search Result");
             }
 
             // Parse date from time.entry-date
-            Element dateElement = post.selectFirst("time.entry-date");
+            Element dateElement = card.entryTime;
             if (dateElement == null) {
-                dateElement = post.selectFirst(".posted-on time, .entry-date");
+                dateElement = card.postedDate;
             }
 
             if (dateElement != null) {
@@ -1057,7 +1283,7 @@ public class WebDataSource {
         List<Audiobook> audiobooks = new ArrayList<>();
 
         // Try different selectors
-        Elements posts = doc.select(".arpw-random-post li, .random-post li, .widget li");
+        Elements posts = doc.select(SelectorRegistry.ALTERNATE_POSTS);
         for (Element post : posts) {
             Audiobook audiobook = parseAudiobookFromPost(post,"random");
             if (audiobook != null && audiobook.getTitle() != null) {
@@ -1110,100 +1336,48 @@ public class WebDataSource {
     /**
      * Search for audiobooks by URL (for pagination)
      */
-    public void getSearchResultsFromUrl(String url, Callback<List<Audiobook>> callback) {
-        executor.execute(() -> {
-            try {
-                List<Audiobook> audiobooks = new ArrayList<>();
-
-                Log.d(TAG, "Fetching search results from URL: " + url);
-
-                Document doc = Jsoup.connect(url)
-                        .timeout(TIMEOUT)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
-
-                // Parse posts from search results - use the structure from search results
-                Elements posts = doc.select("li.ilovewp-post");
-                if (posts.isEmpty()) {
-                    posts = doc.select("article[id^=post-]");
-                }
-                if (posts.isEmpty()) {
-                    posts = doc.select("article.post");
-                }
-                if (posts.isEmpty()) {
-                    posts = doc.select(".search-result, .result-item");
-                }
-
-                Log.d(TAG, "Pagination found " + posts.size() + " posts");
-
-                for (Element post : posts) {
-                    Audiobook audiobook = parseAudiobookFromPost(post, "search");
-                    if (audiobook != null && audiobook.getTitle() != null && !audiobook.getTitle().isEmpty()) {
-                        audiobooks.add(audiobook);
-                    }
-                }
-
-                List<Audiobook> finalAudiobooks = audiobooks;
-                mainHandler.post(() -> callback.onSuccess(finalAudiobooks));
-            } catch (IOException e) {
-                Log.e(TAG, "Error fetching search results from URL: " + url, e);
-                mainHandler.post(() -> callback.onError(e));
-            }
-        });
+    public Cancellable getSearchResultsFromUrl(String url, Callback<Page<Audiobook>> callback) {
+        return getSearchResultsFromUrl(url, FetchPriority.VISIBLE, callback);
     }
 
     /**
-     * Parse the next page URL from pagination
-     * Looks for .nav-previous a[href] element which contains "Older Posts" link
+     * Search for audiobooks by URL in the given scheduler lane
      */
-    public void getNextPageUrl(String searchQuery, int currentPage, Callback<String> callback) {
-        executor.execute(() -> {
-            try {
-                // Construct search URL
-                String encodedQuery = searchQuery.replace(" ", "+");
-                String searchUrl;
-
-                if (currentPage == 1) {
-                    searchUrl = BASE_URL + "?s=" + encodedQuery;
-                } else {
-                    searchUrl = BASE_URL + "page/" + currentPage + "/?s=" + encodedQuery;
-                }
-
-                Log.d(TAG, "Checking next page from URL: " + searchUrl);
-
-                Document doc = Jsoup.connect(searchUrl)
-                        .timeout(TIMEOUT)
-                        .userAgent("Mozilla/5.0 (Linux; Android 10; SM-G975F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.101 Mobile Safari/537.36")
-                        .get();
+    public Cancellable getSearchResultsFromUrl(String url, FetchPriority priority, Callback<Page<Audiobook>> callback) {
+        String key = flightKey("search-page", url);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(url, priority, flight.getToken(), () -> {
+            Log.d(TAG, "Fetching search results from URL: " + url);
 
-                // Parse next page URL from .nav-previous a[href]
-                String nextPageUrl = parseNextPageUrl(doc);
+            try (StreamedList list = streamList(url, SelectorRegistry.SEARCH_POSTS, "search", flight)) {
+                List<Audiobook> audiobooks = list.audiobooks;
 
-                Log.d(TAG, "Next page URL: " + nextPageUrl);
+                Log.d(TAG, "Pagination found " + audiobooks.size() + " posts");
 
-                String finalNextPageUrl = nextPageUrl;
-                mainHandler.post(() -> callback.onSuccess(finalNextPageUrl));
-            } catch (IOException e) {
-                Log.e(TAG, "Error getting next page URL for query: " + searchQuery, e);
-                mainHandler.post(() -> callback.onError(e));
+                Element pagination = list.paginationRoot();
+                int pageNumber = pageNumberFromUrl(url);
+                coalescer.complete(flight, new Page<>(audiobooks, url, parseNextPageUrl(pagination),
+                        parseArchivePreviousUrl(pagination, pageNumber), pageNumber, Page.UNKNOWN_TOTAL));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error fetching search results from URL: " + url, e);
+                coalescer.fail(flight, e);
             }
         });
+        return handle;
     }
 
     /**
      * Parse the next page URL from pagination element
      * HTML structure: <div class="nav-previous"><a href="https://goldenaudiobook.net/page/2/?s=Lee+child&amp;id=28332">...
      */
-    private String parseNextPageUrl(Document doc) {
+    private String parseNextPageUrl(Element doc) {
         try {
-            // Try multiple selectors for pagination links
-            Element nextPageLink = doc.selectFirst(".nav-previous a");
-            if (nextPageLink == null) {
-                nextPageLink = doc.selectFirst(".nav-next a");
-            }
-            if (nextPageLink == null) {
-                nextPageLink = doc.selectFirst("a.page-numbers[href]");
-            }
+            // .nav-next is "Newer Posts", which would page backwards, so it is not a candidate
+            Element nextPageLink = SelectorRegistry.SEARCH_NEXT.selectFirst(doc);
 
             if (nextPageLink != null) {
                 String href = nextPageLink.attr("href");
@@ -1219,9 +1393,10 @@ public class WebDataSource {
     }
 
     /**
-     * Shutdown the executor
+     * Release this data source. The fetch threads belong to the shared
+     * FetchScheduler and stay alive for the other screens; callers cancel
+     * their own requests through the returned handles.
      */
     public void shutdown() {
-        executor.shutdown();
     }
 }
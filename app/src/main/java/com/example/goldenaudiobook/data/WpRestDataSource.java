@@ -0,0 +1,645 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Category;
+import com.example.goldenaudiobook.model.Page;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.jsoup.HttpStatusException;
+import org.jsoup.parser.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebDataSource that reads post lists and categories from the WordPress REST API
+ * (/wp-json/wp/v2/) instead of scraping the themed HTML. Responses are limited to the fields
+ * the cards use and paged by the server, so a list page is a few KB of JSON instead of a
+ * full page of markup.
+ * <p>
+ * Pages keep the HTML URL scheme (category/x/page/2/, page/2/?s=...), so caches, next-page
+ * links and the HTML fallback are interchangeable with WebDataSource. An endpoint that
+ * answers like a disabled API (401/403/404, or something other than JSON) is switched to
+ * HTML scraping for RETRY_AFTER_MS; the other endpoints keep using the API. The random home
+ * grid and the detail pages have no REST equivalent and are always scraped.
+ * <p>
+ * REST page N holds the posts of HTML page N only if per_page matches the site's
+ * posts_per_page setting, which the API does not report. So a paging session (an archive or
+ * search, keyed by its first page) stays with the source that served its first page: a
+ * session started from HTML keeps scraping, and one started from the API fails instead of
+ * continuing from HTML.
+ */
+public class WpRestDataSource extends WebDataSource {
+    private static final String TAG = "WpRestDataSource";
+
+    public static final String DEFAULT_API_ROOT = "https://goldenaudiobook.net/wp-json/wp/v2/";
+
+    // WordPress default posts_per_page; only pages of the same source are mixed in a session
+    private static final int PER_PAGE = 10;
+    private static final int MAX_SESSIONS = 64;
+    private static final int TERMS_PER_PAGE = 100;
+    private static final long RETRY_AFTER_MS = 30 * 60 * 1000L;
+
+    private static final String POST_FIELDS = "id,link,title,date,categories,_links,_embedded";
+    private static final String TERM_FIELDS = "id,name,link,count";
+
+    // Endpoints that can be disabled independently
+    private static final String POSTS = "posts";
+    private static final String CATEGORIES = "categories";
+    private static final String TAGS = "tags";
+
+    private final String apiRoot;
+    // Shared with the cache-only copy
+    private final Map<String, Long> disabledUntil;
+    private final Map<String, Integer> termIds;
+    private final Map<Integer, String> categoryNames;
+    // Paging session (canonical first-page URL) to whether the API served it
+    private final Map<String, Boolean> sessionSources;
+
+    public WpRestDataSource() {
+        this(defaultTransport(), DEFAULT_API_ROOT);
+    }
+
+    /**
+     * @param apiRoot base of the wp/v2 routes, ending with a slash, e.g. a local test server
+     */
+    public WpRestDataSource(HttpTransport transport, String apiRoot) {
+        this(transport, apiRoot, false, new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                new ConcurrentHashMap<>(), newSessionMap());
+    }
+
+    private WpRestDataSource(HttpTransport transport, String apiRoot, boolean cacheOnly,
+                             Map<String, Long> disabledUntil, Map<String, Integer> termIds,
+                             Map<Integer, String> categoryNames, Map<String, Boolean> sessionSources) {
+        super(transport, cacheOnly);
+        this.apiRoot = apiRoot;
+        this.disabledUntil = disabledUntil;
+        this.termIds = termIds;
+        this.categoryNames = categoryNames;
+        this.sessionSources = sessionSources;
+    }
+
+    /**
+     * Sources of the most recently used paging sessions
+     */
+    private static Map<String, Boolean> newSessionMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_SESSIONS;
+            }
+        });
+    }
+
+    /**
+     * Cache-only copy that reads cached API responses. Endpoints switched to HTML read cached
+     * HTML instead; a missing API response is not looked up again as HTML.
+     */
+    @Override
+    public WpRestDataSource cacheOnly() {
+        return new WpRestDataSource(transport, apiRoot, true, disabledUntil, termIds, categoryNames,
+                sessionSources);
+    }
+
+    /**
+     * Load of one endpoint from the API, on a fetch thread
+     */
+    private interface RestCall<T> {
+        T load(CancellationToken token) throws IOException, JSONException;
+    }
+
+    /**
+     * The same operation scraped from HTML, delivering into the given flight
+     */
+    private interface HtmlCall {
+        Cancellable load(RequestCoalescer.Flight flight);
+    }
+
+    /**
+     * The API answered like it is switched off or filtered, rather than failing on the way
+     */
+    private static final class RestUnavailableException extends IOException {
+        RestUnavailableException(String message) {
+            super(message);
+        }
+
+        RestUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Run an API load as a single flight. If the endpoint turns out to be disabled or the term
+     * is unknown, the same flight is served from HTML. Cache-only reads fail instead, so a
+     * read from local storage is one lookup.
+     */
+    private <T> Cancellable fetchRest(String endpoint, String operation, String url, FetchPriority priority,
+                                      WebDataSource.Callback<T> callback, RestCall<T> call, HtmlCall html) {
+        String key = RequestCoalescer.keyFor(cacheOnly ? "cached-rest-" + operation : "rest-" + operation, url);
+        CancellationToken handle = new CancellationToken();
+        RequestCoalescer.Flight flight = coalescer.join(key, priority, handle, callback);
+        if (flight == null) {
+            return handle;
+        }
+        execute(url, priority, flight.getToken(), () -> {
+            try {
+                T result = call.load(flight.getToken());
+                if (POSTS.equals(endpoint)) {
+                    pinSession(url, true);
+                }
+                coalescer.complete(flight, result);
+            } catch (RestUnavailableException e) {
+                disable(endpoint, e);
+                fallBack(endpoint, url, flight, html, e);
+            } catch (FileNotFoundException e) {
+                // Not cached, or a term the API does not know: only this request goes to HTML
+                fallBack(endpoint, url, flight, html, e);
+            } catch (JSONException e) {
+                disable(endpoint, e);
+                fallBack(endpoint, url, flight, html, e);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error loading " + operation + " from the API: " + url, e);
+                coalescer.fail(flight, e);
+            }
+        });
+        return handle;
+    }
+
+    private void fallBack(String endpoint, String url, RequestCoalescer.Flight flight, HtmlCall html, Exception e) {
+        if (flight.getToken().isCancelled()) {
+            return;
+        }
+        if (cacheOnly) {
+            coalescer.fail(flight, e);
+            return;
+        }
+        if (POSTS.equals(endpoint)) {
+            if (pageNumberFromUrl(url) > 1 && Boolean.TRUE.equals(sessionSources.get(sessionKey(url)))) {
+                // HTML page N may not hold the posts that follow API page N - 1
+                Log.w(TAG, "API paging session cannot continue from HTML: " + url);
+                coalescer.fail(flight, e);
+                return;
+            }
+            pinSession(url, false);
+        }
+        Cancellable scrape = html.load(flight);
+        flight.getToken().onCancel(scrape::cancel);
+    }
+
+    private void disable(String endpoint, Exception e) {
+        if (cacheOnly) {
+            return;
+        }
+        disabledUntil.put(endpoint, SystemClock.elapsedRealtime() + RETRY_AFTER_MS);
+        Log.w(TAG, "REST " + endpoint + " unavailable, scraping HTML instead: " + e.getMessage());
+    }
+
+    private boolean isAvailable(String endpoint) {
+        Long until = disabledUntil.get(endpoint);
+        if (until == null) {
+            return true;
+        }
+        if (SystemClock.elapsedRealtime() >= until) {
+            disabledUntil.remove(endpoint);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether a page of posts goes to the API: later pages of a session stay with the source
+     * of its first page, anything else uses the API while the endpoints are up
+     */
+    private boolean usesRest(String url, String... endpoints) {
+        if (pageNumberFromUrl(url) > 1) {
+            Boolean pinned = sessionSources.get(sessionKey(url));
+            if (pinned != null) {
+                return pinned;
+            }
+        }
+        for (String endpoint : endpoints) {
+            if (!isAvailable(endpoint)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the source of a page of posts; later pages never change their session's source
+     */
+    private void pinSession(String url, boolean rest) {
+        if (pageNumberFromUrl(url) <= 1 || !sessionSources.containsKey(sessionKey(url))) {
+            sessionSources.put(sessionKey(url), rest);
+        }
+    }
+
+    private static String sessionKey(String url) {
+        return UrlCanonicalizer.canonicalize(archivePageUrl(url, 1));
+    }
+
+    /**
+     * Callback that completes a flight with an HTML result, forwarding streamed cards
+     */
+    private WebDataSource.StreamCallback<Audiobook> pageInto(RequestCoalescer.Flight flight) {
+        return new WebDataSource.StreamCallback<Audiobook>() {
+            @Override
+            public void onItem(Audiobook item) {
+                coalescer.emit(flight, item);
+            }
+
+            @Override
+            public void onSuccess(Page<Audiobook> result) {
+                coalescer.complete(flight, result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                coalescer.fail(flight, e);
+            }
+        };
+    }
+
+    private <T> WebDataSource.Callback<T> into(RequestCoalescer.Flight flight) {
+        return new WebDataSource.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                coalescer.complete(flight, result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                coalescer.fail(flight, e);
+            }
+        };
+    }
+
+    @Override
+    public Cancellable getAudiobooksByCategoryPage(String categoryUrl, String pageUrl, FetchPriority priority,
+                                                   Callback<Page<Audiobook>> callback) {
+        String url = pageUrl != null ? pageUrl : categoryUrl;
+        String slug = archiveSlug(url, "/category/");
+        if (slug == null) {
+            return super.getAudiobooksByCategoryPage(categoryUrl, pageUrl, priority, callback);
+        }
+        if (!usesRest(url, POSTS, CATEGORIES)) {
+            pinSession(url, false);
+            return super.getAudiobooksByCategoryPage(categoryUrl, pageUrl, priority, callback);
+        }
+        return fetchRest(POSTS, "category", url, priority, callback,
+                token -> loadPosts(url, "categories=" + termId(CATEGORIES, slug, token), token),
+                flight -> super.getAudiobooksByCategoryPage(categoryUrl, pageUrl, priority, pageInto(flight)));
+    }
+
+    /**
+     * Books of an author. Author links are tag archives; other URLs are scraped.
+     */
+    @Override
+    public Cancellable getAuthorAllResultsAudiobooks(String authorUrl, FetchPriority priority,
+                                                     Callback<Page<Audiobook>> callback) {
+        String slug = archiveSlug(authorUrl, "/tag/");
+        if (slug == null) {
+            return super.getAuthorAllResultsAudiobooks(authorUrl, priority, callback);
+        }
+        if (!usesRest(authorUrl, POSTS, TAGS)) {
+            pinSession(authorUrl, false);
+            return super.getAuthorAllResultsAudiobooks(authorUrl, priority, callback);
+        }
+        return fetchRest(POSTS, "author", authorUrl, priority, callback,
+                token -> loadPosts(authorUrl, "tags=" + termId(TAGS, slug, token), token),
+                flight -> super.getAuthorAllResultsAudiobooks(authorUrl, priority, pageInto(flight)));
+    }
+
+    @Override
+    public Cancellable getSearchResultsAudiobooks(String searchQuery, FetchPriority priority,
+                                                  Callback<Page<Audiobook>> callback) {
+        String url = searchUrl(searchQuery);
+        if (!usesRest(url, POSTS)) {
+            pinSession(url, false);
+            return super.getSearchResultsAudiobooks(searchQuery, priority, callback);
+        }
+        return fetchRest(POSTS, "search", url, priority, callback,
+                token -> loadPosts(url, "search=" + encode(searchQuery.trim()), token),
+                flight -> super.getSearchResultsAudiobooks(searchQuery, priority, pageInto(flight)));
+    }
+
+    @Override
+    public Cancellable getSearchResultsFromUrl(String url, FetchPriority priority, Callback<Page<Audiobook>> callback) {
+        String query = queryParameter(url, "s");
+        if (query == null) {
+            return super.getSearchResultsFromUrl(url, priority, callback);
+        }
+        if (!usesRest(url, POSTS)) {
+            pinSession(url, false);
+            return super.getSearchResultsFromUrl(url, priority, callback);
+        }
+        return fetchRest(POSTS, "search-page", url, priority, callback,
+                token -> loadPosts(url, "search=" + encode(query.trim()), token),
+                flight -> super.getSearchResultsFromUrl(url, priority, pageInto(flight)));
+    }
+
+    @Override
+    public Cancellable getCategories(FetchPriority priority, Callback<List<Category>> callback) {
+        if (!isAvailable(CATEGORIES)) {
+            return super.getCategories(priority, callback);
+        }
+        String url = apiRoot + CATEGORIES;
+        return fetchRest(CATEGORIES, "categories", url, priority, callback,
+                this::loadCategories,
+                flight -> super.getCategories(priority, into(flight)));
+    }
+
+    /**
+     * One page of posts for an archive or search URL in the HTML scheme.
+     * The page number comes from the URL, the total from X-WP-TotalPages.
+     */
+    private Page<Audiobook> loadPosts(String url, String filter, CancellationToken token)
+            throws IOException, JSONException {
+        if (categoryNames.isEmpty() && isAvailable(CATEGORIES)) {
+            try {
+                loadCategories(token);
+            } catch (IOException | JSONException e) {
+                // Cards then go without category names
+                Log.w(TAG, "Could not load category names", e);
+            }
+        }
+        int pageNumber = pageNumberFromUrl(url);
+        JsonResponse response = fetchJson(apiRoot + POSTS + "?" + filter + "&page=" + pageNumber
+                + "&per_page=" + PER_PAGE + "&_embed=wp:featuredmedia&_fields=" + POST_FIELDS, token);
+        JSONArray posts = response.array();
+        List<Audiobook> audiobooks = new ArrayList<>(posts.length());
+        for (int i = 0; i < posts.length(); i++) {
+            Audiobook audiobook = parsePost(posts.getJSONObject(i));
+            if (audiobook != null) {
+                audiobooks.add(audiobook);
+            }
+        }
+        int totalPages = response.totalPages;
+        String nextUrl = totalPages != Page.UNKNOWN_TOTAL && pageNumber < totalPages
+                ? archivePageUrl(url, pageNumber + 1) : null;
+        String previousUrl = pageNumber > 1 ? archivePageUrl(url, pageNumber - 1) : null;
+        Log.d(TAG, "Loaded " + audiobooks.size() + " posts, page " + pageNumber + "/" + totalPages + " for " + url);
+        return new Page<>(audiobooks, url, nextUrl, previousUrl, pageNumber, totalPages);
+    }
+
+    /**
+     * A post as a list card, the same fields the HTML cards give
+     */
+    private Audiobook parsePost(JSONObject post) {
+        String link = post.optString("link");
+        String rendered = post.optJSONObject("title") != null
+                ? post.optJSONObject("title").optString("rendered") : "";
+        if (link.isEmpty() || rendered.isEmpty()) {
+            return null;
+        }
+        Audiobook audiobook = new Audiobook();
+        audiobook.setId(String.valueOf(post.optLong("id")));
+        audiobook.setUrl(link);
+        String title = Parser.unescapeEntities(rendered, false).replace("Audiobook", "").trim();
+        audiobook.setTitle(title);
+        if (title.contains("–")) {
+            String[] parts = title.split("–");
+            if (parts.length > 1) {
+                audiobook.setAuthor(parts[0].trim());
+            }
+        }
+        audiobook.setImageUrl(featuredImage(post));
+        audiobook.setPublishedDate(formatDate(post.optString("date")));
+
+        JSONArray categories = post.optJSONArray("categories");
+        if (categories != null) {
+            for (int i = 0; i < categories.length(); i++) {
+                String name = categoryNames.get(categories.optInt(i));
+                if (name != null) {
+                    audiobook.addCategory(name);
+                }
+            }
+        }
+        if (audiobook.getCategories().isEmpty()) {
+            audiobook.addCategory("Uncategorized");
+        }
+        return audiobook;
+    }
+
+    private static String featuredImage(JSONObject post) {
+        JSONObject embedded = post.optJSONObject("_embedded");
+        JSONArray media = embedded != null ? embedded.optJSONArray("wp:featuredmedia") : null;
+        JSONObject first = media != null ? media.optJSONObject(0) : null;
+        return first != null ? first.optString("source_url", null) : null;
+    }
+
+    /**
+     * REST dates are local ISO times; cards show them the way the theme prints them
+     */
+    private static String formatDate(String isoDate) {
+        if (isoDate == null || isoDate.isEmpty()) {
+            return null;
+        }
+        try {
+            SimpleDateFormat in = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+            SimpleDateFormat out = new SimpleDateFormat("MMMM d, yyyy", Locale.US);
+            return out.format(in.parse(isoDate));
+        } catch (ParseException e) {
+            return isoDate;
+        }
+    }
+
+    /**
+     * All categories with their post counts. Also fills the id and name lookups the
+     * post lists use.
+     */
+    private List<Category> loadCategories(CancellationToken token) throws IOException, JSONException {
+        List<Category> categories = new ArrayList<>();
+        int page = 1;
+        int totalPages = 1;
+        while (page <= totalPages) {
+            JsonResponse response = fetchJson(apiRoot + CATEGORIES + "?hide_empty=true&orderby=name&page=" + page
+                    + "&per_page=" + TERMS_PER_PAGE + "&_fields=" + TERM_FIELDS, token);
+            JSONArray terms = response.array();
+            for (int i = 0; i < terms.length(); i++) {
+                JSONObject term = terms.getJSONObject(i);
+                String name = Parser.unescapeEntities(term.optString("name"), false);
+                String link = term.optString("link");
+                if (name.isEmpty() || link.isEmpty()) {
+                    continue;
+                }
+                Category category = new Category(name, link);
+                category.setId(String.valueOf(term.optInt("id")));
+                category.setItemCount(term.optInt("count"));
+                categories.add(category);
+                categoryNames.put(term.optInt("id"), name);
+                String slug = archiveSlug(link, "/category/");
+                if (slug != null) {
+                    termIds.put(CATEGORIES + ":" + slug, term.optInt("id"));
+                }
+            }
+            totalPages = Math.max(1, response.totalPages);
+            page++;
+        }
+        Log.d(TAG, "Loaded " + categories.size() + " categories");
+        return categories;
+    }
+
+    /**
+     * Id of a category or tag by slug, looked up once
+     */
+    private int termId(String taxonomy, String slug, CancellationToken token) throws IOException, JSONException {
+        String key = taxonomy + ":" + slug;
+        Integer id = termIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        JSONArray terms = fetchJson(apiRoot + taxonomy + "?slug=" + encode(slug) + "&_fields=id", token).array();
+        if (terms.length() == 0) {
+            // Unknown to the API, e.g. a renamed term that the HTML still redirects
+            throw new FileNotFoundException("No " + taxonomy + " term " + slug);
+        }
+        id = terms.getJSONObject(0).getInt("id");
+        termIds.put(key, id);
+        return id;
+    }
+
+    /**
+     * Parsed JSON body with the X-WP-TotalPages header
+     */
+    private static final class JsonResponse {
+        final Object json;
+        final int totalPages;
+
+        JsonResponse(Object json, int totalPages) {
+            this.json = json;
+            this.totalPages = totalPages;
+        }
+
+        JSONArray array() throws RestUnavailableException {
+            if (!(json instanceof JSONArray)) {
+                throw new RestUnavailableException("Expected a JSON array");
+            }
+            return (JSONArray) json;
+        }
+    }
+
+    private JsonResponse fetchJson(String url, CancellationToken token) throws IOException {
+        token.throwIfCancelled();
+        HttpTransport.Request request = newRequest(url, token).header("Accept", "application/json");
+        try (HttpTransport.Response response = transport.get(request)) {
+            checkCacheOnly(response, url);
+            int code = response.getCode();
+            if (code == 401 || code == 403 || code == 404 || code == 501) {
+                throw new RestUnavailableException("HTTP " + code + " from " + url);
+            }
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException("HTTP error fetching URL", code, url);
+            }
+            String body = readBody(response);
+            Object json;
+            try {
+                json = new JSONTokener(body).nextValue();
+            } catch (JSONException e) {
+                throw new RestUnavailableException("Not JSON: " + url, e);
+            }
+            if (!(json instanceof JSONArray) && !(json instanceof JSONObject)) {
+                throw new RestUnavailableException("Not JSON: " + url);
+            }
+            return new JsonResponse(json, parseTotalPages(response.header("X-WP-TotalPages")));
+        }
+    }
+
+    private static String readBody(HttpTransport.Response response) throws IOException {
+        Charset charset = StandardCharsets.UTF_8;
+        if (response.getCharset() != null && Charset.isSupported(response.getCharset())) {
+            charset = Charset.forName(response.getCharset());
+        }
+        InputStream in = response.getBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), charset);
+    }
+
+    private static int parseTotalPages(String header) {
+        if (header == null) {
+            return Page.UNKNOWN_TOTAL;
+        }
+        try {
+            return Integer.parseInt(header.trim());
+        } catch (NumberFormatException e) {
+            return Page.UNKNOWN_TOTAL;
+        }
+    }
+
+    /**
+     * Last path segment of an archive URL under the given base, ignoring /page/N/,
+     * or null if the URL is not such an archive
+     */
+    static String archiveSlug(String url, String base) {
+        if (url == null) {
+            return null;
+        }
+        String path = stripQuery(url);
+        int start = path.indexOf(base);
+        if (start < 0) {
+            return null;
+        }
+        path = SelectorRegistry.PAGE_PATH.matcher(path.substring(start + base.length()) + "/").replaceFirst("/");
+        String[] segments = path.split("/");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (!segments[i].isEmpty()) {
+                return segments[i];
+            }
+        }
+        return null;
+    }
+
+    static String queryParameter(String url, String name) {
+        String query = stripFragment(url);
+        int start = query.indexOf('?');
+        if (start < 0) {
+            return null;
+        }
+        for (String pair : query.substring(start + 1).split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                try {
+                    return URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+                } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+                    return pair.substring(equals + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return value;
+        }
+    }
+}
@@ -33,6 +33,23 @@ public class Audiobook implements Serializable {
         this.imageUrl = imageUrl;
     }
 
+    /**
+     * Copy of another audiobook, with lists of its own
+     */
+    public Audiobook(Audiobook other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.url = other.url;
+        this.imageUrl = other.imageUrl;
+        this.author = other.author;
+        this.authorUrl = other.authorUrl;
+        this.description = other.description;
+        this.publishedDate = other.publishedDate;
+        this.categories = other.categories != null ? new ArrayList<>(other.categories) : new ArrayList<>();
+        this.audioUrls = other.audioUrls != null ? new ArrayList<>(other.audioUrls) : new ArrayList<>();
+        this.trackNames = other.trackNames != null ? new ArrayList<>(other.trackNames) : new ArrayList<>();
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
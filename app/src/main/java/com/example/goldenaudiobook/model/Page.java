@@ -0,0 +1,88 @@
+package com.example.goldenaudiobook.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a paginated list, with its own cursors to the neighbouring pages.
+ * Pages are immutable, so several of them can be fetched, cached and shared at the same time.
+ */
+public final class Page<T> {
+    /** Total page count when the site does not report it */
+    public static final int UNKNOWN_TOTAL = 0;
+
+    private final List<T> items;
+    private final String url;
+    private final String nextUrl;
+    private final String previousUrl;
+    private final int pageNumber;
+    private final int totalPages;
+
+    /**
+     * @param url the URL this page was loaded from
+     * @param nextUrl URL of the following page, or null if this is the last one
+     * @param previousUrl URL of the preceding page, or null if this is the first one
+     * @param pageNumber 1-based page number
+     * @param totalPages number of pages, or UNKNOWN_TOTAL
+     */
+    public Page(List<T> items, String url, String nextUrl, String previousUrl, int pageNumber, int totalPages) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.url = url;
+        this.nextUrl = nextUrl;
+        this.previousUrl = previousUrl;
+        this.pageNumber = pageNumber;
+        this.totalPages = totalPages;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getNextUrl() {
+        return nextUrl;
+    }
+
+    public String getPreviousUrl() {
+        return previousUrl;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public boolean hasNext() {
+        return nextUrl != null && !nextUrl.isEmpty();
+    }
+
+    public boolean hasPrevious() {
+        return previousUrl != null && !previousUrl.isEmpty();
+    }
+
+    /**
+     * Same cursors with different items, e.g. after filtering
+     */
+    public <R> Page<R> withItems(List<R> newItems) {
+        return new Page<>(newItems, url, nextUrl, previousUrl, pageNumber, totalPages);
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "url='" + url + '\'' +
+                ", pageNumber=" + pageNumber +
+                ", totalPages=" + totalPages +
+                ", items=" + items.size() +
+                ", nextUrl='" + nextUrl + '\'' +
+                ", previousUrl='" + previousUrl + '\'' +
+                '}';
+    }
+}
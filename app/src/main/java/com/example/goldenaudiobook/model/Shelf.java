@@ -0,0 +1,62 @@
+package com.example.goldenaudiobook.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shelf model class: one horizontal row of the home screen with the newest books of a category
+ */
+public class Shelf {
+    public enum State {
+        LOADING, LOADED, FAILED
+    }
+
+    private final String title;
+    private final String url;
+    private final List<Audiobook> items;
+    private final State state;
+
+    public Shelf(String title, String url) {
+        this(title, url, new ArrayList<>(), State.LOADING);
+    }
+
+    private Shelf(String title, String url, List<Audiobook> items, State state) {
+        this.title = title;
+        this.url = url;
+        this.items = items;
+        this.state = state;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * URL of the category the shelf shows
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public List<Audiobook> getItems() {
+        return items;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * The same shelf, loaded with these books
+     */
+    public Shelf withItems(List<Audiobook> newItems) {
+        return new Shelf(title, url, newItems, State.LOADED);
+    }
+
+    /**
+     * The same shelf, given up on
+     */
+    public Shelf failed() {
+        return new Shelf(title, url, items, State.FAILED);
+    }
+}
@@ -11,6 +11,7 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.goldenaudiobook.R;
@@ -77,6 +78,23 @@ public class CategoryAudiobooksFragment extends Fragment implements AudiobookAda
         GridLayoutManager layoutManager = new GridLayoutManager(requireContext(), 2);
         binding.recyclerView.setLayoutManager(layoutManager);
         binding.recyclerView.setAdapter(adapter);
+
+        // Next pages load as the end comes near
+        binding.recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                reportViewport();
+            }
+        });
+    }
+
+    private void reportViewport() {
+        if (binding == null) {
+            return;
+        }
+        GridLayoutManager layoutManager = (GridLayoutManager) binding.recyclerView.getLayoutManager();
+        viewModel.onScrolled(layoutManager.findFirstVisibleItemPosition(),
+                layoutManager.findLastVisibleItemPosition());
     }
 
     private void setupSwipeRefresh() {
@@ -95,7 +113,12 @@ public class CategoryAudiobooksFragment extends Fragment implements AudiobookAda
     private void observeViewModel() {
         viewModel.getAudiobooks().observe(getViewLifecycleOwner(), audiobooks -> {
             if (audiobooks != null && !audiobooks.isEmpty()) {
-                adapter.submitList(audiobooks);
+                // A short page may not fill the screen, so there is no scroll to report
+                adapter.submitList(audiobooks, () -> {
+                    if (binding != null) {
+                        binding.recyclerView.post(this::reportViewport);
+                    }
+                });
                 binding.recyclerView.setVisibility(View.VISIBLE);
                 binding.emptyView.setVisibility(View.GONE);
             } else {
@@ -113,6 +136,9 @@ public class CategoryAudiobooksFragment extends Fragment implements AudiobookAda
             }
         });
 
+        viewModel.getCoversToPrefetch().observe(getViewLifecycleOwner(), covers ->
+                AudiobookAdapter.preloadCovers(requireContext(), covers));
+
         viewModel.getError().observe(getViewLifecycleOwner(), error -> {
             if (error != null && !error.isEmpty()) {
                 Toast.makeText(requireContext(), error, Toast.LENGTH_LONG).show();
@@ -5,6 +5,7 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.NumberPicker;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -13,22 +14,33 @@ import androidx.annotation.OptIn;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.media3.common.util.UnstableApi;
+import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
+import com.example.goldenaudiobook.R;
 import com.example.goldenaudiobook.adapter.AudiobookAdapter;
+import com.example.goldenaudiobook.adapter.ShelfAdapter;
 import com.example.goldenaudiobook.databinding.FragmentHomeBinding;
 import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Shelf;
 import com.example.goldenaudiobook.viewmodel.HomeViewModel;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 /**
- * Home Fragment displaying random audiobooks
+ * Home Fragment displaying a shelf per category above the random audiobooks
  */
-public class HomeFragment extends Fragment implements AudiobookAdapter.OnAudiobookClickListener {
+public class HomeFragment extends Fragment implements AudiobookAdapter.OnAudiobookClickListener,
+        ShelfAdapter.OnShelfClickListener {
+
+    // Width of a card on a shelf
+    private static final int SHELF_CARD_WIDTH_DP = 140;
 
     private FragmentHomeBinding binding;
     private HomeViewModel viewModel;
     private AudiobookAdapter adapter;
+    private ShelfAdapter shelfAdapter;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -48,16 +60,25 @@ public class HomeFragment extends Fragment implements AudiobookAdapter.OnAudiobo
         observeViewModel();
 
         // Load data
+        viewModel.loadShelves();
         viewModel.loadRandomAudiobooks();
     }
 
     private void setupRecyclerView() {
         adapter = new AudiobookAdapter(this);
+        int cardWidth = Math.round(SHELF_CARD_WIDTH_DP * getResources().getDisplayMetrics().density);
+        shelfAdapter = new ShelfAdapter(this, this, cardWidth);
 
-        // Use GridLayoutManager with 2 columns for phones
+        // Use GridLayoutManager with 2 columns for phones; shelves take the full width
         GridLayoutManager layoutManager = new GridLayoutManager(requireContext(), 2);
+        layoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return position < shelfAdapter.getItemCount() ? 2 : 1;
+            }
+        });
         binding.recyclerView.setLayoutManager(layoutManager);
-        binding.recyclerView.setAdapter(adapter);
+        binding.recyclerView.setAdapter(new ConcatAdapter(shelfAdapter, adapter));
     }
 
     private void setupSwipeRefresh() {
@@ -76,6 +97,27 @@ public class HomeFragment extends Fragment implements AudiobookAdapter.OnAudiobo
         binding.nextButton.setOnClickListener(v -> {
             viewModel.loadNextPage();
         });
+
+        // Page indicator click jumps to a page
+        binding.pageIndicator.setOnClickListener(v -> showJumpToPageDialog());
+    }
+
+    private void showJumpToPageDialog() {
+        Integer current = viewModel.getCurrentPage().getValue();
+        Integer total = viewModel.getTotalPages().getValue();
+        if (current == null || total == null || total <= 1) {
+            return;
+        }
+        NumberPicker picker = new NumberPicker(requireContext());
+        picker.setMinValue(1);
+        picker.setMaxValue(total);
+        picker.setValue(current);
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("Go to page")
+                .setView(picker)
+                .setPositiveButton("Go", (dialog, which) -> viewModel.jumpToPage(picker.getValue()))
+                .setNegativeButton("Cancel", null)
+                .show();
     }
 
     private void observeViewModel() {
@@ -84,7 +126,7 @@ public class HomeFragment extends Fragment implements AudiobookAdapter.OnAudiobo
                 adapter.submitList(audiobooks);
                 binding.recyclerView.setVisibility(View.VISIBLE);
                 binding.emptyView.setVisibility(View.GONE);
-            } else {
+            } else if (shelfAdapter.getItemCount() == 0) {
                 binding.recyclerView.setVisibility(View.GONE);
                 binding.emptyView.setVisibility(View.VISIBLE);
             }
@@ -99,6 +141,13 @@ public class HomeFragment extends Fragment implements AudiobookAdapter.OnAudiobo
             }
         });
 
+        viewModel.getShelves().observe(getViewLifecycleOwner(), shelves -> {
+            shelfAdapter.submitList(shelves);
+        });
+
+        viewModel.getCoversToPrefetch().observe(getViewLifecycleOwner(), covers ->
+                AudiobookAdapter.preloadCovers(requireContext(), covers));
+
         viewModel.getError().observe(getViewLifecycleOwner(), error -> {
             if (error != null && !error.isEmpty()) {
                 Toast.makeText(requireContext(), error, Toast.LENGTH_LONG).show();
@@ -158,6 +207,21 @@ public class HomeFragment extends Fragment implements AudiobookAdapter.OnAudiobo
         startActivity(intent);
     }
 
+    @Override
+    public void onSeeAllClick(Shelf shelf) {
+        // Navigate to the whole category
+        Bundle args = new Bundle();
+        args.putString("categoryUrl", shelf.getUrl());
+        args.putString("categoryName", shelf.getTitle());
+        Navigation.findNavController(requireView())
+                .navigate(R.id.categoryAudiobooksFragment, args);
+    }
+
+    @Override
+    public void onRetryClick(Shelf shelf) {
+        viewModel.loadShelves();
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
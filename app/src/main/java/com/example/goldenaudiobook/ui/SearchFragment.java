@@ -15,9 +15,11 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.media3.common.util.UnstableApi;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.goldenaudiobook.R;
 import com.example.goldenaudiobook.adapter.AudiobookAdapter;
+import com.example.goldenaudiobook.adapter.SuggestionAdapter;
 import com.example.goldenaudiobook.databinding.FragmentSearchBinding;
 import com.example.goldenaudiobook.model.Audiobook;
 import com.example.goldenaudiobook.viewmodel.SearchViewModel;
@@ -27,6 +29,8 @@ import com.example.goldenaudiobook.viewmodel.SearchViewModel;
  */
 public class SearchFragment extends Fragment implements AudiobookAdapter.OnAudiobookClickListener {
 
+    private static final int MAX_SUGGESTIONS = 8;
+
     private FragmentSearchBinding binding;
     private SearchViewModel viewModel;
     private AudiobookAdapter audiobookAdapter;
@@ -59,9 +63,30 @@ public class SearchFragment extends Fragment implements AudiobookAdapter.OnAudio
         audiobookAdapter = new AudiobookAdapter(this);
         binding.searchResultsRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.searchResultsRecyclerView.setAdapter(audiobookAdapter);
+
+        // Next pages of results load as the end comes near
+        binding.searchResultsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                reportViewport();
+            }
+        });
+    }
+
+    private void reportViewport() {
+        if (binding == null) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) binding.searchResultsRecyclerView.getLayoutManager();
+        viewModel.onScrolled(layoutManager.findFirstVisibleItemPosition(),
+                layoutManager.findLastVisibleItemPosition());
     }
 
     private void setupSearchInput() {
+        // Completions on every keystroke, from titles and authors already seen
+        binding.searchEditText.setAdapter(new SuggestionAdapter(requireContext(), viewModel::suggest, MAX_SUGGESTIONS));
+        binding.searchEditText.setOnItemClickListener((parent, v, position, id) -> performSearch());
+
         // Text change listener for search
         binding.searchEditText.addTextChangedListener(new TextWatcher() {
             @Override
@@ -103,7 +128,12 @@ public class SearchFragment extends Fragment implements AudiobookAdapter.OnAudio
     private void observeViewModel() {
         viewModel.getSearchResults().observe(getViewLifecycleOwner(), audiobooks -> {
             if (audiobooks != null && !audiobooks.isEmpty()) {
-                audiobookAdapter.submitList(audiobooks);
+                // A short page may not fill the screen, so there is no scroll to report
+                audiobookAdapter.submitList(audiobooks, () -> {
+                    if (binding != null) {
+                        binding.searchResultsRecyclerView.post(this::reportViewport);
+                    }
+                });
                 showResults();
             } else if (viewModel.getHasSearched().getValue() != null && viewModel.getHasSearched().getValue()) {
                 showEmptyState();
@@ -122,6 +152,9 @@ public class SearchFragment extends Fragment implements AudiobookAdapter.OnAudio
             }
         });
 
+        viewModel.getCoversToPrefetch().observe(getViewLifecycleOwner(), covers ->
+                AudiobookAdapter.preloadCovers(requireContext(), covers));
+
         viewModel.getError().observe(getViewLifecycleOwner(), error -> {
             if (error != null && !error.isEmpty()) {
                 showError(error);
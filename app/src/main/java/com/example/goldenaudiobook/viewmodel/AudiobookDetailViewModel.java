@@ -4,7 +4,9 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.goldenaudiobook.GoldenAudiobookApp;
 import com.example.goldenaudiobook.data.AudiobookRepository;
+import com.example.goldenaudiobook.data.RequestGroup;
 import com.example.goldenaudiobook.model.Audiobook;
 
 /**
@@ -12,6 +14,7 @@ import com.example.goldenaudiobook.model.Audiobook;
  */
 public class AudiobookDetailViewModel extends ViewModel {
     private final AudiobookRepository repository;
+    private final RequestGroup requests = new RequestGroup();
 
     private final MutableLiveData<Audiobook> audiobook = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>();
@@ -22,7 +25,7 @@ public class AudiobookDetailViewModel extends ViewModel {
     private final MutableLiveData<Long> duration = new MutableLiveData<>(0L);
 
     public AudiobookDetailViewModel() {
-        repository = new AudiobookRepository();
+        repository = GoldenAudiobookApp.getRepository();
     }
 
     public LiveData<Audiobook> getAudiobook() {
@@ -57,7 +60,7 @@ public class AudiobookDetailViewModel extends ViewModel {
         isLoading.setValue(true);
         error.setValue(null);
 
-        repository.getAudiobookDetails(url, new AudiobookRepository.DataCallback<Audiobook>() {
+        requests.add(repository.getAudiobookDetails(url, new AudiobookRepository.DataCallback<Audiobook>() {
             @Override
             public void onSuccess(Audiobook data) {
                 audiobook.postValue(data);
@@ -69,7 +72,7 @@ public class AudiobookDetailViewModel extends ViewModel {
                 error.postValue(e.getMessage());
                 isLoading.postValue(false);
             }
-        });
+        }));
     }
 
     public void setPlaying(boolean playing) {
@@ -120,6 +123,6 @@ public class AudiobookDetailViewModel extends ViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        repository.shutdown();
+        requests.cancelAll();
     }
 }
@@ -4,16 +4,30 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.goldenaudiobook.GoldenAudiobookApp;
 import com.example.goldenaudiobook.data.AudiobookRepository;
+import com.example.goldenaudiobook.data.PageFanOut;
+import com.example.goldenaudiobook.data.RequestGroup;
+import com.example.goldenaudiobook.data.UrlCanonicalizer;
 import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * ViewModel for Author All Books screen
+ * ViewModel for Author All Books screen.
+ * Shows every page of the author's archive: the first page as it downloads, then the
+ * others, loaded in parallel, appended in page order.
  */
 public class AuthorAllBooksViewModel extends ViewModel {
+    // Author pages loaded at the same time
+    private static final int MAX_CONCURRENT_PAGES = 3;
+
     private final AudiobookRepository repository;
+    private final RequestGroup requests = new RequestGroup();
 
     private final MutableLiveData<List<Audiobook>> audiobooks = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>();
@@ -23,7 +37,7 @@ public class AuthorAllBooksViewModel extends ViewModel {
     private String currentAuthorUrl;
 
     public AuthorAllBooksViewModel() {
-        repository = new AudiobookRepository();
+        repository = GoldenAudiobookApp.getRepository();
     }
 
     public LiveData<List<Audiobook>> getAudiobooks() {
@@ -43,16 +57,42 @@ public class AuthorAllBooksViewModel extends ViewModel {
     }
 
     public void loadAuthorAudiobooks(String authorUrl, String name) {
+        // A reload replaces the pages still loading
+        requests.cancelAll();
         this.currentAuthorUrl = authorUrl;
         this.authorName.setValue(name);
         isLoading.setValue(true);
         error.setValue(null);
 
-        repository.getAuthorAllResultsAudiobooks(authorUrl, new AudiobookRepository.DataCallback<List<Audiobook>>() {
+        List<Audiobook> streamed = new ArrayList<>();
+        List<Audiobook> all = new ArrayList<>();
+        // New posts shift older ones to the next page while pages load, so one may come twice
+        Set<String> seen = new HashSet<>();
+        requests.add(repository.getAllAuthorAudiobooks(authorUrl, MAX_CONCURRENT_PAGES, new PageFanOut.Listener() {
+            @Override
+            public void onItem(Audiobook item) {
+                // Show cards while the rest of the first page is still downloading
+                streamed.add(item);
+                audiobooks.postValue(new ArrayList<>(streamed));
+            }
+
+            @Override
+            public void onPage(Page<Audiobook> page) {
+                for (Audiobook audiobook : page.getItems()) {
+                    if (seen.add(UrlCanonicalizer.canonicalize(audiobook.getUrl()))) {
+                        all.add(audiobook);
+                    }
+                }
+                audiobooks.postValue(new ArrayList<>(all));
+            }
+
             @Override
-            public void onSuccess(List<Audiobook> data) {
-                audiobooks.postValue(data);
+            public void onComplete(int pagesLoaded, int pagesFailed) {
                 isLoading.postValue(false);
+                if (pagesFailed > 0) {
+                    error.postValue(pagesFailed == 1 ? "1 page of books could not be loaded"
+                            : pagesFailed + " pages of books could not be loaded");
+                }
             }
 
             @Override
@@ -60,11 +100,12 @@ public class AuthorAllBooksViewModel extends ViewModel {
                 error.postValue(e.getMessage());
                 isLoading.postValue(false);
             }
-        });
+        }));
     }
 
     public void refresh() {
         if (currentAuthorUrl != null) {
+            repository.invalidate(currentAuthorUrl);
             loadAuthorAudiobooks(currentAuthorUrl, authorName.getValue());
         }
     }
@@ -72,6 +113,6 @@ public class AuthorAllBooksViewModel extends ViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        repository.shutdown();
+        requests.cancelAll();
     }
 }
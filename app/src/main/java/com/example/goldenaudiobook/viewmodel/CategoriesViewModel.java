@@ -4,7 +4,9 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.goldenaudiobook.GoldenAudiobookApp;
 import com.example.goldenaudiobook.data.AudiobookRepository;
+import com.example.goldenaudiobook.data.RequestGroup;
 import com.example.goldenaudiobook.model.Category;
 
 import java.util.List;
@@ -14,13 +16,14 @@ import java.util.List;
  */
 public class CategoriesViewModel extends ViewModel {
     private final AudiobookRepository repository;
+    private final RequestGroup requests = new RequestGroup();
 
     private final MutableLiveData<List<Category>> categories = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>();
     private final MutableLiveData<String> error = new MutableLiveData<>();
 
     public CategoriesViewModel() {
-        repository = new AudiobookRepository();
+        repository = GoldenAudiobookApp.getRepository();
     }
 
     public LiveData<List<Category>> getCategories() {
@@ -39,7 +42,7 @@ public class CategoriesViewModel extends ViewModel {
         isLoading.setValue(true);
         error.setValue(null);
 
-        repository.getCategories(new AudiobookRepository.DataCallback<List<Category>>() {
+        requests.add(repository.getCategories(new AudiobookRepository.DataCallback<List<Category>>() {
             @Override
             public void onSuccess(List<Category> data) {
                 categories.postValue(data);
@@ -51,12 +54,12 @@ public class CategoriesViewModel extends ViewModel {
                 error.postValue(e.getMessage());
                 isLoading.postValue(false);
             }
-        });
+        }));
     }
 
     @Override
     protected void onCleared() {
         super.onCleared();
-        repository.shutdown();
+        requests.cancelAll();
     }
 }
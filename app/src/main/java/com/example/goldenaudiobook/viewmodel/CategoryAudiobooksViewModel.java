@@ -4,7 +4,9 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.goldenaudiobook.GoldenAudiobookApp;
 import com.example.goldenaudiobook.data.AudiobookRepository;
+import com.example.goldenaudiobook.data.PagingEngine;
 import com.example.goldenaudiobook.model.Audiobook;
 
 import java.util.List;
@@ -20,12 +22,39 @@ public class CategoryAudiobooksViewModel extends ViewModel {
     private final MutableLiveData<String> error = new MutableLiveData<>();
     private final MutableLiveData<String> categoryName = new MutableLiveData<>();
     private final MutableLiveData<Boolean> hasNextPage = new MutableLiveData<>(false);
+    private final MutableLiveData<List<String>> coversToPrefetch = new MutableLiveData<>();
 
     private String currentCategoryUrl;
-    private String nextPageUrl;
+    // Infinite scroll over the category archive
+    private final PagingEngine pager;
 
     public CategoryAudiobooksViewModel() {
-        repository = new AudiobookRepository();
+        repository = GoldenAudiobookApp.getRepository();
+        pager = new PagingEngine(
+                (url, callback) -> repository.getCategoryAudiobooksPage(currentCategoryUrl,
+                        url.equals(currentCategoryUrl) ? null : url, callback),
+                new PagingEngine.Listener() {
+                    @Override
+                    public void onItems(List<Audiobook> items, boolean streaming) {
+                        audiobooks.postValue(items);
+                        if (!streaming) {
+                            isLoading.postValue(false);
+                            hasNextPage.postValue(pager.needsLoadMore());
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e, boolean firstPage) {
+                        error.postValue(e.getMessage());
+                        isLoading.postValue(false);
+                        hasNextPage.postValue(pager.needsLoadMore());
+                    }
+
+                    @Override
+                    public void onPrefetchCovers(List<String> imageUrls) {
+                        coversToPrefetch.postValue(imageUrls);
+                    }
+                });
     }
 
     public LiveData<List<Audiobook>> getAudiobooks() {
@@ -44,77 +73,59 @@ public class CategoryAudiobooksViewModel extends ViewModel {
         return categoryName;
     }
 
+    /**
+     * Whether the Older Posts button is needed: scrolling loads the next page, unless
+     * loading it failed
+     */
     public LiveData<Boolean> getHasNextPage() {
         return hasNextPage;
     }
 
+    /**
+     * Cover images of a page loaded ahead of the viewport
+     */
+    public LiveData<List<String>> getCoversToPrefetch() {
+        return coversToPrefetch;
+    }
+
     public void loadCategoryAudiobooks(String categoryUrl, String name) {
         this.currentCategoryUrl = categoryUrl;
         this.categoryName.setValue(name);
-        this.nextPageUrl = null;
         isLoading.setValue(true);
         error.setValue(null);
         hasNextPage.setValue(false);
 
-        repository.getAudiobooksByCategory(categoryUrl, new AudiobookRepository.DataCallback<List<Audiobook>>() {
-            @Override
-            public void onSuccess(List<Audiobook> data) {
-                audiobooks.postValue(data);
-                isLoading.postValue(false);
-                // Check if there's a next page
-                String nextUrl = repository.getCategoryNextPageUrl();
-                hasNextPage.postValue(nextUrl != null && !nextUrl.isEmpty());
-                nextPageUrl = nextUrl;
-            }
-
-            @Override
-            public void onError(Exception e) {
-                error.postValue(e.getMessage());
-                isLoading.postValue(false);
-            }
-        });
+        pager.start(categoryUrl);
     }
 
     /**
-     * Load next page of category audiobooks (Older Posts)
+     * Load next page of category audiobooks (Older Posts). Scrolling near the end does
+     * this by itself; the button also retries after a failed load.
      */
     public void loadNextPage() {
-        if (nextPageUrl != null && !nextPageUrl.isEmpty()) {
-            isLoading.setValue(true);
+        if (pager.canLoadMore()) {
             error.setValue(null);
-
-            repository.getCategoryAudiobooksPage(
-                    currentCategoryUrl,
-                    nextPageUrl,
-                    new AudiobookRepository.DataCallback<List<Audiobook>>() {
-                        @Override
-                        public void onSuccess(List<Audiobook> data) {
-                            audiobooks.postValue(data);
-                            isLoading.postValue(false);
-                            // Check for more pages
-                            String newNextUrl = repository.getCategoryNextPageUrl();
-                            hasNextPage.postValue(newNextUrl != null && !newNextUrl.isEmpty());
-                            nextPageUrl = newNextUrl;
-                        }
-
-                        @Override
-                        public void onError(Exception e) {
-                            error.postValue(e.getMessage());
-                            isLoading.postValue(false);
-                        }
-                    });
+            pager.loadMore();
         }
     }
 
+    /**
+     * The adapter positions on screen, to load ahead and drop far pages
+     */
+    public void onScrolled(int firstVisible, int lastVisible) {
+        pager.onViewportChanged(firstVisible, lastVisible);
+    }
+
     /**
      * Check if next page is available
      */
     public boolean canLoadNextPage() {
-        return nextPageUrl != null && !nextPageUrl.isEmpty();
+        return pager.canLoadMore();
     }
 
     public void refresh() {
         if (currentCategoryUrl != null) {
+            repository.invalidate(currentCategoryUrl);
             loadCategoryAudiobooks(currentCategoryUrl, categoryName.getValue());
         }
     }
@@ -122,6 +133,6 @@ public class CategoryAudiobooksViewModel extends ViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        repository.shutdown();
+        pager.cancel();
     }
 }
@@ -4,16 +4,40 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.goldenaudiobook.GoldenAudiobookApp;
 import com.example.goldenaudiobook.data.AudiobookRepository;
+import com.example.goldenaudiobook.data.FetchPriority;
+import com.example.goldenaudiobook.data.PageRing;
+import com.example.goldenaudiobook.data.RequestGroup;
+import com.example.goldenaudiobook.data.ShelfFanOut;
+import com.example.goldenaudiobook.data.WebDataSource;
 import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
+import com.example.goldenaudiobook.model.Shelf;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * ViewModel for Home screen displaying random audiobooks
+ * ViewModel for Home screen displaying random audiobooks.
+ * Recently visited pages are kept in a ring, and both neighbours of the page on screen are
+ * loaded ahead of time, so previous and next show at once from memory.
+ * Above them, one shelf per navigation category; the shelves load in parallel and each
+ * shows as soon as its own page is in.
  */
 public class HomeViewModel extends ViewModel {
+    // Current page, both neighbours and a few visited before them
+    private static final int RECENT_PAGES = 8;
+
     private final AudiobookRepository repository;
+    private final RequestGroup requests = new RequestGroup();
+    private final RequestGroup prefetches = new RequestGroup();
+    private final RequestGroup shelfRequests = new RequestGroup();
+    private final PageRing<Audiobook> recentPages = new PageRing<>(RECENT_PAGES);
+    // Neighbours being loaded ahead, so each is asked for once
+    private final Set<Integer> prefetching = new HashSet<>();
 
     private final MutableLiveData<List<Audiobook>> audiobooks = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>();
@@ -22,9 +46,16 @@ public class HomeViewModel extends ViewModel {
     private final MutableLiveData<Integer> totalPages = new MutableLiveData<>(1);
     private final MutableLiveData<Boolean> hasNextPage = new MutableLiveData<>(false);
     private final MutableLiveData<Boolean> hasPreviousPage = new MutableLiveData<>(false);
+    private final MutableLiveData<List<String>> coversToPrefetch = new MutableLiveData<>();
+    private final MutableLiveData<List<Shelf>> shelves = new MutableLiveData<>();
+
+    // Last page shown; its number drives next/previous
+    private Page<Audiobook> page;
+    // Number of the page asked for last, which may not be loaded yet
+    private int wantedPage = 1;
 
     public HomeViewModel() {
-        repository = new AudiobookRepository();
+        repository = GoldenAudiobookApp.getRepository();
     }
 
     public LiveData<List<Audiobook>> getAudiobooks() {
@@ -55,58 +86,82 @@ public class HomeViewModel extends ViewModel {
         return hasPreviousPage;
     }
 
+    /**
+     * Cover URLs of neighbour pages loaded ahead of time
+     */
+    public LiveData<List<String>> getCoversToPrefetch() {
+        return coversToPrefetch;
+    }
+
+    public LiveData<List<Shelf>> getShelves() {
+        return shelves;
+    }
+
     public void loadRandomAudiobooks() {
-        isLoading.setValue(true);
-        error.setValue(null);
+        showPage(1);
+    }
+
+    /**
+     * Load every shelf at once; shelves already shown stay until their new page is in
+     */
+    public void loadShelves() {
+        loadShelves(false);
+    }
+
+    /**
+     * With refresh the shelves' category pages are not answered from the memory cache
+     */
+    private void loadShelves(boolean refresh) {
+        shelfRequests.cancelAll();
+        shelfRequests.add(repository.getHomeShelves(ShelfFanOut.DEFAULT_SHELF_TIMEOUT_MS, refresh, new ShelfFanOut.Listener() {
+            // The shelves as last posted; callbacks run on the main thread
+            private List<Shelf> current = new ArrayList<>();
 
-        repository.getRandomAudiobooks(new AudiobookRepository.DataCallback<List<Audiobook>>() {
             @Override
-            public void onSuccess(List<Audiobook> data) {
-                audiobooks.postValue(data);
-                isLoading.postValue(false);
-                // Update pagination state
-                currentPage.postValue(repository.getCurrentHomePage());
-                totalPages.postValue(repository.getTotalHomePages());
-                hasNextPage.postValue(repository.hasNextHomePage());
-                hasPreviousPage.postValue(repository.getCurrentHomePage() > 1);
+            public void onShelves(List<Shelf> loading) {
+                List<Shelf> shown = shelves.getValue();
+                for (int i = 0; i < loading.size(); i++) {
+                    Shelf previous = shown != null ? find(shown, loading.get(i).getUrl()) : null;
+                    if (previous != null && !previous.getItems().isEmpty()) {
+                        loading.set(i, previous);
+                    }
+                }
+                current = loading;
+                shelves.postValue(new ArrayList<>(current));
+            }
+
+            @Override
+            public void onShelf(int index, Shelf shelf) {
+                Shelf shown = current.get(index);
+                // A shelf that fails again keeps the books it had
+                current.set(index, shelf.getState() == Shelf.State.FAILED && !shown.getItems().isEmpty()
+                        ? shown : shelf);
+                shelves.postValue(new ArrayList<>(current));
             }
 
             @Override
             public void onError(Exception e) {
-                error.postValue(e.getMessage());
-                isLoading.postValue(false);
+                // The paged grid below still shows; shelves are extra
+                shelves.postValue(new ArrayList<>());
             }
-        });
+        }));
+    }
+
+    private static Shelf find(List<Shelf> list, String url) {
+        for (Shelf shelf : list) {
+            if (shelf.getUrl().equals(url)) {
+                return shelf;
+            }
+        }
+        return null;
     }
 
     /**
      * Load next page of random audiobooks
      */
     public void loadNextPage() {
-        if (Boolean.TRUE.equals(hasNextPage.getValue())) {
-            isLoading.setValue(true);
-            error.setValue(null);
-
-            repository.getRandomAudiobooksPage(
-                    repository.hasNextHomePage() ? "next" : null,
-                    new AudiobookRepository.DataCallback<List<Audiobook>>() {
-                        @Override
-                        public void onSuccess(List<Audiobook> data) {
-                            audiobooks.postValue(data);
-                            isLoading.postValue(false);
-                            // Update pagination state
-                            currentPage.postValue(repository.getCurrentHomePage());
-                            totalPages.postValue(repository.getTotalHomePages());
-                            hasNextPage.postValue(repository.hasNextHomePage());
-                            hasPreviousPage.postValue(true);
-                        }
-
-                        @Override
-                        public void onError(Exception e) {
-                            error.postValue(e.getMessage());
-                            isLoading.postValue(false);
-                        }
-                    });
+        if (page != null && page.hasNext()) {
+            showPage(page.getPageNumber() + 1);
         }
     }
 
@@ -114,43 +169,142 @@ public class HomeViewModel extends ViewModel {
      * Load previous page of random audiobooks
      */
     public void loadPreviousPage() {
-        if (Boolean.TRUE.equals(hasPreviousPage.getValue())) {
+        if (page != null && page.hasPrevious()) {
+            showPage(page.getPageNumber() - 1);
+        }
+    }
+
+    /**
+     * Go straight to a page by number, clamped to the pages there are
+     */
+    public void jumpToPage(int pageNumber) {
+        int total = page != null ? page.getTotalPages() : Page.UNKNOWN_TOTAL;
+        if (total > 0) {
+            pageNumber = Math.min(pageNumber, total);
+        }
+        showPage(Math.max(1, pageNumber));
+    }
+
+    /**
+     * Show a page from the ring if it is there, and load it through the repository either
+     * way; the repository answers from its own cache and refreshes stale pages
+     */
+    private void showPage(int pageNumber) {
+        // Loads of a page the user has moved away from are no longer wanted
+        requests.cancelAll();
+        wantedPage = pageNumber;
+        error.setValue(null);
+
+        Page<Audiobook> recent = recentPages.get(pageNumber);
+        if (recent != null) {
+            show(recent);
+            prefetchNeighbours(recent);
+        } else {
             isLoading.setValue(true);
-            error.setValue(null);
-
-            String previousUrl = repository.getPreviousHomePageUrl();
-            if (previousUrl != null) {
-                repository.getRandomAudiobooksPage(
-                        previousUrl,
-                        new AudiobookRepository.DataCallback<List<Audiobook>>() {
-                            @Override
-                            public void onSuccess(List<Audiobook> data) {
-                                audiobooks.postValue(data);
-                                isLoading.postValue(false);
-                                // Update pagination state
-                                currentPage.postValue(repository.getCurrentHomePage());
-                                totalPages.postValue(repository.getTotalHomePages());
-                                hasNextPage.postValue(repository.hasNextHomePage());
-                                hasPreviousPage.postValue(repository.getCurrentHomePage() > 1);
-                            }
+        }
+        requests.add(repository.getRandomAudiobooksPage(WebDataSource.homePageUrl(pageNumber),
+                pageCallback(pageNumber, recent == null)));
+    }
 
-                            @Override
-                            public void onError(Exception e) {
-                                error.postValue(e.getMessage());
-                                isLoading.postValue(false);
-                            }
-                        });
+    /**
+     * Show a loaded page and take the pagination state from it
+     */
+    private AudiobookRepository.DataCallback<Page<Audiobook>> pageCallback(int pageNumber, boolean stream) {
+        List<Audiobook> streamed = new ArrayList<>();
+        return new AudiobookRepository.StreamCallback<Audiobook>() {
+            @Override
+            public void onItem(Audiobook item) {
+                // Show cards while the rest of the page is still downloading
+                if (stream) {
+                    streamed.add(item);
+                    audiobooks.postValue(new ArrayList<>(streamed));
+                }
             }
+
+            @Override
+            public void onSuccess(Page<Audiobook> data) {
+                recentPages.put(data);
+                if (pageNumber == wantedPage) {
+                    show(data);
+                    prefetchNeighbours(data);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (stream) {
+                    error.postValue(e.getMessage());
+                }
+                isLoading.postValue(false);
+            }
+        };
+    }
+
+    private void show(Page<Audiobook> data) {
+        page = data;
+        audiobooks.postValue(data.getItems());
+        isLoading.postValue(false);
+        currentPage.postValue(data.getPageNumber());
+        totalPages.postValue(data.getTotalPages());
+        hasNextPage.postValue(data.hasNext());
+        hasPreviousPage.postValue(data.hasPrevious());
+    }
+
+    /**
+     * Load the pages before and after this one into the ring, in the speculative lane
+     */
+    private void prefetchNeighbours(Page<Audiobook> shown) {
+        int number = shown.getPageNumber();
+        if (shown.hasPrevious()) {
+            prefetch(number - 1);
+        }
+        if (shown.hasNext()) {
+            prefetch(number + 1);
+        }
+    }
+
+    private void prefetch(int pageNumber) {
+        if (recentPages.contains(pageNumber) || !prefetching.add(pageNumber)) {
+            return;
         }
+        prefetches.add(repository.getRandomAudiobooksPage(WebDataSource.homePageUrl(pageNumber),
+                FetchPriority.SPECULATIVE, new AudiobookRepository.DataCallback<Page<Audiobook>>() {
+                    @Override
+                    public void onSuccess(Page<Audiobook> data) {
+                        prefetching.remove(pageNumber);
+                        recentPages.put(data);
+                        List<String> covers = new ArrayList<>();
+                        for (Audiobook audiobook : data.getItems()) {
+                            if (audiobook.getImageUrl() != null && !audiobook.getImageUrl().isEmpty()) {
+                                covers.add(audiobook.getImageUrl());
+                            }
+                        }
+                        coversToPrefetch.postValue(covers);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // Visiting the page loads it normally
+                        prefetching.remove(pageNumber);
+                    }
+                }));
     }
 
     public void refresh() {
+        // Pull-to-refresh asks for new content, not the memory-cached page
+        prefetches.cancelAll();
+        prefetching.clear();
+        recentPages.clear();
+        repository.invalidate(WebDataSource.homePageUrl(1));
         loadRandomAudiobooks();
+        loadShelves(true);
     }
 
     @Override
     protected void onCleared() {
         super.onCleared();
-        repository.shutdown();
+        requests.cancelAll();
+        prefetches.cancelAll();
+        shelfRequests.cancelAll();
     }
 }
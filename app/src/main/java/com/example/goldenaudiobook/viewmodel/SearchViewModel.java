@@ -4,18 +4,32 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.goldenaudiobook.GoldenAudiobookApp;
 import com.example.goldenaudiobook.data.AudiobookRepository;
+import com.example.goldenaudiobook.data.PagingEngine;
+import com.example.goldenaudiobook.data.RequestGroup;
+import com.example.goldenaudiobook.data.UrlCanonicalizer;
 import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * ViewModel for Search functionality
+ * ViewModel for Search functionality.
+ * A search asks the local catalog and the site at the same time. Local hits usually come
+ * first and are shown at once; site results are merged in below them as they arrive,
+ * without duplicates. Further pages of site results load as the user scrolls near the end.
  */
 public class SearchViewModel extends ViewModel {
+    // Local hits shown above the site's results
+    private static final int LOCAL_RESULT_LIMIT = 20;
 
     private final AudiobookRepository repository;
+    private final RequestGroup requests = new RequestGroup();
+    private final PagingEngine pager;
     private final MutableLiveData<List<Audiobook>> searchResults = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<String> error = new MutableLiveData<>();
@@ -23,11 +37,34 @@ public class SearchViewModel extends ViewModel {
     private final MutableLiveData<Boolean> hasSearched = new MutableLiveData<>(false);
     private final MutableLiveData<String> nextPageUrl = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoadingMore = new MutableLiveData<>(false);
-
-    private int currentPage = 1;
+    private final MutableLiveData<List<String>> coversToPrefetch = new MutableLiveData<>();
 
     public SearchViewModel() {
-        this.repository = new AudiobookRepository();
+        this.repository = GoldenAudiobookApp.getRepository();
+        this.pager = new PagingEngine(repository::getSearchResultsFromUrl, new PagingEngine.Listener() {
+            @Override
+            public void onItems(List<Audiobook> items, boolean streaming) {
+                searchResults.postValue(items);
+                // Scrolling loads the next page; the button is only for retrying a failed one
+                nextPageUrl.postValue(pager.needsLoadMore() ? pager.getNextUrl() : null);
+            }
+
+            @Override
+            public void onError(Exception e, boolean firstPage) {
+                error.postValue("Failed to load more results: " + e.getMessage());
+                nextPageUrl.postValue(pager.needsLoadMore() ? pager.getNextUrl() : null);
+            }
+
+            @Override
+            public void onLoadingMore(boolean loading) {
+                isLoadingMore.postValue(loading);
+            }
+
+            @Override
+            public void onPrefetchCovers(List<String> imageUrls) {
+                coversToPrefetch.postValue(imageUrls);
+            }
+        });
     }
 
     public LiveData<List<Audiobook>> getSearchResults() {
@@ -58,6 +95,13 @@ public class SearchViewModel extends ViewModel {
         return isLoadingMore;
     }
 
+    /**
+     * Cover URLs of results loaded ahead of the viewport
+     */
+    public LiveData<List<String>> getCoversToPrefetch() {
+        return coversToPrefetch;
+    }
+
     /**
      * Search for audiobooks with the given query
      */
@@ -67,114 +111,153 @@ public class SearchViewModel extends ViewModel {
             return;
         }
 
+        // A newer search replaces the older one, including its pagination requests
+        requests.cancelAll();
+        pager.cancel();
+        isLoadingMore.setValue(false);
+
         String trimmedQuery = query.trim();
         currentQuery.setValue(trimmedQuery);
-        currentPage = 1;
         isLoading.setValue(true);
         error.setValue(null);
         hasSearched.setValue(true);
         nextPageUrl.setValue(null);
 
-        repository.searchAudiobooks(trimmedQuery, new AudiobookRepository.DataCallback<List<Audiobook>>() {
+        SearchResults results = new SearchResults(trimmedQuery);
+        requests.add(repository.searchCatalog(trimmedQuery, LOCAL_RESULT_LIMIT,
+                new AudiobookRepository.DataCallback<List<Audiobook>>() {
+                    @Override
+                    public void onSuccess(List<Audiobook> hits) {
+                        results.local = hits;
+                        results.localFirst = results.remote.isEmpty();
+                        results.show();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // The site's results still come
+                        results.local = new ArrayList<>();
+                    }
+                }));
+        requests.add(repository.searchAudiobooks(trimmedQuery, new AudiobookRepository.StreamCallback<Audiobook>() {
             @Override
-            public void onSuccess(List<Audiobook> result) {
+            public void onItem(Audiobook item) {
+                // Show results while the rest of the page is still downloading
+                results.remote.add(item);
+                results.show();
+            }
+
+            @Override
+            public void onSuccess(Page<Audiobook> page) {
+                results.remote = new ArrayList<>(page.getItems());
+                results.remotePage = page;
+                results.remoteDone = true;
                 isLoading.postValue(false);
-                if (result.isEmpty()) {
-                    error.postValue("No results found for \"" + trimmedQuery + "\"");
-                    searchResults.postValue(result);
-                } else {
-                    error.postValue(null);
-                    searchResults.postValue(result);
-                }
-                // After initial search, check for next page
-                checkForNextPage(trimmedQuery, 1);
+                results.show();
             }
 
             @Override
             public void onError(Exception e) {
+                results.remoteDone = true;
                 isLoading.postValue(false);
-                error.postValue("Search failed: " + e.getMessage());
+                if (results.local.isEmpty()) {
+                    error.postValue("Search failed: " + e.getMessage());
+                }
             }
-        });
+        }));
     }
 
     /**
-     * Load more search results (pagination)
+     * Local and site results of one search. Both callbacks run on the main thread.
      */
-    public void loadMore() {
-        String url = nextPageUrl.getValue();
-        if (url == null || url.isEmpty()) {
-            return;
-        }
-
-        isLoadingMore.setValue(true);
+    private final class SearchResults {
+        private final String query;
+        List<Audiobook> local = new ArrayList<>();
+        List<Audiobook> remote = new ArrayList<>();
+        Page<Audiobook> remotePage;
+        // Whichever list was on screen first stays on top, so nothing jumps
+        boolean localFirst;
+        boolean remoteDone;
 
-        repository.getSearchResultsFromUrl(url, new AudiobookRepository.DataCallback<List<Audiobook>>() {
-            @Override
-            public void onSuccess(List<Audiobook> result) {
-                isLoadingMore.postValue(false);
-
-                // Append new results to existing list
-                List<Audiobook> currentResults = searchResults.getValue();
-                if (currentResults == null) {
-                    currentResults = new ArrayList<>();
-                }
-
-                List<Audiobook> updatedResults = new ArrayList<>(currentResults);
-                updatedResults.addAll(result);
-                searchResults.postValue(updatedResults);
+        SearchResults(String query) {
+            this.query = query;
+        }
 
-                // Check for more pages
-                checkForNextPage(currentQuery.getValue(), currentPage + 1);
+        void show() {
+            List<Audiobook> merged = localFirst ? merge(local, remote) : merge(remote, local);
+            if (!merged.isEmpty() && remotePage != null) {
+                error.postValue(null);
+                // The merged list becomes the first page; its cursor comes from the same
+                // page, so no second fetch is needed
+                pager.start(remotePage.withItems(merged));
+            } else if (!merged.isEmpty()) {
+                error.postValue(null);
+                searchResults.postValue(merged);
+            } else if (remoteDone) {
+                error.postValue("No results found for \"" + query + "\"");
+                searchResults.postValue(merged);
             }
-
-            @Override
-            public void onError(Exception e) {
-                isLoadingMore.postValue(false);
-                error.postValue("Failed to load more results: " + e.getMessage());
-            }
-        });
+            // Otherwise wait for the site before saying there is nothing
+        }
     }
 
     /**
-     * Check if there are more pages available
+     * The first list followed by the books of the second one that it does not have
      */
-    private void checkForNextPage(String query, int page) {
-        if (query == null || query.isEmpty()) {
-            return;
+    private static List<Audiobook> merge(List<Audiobook> first, List<Audiobook> second) {
+        List<Audiobook> merged = new ArrayList<>(first.size() + second.size());
+        Set<String> seen = new HashSet<>();
+        for (List<Audiobook> list : List.of(first, second)) {
+            for (Audiobook book : list) {
+                if (seen.add(UrlCanonicalizer.canonicalize(book.getUrl()))) {
+                    merged.add(book);
+                }
+            }
         }
+        return merged;
+    }
 
-        currentPage = page;
+    /**
+     * Title and author completions for what has been typed so far, from memory only.
+     * Safe to call from any thread.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return repository.suggest(prefix, limit);
+    }
 
-        repository.getNextPageUrl(query, page, new AudiobookRepository.DataCallback<String>() {
-            @Override
-            public void onSuccess(String result) {
-                nextPageUrl.postValue(result);
-            }
+    /**
+     * Load more search results (pagination), e.g. retrying after a failed page
+     */
+    public void loadMore() {
+        pager.loadMore();
+    }
 
-            @Override
-            public void onError(Exception e) {
-                // No more pages available
-                nextPageUrl.postValue(null);
-            }
-        });
+    /**
+     * Report the result positions on screen, which loads the next page ahead of time
+     */
+    public void onScrolled(int firstVisible, int lastVisible) {
+        pager.onViewportChanged(firstVisible, lastVisible);
     }
 
     /**
      * Clear the current search results
      */
     public void clearResults() {
+        requests.cancelAll();
+        pager.cancel();
+        isLoading.setValue(false);
+        isLoadingMore.setValue(false);
         searchResults.setValue(null);
         error.setValue(null);
         hasSearched.setValue(false);
         currentQuery.setValue(null);
         nextPageUrl.setValue(null);
-        currentPage = 1;
     }
 
     @Override
     protected void onCleared() {
         super.onCleared();
-        repository.shutdown();
+        requests.cancelAll();
+        pager.cancel();
     }
 }
@@ -0,0 +1,146 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Offline full-text search of an in-memory catalog: every word has to match, the last one
+ * also as a prefix, and title and author hits rank above hits in the description.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CatalogSearchTest {
+    private static final String SITE = "https://goldenaudiobook.net/";
+
+    private CatalogDatabase catalog;
+
+    @Before
+    public void setUp() {
+        catalog = new CatalogDatabase(RuntimeEnvironment.getApplication(), null);
+        store(book("lee-child-die-trying-audiobook", "Lee Child – Die Trying", "Lee Child",
+                "Jack Reacher is taken hostage in Chicago.", "Thriller"));
+        store(book("tana-french-the-searcher-audiobook", "Tana French – The Searcher", "Tana French",
+                "A retired Chicago detective looks for a missing boy.", "Mystery"));
+        store(book("agatha-christie-the-mysterious-affair-at-styles-audiobook",
+                "Agatha Christie – The Mysterious Affair at Styles", "Agatha Christie",
+                "Poirot's first case.", "Mystery"));
+        // Stored last, so only ranking puts it below the book with child in the title
+        store(book("louise-penny-still-life-audiobook", "Louise Penny – Still Life", "Louise Penny",
+                "A child finds a body in the woods of Three Pines.", "Mystery"));
+    }
+
+    @After
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Test
+    public void matchExpressionQuotesWordsAndPrefixesTheLast() {
+        assertEquals("\"lee\" \"child*\"", CatalogDatabase.matchExpression("Lee  Child!"));
+        assertEquals("\"poirot*\"", CatalogDatabase.matchExpression("poirot"));
+        // Quotes and operators the user typed cannot reach the FTS parser
+        assertEquals("\"a\" \"or\" \"b*\"", CatalogDatabase.matchExpression("\"a\" OR -b"));
+        assertNull(CatalogDatabase.matchExpression("  ?! "));
+        assertNull(CatalogDatabase.matchExpression(null));
+    }
+
+    @Test
+    public void everyWordHasToMatch() {
+        assertEquals(Collections.singletonList("Tana French – The Searcher"), titles("french chicago"));
+        assertEquals(Collections.emptyList(), titles("french poirot"));
+    }
+
+    @Test
+    public void lastWordMatchesAsAPrefix() {
+        assertEquals(Collections.singletonList("Agatha Christie – The Mysterious Affair at Styles"),
+                titles("agatha myst"));
+        // Only the last word may be unfinished
+        assertEquals(Collections.emptyList(), titles("myst agatha"));
+    }
+
+    @Test
+    public void titleHitsRankAboveDescriptionHits() {
+        assertEquals(Arrays.asList("Lee Child – Die Trying", "Louise Penny – Still Life"), titles("child"));
+    }
+
+    @Test
+    public void categoriesAreSearched() {
+        List<String> mystery = titles("mystery");
+        assertEquals(3, mystery.size());
+        assertTrue(mystery.contains("Louise Penny – Still Life"));
+    }
+
+    @Test
+    public void limitKeepsTheBestMatches() {
+        List<Audiobook> hits = catalog.search("chicago", 1);
+        assertEquals(1, hits.size());
+        List<String> both = titles("chicago");
+        assertEquals(2, both.size());
+        assertEquals(both.get(0), hits.get(0).getTitle());
+    }
+
+    @Test
+    public void hitsCarryTheStoredCard() {
+        Audiobook hit = catalog.search("reacher", 10).get(0);
+        assertEquals(SITE + "lee-child-die-trying-audiobook/", hit.getUrl());
+        assertEquals("Lee Child", hit.getAuthor());
+        assertEquals(Collections.singletonList("Thriller"), hit.getCategories());
+    }
+
+    @Test
+    public void indexFollowsUpdatesAndRemovals() {
+        // A card without a description gets one later, as a detail fetch would fill it in
+        Audiobook card = new Audiobook("Anthony Horowitz – Magpie Murders",
+                SITE + "anthony-horowitz-magpie-murders-audiobook/", null);
+        store(card);
+        assertEquals(Collections.emptyList(), titles("manuscript"));
+        Audiobook filled = book("anthony-horowitz-magpie-murders-audiobook", "Anthony Horowitz – Magpie Murders",
+                "Anthony Horowitz", "An editor reads a manuscript with its last chapter missing.", "Mystery");
+        assertEquals(0, catalog.storeCards(Collections.singletonList(filled)));
+        assertEquals(Collections.singletonList("Anthony Horowitz – Magpie Murders"), titles("manuscript"));
+
+        catalog.removeBook(new CatalogDatabase.Entry(SITE + "anthony-horowitz-magpie-murders-audiobook/", null));
+        assertEquals(Collections.emptyList(), titles("manuscript"));
+        assertEquals(Collections.emptyList(), titles("magpie"));
+    }
+
+    @Test
+    public void emptyQueryFindsNothing() {
+        assertEquals(Collections.emptyList(), catalog.search("  ", 10));
+        assertEquals(Collections.emptyList(), catalog.search(null, 10));
+    }
+
+    private List<String> titles(String query) {
+        List<String> titles = new ArrayList<>();
+        for (Audiobook hit : catalog.search(query, 10)) {
+            titles.add(hit.getTitle());
+        }
+        return titles;
+    }
+
+    private void store(Audiobook book) {
+        assertEquals(1, catalog.storeCards(Collections.singletonList(book)));
+    }
+
+    private static Audiobook book(String slug, String title, String author, String description, String category) {
+        Audiobook book = new Audiobook(title, SITE + slug + "/", null);
+        book.setAuthor(author);
+        book.setDescription(description);
+        book.addCategory(category);
+        return book;
+    }
+}
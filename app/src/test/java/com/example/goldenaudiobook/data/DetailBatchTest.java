@@ -0,0 +1,186 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DetailBatch with fetches the test answers by hand, in any order: never more than
+ * parallelism in flight, results in request or completion order, and a failed URL
+ * reported on its own.
+ */
+public class DetailBatchTest {
+    private static final String SITE = "https://goldenaudiobook.net/";
+
+    private PendingCalls<Audiobook> fetches;
+    private Recorder listener;
+
+    @Before
+    public void setUp() {
+        fetches = new PendingCalls<>();
+        listener = new Recorder();
+    }
+
+    @Test
+    public void requestOrderWithBoundedParallelism() {
+        batch(5, DetailBatch.Order.REQUEST).start();
+        assertEquals(Arrays.asList(url(0), url(1)), fetches.keys());
+
+        // The second is in first and waits; its slot goes to the third
+        succeed(1);
+        assertTrue(listener.delivered.isEmpty());
+        assertEquals(url(2), fetches.last());
+
+        succeed(0);
+        assertEquals(Arrays.asList(0, 1), listener.delivered);
+        assertEquals(4, fetches.keys().size());
+
+        succeed(3);
+        succeed(2);
+        assertEquals(Arrays.asList(0, 1, 2, 3), listener.delivered);
+        assertNull(listener.result);
+        succeed(4);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), listener.delivered);
+        assertEquals(5, listener.result.size());
+        assertEquals(0, listener.result.getFailedCount());
+        assertEquals("Book 3", listener.result.getDetails(3).getTitle());
+    }
+
+    @Test
+    public void completionOrderDeliversEachAsItComes() {
+        batch(3, DetailBatch.Order.COMPLETION).start();
+        succeed(1);
+        assertEquals(Collections.singletonList(1), listener.delivered);
+        succeed(2);
+        succeed(0);
+        assertEquals(Arrays.asList(1, 2, 0), listener.delivered);
+        assertEquals(3, listener.result.size());
+    }
+
+    @Test
+    public void failedUrlIsReportedOnItsOwn() {
+        batch(3, DetailBatch.Order.REQUEST).start();
+        IOException error = new IOException("timeout");
+        fetches.get(url(0)).onError(error);
+        // A page without details is a failure too
+        fetches.get(url(1)).onSuccess(null);
+        succeed(2);
+
+        assertEquals(Arrays.asList(0, 1), listener.failed);
+        assertEquals(Arrays.asList(0, 1, 2), listener.delivered);
+        assertEquals(2, listener.result.getFailedCount());
+        assertSame(error, listener.result.getError(0));
+        assertTrue(listener.result.getError(1) instanceof IllegalStateException);
+        assertNull(listener.result.getDetails(0));
+    }
+
+    @Test
+    public void secondAnswerForAUrlIsIgnored() {
+        batch(4, DetailBatch.Order.COMPLETION).start();
+        succeed(0);
+        succeed(0);
+        fetches.get(url(0)).onError(new IOException("late"));
+
+        assertEquals(Collections.singletonList(0), listener.delivered);
+        assertTrue(listener.failed.isEmpty());
+        // Its slot was given back once only
+        assertEquals(3, fetches.keys().size());
+    }
+
+    @Test
+    public void emptyBatchCompletesAtOnce() {
+        Cancellable handle = batch(0, DetailBatch.Order.REQUEST).start();
+        assertEquals(0, listener.result.size());
+        assertTrue(handle.isDone());
+        assertTrue(fetches.keys().isEmpty());
+    }
+
+    @Test
+    public void cancelStopsFetchingAndDelivery() {
+        Cancellable handle = batch(5, DetailBatch.Order.REQUEST).start();
+        succeed(0);
+        handle.cancel();
+
+        assertTrue(fetches.isCancelled(url(1)));
+        succeed(1);
+        assertEquals(Collections.singletonList(0), listener.delivered);
+        assertEquals(3, fetches.keys().size());
+        assertNull(listener.result);
+    }
+
+    @Test
+    public void listenerMayCancelMidDelivery() {
+        Cancellable[] handle = new Cancellable[1];
+        listener.onDelivered = index -> {
+            if (index == 0) {
+                handle[0].cancel();
+            }
+        };
+        handle[0] = batch(4, DetailBatch.Order.REQUEST).start();
+        succeed(1);
+        succeed(0);
+
+        // The second was in too, but is not delivered; the slot the first freed stays empty
+        assertEquals(Collections.singletonList(0), listener.delivered);
+        assertEquals(3, fetches.keys().size());
+    }
+
+    /**
+     * A batch of count URLs, two at a time
+     */
+    private DetailBatch batch(int count, DetailBatch.Order order) {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            urls.add(url(i));
+        }
+        return new DetailBatch(urls, 2, order, fetches::add, listener);
+    }
+
+    private void succeed(int index) {
+        fetches.get(url(index)).onSuccess(new Audiobook("Book " + index, url(index), null));
+    }
+
+    private static String url(int index) {
+        return SITE + "book-" + index + "-audiobook/";
+    }
+
+    private static final class Recorder implements DetailBatch.Listener {
+        final List<Integer> delivered = new ArrayList<>();
+        final List<Integer> failed = new ArrayList<>();
+        DetailBatch.Result result;
+        IntConsumer onDelivered = index -> {
+        };
+
+        @Override
+        public void onResult(int index, String url, Audiobook details) {
+            assertEquals(url, details.getUrl());
+            delivered.add(index);
+            onDelivered.accept(index);
+        }
+
+        @Override
+        public void onFailure(int index, String url, Exception e) {
+            delivered.add(index);
+            failed.add(index);
+            onDelivered.accept(index);
+        }
+
+        @Override
+        public void onComplete(DetailBatch.Result result) {
+            this.result = result;
+        }
+    }
+}
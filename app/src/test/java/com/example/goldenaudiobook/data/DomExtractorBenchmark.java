@@ -0,0 +1,128 @@
+package com.example.goldenaudiobook.data;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Timed comparison of the single-pass DomExtractor with the select()/selectFirst() calls it
+ * replaced, on the saved pages in the project root. Parsing is not timed; both sides walk
+ * the same parsed documents. Prints the time per document and fails only if the extractor
+ * is clearly slower, so a noisy machine does not break the build.
+ */
+public class DomExtractorBenchmark {
+    private static final String BASE_URL = "https://goldenaudiobook.net/";
+    private static final String[] FIXTURES = {"mainAudiobookpage.txt", "randomposts.txt", "audiobookcard.txt"};
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 1000;
+    // Allowed slowdown before the test fails
+    private static final double TOLERANCE = 1.5;
+
+    @Test
+    public void extractorIsNotSlowerThanSelectors() throws IOException {
+        Document[] docs = new Document[FIXTURES.length];
+        for (int i = 0; i < FIXTURES.length; i++) {
+            docs[i] = fixture(FIXTURES[i]);
+        }
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += runExtractor(docs) + runSelectors(docs);
+        }
+        long extractorNs = 0;
+        long selectorNs = 0;
+        // Interleaved, so drift in clock speed hits both sides alike
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += runExtractor(docs);
+            long middle = System.nanoTime();
+            sink += runSelectors(docs);
+            long end = System.nanoTime();
+            extractorNs += middle - start;
+            selectorNs += end - middle;
+        }
+
+        double perDocExtractor = extractorNs / (double) (ROUNDS * docs.length) / 1000.0;
+        double perDocSelectors = selectorNs / (double) (ROUNDS * docs.length) / 1000.0;
+        System.out.println(String.format(Locale.ROOT,
+                "DomExtractor: %.1f us/document, selectors: %.1f us/document (%.2fx), %d fields",
+                perDocExtractor, perDocSelectors, perDocSelectors / perDocExtractor, sink));
+        assertTrue("extractor " + perDocExtractor + " us vs selectors " + perDocSelectors + " us",
+                extractorNs <= selectorNs * TOLERANCE);
+    }
+
+    /**
+     * Detail and card fields of every document; returns how many were found
+     */
+    private static long runExtractor(Document[] docs) {
+        long found = 0;
+        for (Document doc : docs) {
+            DomExtractor.Detail detail = DomExtractor.scanDetail(doc);
+            DomExtractor.Card card = DomExtractor.scanCard(doc);
+            found += count(detail.title, detail.image, detail.content, detail.date, detail.lastTagLink)
+                    + detail.sourceUrls.size() + detail.audioUrls.size() + detail.playerIframes.size()
+                    + detail.categories.size();
+            found += count(card.titlePostLink, card.headingLink, card.viewTitleLink, card.image,
+                    card.viewThumbnail, card.viewLinkedImage, card.entryTime, card.postedDate)
+                    + card.categories.size();
+        }
+        return found;
+    }
+
+    /**
+     * The same fields with the queries DomExtractor replaced
+     */
+    private static long runSelectors(Document[] docs) {
+        long found = 0;
+        for (Document doc : docs) {
+            found += count(doc.selectFirst("h1.title-page, h1.entry-title, .post-single h1"),
+                    doc.selectFirst(".post-single img, .entry-content img, .post-cover img"),
+                    doc.selectFirst(".post-single .collapseomatic_content, .entry-content, .post-content"),
+                    doc.selectFirst(".entry-date, time[datetime]"),
+                    doc.select(".tags-links a").last())
+                    + doc.select("audio source[src]").size() + doc.select("audio[src]").size()
+                    + doc.select("iframe[src*='audio'], iframe[src*='player']").size()
+                    + doc.select(".post-meta-category a[rel=category tag]").size();
+            found += count(doc.selectFirst("h2.title-post a"),
+                    doc.selectFirst(".entry-title a, .post-title a, h2 a"),
+                    doc.selectFirst(".pt-cv-title a"),
+                    doc.selectFirst("img"),
+                    doc.selectFirst("img.pt-cv-thumbnail"),
+                    doc.selectFirst("a.pt-cv-href-thumbnail img"),
+                    doc.selectFirst("time.entry-date"),
+                    doc.selectFirst(".posted-on time, .entry-date"))
+                    + doc.select(".post-meta-category a[rel=category tag]").size();
+        }
+        return found;
+    }
+
+    private static int count(Element... elements) {
+        int found = 0;
+        for (Element element : elements) {
+            if (element != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A saved page from the project root; unit tests run in the module directory
+     */
+    private static Document fixture(String name) throws IOException {
+        File file = new File("..", name);
+        if (!file.exists()) {
+            file = new File(name);
+        }
+        return Jsoup.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), BASE_URL);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.goldenaudiobook.data;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The single-pass DomExtractor against the select()/selectFirst() calls it replaced, on the
+ * saved pages in the project root and on cards in the theme's list layouts. Every field has
+ * to be the same element, or the same values in the same order.
+ */
+public class DomExtractorTest {
+    private static final String BASE_URL = "https://goldenaudiobook.net/";
+
+    // Archive card (category, author and search lists)
+    private static final String ARCHIVE_CARD = "<article id=\"post-28332\" class=\"post type-post\">"
+            + "<div class=\"post-cover\"><a href=\"https://goldenaudiobook.net/lee-child-die-trying-audiobook/\">"
+            + "<img data-src=\"https://goldenaudiobook.net/wp-content/uploads/2022/02/cover-300x450.jpg\" "
+            + "src=\"data:image/gif;base64,R0lGOD\" class=\"attachment-thumbnail\"></a></div>"
+            + "<h2 class=\"title-post\"><a href=\"https://goldenaudiobook.net/lee-child-die-trying-audiobook/\">"
+            + "Lee Child – Die Trying Audiobook</a></h2>"
+            + "<p class=\"post-meta\">in <span class=\"post-meta-category\">"
+            + "<a href=\"https://goldenaudiobook.net/category/mystery/\" rel=\"category tag\">Mystery</a> "
+            + "<a href=\"https://goldenaudiobook.net/category/bestsellers/\" rel=\"category tag\">Bestsellers</a>"
+            + "</span> <span class=\"posted-on\"><time class=\"entry-date published\" "
+            + "datetime=\"2022-02-10T10:00:00+00:00\">February 10, 2022</time></span></p></article>";
+
+    // Home grid card (Content Views)
+    private static final String HOME_CARD = "<div class=\"col-md-3 pt-cv-content-item\">"
+            + "<div class=\"pt-cv-ifield\"><a href=\"https://goldenaudiobook.net/innocent-audio/\" "
+            + "class=\"_self pt-cv-href-thumbnail pt-cv-thumb-default\">"
+            + "<img src=\"https://goldenaudiobook.net/wp-content/uploads/2017/01/cover-200x300.jpg\" "
+            + "class=\"pt-cv-thumbnail img-none\"></a>"
+            + "<h4 class=\"pt-cv-title\"><a href=\"https://goldenaudiobook.net/innocent-audio/\" class=\"_self\">"
+            + "David Baldacci – The Innocent Audiobook</a></h4></div></div>";
+
+    @Test
+    public void detailPageMatchesSelectors() throws IOException {
+        Document doc = fixture("mainAudiobookpage.txt");
+        DomExtractor.Detail detail = DomExtractor.scanDetail(doc);
+        assertDetailParity(doc, detail);
+
+        // The saved page has every field, so the comparison is not between two nulls
+        assertNotNull("title", detail.title);
+        assertNotNull("image", detail.image);
+        assertNotNull("content", detail.content);
+        assertNotNull("date", detail.date);
+        assertNotNull("tag link", detail.lastTagLink);
+        assertFalse("sources", detail.sourceUrls.isEmpty());
+        assertEquals(3, detail.categories.size());
+    }
+
+    @Test
+    public void detailSnippetMatchesSelectors() {
+        Document doc = Jsoup.parse("<div class=\"post-single\"><h1>Title</h1>"
+                + "<iframe src=\"https://example.com/embed/AudioPlayer?id=1\"></iframe>"
+                + "<iframe src=\"https://example.com/video/2\"></iframe>"
+                + "<p class=\"tags-links\">Tags: "
+                + "<a href=\"https://goldenaudiobook.net/tag/narrator/\" rel=\"tag\">Narrator</a> "
+                + "<a href=\"https://goldenaudiobook.net/Author/sylvia-mercedes/\" rel=\"tag\">Sylvia Mercedes</a>"
+                + "</p></div>", BASE_URL);
+        DomExtractor.Detail detail = DomExtractor.scanDetail(doc);
+        assertDetailParity(doc, detail);
+        assertEquals(1, detail.playerIframes.size());
+        assertEquals("Sylvia Mercedes", detail.lastTagLink.text());
+    }
+
+    @Test
+    public void otherFixturesMatchSelectors() throws IOException {
+        for (String name : new String[]{"randomposts.txt", "audiobookcard.txt"}) {
+            Document doc = fixture(name);
+            assertDetailParity(doc, DomExtractor.scanDetail(doc));
+            assertCardParity(doc, DomExtractor.scanCard(doc));
+        }
+    }
+
+    @Test
+    public void detailPageAsCardMatchesSelectors() throws IOException {
+        Document doc = fixture("mainAudiobookpage.txt");
+        assertCardParity(doc, DomExtractor.scanCard(doc));
+    }
+
+    @Test
+    public void randomWidgetItemsMatchSelectors() throws IOException {
+        Elements items = fixture("randomposts.txt").select("li.arpw-li.arpw-clearfix");
+        assertFalse(items.isEmpty());
+        for (Element item : items) {
+            DomExtractor.Card card = DomExtractor.scanCard(item);
+            assertCardParity(item, card);
+            assertNotNull("image", card.image);
+        }
+    }
+
+    @Test
+    public void archiveCardMatchesSelectors() {
+        Element post = Jsoup.parseBodyFragment(ARCHIVE_CARD, BASE_URL).selectFirst("article");
+        DomExtractor.Card card = DomExtractor.scanCard(post);
+        assertCardParity(post, card);
+        assertNotNull("title", card.titlePostLink);
+        assertNotNull("entry time", card.entryTime);
+        assertEquals(2, card.categories.size());
+    }
+
+    @Test
+    public void homeCardMatchesSelectors() {
+        Element post = Jsoup.parseBodyFragment(HOME_CARD, BASE_URL).selectFirst("div.pt-cv-content-item");
+        DomExtractor.Card card = DomExtractor.scanCard(post);
+        assertCardParity(post, card);
+        assertNotNull("title", card.viewTitleLink);
+        assertNotNull("thumbnail", card.viewThumbnail);
+        assertNotNull("linked image", card.viewLinkedImage);
+    }
+
+    private static void assertDetailParity(Element root, DomExtractor.Detail detail) {
+        assertSame("title", root.selectFirst("h1.title-page, h1.entry-title, .post-single h1"), detail.title);
+        assertSame("image", root.selectFirst(".post-single img, .entry-content img, .post-cover img"),
+                detail.image);
+        assertSame("content", root.selectFirst(
+                ".post-single .collapseomatic_content, .entry-content, .post-content"), detail.content);
+        assertSame("date", root.selectFirst(".entry-date, time[datetime]"), detail.date);
+        assertEquals("sources", srcs(root.select("audio source[src]")), detail.sourceUrls);
+        assertEquals("audio", srcs(root.select("audio[src]")), detail.audioUrls);
+        assertEquals("iframes", srcs(root.select("iframe[src*='audio'], iframe[src*='player']")),
+                detail.playerIframes);
+        assertEquals("categories", root.select(".post-meta-category a[rel=category tag]").eachText(),
+                detail.categories);
+        assertSame("tag link", root.select(".tags-links a").last(), detail.lastTagLink);
+    }
+
+    private static void assertCardParity(Element post, DomExtractor.Card card) {
+        assertSame("title-post link", post.selectFirst("h2.title-post a"), card.titlePostLink);
+        assertSame("heading link", post.selectFirst(".entry-title a, .post-title a, h2 a"), card.headingLink);
+        assertSame("view title link", post.selectFirst(".pt-cv-title a"), card.viewTitleLink);
+        assertSame("image", post.selectFirst("img"), card.image);
+        assertSame("view thumbnail", post.selectFirst("img.pt-cv-thumbnail"), card.viewThumbnail);
+        assertSame("linked image", post.selectFirst("a.pt-cv-href-thumbnail img"), card.viewLinkedImage);
+        assertSame("entry time", post.selectFirst("time.entry-date"), card.entryTime);
+        assertSame("posted date", post.selectFirst(".posted-on time, .entry-date"), card.postedDate);
+        assertEquals("categories", post.select(".post-meta-category a[rel=category tag]").eachText(),
+                card.categories);
+    }
+
+    private static List<String> srcs(Elements elements) {
+        List<String> result = new ArrayList<>();
+        for (Element element : elements) {
+            String src = element.attr("src");
+            if (!src.isEmpty()) {
+                result.add(src);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A saved page from the project root; unit tests run in the module directory
+     */
+    private static Document fixture(String name) throws IOException {
+        File file = new File("..", name);
+        if (!file.exists()) {
+            file = new File(name);
+        }
+        return Jsoup.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), BASE_URL);
+    }
+}
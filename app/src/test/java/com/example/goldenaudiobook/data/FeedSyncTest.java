@@ -0,0 +1,134 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FeedSync on recorded RSS pages served by a stub transport, with an in-memory catalog.
+ * Page 1 lists a post with a low id between two newer ones: an old draft published late,
+ * which an id high-water mark would have skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FeedSyncTest {
+    private static final String SITE = "https://goldenaudiobook.net/";
+    private static final String FEED = SITE + "feed/";
+
+    private ReplayTransport transport;
+    private CatalogDatabase catalog;
+    private FeedSync feedSync;
+
+    @Before
+    public void setUp() {
+        transport = new ReplayTransport()
+                .replyWithResource(FEED, "application/rss+xml", "feed/feed-page1.xml")
+                .replyWithResource(FEED + "?paged=2", "application/rss+xml", "feed/feed-page2.xml");
+        catalog = new CatalogDatabase(RuntimeEnvironment.getApplication(), null);
+        feedSync = new FeedSync(transport, catalog, FEED);
+    }
+
+    @After
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Test
+    public void emptyCatalogReadsOnePage() {
+        assertEquals(3, sync());
+        assertEquals(Collections.singletonList(FEED), transport.getRequests());
+
+        Audiobook stored = storedCard("Clive Barker – Weaveworld");
+        assertEquals("Clive Barker – Weaveworld", stored.getTitle());
+        assertEquals("Clive Barker", stored.getAuthor());
+        assertEquals("28401", stored.getId());
+        assertEquals(SITE + "wp-content/uploads/2022/02/weaveworld.jpg", stored.getImageUrl());
+        assertEquals(Arrays.asList("Horror", "Fantasy"), stored.getCategories());
+    }
+
+    @Test
+    public void stopsAtTheFirstKnownPost() {
+        known(28332, "lee-child-die-trying-audiobook", "Lee Child – Die Trying");
+
+        // The low-id post before the known one is new too
+        assertEquals(2, sync());
+        assertTrue(catalog.hasPost("21877", SITE + "john-le-carre-silverview-audiobook/"));
+        assertEquals(Collections.singletonList(FEED), transport.getRequests());
+    }
+
+    @Test
+    public void readsOnUntilAKnownPost() {
+        known(28297, "tana-french-the-searcher-audiobook", "Tana French – The Searcher");
+
+        assertEquals(4, sync());
+        assertEquals(Arrays.asList(FEED, FEED + "?paged=2"), transport.getRequests());
+    }
+
+    @Test
+    public void stopsPastTheLastFeedPage() {
+        known(20000, "an-old-post-audiobook", "Someone – An Old Post");
+
+        assertEquals(5, sync());
+        // Page 3 does not exist; the stub answers 404 like WordPress
+        assertEquals(Arrays.asList(FEED, FEED + "?paged=2", FEED + "?paged=3"), transport.getRequests());
+    }
+
+    @Test
+    public void knownPostIsFoundByUrlWithoutAnId() {
+        known(0, "clive-barker-weaveworld-audiobook", "Clive Barker – Weaveworld");
+
+        assertEquals(0, sync());
+        assertFalse(catalog.hasPost("21877", null));
+    }
+
+    @Test
+    public void secondSyncFindsNothingNew() {
+        sync();
+        transport.clearRequests();
+
+        assertEquals(0, sync());
+        assertEquals(Collections.singletonList(FEED), transport.getRequests());
+    }
+
+    private int sync() {
+        TestCallback<Integer> callback = new TestCallback<>();
+        feedSync.sync(callback);
+        return callback.await();
+    }
+
+    private Audiobook storedCard(String title) {
+        int[] rowId = {-1};
+        catalog.forEachSearchText((id, storedTitle, author) -> {
+            if (storedTitle.equals(title)) {
+                rowId[0] = id;
+            }
+        });
+        List<Audiobook> cards = catalog.getCards(rowId);
+        assertEquals("stored " + title, 1, cards.size());
+        return cards.get(0);
+    }
+
+    /**
+     * Store a post as a list card, as an earlier sync or list page would have
+     */
+    private void known(int postId, String slug, String title) {
+        Audiobook book = new Audiobook(title, SITE + slug + "/", null);
+        if (postId > 0) {
+            book.setId(String.valueOf(postId));
+        }
+        List<Audiobook> books = Collections.singletonList(book);
+        assertEquals(1, catalog.storeCards(books));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.goldenaudiobook.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Dispatch order of the priority lanes, with a manual clock and a worker queue the test
+ * runs by hand: one slot, so every finished task starts exactly one queued task.
+ */
+public class FetchSchedulerTest {
+    private static final String URL = "https://goldenaudiobook.net/";
+
+    private final ArrayDeque<Runnable> started = new ArrayDeque<>();
+    private final List<String> order = new ArrayList<>();
+    private long now;
+    private FetchScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new FetchScheduler(1, 1, started::addLast, () -> now);
+    }
+
+    private void submit(String name, FetchPriority priority) {
+        scheduler.execute(URL, priority, new CancellationToken(), () -> order.add(name));
+    }
+
+    /**
+     * Run the started tasks until the queue is empty
+     */
+    private void drain() {
+        Runnable next;
+        while ((next = started.pollFirst()) != null) {
+            next.run();
+        }
+    }
+
+    @Test
+    public void interactiveIsNeverOvertakenByAgedTasks() {
+        submit("holder", FetchPriority.VISIBLE);
+        submit("background", FetchPriority.BACKGROUND);
+        submit("speculative", FetchPriority.SPECULATIVE);
+        submit("visible", FetchPriority.VISIBLE);
+        now += 60_000;
+        submit("interactive", FetchPriority.INTERACTIVE);
+
+        drain();
+        assertEquals("interactive", order.get(1));
+    }
+
+    @Test
+    public void agedTasksClimbOneLaneAtATime() {
+        submit("holder", FetchPriority.VISIBLE);
+        submit("background", FetchPriority.BACKGROUND);
+        submit("speculative", FetchPriority.SPECULATIVE);
+        now += 60_000;
+        // Both are past their aging limits, but each climbs only one lane per dispatch
+        submit("visible", FetchPriority.VISIBLE);
+
+        drain();
+        assertEquals(Arrays.asList("holder", "visible", "speculative", "background"), order);
+    }
+
+    @Test
+    public void agedBackgroundTaskRunsUnderSteadyVisibleLoad() {
+        submit("holder", FetchPriority.VISIBLE);
+        submit("background", FetchPriority.BACKGROUND);
+
+        // A new visible fetch every second keeps the VISIBLE lane from ever emptying
+        long ranAt = -1;
+        for (int i = 0; i < 30 && ranAt < 0; i++) {
+            submit("visible-" + i, FetchPriority.VISIBLE);
+            now += 1000;
+            started.pollFirst().run();
+            if (order.contains("background")) {
+                ranAt = now;
+            }
+        }
+        // 10 s in BACKGROUND and 3 s in SPECULATIVE, then behind the visible fetches already queued
+        assertTrue("never ran: " + order, ranAt > 0);
+        assertTrue("ran at " + ranAt, ranAt > 13_000);
+    }
+
+    @Test
+    public void promotedTaskRunsInItsNewLane() {
+        submit("holder", FetchPriority.VISIBLE);
+        CancellationToken token = new CancellationToken();
+        scheduler.execute(URL, FetchPriority.BACKGROUND, token, () -> order.add("tapped"));
+        submit("visible", FetchPriority.VISIBLE);
+        scheduler.promote(token, FetchPriority.INTERACTIVE);
+
+        drain();
+        assertEquals(Arrays.asList("holder", "tapped", "visible"), order);
+    }
+
+    @Test
+    public void cancelledAgedTaskIsDropped() {
+        submit("holder", FetchPriority.VISIBLE);
+        CancellationToken token = new CancellationToken();
+        scheduler.execute(URL, FetchPriority.BACKGROUND, token, () -> order.add("cancelled"));
+        now += 60_000;
+        submit("visible", FetchPriority.VISIBLE);
+        token.cancel();
+
+        drain();
+        assertEquals(Arrays.asList("holder", "visible"), order);
+        assertEquals(1, scheduler.getStats().getDropped());
+    }
+
+    @Test
+    public void hostOfUrls() {
+        assertEquals("goldenaudiobook.net", FetchScheduler.hostOf("https://GoldenAudiobook.net:443/page/2/?s=x"));
+        assertEquals("ipaudio.club", FetchScheduler.hostOf("https://user@ipaudio.club/wp-content/a.mp3"));
+        assertEquals("goldenaudiobook.net", FetchScheduler.hostOf("https://goldenaudiobook.net?s=x"));
+        assertEquals("", FetchScheduler.hostOf("not a url"));
+        assertEquals("", FetchScheduler.hostOf(null));
+    }
+}
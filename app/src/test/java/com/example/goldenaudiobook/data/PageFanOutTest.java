@@ -0,0 +1,197 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PageFanOut with pages the test answers by hand, in any order: at most maxConcurrent
+ * pages load at once, pages come out in page order, and a failed page is skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PageFanOutTest {
+    private static final String SITE = "https://goldenaudiobook.net/";
+    private static final String AUTHOR = SITE + "author/lee-child/";
+
+    private PendingCalls<Page<Audiobook>> source;
+    private Recorder listener;
+    private PageFanOut fanOut;
+
+    @Before
+    public void setUp() {
+        source = new PendingCalls<>();
+        listener = new Recorder();
+        fanOut = new PageFanOut(source::add, PageFanOutTest::pageUrl, 2, listener);
+    }
+
+    @Test
+    public void pagesLoadInParallelAndArriveInOrder() {
+        fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onSuccess(page(1, 5));
+        assertEquals(Arrays.asList(pageUrl(1), pageUrl(2), pageUrl(3)), source.keys());
+
+        // Page 3 is in first, and waits for page 2; a slot opens for page 4
+        source.get(pageUrl(3)).onSuccess(page(3, 5));
+        assertEquals(Collections.singletonList(1), listener.pages);
+        assertEquals(pageUrl(4), source.last());
+
+        source.get(pageUrl(2)).onSuccess(page(2, 5));
+        assertEquals(Arrays.asList(1, 2, 3), listener.pages);
+        assertEquals(pageUrl(5), source.last());
+        assertEquals(5, source.keys().size());
+
+        source.get(pageUrl(5)).onSuccess(page(5, 5));
+        assertNull(listener.completed);
+        source.get(pageUrl(4)).onSuccess(page(4, 5));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), listener.pages);
+        assertEquals(Arrays.asList(5, 0), listener.completed);
+    }
+
+    @Test
+    public void failedPageIsSkipped() {
+        fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onSuccess(page(1, 4));
+        source.get(pageUrl(2)).onError(new IOException("timeout"));
+        source.get(pageUrl(3)).onSuccess(page(3, 4));
+        source.get(pageUrl(4)).onSuccess(page(4, 4));
+
+        assertEquals(Arrays.asList(1, 3, 4), listener.pages);
+        assertEquals(Arrays.asList(3, 1), listener.completed);
+    }
+
+    @Test
+    public void withoutATotalPagesAreFollowedOneByOne() {
+        fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onSuccess(page(1, Page.UNKNOWN_TOTAL));
+        assertEquals(Arrays.asList(pageUrl(1), pageUrl(2)), source.keys());
+        source.get(pageUrl(2)).onSuccess(page(2, Page.UNKNOWN_TOTAL));
+        assertEquals(pageUrl(3), source.last());
+
+        // The cursor ends at page 3
+        source.get(pageUrl(3)).onSuccess(new Page<>(items(3), pageUrl(3), null, pageUrl(2), 3,
+                Page.UNKNOWN_TOTAL));
+        assertEquals(Arrays.asList(1, 2, 3), listener.pages);
+        assertEquals(Arrays.asList(3, 0), listener.completed);
+    }
+
+    @Test
+    public void followingStopsAtAFailedPage() {
+        fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onSuccess(page(1, Page.UNKNOWN_TOTAL));
+        source.get(pageUrl(2)).onError(new IOException("timeout"));
+
+        assertEquals(Collections.singletonList(1), listener.pages);
+        assertEquals(Arrays.asList(1, 1), listener.completed);
+        assertEquals(2, source.keys().size());
+    }
+
+    @Test
+    public void singlePageCompletesAtOnce() {
+        fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onSuccess(page(1, 1));
+
+        assertEquals(Collections.singletonList(1), listener.pages);
+        assertEquals(Arrays.asList(1, 0), listener.completed);
+        assertEquals(1, source.keys().size());
+    }
+
+    @Test
+    public void firstPageErrorEndsTheList() {
+        fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onError(new IOException("offline"));
+
+        assertEquals(1, listener.errors);
+        assertTrue(listener.pages.isEmpty());
+        assertNull(listener.completed);
+    }
+
+    @Test
+    public void refreshedFirstPageIsNotFannedOutAgain() {
+        fanOut.start(pageUrl(1));
+        AudiobookRepository.DataCallback<Page<Audiobook>> first = source.get(pageUrl(1));
+        first.onSuccess(page(1, 3));
+        first.onSuccess(page(1, 3));
+
+        assertEquals(Arrays.asList(pageUrl(1), pageUrl(2), pageUrl(3)), source.keys());
+        assertEquals(Collections.singletonList(1), listener.pages);
+    }
+
+    @Test
+    public void brokenPageCountIsCappedAtMaxPages() {
+        fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onSuccess(page(1, 500));
+        for (int number = 2; number <= PageFanOut.MAX_PAGES; number++) {
+            source.get(pageUrl(number)).onSuccess(page(number, 500));
+        }
+
+        assertEquals(PageFanOut.MAX_PAGES, source.keys().size());
+        assertEquals(Arrays.asList(PageFanOut.MAX_PAGES, 0), listener.completed);
+    }
+
+    @Test
+    public void cancelStopsEveryPageStillLoading() {
+        Cancellable handle = fanOut.start(pageUrl(1));
+        source.get(pageUrl(1)).onSuccess(page(1, 5));
+        handle.cancel();
+
+        assertTrue(source.isCancelled(pageUrl(2)));
+        assertTrue(source.isCancelled(pageUrl(3)));
+        source.get(pageUrl(2)).onSuccess(page(2, 5));
+        assertEquals(Collections.singletonList(1), listener.pages);
+        assertEquals(3, source.keys().size());
+        assertNull(listener.completed);
+    }
+
+    private static String pageUrl(int number) {
+        return number == 1 ? AUTHOR : AUTHOR + "page/" + number + "/";
+    }
+
+    /**
+     * Page of a list with this many pages, or with a next page and no total for UNKNOWN_TOTAL
+     */
+    private static Page<Audiobook> page(int number, int totalPages) {
+        boolean hasNext = totalPages == Page.UNKNOWN_TOTAL || number < totalPages;
+        return new Page<>(items(number), pageUrl(number), hasNext ? pageUrl(number + 1) : null,
+                number > 1 ? pageUrl(number - 1) : null, number, totalPages);
+    }
+
+    private static List<Audiobook> items(int number) {
+        Audiobook book = new Audiobook("Book on page " + number, SITE + "book-" + number + "-audiobook/", null);
+        return Collections.singletonList(book);
+    }
+
+    private static final class Recorder implements PageFanOut.Listener {
+        final List<Integer> pages = new ArrayList<>();
+        List<Integer> completed;
+        int errors;
+
+        @Override
+        public void onPage(Page<Audiobook> page) {
+            pages.add(page.getPageNumber());
+        }
+
+        @Override
+        public void onComplete(int pagesLoaded, int pagesFailed) {
+            completed = Arrays.asList(pagesLoaded, pagesFailed);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors++;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Page;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PageRing keeps at most its capacity of pages and gives up the one held longest.
+ */
+public class PageRingTest {
+    private static final String HOME = "https://goldenaudiobook.net/";
+
+    @Test
+    public void holdsPagesByNumber() {
+        PageRing<String> ring = new PageRing<>(3);
+        Page<String> first = page(1);
+        Page<String> second = page(2);
+        ring.put(first);
+        ring.put(second);
+
+        assertSame(first, ring.get(1));
+        assertSame(second, ring.get(2));
+        assertNull(ring.get(3));
+        assertFalse(ring.contains(3));
+    }
+
+    @Test
+    public void newPageTakesTheSlotOfTheOldest() {
+        PageRing<String> ring = new PageRing<>(3);
+        for (int number = 1; number <= 4; number++) {
+            ring.put(page(number));
+        }
+        assertFalse("oldest page evicted", ring.contains(1));
+        assertTrue(ring.contains(2) && ring.contains(3) && ring.contains(4));
+
+        ring.put(page(5));
+        assertFalse(ring.contains(2));
+        assertTrue(ring.contains(3) && ring.contains(4) && ring.contains(5));
+    }
+
+    @Test
+    public void newerCopyReplacesThePageInItsSlot() {
+        PageRing<String> ring = new PageRing<>(2);
+        ring.put(page(1));
+        ring.put(page(2));
+        Page<String> refreshed = page(1);
+        ring.put(refreshed);
+
+        // No slot was taken, so page 2 is still there
+        assertSame(refreshed, ring.get(1));
+        assertTrue(ring.contains(2));
+
+        // Page 1 still holds the oldest slot and goes first
+        ring.put(page(3));
+        assertFalse(ring.contains(1));
+        assertTrue(ring.contains(2));
+    }
+
+    @Test
+    public void clearEmptiesEverySlot() {
+        PageRing<String> ring = new PageRing<>(2);
+        ring.put(page(1));
+        ring.put(page(2));
+        ring.clear();
+
+        assertFalse(ring.contains(1));
+        assertFalse(ring.contains(2));
+        ring.put(page(3));
+        ring.put(page(4));
+        assertTrue(ring.contains(3) && ring.contains(4));
+    }
+
+    @Test
+    public void capacityIsAtLeastOne() {
+        PageRing<String> ring = new PageRing<>(0);
+        ring.put(page(1));
+        assertTrue(ring.contains(1));
+        ring.put(page(2));
+        assertFalse(ring.contains(1));
+        assertTrue(ring.contains(2));
+    }
+
+    private static Page<String> page(int number) {
+        String url = number == 1 ? HOME : HOME + "page/" + number + "/";
+        return new Page<>(Collections.singletonList("post " + number), url, null, null, number, Page.UNKNOWN_TOTAL);
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PagingEngine against a page source the test answers by hand: repeated posts are shown
+ * once, pages load ahead of the viewport, the window keeps at most maxPages pages, and a
+ * refresh of a page trimmed in the meantime is dropped.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PagingEngineTest {
+    private static final String SITE = "https://goldenaudiobook.net/";
+    private static final String LIST = SITE + "category/mystery-audiobooks/";
+    private static final int PAGES = 6;
+
+    private PendingCalls<Page<Audiobook>> source;
+    private Recorder listener;
+    private PagingEngine engine;
+
+    @Before
+    public void setUp() {
+        source = new PendingCalls<>();
+        listener = new Recorder();
+        engine = new PagingEngine(source::add, listener, 3, 1);
+    }
+
+    @Test
+    public void firstPageStreamsThenSettles() {
+        engine.start(pageUrl(1));
+        AudiobookRepository.StreamCallback<Audiobook> first = pending(pageUrl(1));
+        first.onItem(book(1));
+        first.onItem(book(2));
+        assertEquals(Arrays.asList("1", "2"), listener.ids());
+        assertTrue(listener.streaming);
+
+        first.onSuccess(page(1, 1, 2, 3));
+        assertEquals(Arrays.asList("1", "2", "3"), listener.ids());
+        assertFalse(listener.streaming);
+        assertEquals(pageUrl(2), engine.getNextUrl());
+    }
+
+    @Test
+    public void repeatedPostsAreShownOnce() {
+        engine.start(pageUrl(1));
+        pending(pageUrl(1)).onSuccess(page(1, 1, 2, 3));
+        engine.loadMore();
+
+        // A new post pushed 3 onto page 2; a catalog card for 2 has its URL but no id
+        Audiobook cardWithoutId = book(2);
+        cardWithoutId.setId(null);
+        pending(pageUrl(2)).onSuccess(new Page<>(Arrays.asList(book(3), book(4), cardWithoutId),
+                pageUrl(2), pageUrl(3), pageUrl(1), 2, PAGES));
+        assertEquals(Arrays.asList("1", "2", "3", "4"), listener.ids());
+    }
+
+    @Test
+    public void nextPageLoadsAheadOfTheViewport() {
+        engine.start(pageUrl(1));
+        pending(pageUrl(1)).onSuccess(page(1, 1, 2, 3));
+
+        engine.onViewportChanged(0, 1);
+        assertEquals(Collections.singletonList(pageUrl(1)), source.keys());
+        engine.onViewportChanged(0, 2);
+        engine.onViewportChanged(1, 2);
+        // Once, however often the viewport moves while it loads
+        assertEquals(Arrays.asList(pageUrl(1), pageUrl(2)), source.keys());
+        assertEquals(Collections.singletonList(true), listener.loadingMore);
+
+        pending(pageUrl(2)).onSuccess(page(2, 4, 5, 6));
+        assertEquals(Arrays.asList(true, false), listener.loadingMore);
+        assertEquals(6, listener.items.size());
+        assertEquals(Collections.singletonList(Arrays.asList(cover(4), cover(5), cover(6))), listener.covers);
+    }
+
+    @Test
+    public void windowDropsThePageFarthestFromTheViewport() {
+        scrollToPage(4);
+        // Page 1 was dropped when page 4 came in; the viewport stays on the same items
+        assertEquals(ids(4, 12), listener.ids());
+
+        engine.onViewportChanged(0, 1);
+        assertEquals(pageUrl(1), source.last());
+        pending(pageUrl(1)).onSuccess(page(1, 1, 2, 3));
+        // Back at the top, so the bottom page went
+        assertEquals(ids(1, 9), listener.ids());
+        assertEquals(pageUrl(4), engine.getNextUrl());
+    }
+
+    @Test
+    public void refreshOfATrimmedPageIsDropped() {
+        engine.start(pageUrl(1));
+        AudiobookRepository.StreamCallback<Audiobook> first = pending(pageUrl(1));
+        // The cached copy; its refresh comes later through the same callback
+        first.onSuccess(page(1, 1, 2, 3));
+        engine.onViewportChanged(0, 2);
+        pending(pageUrl(2)).onSuccess(page(2, 4, 5, 6));
+        engine.onViewportChanged(3, 5);
+        pending(pageUrl(3)).onSuccess(page(3, 7, 8, 9));
+        engine.onViewportChanged(6, 8);
+        pending(pageUrl(4)).onSuccess(page(4, 10, 11, 12));
+        assertEquals(ids(4, 12), listener.ids());
+        int emitted = listener.emitted;
+
+        first.onSuccess(page(1, 1, 2, 3));
+        assertEquals(emitted, listener.emitted);
+        assertEquals(ids(4, 12), listener.ids());
+    }
+
+    @Test
+    public void refreshReplacesAPageWhereItIs() {
+        engine.start(pageUrl(1));
+        pending(pageUrl(1)).onSuccess(page(1, 1, 2, 3));
+        engine.loadMore();
+        AudiobookRepository.StreamCallback<Audiobook> second = pending(pageUrl(2));
+        second.onSuccess(page(2, 4, 5, 6));
+        List<Boolean> loadingMore = new ArrayList<>(listener.loadingMore);
+
+        // The site has a new post at the top of page 2 by now
+        second.onSuccess(page(2, 13, 4, 5));
+        assertEquals(Arrays.asList("1", "2", "3", "13", "4", "5"), listener.ids());
+        assertEquals(loadingMore, listener.loadingMore);
+        assertEquals(1, listener.covers.size());
+    }
+
+    @Test
+    public void failedLoadWaitsForLoadMore() {
+        engine.start(pageUrl(1));
+        pending(pageUrl(1)).onSuccess(page(1, 1, 2, 3));
+        engine.onViewportChanged(0, 2);
+        pending(pageUrl(2)).onError(new IOException("offline"));
+        assertEquals(Collections.singletonList(false), listener.errorsOnFirstPage);
+        assertTrue(engine.needsLoadMore());
+
+        engine.onViewportChanged(1, 2);
+        assertEquals(2, source.keys().size());
+        engine.loadMore();
+        assertEquals(Arrays.asList(pageUrl(1), pageUrl(2), pageUrl(2)), source.keys());
+        pending(pageUrl(2)).onSuccess(page(2, 4, 5, 6));
+        assertFalse(engine.needsLoadMore());
+        assertEquals(6, listener.items.size());
+    }
+
+    @Test
+    public void firstPageErrorIsReported() {
+        engine.start(pageUrl(1));
+        pending(pageUrl(1)).onError(new IOException("offline"));
+        assertEquals(Collections.singletonList(true), listener.errorsOnFirstPage);
+        assertFalse(engine.canLoadMore());
+    }
+
+    @Test
+    public void restartIgnoresTheEarlierList() {
+        engine.start(pageUrl(1));
+        AudiobookRepository.StreamCallback<Audiobook> stale = pending(pageUrl(1));
+        engine.start(SITE + "category/thriller-audiobooks/");
+        assertTrue(source.isCancelled(pageUrl(1)));
+
+        stale.onSuccess(page(1, 1, 2, 3));
+        assertEquals(0, listener.emitted);
+        assertNull(engine.getNextUrl());
+    }
+
+    private void scrollToPage(int last) {
+        engine.start(pageUrl(1));
+        pending(pageUrl(1)).onSuccess(page(1, 1, 2, 3));
+        for (int number = 2; number <= last; number++) {
+            int shown = listener.items.size();
+            engine.onViewportChanged(shown - 3, shown - 1);
+            pending(pageUrl(number)).onSuccess(page(number, 3 * number - 2, 3 * number - 1, 3 * number));
+        }
+    }
+
+    /**
+     * Callback of the latest load of a URL; the engine streams every page it loads
+     */
+    private AudiobookRepository.StreamCallback<Audiobook> pending(String url) {
+        return (AudiobookRepository.StreamCallback<Audiobook>) source.get(url);
+    }
+
+    private static String pageUrl(int number) {
+        return number == 1 ? LIST : LIST + "page/" + number + "/";
+    }
+
+    private static Page<Audiobook> page(int number, int... postIds) {
+        List<Audiobook> items = new ArrayList<>();
+        for (int postId : postIds) {
+            items.add(book(postId));
+        }
+        return new Page<>(items, pageUrl(number), number < PAGES ? pageUrl(number + 1) : null,
+                number > 1 ? pageUrl(number - 1) : null, number, PAGES);
+    }
+
+    private static Audiobook book(int postId) {
+        Audiobook book = new Audiobook("Book " + postId, SITE + "book-" + postId + "-audiobook/", cover(postId));
+        book.setId(String.valueOf(postId));
+        return book;
+    }
+
+    private static String cover(int postId) {
+        return SITE + "wp-content/uploads/book-" + postId + ".jpg";
+    }
+
+    private static List<String> ids(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int id = from; id <= to; id++) {
+            ids.add(String.valueOf(id));
+        }
+        return ids;
+    }
+
+    private static final class Recorder implements PagingEngine.Listener {
+        List<Audiobook> items = Collections.emptyList();
+        boolean streaming;
+        int emitted;
+        final List<Boolean> errorsOnFirstPage = new ArrayList<>();
+        final List<Boolean> loadingMore = new ArrayList<>();
+        final List<List<String>> covers = new ArrayList<>();
+
+        @Override
+        public void onItems(List<Audiobook> items, boolean streaming) {
+            this.items = items;
+            this.streaming = streaming;
+            emitted++;
+        }
+
+        @Override
+        public void onError(Exception e, boolean firstPage) {
+            errorsOnFirstPage.add(firstPage);
+        }
+
+        @Override
+        public void onLoadingMore(boolean loading) {
+            loadingMore.add(loading);
+        }
+
+        @Override
+        public void onPrefetchCovers(List<String> imageUrls) {
+            covers.add(imageUrls);
+        }
+
+        List<String> ids() {
+            List<String> ids = new ArrayList<>();
+            for (Audiobook item : items) {
+                ids.add(item.getId() != null ? item.getId() : item.getUrl());
+            }
+            return ids;
+        }
+    }
+}
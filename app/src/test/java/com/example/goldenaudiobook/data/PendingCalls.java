@@ -0,0 +1,67 @@
+package com.example.goldenaudiobook.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stands in for a data source whose calls the test answers by hand: every call is recorded
+ * with its callback, and the handle it returns only records being cancelled.
+ */
+final class PendingCalls<T> {
+    private final List<String> keys = new ArrayList<>();
+    private final List<AudiobookRepository.DataCallback<T>> callbacks = new ArrayList<>();
+    private final List<Boolean> cancelled = new ArrayList<>();
+
+    /**
+     * Record a call, e.g. from a lambda implementing the source
+     */
+    Cancellable add(String key, AudiobookRepository.DataCallback<T> callback) {
+        int index = keys.size();
+        keys.add(key);
+        callbacks.add(callback);
+        cancelled.add(false);
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                cancelled.set(index, true);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled.get(index);
+            }
+
+            @Override
+            public boolean isDone() {
+                return cancelled.get(index);
+            }
+        };
+    }
+
+    /**
+     * Callback of the latest call for a key
+     */
+    AudiobookRepository.DataCallback<T> get(String key) {
+        int index = keys.lastIndexOf(key);
+        if (index < 0) {
+            throw new AssertionError("no call for " + key + " in " + keys);
+        }
+        return callbacks.get(index);
+    }
+
+    /**
+     * Keys of every call so far, in order
+     */
+    List<String> keys() {
+        return new ArrayList<>(keys);
+    }
+
+    String last() {
+        return keys.get(keys.size() - 1);
+    }
+
+    boolean isCancelled(String key) {
+        int index = keys.lastIndexOf(key);
+        return index >= 0 && cancelled.get(index);
+    }
+}
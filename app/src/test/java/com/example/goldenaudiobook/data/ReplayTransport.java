@@ -0,0 +1,104 @@
+package com.example.goldenaudiobook.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HttpTransport that replays canned responses by URL, standing in for the site. URLs without
+ * a reply answer 404. Every request is recorded in order.
+ */
+final class ReplayTransport implements HttpTransport {
+    private final Map<String, Reply> replies = new ConcurrentHashMap<>();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile Listener listener;
+
+    /**
+     * Called on the requesting thread before a request is answered
+     */
+    interface Listener {
+        void onRequest(Request request);
+    }
+
+    private static final class Reply {
+        final int code;
+        final String contentType;
+        final String body;
+
+        Reply(int code, String contentType, String body) {
+            this.code = code;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    ReplayTransport reply(String url, String contentType, String body) {
+        replies.put(url, new Reply(200, contentType, body));
+        return this;
+    }
+
+    /**
+     * Answer a URL with a file from the test resources
+     */
+    ReplayTransport replyWithResource(String url, String contentType, String resource) {
+        return reply(url, contentType, resource(resource));
+    }
+
+    ReplayTransport replyStatus(String url, int code) {
+        replies.put(url, new Reply(code, "text/html", ""));
+        return this;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * URLs requested so far, in order
+     */
+    List<String> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    void clearRequests() {
+        requests.clear();
+    }
+
+    @Override
+    public Response get(Request request) throws IOException {
+        requests.add(request.getUrl());
+        Listener current = listener;
+        if (current != null) {
+            current.onRequest(request);
+        }
+        if (request.getCancellationToken() != null) {
+            request.getCancellationToken().throwIfCancelled();
+        }
+        Reply reply = replies.get(request.getUrl());
+        if (reply == null) {
+            reply = new Reply(404, "text/html", "");
+        }
+        return new Response(reply.code, request.getUrl(),
+                Collections.singletonMap("Content-Type", reply.contentType + "; charset=UTF-8"), "UTF-8",
+                new ByteArrayInputStream(reply.body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String resource(String name) {
+        try (InputStream in = ReplayTransport.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new AssertionError("Missing test resource " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.NavItem;
+import com.example.goldenaudiobook.model.Page;
+import com.example.goldenaudiobook.model.Shelf;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ShelfFanOut with categories and shelf pages the test answers by hand: every shelf loads
+ * at once, each is delivered as its page comes in, and a shelf slower than the timeout is
+ * given up on without holding up the others.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ShelfFanOutTest {
+    private static final String SITE = "https://goldenaudiobook.net/";
+    private static final String MYSTERY = SITE + "category/mystery-audiobooks/";
+    private static final String FANTASY = SITE + "category/fantasy-audiobooks/";
+    private static final String HORROR = SITE + "category/horror-audiobooks/";
+    private static final long TIMEOUT_MS = 8000;
+
+    private PendingCalls<List<NavItem>> categories;
+    private PendingCalls<Page<Audiobook>> pages;
+    private Recorder listener;
+    private ShelfFanOut fanOut;
+
+    @Before
+    public void setUp() {
+        categories = new PendingCalls<>();
+        pages = new PendingCalls<>();
+        listener = new Recorder();
+        fanOut = new ShelfFanOut(callback -> categories.add("categories", callback), pages::add, TIMEOUT_MS,
+                listener);
+    }
+
+    @Test
+    public void everyCategoryBecomesAShelfLoadedAtOnce() {
+        fanOut.start();
+        categories.get("categories").onSuccess(navigation());
+
+        assertEquals(Arrays.asList("Mystery", "Fantasy", "Horror"), titles(listener.shelves));
+        for (Shelf shelf : listener.shelves) {
+            assertEquals(Shelf.State.LOADING, shelf.getState());
+        }
+        // Headers and links that are not categories get no shelf
+        assertEquals(Arrays.asList(MYSTERY, FANTASY, HORROR), pages.keys());
+    }
+
+    @Test
+    public void shelvesArriveAsTheirPagesDo() {
+        Cancellable handle = startShelves();
+        pages.get(HORROR).onSuccess(page(HORROR, 3));
+        assertEquals(Collections.singletonList(2), listener.indexes);
+        assertEquals(Shelf.State.LOADED, listener.shelf(2).getState());
+        assertEquals(3, listener.shelf(2).getItems().size());
+
+        pages.get(MYSTERY).onSuccess(page(MYSTERY, 2));
+        pages.get(FANTASY).onSuccess(page(FANTASY, 1));
+        assertEquals(Arrays.asList(2, 0, 1), listener.indexes);
+        assertTrue(handle.isDone());
+
+        // Loaded shelves have no timeout left to fire
+        ShadowLooper.idleMainLooper(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertEquals(3, listener.indexes.size());
+    }
+
+    @Test
+    public void slowShelfIsGivenUpOn() {
+        Cancellable handle = startShelves();
+        pages.get(MYSTERY).onSuccess(page(MYSTERY, 2));
+        pages.get(HORROR).onSuccess(page(HORROR, 2));
+
+        ShadowLooper.idleMainLooper(TIMEOUT_MS - 1, TimeUnit.MILLISECONDS);
+        assertEquals(2, listener.indexes.size());
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList(0, 2, 1), listener.indexes);
+        assertEquals(Shelf.State.FAILED, listener.shelf(1).getState());
+        assertTrue(pages.isCancelled(FANTASY));
+        assertTrue(handle.isDone());
+
+        // Its page turning up late changes nothing
+        pages.get(FANTASY).onSuccess(page(FANTASY, 2));
+        assertEquals(3, listener.indexes.size());
+    }
+
+    @Test
+    public void failedShelfDoesNotStopTheOthers() {
+        startShelves();
+        pages.get(FANTASY).onError(new IOException("timeout"));
+        pages.get(FANTASY).onError(new IOException("again"));
+        pages.get(MYSTERY).onSuccess(page(MYSTERY, 2));
+
+        assertEquals(Arrays.asList(1, 0), listener.indexes);
+        assertEquals(Shelf.State.FAILED, listener.shelf(1).getState());
+        assertEquals(Shelf.State.LOADED, listener.shelf(0).getState());
+    }
+
+    @Test
+    public void refreshedPageUpdatesItsShelf() {
+        startShelves();
+        AudiobookRepository.DataCallback<Page<Audiobook>> mystery = pages.get(MYSTERY);
+        mystery.onSuccess(page(MYSTERY, 2));
+        mystery.onSuccess(page(MYSTERY, 3));
+
+        assertEquals(Arrays.asList(0, 0), listener.indexes);
+        assertEquals(3, listener.shelf(0).getItems().size());
+    }
+
+    @Test
+    public void categoriesErrorMeansNoShelves() {
+        Cancellable handle = fanOut.start();
+        categories.get("categories").onError(new IOException("offline"));
+
+        assertEquals(1, listener.errors);
+        assertTrue(listener.shelves.isEmpty());
+        assertTrue(handle.isDone());
+    }
+
+    @Test
+    public void cancelStopsLoadsAndTimeouts() {
+        Cancellable handle = startShelves();
+        pages.get(MYSTERY).onSuccess(page(MYSTERY, 2));
+        handle.cancel();
+
+        assertTrue(pages.isCancelled(FANTASY));
+        assertTrue(pages.isCancelled(HORROR));
+        ShadowLooper.idleMainLooper(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        pages.get(HORROR).onSuccess(page(HORROR, 2));
+        assertEquals(Collections.singletonList(0), listener.indexes);
+        assertFalse(listener.shelves.isEmpty());
+    }
+
+    private Cancellable startShelves() {
+        Cancellable handle = fanOut.start();
+        categories.get("categories").onSuccess(navigation());
+        return handle;
+    }
+
+    private static List<NavItem> navigation() {
+        NavItem header = new NavItem("Categories", null, true);
+        NavItem home = new NavItem("Home", SITE, false);
+        return Arrays.asList(header, home, category("Mystery", MYSTERY), category("Fantasy", FANTASY),
+                category("Horror", HORROR));
+    }
+
+    private static NavItem category(String title, String url) {
+        NavItem item = new NavItem(title, url, false);
+        item.setCategory(true);
+        return item;
+    }
+
+    private static Page<Audiobook> page(String url, int count) {
+        List<Audiobook> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Audiobook("Book " + i, url + "book-" + i + "/", null));
+        }
+        return new Page<>(items, url, url + "page/2/", null, 1, Page.UNKNOWN_TOTAL);
+    }
+
+    private static List<String> titles(List<Shelf> shelves) {
+        List<String> titles = new ArrayList<>();
+        for (Shelf shelf : shelves) {
+            titles.add(shelf.getTitle());
+        }
+        return titles;
+    }
+
+    private static final class Recorder implements ShelfFanOut.Listener {
+        List<Shelf> shelves = Collections.emptyList();
+        final List<Integer> indexes = new ArrayList<>();
+        final List<Shelf> delivered = new ArrayList<>();
+        int errors;
+
+        @Override
+        public void onShelves(List<Shelf> shelves) {
+            this.shelves = shelves;
+        }
+
+        @Override
+        public void onShelf(int index, Shelf shelf) {
+            indexes.add(index);
+            delivered.add(shelf);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors++;
+        }
+
+        /**
+         * The shelf last delivered at an index
+         */
+        Shelf shelf(int index) {
+            return delivered.get(indexes.lastIndexOf(index));
+        }
+    }
+}
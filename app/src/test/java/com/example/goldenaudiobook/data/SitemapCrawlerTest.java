@@ -0,0 +1,165 @@
+package com.example.goldenaudiobook.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SitemapCrawler on a recorded sitemap index and post sitemap served by a stub transport,
+ * with an in-memory catalog. Only post sitemaps are read, and only posts whose lastmod is
+ * new are fetched; progress kept in the catalog lets a stopped crawl continue.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SitemapCrawlerTest {
+    private static final String SITE = "https://goldenaudiobook.net/";
+    private static final String INDEX = SITE + "wp-sitemap.xml";
+    private static final String PLUGIN_INDEX = SITE + "sitemap_index.xml";
+    private static final String POST_SITEMAP = SITE + "wp-sitemap-posts-post-1.xml";
+    private static final String SEARCHER = SITE + "tana-french-the-searcher-audiobook/";
+    private static final String STYLES = SITE + "agatha-christie-the-mysterious-affair-at-styles-audiobook/";
+    private static final String DIE_TRYING = SITE + "lee-child-die-trying-audiobook/";
+
+    private ReplayTransport transport;
+    private CatalogDatabase catalog;
+    private SitemapCrawler crawler;
+
+    @Before
+    public void setUp() {
+        transport = new ReplayTransport()
+                .replyWithResource(INDEX, "application/xml", "sitemaps/wp-sitemap.xml")
+                .replyWithResource(POST_SITEMAP, "application/xml", "sitemaps/wp-sitemap-posts-post-1.xml");
+        detailPage(SEARCHER, 28297, "Tana French – The Searcher");
+        detailPage(STYLES, 28310, "Agatha Christie – The Mysterious Affair at Styles");
+        detailPage(DIE_TRYING, 28332, "Lee Child – Die Trying");
+        catalog = new CatalogDatabase(RuntimeEnvironment.getApplication(), null);
+        crawler = new SitemapCrawler(transport, catalog, INDEX, PLUGIN_INDEX);
+    }
+
+    @After
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Test
+    public void firstCrawlFetchesEveryPost() {
+        SitemapCrawler.Progress progress = crawl(100);
+
+        assertEquals(1, progress.getSitemapsRead());
+        assertEquals(3, progress.getQueued());
+        assertEquals(3, progress.getFetched());
+        assertEquals(0, progress.getPending());
+        assertEquals(3, catalog.getBookCount());
+        // Only the post sitemap is read; pages, taxonomies and users are not books
+        List<String> requests = transport.getRequests();
+        assertEquals(Arrays.asList(INDEX, POST_SITEMAP), requests.subList(0, 2));
+        assertEquals(5, requests.size());
+        assertTrue(requests.containsAll(Arrays.asList(SEARCHER, STYLES, DIE_TRYING)));
+        assertTrue(catalog.hasPost("28310", STYLES));
+    }
+
+    @Test
+    public void unchangedSitemapIsNotReadAgain() {
+        crawl(100);
+        transport.clearRequests();
+
+        SitemapCrawler.Progress progress = crawl(100);
+        assertEquals(0, progress.getSitemapsRead());
+        assertEquals(0, progress.getFetched());
+        assertEquals(Arrays.asList(INDEX), transport.getRequests());
+    }
+
+    @Test
+    public void onlyPostsWithANewLastmodAreFetched() {
+        crawl(100);
+        transport.clearRequests();
+
+        // One post was edited: its lastmod and the sitemap's lastmod move on
+        transport.reply(INDEX, "application/xml", ReplayTransport.resource("sitemaps/wp-sitemap.xml")
+                .replace("<lastmod>2022-02-10T10:00:00+00:00</lastmod></sitemap>",
+                        "<lastmod>2022-03-01T08:00:00+00:00</lastmod></sitemap>"));
+        transport.reply(POST_SITEMAP, "application/xml",
+                ReplayTransport.resource("sitemaps/wp-sitemap-posts-post-1.xml")
+                        .replace("2022-02-08T16:42:11+00:00", "2022-03-01T08:00:00+00:00"));
+
+        SitemapCrawler.Progress progress = crawl(100);
+        assertEquals(1, progress.getSitemapsRead());
+        assertEquals(1, progress.getQueued());
+        assertEquals(1, progress.getFetched());
+        assertEquals(Arrays.asList(INDEX, POST_SITEMAP, STYLES), transport.getRequests());
+    }
+
+    @Test
+    public void fetchBudgetTakesNewestPostsFirst() {
+        SitemapCrawler.Progress first = crawl(2);
+        assertEquals(2, first.getFetched());
+        assertEquals(1, first.getPending());
+        assertTrue(transport.getRequests().containsAll(Arrays.asList(STYLES, DIE_TRYING)));
+        transport.clearRequests();
+
+        // The oldest post is left for the next crawl
+        SitemapCrawler.Progress second = crawl(2);
+        assertEquals(0, second.getSitemapsRead());
+        assertEquals(1, second.getFetched());
+        assertEquals(0, second.getPending());
+        assertEquals(Arrays.asList(INDEX, SEARCHER), transport.getRequests());
+    }
+
+    @Test
+    public void cancelledCrawlResumesWithoutRereadingTheSitemap() {
+        AtomicReference<Cancellable> crawl = new AtomicReference<>();
+        transport.setListener(request -> {
+            // Stop as soon as the first detail page is asked for; the sitemap has been read
+            if (request.getUrl().equals(DIE_TRYING) && crawl.get() != null) {
+                crawl.get().cancel();
+            }
+        });
+        TestCallback<SitemapCrawler.Progress> cancelled = new TestCallback<>();
+        crawl.set(crawler.crawl(100, cancelled));
+        TestCallback.idleMainLooperUntil(() -> transport.getRequests().contains(DIE_TRYING));
+        assertEquals(0, catalog.getBookCount());
+        assertEquals(3, catalog.getPendingCount());
+
+        transport.setListener(null);
+        transport.clearRequests();
+        SitemapCrawler.Progress progress = crawl(100);
+        assertEquals(0, progress.getSitemapsRead());
+        assertEquals(3, progress.getFetched());
+        assertFalse(transport.getRequests().contains(POST_SITEMAP));
+        assertEquals(3, catalog.getBookCount());
+    }
+
+    @Test
+    public void missingIndexFallsBackToThePluginIndex() {
+        transport.replyStatus(INDEX, 404);
+        transport.reply(PLUGIN_INDEX, "application/xml", ReplayTransport.resource("sitemaps/wp-sitemap.xml"));
+
+        SitemapCrawler.Progress progress = crawl(100);
+        assertEquals(1, progress.getSitemapsRead());
+        assertEquals(3, progress.getFetched());
+    }
+
+    private SitemapCrawler.Progress crawl(int budget) {
+        TestCallback<SitemapCrawler.Progress> callback = new TestCallback<>();
+        crawler.crawl(budget, callback);
+        return callback.await();
+    }
+
+    private void detailPage(String url, int postId, String title) {
+        transport.reply(url, "text/html", "<!DOCTYPE html><html><head><title>" + title + "</title></head>"
+                + "<body class=\"post-template-default single single-post postid-" + postId + " single-format-standard\">"
+                + "<div class=\"post-single\"><h1 class=\"title-page\">" + title + " Audiobook</h1>"
+                + "<div class=\"entry-content\"><p>" + title + " read by the narrator.</p></div></div>"
+                + "</body></html>");
+    }
+}
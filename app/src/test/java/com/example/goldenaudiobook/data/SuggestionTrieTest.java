@@ -0,0 +1,181 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Completions from the title and author trie: prefix walks through split edges, best weight
+ * first, authors counted per title, and the front-coded file read back as it was written.
+ * The trie reads its file on a thread of its own, so tests wait for it to fill.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SuggestionTrieTest {
+    private static final long TIMEOUT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "suggestions.trie");
+    }
+
+    @Test
+    public void completesTitlesAndAuthorsCaseInsensitively() {
+        SuggestionTrie trie = filled(
+                book("Lee Child – Die Trying", "Lee Child"),
+                book("Tana French – The Searcher", "Tana French"));
+
+        assertEquals(Collections.singletonList("Lee Child"), trie.suggest("lee", 10));
+        assertEquals(Collections.singletonList("Die Trying"), trie.suggest("  DIE   t", 10));
+        assertEquals(Collections.singletonList("The Searcher"), trie.suggest("the searcher", 10));
+    }
+
+    @Test
+    public void prolificAuthorsRankFirst() {
+        SuggestionTrie trie = filled(
+                book("Laura Lippman – Lady in the Lake", "Laura Lippman"),
+                book("Lee Child – Die Trying", "Lee Child"),
+                book("Lee Child – Killing Floor", "Lee Child"),
+                book("Lee Child – Tripwire", "Lee Child"));
+
+        List<String> suggestions = trie.suggest("l", 10);
+        assertEquals(3, suggestions.size());
+        assertEquals("Lee Child", suggestions.get(0));
+        assertTrue(suggestions.containsAll(Arrays.asList("Laura Lippman", "Lady in the Lake")));
+        assertEquals(Collections.singletonList("Lee Child"), trie.suggest("l", 1));
+    }
+
+    @Test
+    public void booksSeenAgainDoNotChangeWeights() {
+        SuggestionTrie trie = filled(
+                book("Laura Lippman – Lady in the Lake", "Laura Lippman"),
+                book("Lee Child – Die Trying", "Lee Child"),
+                book("Lee Child – Killing Floor", "Lee Child"));
+        int size = trie.size();
+
+        for (int i = 0; i < 3; i++) {
+            trie.addAll(Collections.singletonList(book("Laura Lippman – Lady in the Lake", "Laura Lippman")));
+        }
+        assertEquals(size, trie.size());
+        assertEquals(Collections.singletonList("Lee Child"), trie.suggest("l", 1));
+    }
+
+    @Test
+    public void keyThatIsAPrefixOfAnotherComesFirstOnATie() {
+        SuggestionTrie trie = filled(
+                book("It Ends with Us", null),
+                book("It", null),
+                book("Itinerary", null));
+
+        assertEquals("It", trie.suggest("it", 10).get(0));
+        assertEquals(3, trie.suggest("it", 10).size());
+        assertEquals(Collections.singletonList("It Ends with Us"), trie.suggest("it e", 10));
+        // The typed text runs past an edge that ends in another word
+        assertEquals(Collections.emptyList(), trie.suggest("itx", 10));
+        assertEquals(Collections.emptyList(), trie.suggest("it ends x", 10));
+    }
+
+    @Test
+    public void firstSpellingIsKept() {
+        SuggestionTrie trie = filled(
+                book("Lee Child – Die Trying", "Lee Child"),
+                book("LEE CHILD – Tripwire", "LEE CHILD"));
+
+        assertEquals(Collections.singletonList("Lee Child"), trie.suggest("lee", 10));
+        assertEquals(Collections.singletonList("Tripwire"), trie.suggest("trip", 10));
+    }
+
+    @Test
+    public void nothingToComplete() {
+        SuggestionTrie trie = filled(book("Lee Child – Die Trying", "Lee Child"));
+
+        assertEquals(Collections.emptyList(), trie.suggest("x", 10));
+        assertEquals(Collections.emptyList(), trie.suggest("   ", 10));
+        assertEquals(Collections.emptyList(), trie.suggest(null, 10));
+        assertEquals(Collections.emptyList(), trie.suggest("lee", 0));
+    }
+
+    @Test
+    public void savedTrieIsReadBack() throws InterruptedException {
+        SuggestionTrie trie = filled(
+                book("Laura Lippman – Lady in the Lake", "Laura Lippman"),
+                book("Lee Child – Die Trying", "Lee Child"),
+                book("Lee Child – Killing Floor", "Lee Child"),
+                book("Lee Child – Killing Floor", "Lee Child"));
+        // Saved a few seconds after the last change
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!file.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue("saved", file.exists());
+
+        SuggestionTrie reread = new SuggestionTrie(file);
+        awaitSize(reread, trie.size());
+        for (String prefix : new String[]{"l", "la", "lee", "k", "die"}) {
+            assertEquals(prefix, trie.suggest(prefix, 10), reread.suggest(prefix, 10));
+        }
+        // The weights came along: the author still beats the two titles
+        assertEquals(Collections.singletonList("Lee Child"), reread.suggest("l", 1));
+    }
+
+    @Test
+    public void unreadableFileIsDiscarded() throws IOException {
+        Files.write(file.toPath(), "not a trie".getBytes(StandardCharsets.UTF_8));
+
+        SuggestionTrie trie = new SuggestionTrie(file);
+        trie.addAll(Collections.singletonList(book("Lee Child – Die Trying", "Lee Child")));
+        awaitSize(trie, 2);
+        assertEquals(Collections.singletonList("Die Trying"), trie.suggest("d", 10));
+    }
+
+    /**
+     * A trie on an empty file with the books added, once its read has finished
+     */
+    private SuggestionTrie filled(Audiobook... books) {
+        SuggestionTrie trie = new SuggestionTrie(file);
+        trie.addAll(Arrays.asList(books));
+        // Books added before the read finished are applied all at once after it
+        awaitSize(trie, 1);
+        return trie;
+    }
+
+    private static void awaitSize(SuggestionTrie trie, int size) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (trie.size() < size) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("trie has " + trie.size() + " strings, expected " + size);
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static Audiobook book(String title, String author) {
+        Audiobook book = new Audiobook(title, null, null);
+        book.setAuthor(author);
+        return book;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.goldenaudiobook.data;
+
+import android.os.Looper;
+
+import java.util.function.BooleanSupplier;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Callback that records what a data source delivers. Deliveries are posted to the main
+ * looper, which the await methods run on the test thread until one has arrived.
+ */
+final class TestCallback<T> implements WebDataSource.Callback<T> {
+    private static final long TIMEOUT_MS = 10_000;
+
+    private boolean done;
+    private T result;
+    private Exception error;
+
+    @Override
+    public void onSuccess(T result) {
+        this.result = result;
+        done = true;
+    }
+
+    @Override
+    public void onError(Exception e) {
+        this.error = e;
+        done = true;
+    }
+
+    /**
+     * The delivered result; fails if the request failed
+     */
+    T await() {
+        idleMainLooperUntil(() -> done);
+        if (error != null) {
+            throw new AssertionError("Request failed", error);
+        }
+        return result;
+    }
+
+    /**
+     * The delivered error; fails if the request succeeded
+     */
+    Exception awaitError() {
+        idleMainLooperUntil(() -> done);
+        if (error == null) {
+            throw new AssertionError("Request succeeded: " + result);
+        }
+        return error;
+    }
+
+    /**
+     * Run main-looper messages posted by fetch threads until the condition holds
+     */
+    static void idleMainLooperUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT_MS * 1_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for the main looper");
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.goldenaudiobook.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TrigramIndex: misspelled titles and authors still find their books, ranked by the share
+ * of the query's trigrams they hold and then by how little else they hold.
+ */
+public class TrigramIndexTest {
+    private static final int ROWLING = 101;
+    private static final int DIE_TRYING = 205;
+    private static final int SEARCHER = 317;
+    private static final int KILLING_FLOOR = 422;
+
+    private TrigramIndex index;
+
+    @Before
+    public void setUp() {
+        index = new TrigramIndex.Builder()
+                .add(ROWLING, "Harry Potter and the Philosopher's Stone J.K. Rowling")
+                .add(DIE_TRYING, "Die Trying Lee Child")
+                .add(SEARCHER, "The Searcher Tana French")
+                .add(KILLING_FLOOR, "Killing Floor Lee Child")
+                .add(500, "  ?! ")
+                .build(7);
+    }
+
+    @Test
+    public void trigramsArePaddedSortedAndDistinct() {
+        assertEquals(3, TrigramIndex.trigramsOf("Lee").length);
+        // "lee" twice and punctuation between words add nothing
+        assertArrayEquals(TrigramIndex.trigramsOf("lee"), TrigramIndex.trigramsOf("LEE, lee!"));
+        long[] trigrams = TrigramIndex.trigramsOf("die trying");
+        for (int i = 1; i < trigrams.length; i++) {
+            assertTrue(trigrams[i - 1] < trigrams[i]);
+        }
+        assertEquals(0, TrigramIndex.trigramsOf(null).length);
+        assertEquals(0, TrigramIndex.trigramsOf(" - ").length);
+    }
+
+    @Test
+    public void misspelledWordsFindTheirBook() {
+        assertArrayEquals(new int[]{ROWLING}, search("Rowlings"));
+        assertArrayEquals(new int[]{SEARCHER}, search("searchr"));
+        assertArrayEquals(new int[]{SEARCHER}, search("tana frnech"));
+    }
+
+    @Test
+    public void equalOverlapRanksTheShorterTextFirst() {
+        assertArrayEquals(new int[]{DIE_TRYING, KILLING_FLOOR}, search("Lee Chid"));
+    }
+
+    @Test
+    public void higherOverlapRanksFirst() {
+        assertArrayEquals(new int[]{KILLING_FLOOR, DIE_TRYING}, search("lee child killin"));
+        // Without the author's first name Die Trying holds less than half the query
+        assertArrayEquals(new int[]{KILLING_FLOOR}, search("child killin"));
+    }
+
+    @Test
+    public void minScoreAndLimitCutTheList() {
+        assertArrayEquals(new int[0], index.search("Rowlings", 10, 0.9f));
+        assertArrayEquals(new int[]{DIE_TRYING}, index.search("Lee Chid", 1, TrigramIndex.DEFAULT_MIN_SCORE));
+        assertArrayEquals(new int[0], index.search("Lee Chid", 0, TrigramIndex.DEFAULT_MIN_SCORE));
+        assertArrayEquals(new int[0], search("zzyzx"));
+        assertArrayEquals(new int[0], search("  "));
+    }
+
+    @Test
+    public void booksWithoutWordsAreNotIndexed() {
+        assertEquals(4, index.getBookCount());
+        assertEquals(7, index.getVersion());
+    }
+
+    @Test
+    public void largeCatalogKeepsRowIds() {
+        TrigramIndex.Builder builder = new TrigramIndex.Builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.add(10000 + i, "Book " + i);
+        }
+        TrigramIndex large = builder.build(1);
+        assertEquals(1000, large.getBookCount());
+        assertEquals(10599, large.search("book 599", 10, TrigramIndex.DEFAULT_MIN_SCORE)[0]);
+        assertEquals(10, large.search("book 599", 10, TrigramIndex.DEFAULT_MIN_SCORE).length);
+    }
+
+    private int[] search(String query) {
+        return index.search(query, 10, TrigramIndex.DEFAULT_MIN_SCORE);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.goldenaudiobook.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Canonical keys for the URLs the scraper builds and follows: home grid pages, search and
+ * its next-page links, category archives, and post and audio links with escaped paths.
+ */
+public class UrlCanonicalizerTest {
+
+    private static void assertCanonical(String expected, String... urls) {
+        for (String url : urls) {
+            assertEquals(url, expected, UrlCanonicalizer.canonicalize(url));
+        }
+    }
+
+    @Test
+    public void homePages() {
+        assertCanonical("https://goldenaudiobook.net/",
+                "https://goldenaudiobook.net/",
+                "https://goldenaudiobook.net",
+                "https://goldenaudiobook.net/?_page=1",
+                "https://GoldenAudiobook.net:443/#content");
+        assertCanonical("https://goldenaudiobook.net/?_page=2",
+                "https://goldenaudiobook.net/?_page=2",
+                "https://goldenaudiobook.net?_page=2#main");
+    }
+
+    @Test
+    public void homeGridAndPathPagingKeepSeparateKeys() {
+        // Different paginators, not known to return the same posts
+        assertNotEquals(UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/?_page=2"),
+                UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/page/2/"));
+        assertNotEquals(UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/?_page=2"),
+                UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/?_page=3"));
+    }
+
+    @Test
+    public void searchTerm() {
+        assertCanonical("https://goldenaudiobook.net/?s=lee+child",
+                "https://goldenaudiobook.net/?s=Lee+child",
+                "https://goldenaudiobook.net/?s=Lee%20Child",
+                "https://goldenaudiobook.net?s=+Lee++Child+",
+                "https://goldenaudiobook.net/page/1/?s=lee+child");
+    }
+
+    @Test
+    public void searchNextPageLinks() {
+        // The theme adds the id of the current post to the links of the search pagination
+        assertCanonical("https://goldenaudiobook.net/page/2/?s=lee+child",
+                "https://goldenaudiobook.net/page/2/?s=Lee+child&id=28332",
+                "https://goldenaudiobook.net/page/2/?id=28332&s=Lee+child",
+                "https://goldenaudiobook.net/page/2?s=lee%20child");
+        assertCanonical("https://goldenaudiobook.net/?s=lee+child",
+                "https://goldenaudiobook.net/page/1/?s=Lee+child&id=28332");
+        assertNotEquals(UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/page/2/?s=lee+child"),
+                UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/page/3/?s=lee+child"));
+    }
+
+    @Test
+    public void queryParametersAreSorted() {
+        assertCanonical("https://goldenaudiobook.net/?_page=2&s=stephen+king",
+                "https://goldenaudiobook.net/?s=Stephen+King&_page=2",
+                "https://goldenaudiobook.net/?_page=2&s=stephen%20king");
+    }
+
+    @Test
+    public void categoryPages() {
+        assertCanonical("https://goldenaudiobook.net/category/bestsellers/",
+                "https://goldenaudiobook.net/category/bestsellers/",
+                "https://goldenaudiobook.net/category/bestsellers",
+                "https://goldenaudiobook.net/category/bestsellers/page/1/",
+                "https://goldenaudiobook.net/category/bestsellers/page/1",
+                "https://GOLDENAUDIOBOOK.NET/category/bestsellers/#content");
+        assertCanonical("https://goldenaudiobook.net/category/science-fiction-audiobooks/page/3/",
+                "https://goldenaudiobook.net/category/science-fiction-audiobooks/page/3/",
+                "https://goldenaudiobook.net/category/science-fiction-audiobooks/page/3",
+                "https://goldenaudiobook.net/category/science-fiction-audiobooks/page/3/#top");
+    }
+
+    @Test
+    public void pathCaseIsKept() {
+        assertCanonical("https://goldenaudiobook.net/Author/sylvia-mercedes/",
+                "https://goldenaudiobook.net/Author/sylvia-mercedes/");
+        assertNotEquals(UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/Author/sylvia-mercedes/"),
+                UrlCanonicalizer.canonicalize("https://goldenaudiobook.net/author/sylvia-mercedes/"));
+    }
+
+    @Test
+    public void encodedPaths() {
+        assertCanonical("https://ipaudio.club/wp-content/uploads/GOLN/Moonfire%20Bride%20(Sylvia%20Mercedes)/01.mp3",
+                "https://ipaudio.club/wp-content/uploads/GOLN/Moonfire%20Bride%20(Sylvia%20Mercedes)/01.mp3",
+                "https://ipaudio.club/wp-content/uploads/GOLN/Moonfire Bride (Sylvia Mercedes)/01.mp3");
+        assertCanonical("https://goldenaudiobook.net/caf%C3%A9-audiobook/",
+                "https://goldenaudiobook.net/caf%c3%a9-audiobook/",
+                "https://goldenaudiobook.net/caf\u00e9-audiobook/",
+                "https://goldenaudiobook.net/caf%C3%A9-audiobook");
+        assertCanonical("https://goldenaudiobook.net/~user-name/",
+                "https://goldenaudiobook.net/%7euser%2dname/",
+                "https://goldenaudiobook.net/%7Euser-name/");
+    }
+
+    @Test
+    public void postUrls() {
+        assertCanonical("https://goldenaudiobook.net/lee-child-die-trying-audiobook/",
+                "https://goldenaudiobook.net/lee-child-die-trying-audiobook/",
+                "https://goldenaudiobook.net/lee-child-die-trying-audiobook",
+                "https://goldenaudiobook.net/lee-child-die-trying-audiobook/#comments");
+        // The post id of a feed guid is the page, not the search pagination id
+        assertCanonical("https://goldenaudiobook.net/?p=28332", "https://goldenaudiobook.net/?p=28332");
+    }
+
+    @Test
+    public void filesKeepTheirPath() {
+        assertCanonical("https://goldenaudiobook.net/wp-content/uploads/2021/05/cover.jpg",
+                "https://goldenaudiobook.net/wp-content/uploads/2021/05/cover.jpg");
+    }
+
+    @Test
+    public void nullIsEmpty() {
+        assertEquals("", UrlCanonicalizer.canonicalize(null));
+    }
+}
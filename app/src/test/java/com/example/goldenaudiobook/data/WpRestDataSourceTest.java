@@ -0,0 +1,211 @@
+package com.example.goldenaudiobook.data;
+
+import com.example.goldenaudiobook.model.Audiobook;
+import com.example.goldenaudiobook.model.Page;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WpRestDataSource against a local server replaying responses recorded from the site, with
+ * the site's origin rewritten to the server. The recorded HTML archive has three posts a
+ * page, so a paging session that mixed API and HTML pages would skip or repeat posts.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WpRestDataSourceTest {
+    private static final String SITE = "https://goldenaudiobook.net";
+    private static final String POSTS = "/wp-json/wp/v2/posts";
+    private static final String CATEGORIES = "/wp-json/wp/v2/categories";
+    private static final String ARCHIVE = "/category/mystery-audiobooks/";
+
+    private final Map<String, String[]> routes = new ConcurrentHashMap<>();
+    // Route of every request, and its full path with the query
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, String> lastPath = new ConcurrentHashMap<>();
+    private MockWebServer server;
+    private String origin;
+    private WpRestDataSource dataSource;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return replay(request);
+            }
+        });
+        server.start();
+        origin = server.url("/").toString().replaceAll("/$", "");
+        dataSource = new WpRestDataSource(new OkHttpTransport(new OkHttpClient()), origin + "/wp-json/wp/v2/");
+
+        route(CATEGORIES, "wp-json/categories.json", "1");
+        route(POSTS + "?page=1", "wp-json/posts-mystery-page1.json", "2");
+        route(POSTS + "?page=2", "wp-json/posts-mystery-page2.json", "2");
+        route(ARCHIVE, "html/category-mystery-page1.html", null);
+        route(ARCHIVE + "page/2/", "html/category-mystery-page2.html", null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void categoryPagesFromTheApi() {
+        Page<Audiobook> first = loadCategoryPage(null);
+        assertEquals(Arrays.asList("Lee Child – Die Trying", "Agatha Christie – The Mysterious Affair at Styles",
+                "Tana French – The Searcher"), titles(first));
+        Audiobook book = first.getItems().get(0);
+        assertEquals("28332", book.getId());
+        assertEquals(SITE + "/lee-child-die-trying-audiobook/", book.getUrl());
+        assertEquals("Lee Child", book.getAuthor());
+        assertEquals(SITE + "/wp-content/uploads/2022/02/die-trying.jpg", book.getImageUrl());
+        assertEquals("February 10, 2022", book.getPublishedDate());
+        assertEquals(Arrays.asList("Mystery", "Bestsellers"), book.getCategories());
+        assertNull("no featured media", first.getItems().get(2).getImageUrl());
+
+        // Pages keep the HTML scheme; the total comes from X-WP-TotalPages
+        assertEquals(origin + ARCHIVE + "page/2/", first.getNextUrl());
+        assertEquals(2, first.getTotalPages());
+        String query = lastPath.get(POSTS + "?page=1");
+        assertTrue(query, query.contains("categories=7") && query.contains("per_page=10"));
+
+        Page<Audiobook> second = loadCategoryPage(first.getNextUrl());
+        assertEquals(Arrays.asList("Louise Penny – Still Life", "Anthony Horowitz – Magpie Murders"), titles(second));
+        assertNull(second.getNextUrl());
+        assertEquals(origin + ARCHIVE, second.getPreviousUrl());
+        assertFalse("no HTML requests", requests.contains(ARCHIVE) || requests.contains(ARCHIVE + "page/2/"));
+    }
+
+    @Test
+    public void disabledApiFallsBackToHtml() {
+        route(POSTS + "?page=1", null, null);
+
+        Page<Audiobook> first = loadCategoryPage(null);
+        assertEquals(3, first.getItems().size());
+        assertEquals("Lee Child – Die Trying", first.getItems().get(0).getTitle());
+        assertEquals(origin + ARCHIVE + "page/2/", first.getNextUrl());
+        assertTrue(requests.contains(ARCHIVE));
+    }
+
+    @Test
+    public void sessionStartedFromHtmlStaysOnHtml() {
+        route(POSTS + "?page=1", null, null);
+        Page<Audiobook> first = loadCategoryPage(null);
+        assertTrue(requests.contains(ARCHIVE));
+
+        // The API is back and retried by now, but its page 2 would start at the 11th post
+        route(POSTS + "?page=1", "wp-json/posts-mystery-page1.json", "2");
+        ShadowSystemClock.advanceBy(Duration.ofHours(1));
+        requests.clear();
+        Page<Audiobook> second = loadCategoryPage(first.getNextUrl());
+        assertEquals(Arrays.asList("Louise Penny – Still Life", "Anthony Horowitz – Magpie Murders"), titles(second));
+        assertEquals(Collections.singletonList(ARCHIVE + "page/2/"), requests);
+
+        // A new session starts on the API again
+        requests.clear();
+        loadCategoryPage(null);
+        assertTrue(requests.toString(), requests.contains(POSTS + "?page=1"));
+        assertFalse(requests.contains(ARCHIVE));
+    }
+
+    @Test
+    public void sessionStartedFromTheApiDoesNotContinueFromHtml() {
+        Page<Audiobook> first = loadCategoryPage(null);
+        route(POSTS + "?page=2", null, null);
+
+        TestCallback<Page<Audiobook>> callback = new TestCallback<>();
+        dataSource.getAudiobooksByCategoryPage(origin + ARCHIVE, first.getNextUrl(), FetchPriority.VISIBLE, callback);
+        callback.awaitError();
+        assertFalse(requests.contains(ARCHIVE + "page/2/"));
+    }
+
+    @Test
+    public void cacheOnlyCopyDoesNotFallBack() {
+        TestCallback<Page<Audiobook>> callback = new TestCallback<>();
+        dataSource.cacheOnly().getAudiobooksByCategoryPage(origin + ARCHIVE, null, FetchPriority.VISIBLE, callback);
+        callback.awaitError();
+        assertFalse(requests.contains(ARCHIVE));
+    }
+
+    private Page<Audiobook> loadCategoryPage(String pageUrl) {
+        TestCallback<Page<Audiobook>> callback = new TestCallback<>();
+        dataSource.getAudiobooksByCategoryPage(origin + ARCHIVE, pageUrl, FetchPriority.VISIBLE, callback);
+        return callback.await();
+    }
+
+    private static List<String> titles(Page<Audiobook> page) {
+        List<String> titles = new ArrayList<>();
+        for (Audiobook audiobook : page.getItems()) {
+            titles.add(audiobook.getTitle());
+        }
+        return titles;
+    }
+
+    /**
+     * Serve a recorded file at a route, or answer 404 when resource is null
+     */
+    private void route(String route, String resource, String totalPages) {
+        routes.put(route, new String[]{resource, totalPages});
+    }
+
+    private MockResponse replay(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        String route = url.encodedPath();
+        if (route.equals(POSTS)) {
+            route += "?page=" + url.queryParameter("page");
+        }
+        requests.add(route);
+        lastPath.put(route, request.getPath());
+        String[] reply = routes.get(route);
+        if (reply == null || reply[0] == null) {
+            return new MockResponse().setResponseCode(404)
+                    .setHeader("Content-Type", "application/json; charset=UTF-8")
+                    .setBody("{\"code\":\"rest_no_route\",\"data\":{\"status\":404}}");
+        }
+        MockResponse response = new MockResponse()
+                .setHeader("Content-Type", (reply[0].endsWith(".json") ? "application/json" : "text/html")
+                        + "; charset=UTF-8")
+                .setBody(resource(reply[0]).replace(SITE, origin));
+        if (reply[1] != null) {
+            response.setHeader("X-WP-TotalPages", reply[1]);
+        }
+        return response;
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = WpRestDataSourceTest.class.getClassLoader().getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}